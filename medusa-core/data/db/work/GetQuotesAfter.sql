@@ -0,0 +1,19 @@
+CREATE PROCEDURE GetQuotesAfter(
+	IN symbol VARCHAR(20),
+	IN after DATE
+)
+
+READS SQL DATA
+COMMENT 'Selects quotes newer then given date for given symbol'
+
+BEGIN
+
+	-- Create paper table if not exist 
+	CALL CreatePaper(symbol);
+
+	-- Get quotes after given date from paper table 
+	SET @s = CONCAT('SELECT * FROM ', symbol, ' WHERE time > ? ORDER BY time');
+	SET @after = after;
+	PREPARE stmt FROM @s;
+	EXECUTE stmt USING @after;
+END
@@ -0,0 +1,245 @@
+package com.sarxos.medusa.data;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.market.Timeframe;
+
+
+/**
+ * Aggregates ticks (or 1 minute quotes) into bars of the given timeframes in
+ * a single pass. Bar is completed when the first tick from the next bar
+ * arrives (or when aggregator is flushed) and then it is passed to the bar
+ * listeners. Bars which are still being built can be read with the getters,
+ * e.g. to get day open, high and low price for the current tick.<br>
+ * <br>
+ *
+ * Bars are distinguished by the bar number calculated from the local time
+ * (see {@link Timeframe#bar(long, TimeZone)}), so days are correctly split
+ * also on the year boundary. Aggregation state is kept in primitive arrays -
+ * the only objects created are the completed bars.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class BarAggregator {
+
+	private final Symbol symbol;
+
+	private final Timeframe[] timeframes;
+
+	private final TimeZone zone;
+
+	private final long[] number;
+
+	private final long[] time;
+
+	private final double[] open;
+
+	private final double[] high;
+
+	private final double[] low;
+
+	private final double[] close;
+
+	private final long[] volume;
+
+	private final List<BarListener> listeners = new ArrayList<BarListener>();
+
+	/**
+	 * Create aggregator using default time zone.
+	 *
+	 * @param symbol - symbol of the aggregated quotes
+	 * @param timeframes - timeframes to aggregate quotes into
+	 */
+	public BarAggregator(Symbol symbol, Timeframe... timeframes) {
+		this(symbol, TimeZone.getDefault(), timeframes);
+	}
+
+	/**
+	 * Create aggregator.
+	 *
+	 * @param symbol - symbol of the aggregated quotes
+	 * @param zone - time zone bars are aligned to
+	 * @param timeframes - timeframes to aggregate quotes into
+	 */
+	public BarAggregator(Symbol symbol, TimeZone zone, Timeframe... timeframes) {
+
+		if (symbol == null) {
+			throw new IllegalArgumentException("Symbol cannot be null");
+		}
+		if (zone == null) {
+			throw new IllegalArgumentException("Time zone cannot be null");
+		}
+		if (timeframes.length == 0) {
+			throw new IllegalArgumentException("At least one timeframe is required");
+		}
+
+		int n = timeframes.length;
+
+		this.symbol = symbol;
+		this.zone = zone;
+		this.timeframes = timeframes.clone();
+		this.number = new long[n];
+		this.time = new long[n];
+		this.open = new double[n];
+		this.high = new double[n];
+		this.low = new double[n];
+		this.close = new double[n];
+		this.volume = new long[n];
+
+		reset();
+	}
+
+	/**
+	 * Add tick.
+	 *
+	 * @param q - tick or intraday quote
+	 */
+	public void add(Quote q) {
+		add(q.getDate().getTime(), q.getOpen(), q.getHigh(), q.getLow(), q.getClose(), q.getVolume());
+	}
+
+	/**
+	 * Add tick. Ticks have to be added in time order.
+	 *
+	 * @param t - tick time
+	 * @param o - open price
+	 * @param h - highest price
+	 * @param l - lowest price
+	 * @param c - close price
+	 * @param v - volume
+	 */
+	public void add(long t, double o, double h, double l, double c, long v) {
+
+		for (int i = 0; i < timeframes.length; i++) {
+
+			long b = timeframes[i].bar(t, zone);
+
+			if (b != number[i]) {
+				if (number[i] != Long.MIN_VALUE) {
+					complete(i);
+				}
+				number[i] = b;
+				open[i] = o;
+				high[i] = h;
+				low[i] = l;
+				volume[i] = 0;
+			}
+
+			high[i] = h > high[i] ? h : high[i];
+			low[i] = l < low[i] ? l : low[i];
+			close[i] = c;
+			volume[i] += v;
+			time[i] = t;
+		}
+	}
+
+	/**
+	 * Complete all bars which are still being built, e.g. at the end of
+	 * stream.
+	 */
+	public void flush() {
+		for (int i = 0; i < timeframes.length; i++) {
+			if (number[i] != Long.MIN_VALUE) {
+				complete(i);
+			}
+		}
+		reset();
+	}
+
+	/**
+	 * Drop all bars which are still being built.
+	 */
+	public void reset() {
+		for (int i = 0; i < timeframes.length; i++) {
+			number[i] = Long.MIN_VALUE;
+		}
+	}
+
+	private void complete(int i) {
+		if (listeners.isEmpty()) {
+			return;
+		}
+		BarEvent be = new BarEvent(this, timeframes[i], getBar(timeframes[i]));
+		for (BarListener listener : listeners) {
+			listener.barClosed(be);
+		}
+	}
+
+	private int index(Timeframe tf) {
+		for (int i = 0; i < timeframes.length; i++) {
+			if (timeframes[i] == tf) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Timeframe " + tf + " is not aggregated");
+	}
+
+	/**
+	 * @param tf - timeframe
+	 * @return true if bar of given timeframe is being built
+	 */
+	public boolean hasBar(Timeframe tf) {
+		return number[index(tf)] != Long.MIN_VALUE;
+	}
+
+	/**
+	 * Return bar which is being built. Bar date is the time of its last tick.
+	 *
+	 * @param tf - timeframe
+	 * @return New quote with bar values or null if there is no bar
+	 */
+	public Quote getBar(Timeframe tf) {
+		int i = index(tf);
+		if (number[i] == Long.MIN_VALUE) {
+			return null;
+		}
+		return new Quote(symbol, new Date(time[i]), open[i], high[i], low[i], close[i], volume[i]);
+	}
+
+	public double getOpen(Timeframe tf) {
+		return open[index(tf)];
+	}
+
+	public double getHigh(Timeframe tf) {
+		return high[index(tf)];
+	}
+
+	public double getLow(Timeframe tf) {
+		return low[index(tf)];
+	}
+
+	public double getClose(Timeframe tf) {
+		return close[index(tf)];
+	}
+
+	public long getVolume(Timeframe tf) {
+		return volume[index(tf)];
+	}
+
+	public Symbol getSymbol() {
+		return symbol;
+	}
+
+	/**
+	 * @return Aggregated timeframes
+	 */
+	public Timeframe[] getTimeframes() {
+		return timeframes.clone();
+	}
+
+	public void addBarListener(BarListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Bar listener cannot be null");
+		}
+		listeners.add(listener);
+	}
+
+	public boolean removeBarListener(BarListener listener) {
+		return listeners.remove(listener);
+	}
+}
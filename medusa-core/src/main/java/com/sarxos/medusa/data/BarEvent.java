@@ -0,0 +1,64 @@
+package com.sarxos.medusa.data;
+
+import java.util.EventObject;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Timeframe;
+
+
+/**
+ * Bar event - it handles completed bar of given timeframe.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class BarEvent extends EventObject {
+
+	private static final long serialVersionUID = 7151386254089931553L;
+
+	/**
+	 * Bar timeframe.
+	 */
+	private Timeframe timeframe = null;
+
+	/**
+	 * Completed bar.
+	 */
+	private Quote bar = null;
+
+	/**
+	 * Create bar event.
+	 *
+	 * @param aggregator - source aggregator
+	 * @param timeframe - bar timeframe
+	 * @param bar - completed bar
+	 */
+	public BarEvent(BarAggregator aggregator, Timeframe timeframe, Quote bar) {
+		super(aggregator);
+		this.timeframe = timeframe;
+		this.bar = bar;
+	}
+
+	@Override
+	public BarAggregator getSource() {
+		return (BarAggregator) super.getSource();
+	}
+
+	/**
+	 * @return Bar timeframe
+	 */
+	public Timeframe getTimeframe() {
+		return timeframe;
+	}
+
+	/**
+	 * @return Completed bar
+	 */
+	public Quote getBar() {
+		return bar;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + timeframe + " " + bar + "]";
+	}
+}
@@ -0,0 +1,16 @@
+package com.sarxos.medusa.data;
+
+/**
+ * Bar listener interface.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public interface BarListener {
+
+	/**
+	 * Notified after bar has been completed.
+	 *
+	 * @param be - bar event
+	 */
+	public void barClosed(BarEvent be);
+}
@@ -2,11 +2,11 @@ package com.sarxos.medusa.data;
 
 import java.util.Date;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
 import com.sarxos.medusa.market.Symbol;
 
 
@@ -18,9 +18,9 @@ import com.sarxos.medusa.market.Symbol;
 public class FakeQuotesRegistry extends QuotesRegistry {
 
 	/**
-	 * Quotes map.
+	 * Quotes series map.
 	 */
-	private Map<Symbol, List<Quote>> quotes = new HashMap<Symbol, List<Quote>>();
+	private Map<Symbol, QuoteSeries> quotes = new HashMap<Symbol, QuoteSeries>();
 
 	/**
 	 * Registry instance.
@@ -43,45 +43,68 @@ public class FakeQuotesRegistry extends QuotesRegistry {
 
 	@Override
 	public List<Quote> getQuotes(Symbol symbol) {
+		QuoteSeries series = quotes.get(symbol);
+		return series == null ? null : series.asList();
+	}
+
+	/**
+	 * @param symbol - symbol to get series for
+	 * @return Quotes series or null if there is no quotes for given symbol
+	 */
+	public QuoteSeries getSeries(Symbol symbol) {
 		return quotes.get(symbol);
 	}
 
 	/**
-	 * Add quote to the quotes register.
+	 * Add quote to the quotes register. Quote values are copied into the
+	 * symbol's quotes series, so registry hand out series views instead of
+	 * the given quote object.
 	 * 
 	 * @param symbol - symbol to attach quote to
 	 * @param q - quote to add
 	 */
 	public void addQuote(Symbol symbol, Quote q) {
 
-		List<Quote> qs = quotes.get(symbol);
+		QuoteSeries qs = quotes.get(symbol);
 		if (qs == null) {
-			qs = new LinkedList<Quote>();
+			qs = new QuoteSeries(symbol);
 			quotes.put(symbol, qs);
 		}
 
 		int n = qs.size();
 		if (n > 0) {
-			Quote p = qs.get(n - 1);
 
 			long m = 1000 * 60 * 60 * 24;
-			long pt = p.getDate().getTime();
+			long pt = qs.getTime(n - 1);
 			long qt = q.getDate().getTime();
 
 			if (qt / m <= (pt - m) / m) {
 				throw new RuntimeException(
 					"Quotes registry can store only end-of-date quotes! " +
 					"You are trying to add new quote for the previous date (" +
-					p.getDate() + " vs " + q.getDate());
+					new Date(pt) + " vs " + q.getDate());
 			}
-
-			p.setNext(q);
-			q.setPrev(p);
 		}
 
 		qs.add(q);
 	}
 
+	/**
+	 * Create new registry with copies of all quotes series and the same
+	 * history provider, so quotes can be added to the copy without changing
+	 * this registry.
+	 * 
+	 * @return Registry copy
+	 */
+	public FakeQuotesRegistry copy() {
+		FakeQuotesRegistry copy = new FakeQuotesRegistry();
+		copy.setHistoryProvider(getHistoryProvider());
+		for (Map.Entry<Symbol, QuoteSeries> e : quotes.entrySet()) {
+			copy.quotes.put(e.getKey(), QuoteSeries.of(e.getKey(), e.getValue().asList()));
+		}
+		return copy;
+	}
+
 	/**
 	 * Load quotes from the real quotes registry. Only quotes before given date
 	 * will be loaded.
@@ -90,22 +113,32 @@ public class FakeQuotesRegistry extends QuotesRegistry {
 	 * @param date - load quotes before this date
 	 */
 	public void load(Symbol symbol, Date date) {
+		load(symbol, date, QuotesRegistry.getInstance().getQuotes(symbol));
+	}
+
+	/**
+	 * Load given quotes history. Only quotes before given date will be
+	 * loaded. Quotes are copied, so the same history can be loaded into many
+	 * registries.
+	 * 
+	 * @param symbol - symbol to load
+	 * @param date - load quotes before this date
+	 * @param quotes - quotes history, the oldest one first
+	 */
+	public void load(Symbol symbol, Date date, List<Quote> quotes) {
 
-		QuotesRegistry qr = QuotesRegistry.getInstance();
-		List<Quote> quotes = qr.getQuotes(symbol);
-		Quote head = quotes.get(0);
+		if (quotes == null || quotes.isEmpty()) {
+			return;
+		}
 
 		long m = 1000 * 60 * 60 * 24;
-		long ht = head.getDate().getTime();
 		long dt = date.getTime();
-		
-		while (ht / m < (dt - m) / m) {
-			addQuote(symbol, head);
-			if ((head = head.next()) != null) {
-				ht = head.getDate().getTime();
-			} else {
+
+		for (Quote q : quotes) {
+			if (q.getDate().getTime() / m >= (dt - m) / m) {
 				break;
 			}
+			addQuote(symbol, q);
 		}
 	}
 }
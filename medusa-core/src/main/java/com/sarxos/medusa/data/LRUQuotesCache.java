@@ -0,0 +1,204 @@
+package com.sarxos.medusa.data;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteView;
+import com.sarxos.medusa.market.Symbol;
+
+
+/**
+ * Quotes cache with memory budget. Size of each quotes list is estimated from
+ * number of quotes and when total size exceeds the budget, least recently
+ * used lists are evicted. The most recently put list is never evicted, even
+ * if it alone exceeds the budget.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class LRUQuotesCache implements QuotesCache {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(LRUQuotesCache.class.getSimpleName());
+
+	/**
+	 * Estimated size of quote stored in series - six primitive columns (views
+	 * are short living and they are not kept by the series).
+	 */
+	private static final long SERIES_QUOTE_SIZE = 6 * 8;
+
+	/**
+	 * Estimated size of standalone quote - object with date, links and list
+	 * node.
+	 */
+	private static final long QUOTE_SIZE = 160;
+
+	/**
+	 * Cache entry.
+	 */
+	private static class Entry {
+
+		private final List<Quote> quotes;
+
+		private final long size;
+
+		public Entry(List<Quote> quotes) {
+			this.quotes = quotes;
+			this.size = estimate(quotes);
+		}
+	}
+
+	/**
+	 * Entries in access order.
+	 */
+	private final LinkedHashMap<Symbol, Entry> entries = new LinkedHashMap<Symbol, Entry>(16, 0.75f, true);
+
+	/**
+	 * Memory budget in bytes.
+	 */
+	private final long budget;
+
+	/**
+	 * Estimated size of all cached entries.
+	 */
+	private long size = 0;
+
+	private long hits = 0;
+
+	private long misses = 0;
+
+	private long evictions = 0;
+
+	/**
+	 * Create cache.
+	 *
+	 * @param budget - memory budget in bytes
+	 */
+	public LRUQuotesCache(long budget) {
+		if (budget <= 0) {
+			throw new IllegalArgumentException("Cache budget must be positive");
+		}
+		this.budget = budget;
+	}
+
+	/**
+	 * Estimate memory used by given quotes list.
+	 *
+	 * @param quotes - quotes list
+	 * @return Estimated size in bytes
+	 */
+	public static long estimate(List<Quote> quotes) {
+		if (quotes == null || quotes.isEmpty()) {
+			return 0;
+		}
+		long n = quotes.size();
+		if (quotes.get(0) instanceof QuoteView) {
+			return n * SERIES_QUOTE_SIZE;
+		} else {
+			return n * QUOTE_SIZE;
+		}
+	}
+
+	@Override
+	public synchronized List<Quote> get(Symbol symbol) {
+		Entry e = entries.get(symbol);
+		if (e == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return e.quotes;
+	}
+
+	@Override
+	public synchronized void put(Symbol symbol, List<Quote> quotes) {
+
+		if (quotes == null) {
+			remove(symbol);
+			return;
+		}
+
+		Entry e = new Entry(quotes);
+		Entry old = entries.put(symbol, e);
+		if (old != null) {
+			size -= old.size;
+		}
+		size += e.size;
+
+		// just put entry is the most recently used one, so it is the last
+		Iterator<Map.Entry<Symbol, Entry>> i = entries.entrySet().iterator();
+		while (size > budget && entries.size() > 1) {
+			Map.Entry<Symbol, Entry> eldest = i.next();
+			size -= eldest.getValue().size;
+			i.remove();
+			evictions++;
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Quotes for symbol " + eldest.getKey() + " evicted from cache");
+			}
+		}
+	}
+
+	@Override
+	public synchronized List<Quote> remove(Symbol symbol) {
+		Entry e = entries.remove(symbol);
+		if (e == null) {
+			return null;
+		}
+		size -= e.size;
+		return e.quotes;
+	}
+
+	@Override
+	public synchronized Set<Symbol> symbols() {
+		return new HashSet<Symbol>(entries.keySet());
+	}
+
+	@Override
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+
+	@Override
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	@Override
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return Memory budget in bytes
+	 */
+	public long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * @return Estimated size of all cached quotes in bytes
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return getClass().getSimpleName() + "[size=" + size + ", budget=" + budget + ", entries=" + entries.size() + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+}
@@ -0,0 +1,686 @@
+package com.sarxos.medusa.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+import com.sarxos.medusa.data.QuotesStreamReader.Format;
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Symbol;
+
+
+/**
+ * Byte level quotes reader. It works exactly like {@link QuotesStreamReader}
+ * (produce the same quotes for the same input), but instead of splitting lines
+ * into strings and parsing them with {@link java.text.SimpleDateFormat} and
+ * {@link Double#parseDouble(String)} it scans raw bytes from the given
+ * {@link ByteBuffer} and computes dates and prices arithmetically. The only
+ * objects created per line are the resulting {@link Quote} and its
+ * {@link Date}.<br>
+ * <br>
+ *
+ * Reader does not change position of the given buffer - it operates on the
+ * absolute indexes between buffer position and limit.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class QuotesBufferReader implements Closeable {
+
+	/**
+	 * Milliseconds in one hour.
+	 */
+	private static final long HOUR = 60 * 60 * 1000;
+
+	/**
+	 * Max mantissa which can be represented exactly as double (2^53).
+	 */
+	private static final long MAX_EXACT = 1L << 53;
+
+	/**
+	 * Powers of ten which can be represented exactly as double.
+	 */
+	private static final double[] POW10 = new double[23];
+
+	static {
+		POW10[0] = 1;
+		for (int i = 1; i < POW10.length; i++) {
+			POW10[i] = POW10[i - 1] * 10;
+		}
+	}
+
+	/**
+	 * Underlying bytes buffer.
+	 */
+	private ByteBuffer buffer = null;
+
+	/**
+	 * Current read position (absolute index in buffer).
+	 */
+	private int pos = 0;
+
+	/**
+	 * Buffer limit.
+	 */
+	private int limit = 0;
+
+	/**
+	 * Recognized buffer format.
+	 */
+	private Format format = null;
+
+	/**
+	 * Fields separators indexes found in the current line.
+	 */
+	private final int[] commas = new int[16];
+
+	/**
+	 * Last parsed ticker bytes (to avoid symbol lookup for every line).
+	 */
+	private final byte[] ticker = new byte[32];
+
+	/**
+	 * Last parsed ticker length.
+	 */
+	private int tlength = -1;
+
+	/**
+	 * Last parsed symbol.
+	 */
+	private Symbol symbol = null;
+
+	/**
+	 * Last parsed day key (yyyyMMdd as integer).
+	 */
+	private int day = -1;
+
+	/**
+	 * Local midnight of the last parsed day.
+	 */
+	private long midnight = 0;
+
+	/**
+	 * Time zone offset in the last parsed day midnight.
+	 */
+	private int offset = 0;
+
+	/**
+	 * Calendar used only when day changes.
+	 */
+	private final Calendar calendar = Calendar.getInstance();
+
+	/**
+	 * Default time zone (the same as used by SimpleDateFormat).
+	 */
+	private final TimeZone zone = calendar.getTimeZone();
+
+	/**
+	 * Number of the line being currently parsed.
+	 */
+	private int num = 0;
+
+	private boolean closed = false;
+
+	/**
+	 * Create quotes reader from bytes buffer. Bytes are read from current
+	 * buffer position up to its limit.
+	 *
+	 * @param buffer - bytes buffer to read
+	 */
+	public QuotesBufferReader(ByteBuffer buffer) {
+		if (buffer == null) {
+			throw new IllegalArgumentException("Buffer cannot be null");
+		}
+		this.buffer = buffer;
+		this.pos = buffer.position();
+		this.limit = buffer.limit();
+	}
+
+	/**
+	 * @return true in case if reader is closed, false otherwise
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			buffer = null;
+		}
+	}
+
+	/**
+	 * Tells whether this reader is ready to be read, i.e. if there are still
+	 * some bytes to read.
+	 *
+	 * @return true if there are some bytes available
+	 */
+	public boolean ready() {
+		return !closed && pos < limit;
+	}
+
+	/**
+	 * @return Current position (absolute index in the underlying buffer)
+	 */
+	public int position() {
+		return pos;
+	}
+
+	/**
+	 * @return Reader limit (absolute index in the underlying buffer)
+	 */
+	public int limit() {
+		return limit;
+	}
+
+	/**
+	 * Set reader position. Given position shall point to the beginning of the
+	 * line.
+	 *
+	 * @param position - new absolute position in the underlying buffer
+	 */
+	public void position(int position) {
+		if (position < 0 || position > limit) {
+			throw new IllegalArgumentException("Position " + position + " is out of bounds");
+		}
+		this.pos = position;
+	}
+
+	/**
+	 * @return the format
+	 */
+	protected Format getFormat() {
+		return format;
+	}
+
+	/**
+	 * Reads and return quotes from the buffer. Maximum number of reads is equal
+	 * to the input array length, however there can be less quotes in the
+	 * underlying buffer and in this case this method returns integer less then
+	 * input array length.
+	 *
+	 * @param quotes - array where quotes should be stored
+	 * @return Number of read quotes
+	 * @throws IOException - when reader is closed
+	 * @throws ParseException - if buffer content cannot be parsed
+	 */
+	public int read(Quote[] quotes) throws IOException, ParseException {
+
+		if (quotes == null) {
+			throw new IllegalArgumentException("Quotes array canot be null");
+		}
+		if (!check()) {
+			return -1;
+		}
+
+		int i = 0;
+		for (i = 0; i < quotes.length; i++) {
+			if (ready()) {
+				quotes[i] = read();
+			} else {
+				break;
+			}
+		}
+
+		return i;
+	}
+
+	/**
+	 * Reads and return quote from the buffer.
+	 *
+	 * @return Quote which has been read
+	 * @throws IOException - when reader is closed
+	 * @throws ParseException - if buffer content cannot be parsed
+	 */
+	public Quote read() throws IOException, ParseException {
+
+		if (!check()) {
+			return null;
+		}
+
+		int end = lineEnd(pos);
+		int start = pos;
+
+		pos = next(end);
+		num++;
+
+		switch (format) {
+			case CGL_INTRA:
+				return fromCGLIntra(start, end);
+
+			case OBL:
+			case MST:
+				byte b = buffer.get(start);
+				if (b == '<' || b == '"') {
+					// omit headers
+					if (!ready()) {
+						return null;
+					}
+					start = pos;
+					end = lineEnd(pos);
+					pos = next(end);
+					num++;
+				}
+				return fromMSTDay(start, end);
+
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Skip one line without creating quote and return day read from it.
+	 *
+	 * @return Day key (yyyyMMdd as integer) or -1 if line is a header
+	 * @throws IOException - when reader is closed
+	 * @throws ParseException - if buffer content cannot be parsed
+	 */
+	int skip() throws IOException, ParseException {
+
+		if (!check()) {
+			return -1;
+		}
+
+		int start = pos;
+		int end = lineEnd(pos);
+
+		pos = next(end);
+		num++;
+
+		if (end == start) {
+			return -1;
+		}
+
+		switch (format) {
+			case CGL_INTRA:
+				if (split(start, end) < 3) {
+					throw new ParseException("Invalid CGL line " + num, num);
+				}
+				return digits(commas[1] + 1, 8);
+
+			case OBL:
+			case MST:
+				byte b = buffer.get(start);
+				if (b == '<' || b == '"') {
+					return -1;
+				}
+				if (split(start, end) < 2) {
+					throw new ParseException("Invalid MST line " + num, num);
+				}
+				return digits(commas[0] + 1, 8);
+
+			default:
+				return -1;
+		}
+	}
+
+	/**
+	 * Check reader configuration.
+	 *
+	 * @return true if underlying buffer has some bytes to read
+	 * @throws ParseException - when buffer format is unknown
+	 * @throws IOException - when reader is closed
+	 */
+	private boolean check() throws ParseException, IOException {
+		if (closed) {
+			throw new IOException("Reader is already closed and cannot be read");
+		}
+		if (pos >= limit) {
+			return false;
+		}
+		if (format == null) {
+			recognize();
+		}
+		if (format == Format.UNKNOWN) {
+			throw new ParseException("Unknown file format", 0);
+		}
+		return true;
+	}
+
+	/**
+	 * Recognize buffer format on the base of the first line.
+	 */
+	private void recognize() {
+		int end = lineEnd(pos);
+		if (end > pos) {
+			byte b = buffer.get(pos);
+			if (b == '"') {
+				format = Format.OBL;
+			} else if (b == '<') {
+				format = Format.MST;
+			} else if (split(pos, end) == 9) {
+				format = Format.CGL_INTRA;
+			} else {
+				format = Format.CGL_DAY;
+			}
+		} else {
+			format = Format.UNKNOWN;
+		}
+	}
+
+	/**
+	 * Find line end (index of '\n', '\r' or buffer limit).
+	 *
+	 * @param from - line start index
+	 * @return Index of the first byte after line content
+	 */
+	private int lineEnd(int from) {
+		int i = from;
+		byte b = 0;
+		while (i < limit && (b = buffer.get(i)) != '\n' && b != '\r') {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Skip line terminator.
+	 *
+	 * @param end - line end
+	 * @return Index of the next line start
+	 */
+	private int next(int end) {
+		if (end < limit && buffer.get(end) == '\r') {
+			end++;
+		}
+		if (end < limit && buffer.get(end) == '\n') {
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * Find commas in the line and store their indexes.
+	 *
+	 * @param start - line start
+	 * @param end - line end
+	 * @return Number of commas found
+	 */
+	private int split(int start, int end) {
+		int n = 0;
+		for (int i = start; i < end; i++) {
+			if (buffer.get(i) == ',') {
+				if (n < commas.length) {
+					commas[n] = i;
+				}
+				n++;
+			}
+		}
+		return n;
+	}
+
+	private Quote fromCGLIntra(int start, int end) throws ParseException {
+
+		if (split(start, end) < 8) {
+			throw new ParseException("Invalid CGL line " + num, num);
+		}
+
+		// 0 ticker
+		// 1 dunno
+		// 2 date yyyyMMdd,
+		// 3 time hhmmdd,
+		// 4 open
+		// 5 high
+		// 6 low
+		// 7 close
+		// 8 volume
+		// 9 open interests
+
+		Symbol symbol = symbol(start, commas[0]);
+		long time = time(commas[1] + 1, commas[2] + 1);
+		double open = price(commas[3] + 1, commas[4]);
+		double high = price(commas[4] + 1, commas[5]);
+		double low = price(commas[5] + 1, commas[6]);
+		double close = price(commas[6] + 1, commas[7]);
+		long volume = integer(commas[7] + 1, field(8, end));
+
+		return new Quote(symbol, new Date(time), open, high, low, close, volume);
+	}
+
+	private Quote fromMSTDay(int start, int end) throws ParseException {
+
+		if (split(start, end) < 6) {
+			throw new ParseException("Invalid MST line " + num, num);
+		}
+
+		// 0 ticker
+		// 1 date yyyyMMdd,
+		// 2 open
+		// 3 high
+		// 4 low
+		// 5 close
+		// 6 volume
+		// 7 open interests
+
+		Symbol symbol = symbol(start, commas[0]);
+		long time = time(commas[0] + 1, -1);
+		double open = price(commas[1] + 1, commas[2]);
+		double high = price(commas[2] + 1, commas[3]);
+		double low = price(commas[3] + 1, commas[4]);
+		double close = price(commas[4] + 1, commas[5]);
+		long volume = integer(commas[5] + 1, field(6, end));
+
+		return new Quote(symbol, new Date(time), open, high, low, close, volume);
+	}
+
+	/**
+	 * @param k - field index
+	 * @param end - line end
+	 * @return Index of the k-th field end
+	 */
+	private int field(int k, int end) {
+		for (int i = commas[k - 1] + 1; i < end; i++) {
+			if (buffer.get(i) == ',') {
+				return i;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Return symbol for ticker stored between given indexes. Symbol lookup is
+	 * performed only if ticker is different then the previous one.
+	 *
+	 * @param start - ticker start
+	 * @param end - ticker end
+	 * @return Symbol or null if not found
+	 */
+	private Symbol symbol(int start, int end) {
+		int n = end - start;
+		if (n == tlength) {
+			boolean same = true;
+			for (int i = 0; i < n; i++) {
+				if (buffer.get(start + i) != ticker[i]) {
+					same = false;
+					break;
+				}
+			}
+			if (same) {
+				return symbol;
+			}
+		}
+
+		byte[] bytes = new byte[n];
+		for (int i = 0; i < n; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+
+		symbol = Symbol.valueOfName(new String(bytes));
+
+		if (n <= ticker.length) {
+			System.arraycopy(bytes, 0, ticker, 0, n);
+			tlength = n;
+		} else {
+			tlength = -1;
+		}
+
+		return symbol;
+	}
+
+	/**
+	 * Compute epoch millis in default time zone for yyyyMMdd date and optional
+	 * HHmmss time.
+	 *
+	 * @param d - date field start
+	 * @param t - time field start or -1 if there is no time
+	 * @return Epoch millis
+	 * @throws ParseException
+	 */
+	private long time(int d, int t) throws ParseException {
+
+		int key = digits(d, 8);
+		if (key != day) {
+			int y = key / 10000;
+			int m = key / 100 % 100;
+			int dd = key % 100;
+
+			calendar.clear();
+			calendar.set(y, m - 1, dd, 0, 0, 0);
+
+			midnight = calendar.getTimeInMillis();
+			offset = zone.getOffset(midnight);
+			day = key;
+		}
+
+		if (t == -1) {
+			return midnight;
+		}
+
+		int hms = digits(t, 6);
+		int h = hms / 10000;
+		int m = hms / 100 % 100;
+		int s = hms % 100;
+
+		long time = midnight + h * HOUR + (m * 60 + s) * 1000L;
+
+		// day light saving time shift between midnight and given time
+		int shift = zone.getOffset(time);
+		if (shift != offset) {
+			time -= shift - offset;
+			if (zone.getOffset(time) != shift) {
+				calendar.clear();
+				calendar.set(key / 10000, key / 100 % 100 - 1, key % 100, h, m, s);
+				time = calendar.getTimeInMillis();
+			}
+		}
+
+		return time;
+	}
+
+	/**
+	 * Parse fixed number of decimal digits.
+	 *
+	 * @param start - first digit index
+	 * @param n - number of digits
+	 * @return Parsed number
+	 * @throws ParseException
+	 */
+	private int digits(int start, int n) throws ParseException {
+		int v = 0;
+		for (int i = start; i < start + n; i++) {
+			int c = buffer.get(i) - '0';
+			if (c < 0 || c > 9) {
+				throw new ParseException("Invalid date in line " + num, num);
+			}
+			v = v * 10 + c;
+		}
+		return v;
+	}
+
+	/**
+	 * Parse integer value stored between given indexes.
+	 *
+	 * @param start - first byte
+	 * @param end - last byte (exclusive)
+	 * @return Parsed number
+	 * @throws ParseException
+	 */
+	private long integer(int start, int end) throws ParseException {
+		if (start >= end) {
+			throw new ParseException("Empty number in line " + num, num);
+		}
+		boolean negative = buffer.get(start) == '-';
+		if (negative) {
+			start++;
+		}
+		long v = 0;
+		for (int i = start; i < end; i++) {
+			int c = buffer.get(i) - '0';
+			if (c < 0 || c > 9) {
+				throw new ParseException("Invalid number in line " + num, num);
+			}
+			v = v * 10 + c;
+		}
+		return negative ? -v : v;
+	}
+
+	/**
+	 * Parse decimal price stored between given indexes. When mantissa and
+	 * scale are small enough, result is computed as one exact division which
+	 * gives the same value as {@link Double#parseDouble(String)}. In other
+	 * cases (exponents, very long numbers) standard parser is used.
+	 *
+	 * @param start - first byte
+	 * @param end - last byte (exclusive)
+	 * @return Parsed price
+	 * @throws ParseException
+	 */
+	private double price(int start, int end) throws ParseException {
+
+		if (start >= end) {
+			throw new ParseException("Empty price in line " + num, num);
+		}
+
+		int i = start;
+		boolean negative = buffer.get(i) == '-';
+		if (negative) {
+			i++;
+		}
+
+		long mantissa = 0;
+		int scale = -1;
+
+		for (; i < end; i++) {
+			byte b = buffer.get(i);
+			if (b == '.' && scale == -1) {
+				scale = 0;
+				continue;
+			}
+			int c = b - '0';
+			if (c < 0 || c > 9 || mantissa >= MAX_EXACT / 10) {
+				return slow(start, end);
+			}
+			mantissa = mantissa * 10 + c;
+			if (scale != -1) {
+				scale++;
+			}
+		}
+
+		if (scale >= POW10.length) {
+			return slow(start, end);
+		}
+
+		double v = scale > 0 ? mantissa / POW10[scale] : mantissa;
+		return negative ? -v : v;
+	}
+
+	/**
+	 * Fallback price parsing.
+	 */
+	private double slow(int start, int end) throws ParseException {
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		try {
+			return Double.parseDouble(new String(bytes));
+		} catch (NumberFormatException e) {
+			throw new ParseException("Invalid price in line " + num + ": " + e.getMessage(), num);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.sarxos.medusa.data;
+
+import java.util.List;
+import java.util.Set;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Symbol;
+
+
+/**
+ * Cache for quotes lists used by the {@link QuotesRegistry}. Implementations
+ * have to be thread safe.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public interface QuotesCache {
+
+	/**
+	 * Get quotes for given symbol.
+	 *
+	 * @param symbol - quotes symbol
+	 * @return Cached quotes or null if there is no quotes for given symbol
+	 */
+	public List<Quote> get(Symbol symbol);
+
+	/**
+	 * Put quotes into the cache. Should also be called when cached list has
+	 * been modified, so cache can update its size.
+	 *
+	 * @param symbol - quotes symbol
+	 * @param quotes - quotes list
+	 */
+	public void put(Symbol symbol, List<Quote> quotes);
+
+	/**
+	 * Remove quotes for given symbol.
+	 *
+	 * @param symbol - quotes symbol
+	 * @return Removed quotes or null if there was no quotes for given symbol
+	 */
+	public List<Quote> remove(Symbol symbol);
+
+	/**
+	 * @return Snapshot of symbols currently kept in cache
+	 */
+	public Set<Symbol> symbols();
+
+	/**
+	 * Remove all quotes from the cache.
+	 */
+	public void clear();
+
+	/**
+	 * @return Number of cache hits
+	 */
+	public long getHits();
+
+	/**
+	 * @return Number of cache misses
+	 */
+	public long getMisses();
+
+	/**
+	 * @return Number of evicted entries
+	 */
+	public long getEvictions();
+}
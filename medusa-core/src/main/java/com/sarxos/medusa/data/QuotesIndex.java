@@ -0,0 +1,198 @@
+package com.sarxos.medusa.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Quotes file day index. It maps day (yyyyMMdd stored as integer) to the byte
+ * offset of the first line with quote from this day. Index is stored in the
+ * sidecar file (quotes file name with <i>.idx</i> suffix) next to the quotes
+ * file and is rebuilt whenever quotes file length or modification time
+ * changes.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class QuotesIndex {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(QuotesIndex.class.getSimpleName());
+
+	/**
+	 * Index file suffix.
+	 */
+	public static final String SUFFIX = ".idx";
+
+	/**
+	 * Index file header.
+	 */
+	private static final int MAGIC = 0x4D514958;
+
+	/**
+	 * Days keys (sorted ascending).
+	 */
+	private int[] days = null;
+
+	/**
+	 * Offsets of the first line for given day.
+	 */
+	private int[] offsets = null;
+
+	/**
+	 * Create index from arrays.
+	 *
+	 * @param days - sorted days keys
+	 * @param offsets - first line offsets
+	 */
+	protected QuotesIndex(int[] days, int[] offsets) {
+		if (days.length != offsets.length) {
+			throw new IllegalArgumentException("Days and offsets length differ");
+		}
+		this.days = days;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Return index for given quotes file. If sidecar index file exists and it
+	 * is up to date, index is loaded from it, otherwise it is built from the
+	 * reader data and stored in the sidecar file.
+	 *
+	 * @param file - quotes file
+	 * @param reader - quotes reader opened on this file
+	 * @return Day index
+	 * @throws ParseException if quotes file cannot be parsed
+	 * @throws IOException if reader is closed
+	 */
+	public static QuotesIndex forFile(File file, QuotesBufferReader reader) throws IOException, ParseException {
+
+		File f = new File(file.getPath() + SUFFIX);
+
+		if (f.exists()) {
+			try {
+				QuotesIndex index = load(f, file.length(), file.lastModified());
+				if (index != null) {
+					return index;
+				}
+			} catch (IOException e) {
+				LOG.warn("Cannot read index file " + f + ": " + e.getMessage());
+			}
+		}
+
+		QuotesIndex index = build(reader);
+
+		try {
+			index.store(f, file.length(), file.lastModified());
+		} catch (IOException e) {
+			LOG.warn("Cannot write index file " + f + ": " + e.getMessage());
+		}
+
+		return index;
+	}
+
+	/**
+	 * Build index by reading all lines from the quotes reader. Reader position
+	 * is restored after index is built.
+	 *
+	 * @param reader - quotes reader
+	 * @return New index
+	 * @throws ParseException if quotes cannot be parsed
+	 * @throws IOException if reader is closed
+	 */
+	public static QuotesIndex build(QuotesBufferReader reader) throws IOException, ParseException {
+
+		int start = reader.position();
+		int[] days = new int[256];
+		int[] offsets = new int[256];
+		int n = 0;
+		int last = -1;
+
+		while (reader.ready()) {
+			int p = reader.position();
+			int day = reader.skip();
+			if (day == -1 || day == last) {
+				continue;
+			}
+			if (day < last) {
+				throw new ParseException("Quotes are not sorted, day " + day + " is after " + last, p);
+			}
+			if (n == days.length) {
+				days = Arrays.copyOf(days, n * 2);
+				offsets = Arrays.copyOf(offsets, n * 2);
+			}
+			days[n] = day;
+			offsets[n] = p;
+			last = day;
+			n++;
+		}
+
+		reader.position(start);
+
+		return new QuotesIndex(Arrays.copyOf(days, n), Arrays.copyOf(offsets, n));
+	}
+
+	private static QuotesIndex load(File f, long length, long modified) throws IOException {
+		DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+		try {
+			if (dis.readInt() != MAGIC || dis.readLong() != length || dis.readLong() != modified) {
+				return null;
+			}
+			int n = dis.readInt();
+			int[] days = new int[n];
+			int[] offsets = new int[n];
+			for (int i = 0; i < n; i++) {
+				days[i] = dis.readInt();
+				offsets[i] = dis.readInt();
+			}
+			return new QuotesIndex(days, offsets);
+		} finally {
+			dis.close();
+		}
+	}
+
+	private void store(File f, long length, long modified) throws IOException {
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+		try {
+			dos.writeInt(MAGIC);
+			dos.writeLong(length);
+			dos.writeLong(modified);
+			dos.writeInt(days.length);
+			for (int i = 0; i < days.length; i++) {
+				dos.writeInt(days[i]);
+				dos.writeInt(offsets[i]);
+			}
+		} finally {
+			dos.close();
+		}
+	}
+
+	/**
+	 * Find offset of the first line for given day.
+	 *
+	 * @param day - day key (yyyyMMdd as integer)
+	 * @return Offset or -1 if there is no such day in the index
+	 */
+	public int offset(int day) {
+		int i = Arrays.binarySearch(days, day);
+		return i < 0 ? -1 : offsets[i];
+	}
+
+	/**
+	 * @return Number of indexed days
+	 */
+	public int size() {
+		return days.length;
+	}
+}
@@ -1,10 +1,15 @@
 package com.sarxos.medusa.data;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
@@ -49,10 +54,30 @@ public class QuotesIterator<E extends Quote> implements Iterator<E> {
 	private Symbol symbol = null;
 
 	/**
-	 * Underlying quotes stream reader.
+	 * Underlying quotes stream reader (when iterator is created from stream).
 	 */
 	private QuotesStreamReader qsr = null;
 
+	/**
+	 * Underlying quotes buffer reader (when iterator is created from file).
+	 */
+	private QuotesBufferReader qbr = null;
+
+	/**
+	 * Day index of the underlying file (null for streams).
+	 */
+	private QuotesIndex index = null;
+
+	/**
+	 * Underlying columnar store (when iterator is created from store).
+	 */
+	private QuotesStore store = null;
+
+	/**
+	 * Index of the next quote to read from store.
+	 */
+	private int cursor = 0;
+
 	/**
 	 * Create quotes iterator on the base of quote symbol. This constructor
 	 * requires PRN file to be available in the Medusa temporary directory and
@@ -84,7 +109,22 @@ public class QuotesIterator<E extends Quote> implements Iterator<E> {
 		String name = symbol.getName();
 		String fname = tmpdir + "/intraday/" + name + ".prn";
 
-		init(new FileInputStream(fname));
+		init(new File(fname));
+	}
+
+	/**
+	 * Create quotes iterator on the base of PRN or MST file. File is mapped
+	 * into memory and day index is created (or loaded from the sidecar index
+	 * file) so {@link #forward(Date)} does not have to read whole file prefix.
+	 * 
+	 * @param file - quotes file to open
+	 * @throws IOException if file does not exist or cannot be mapped
+	 */
+	public QuotesIterator(File file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("File cannot be null");
+		}
+		init(file);
 	}
 
 	/**
@@ -100,24 +140,86 @@ public class QuotesIterator<E extends Quote> implements Iterator<E> {
 		init(is);
 	}
 
+	/**
+	 * Create quotes iterator on the base of columnar quotes store.
+	 * 
+	 * @param store - quotes store
+	 * @see QuotesStore#iterator()
+	 */
+	public QuotesIterator(QuotesStore store) {
+		if (store == null) {
+			throw new IllegalArgumentException("Quotes store cannot be null");
+		}
+		this.store = store;
+		this.symbol = store.getSymbol();
+	}
+
 	private void init(InputStream is) {
 		this.qsr = new QuotesStreamReader(is);
 	}
 
+	private void init(File file) throws IOException {
+
+		if (file.length() > Integer.MAX_VALUE) {
+			throw new IOException("File " + file + " is too large to be mapped");
+		}
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		MappedByteBuffer buffer = null;
+		try {
+			FileChannel channel = raf.getChannel();
+			buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			raf.close();
+		}
+
+		this.qbr = new QuotesBufferReader(buffer);
+
+		try {
+			this.index = QuotesIndex.forFile(file, qbr);
+		} catch (ParseException e) {
+			throw new IOException("Cannot index file " + file + ": " + e.getMessage());
+		}
+	}
+
 	private E next = null;
 
+	/**
+	 * @return true if underlying reader is closed
+	 */
+	private boolean isClosed() {
+		if (store != null) {
+			return cursor >= store.size();
+		}
+		return qbr != null ? qbr.isClosed() : qsr.isClosed();
+	}
+
+	/**
+	 * Read next quote from underlying reader and close it when there are no
+	 * more quotes.
+	 * 
+	 * @return Next quote or null
+	 */
 	@SuppressWarnings("unchecked")
+	private E read() throws IOException, ParseException {
+		if (store != null) {
+			return cursor < store.size() ? (E) store.get(cursor++) : null;
+		}
+		E quote = (E) (qbr != null ? qbr.read() : qsr.read());
+		if (quote == null) {
+			close();
+		}
+		return quote;
+	}
+
 	@Override
 	public boolean hasNext() {
 		if (next == null) {
 			try {
-				if (qsr.isClosed()) {
+				if (isClosed()) {
 					return false;
 				} else {
-					next = (E) qsr.read();
-					if (next == null) {
-						qsr.close();
-					}
+					next = read();
 				}
 			} catch (Exception e) {
 				throw new RuntimeException(e);
@@ -126,7 +228,6 @@ public class QuotesIterator<E extends Quote> implements Iterator<E> {
 		return next != null;
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public E next() {
 		E quote = next;
@@ -134,11 +235,8 @@ public class QuotesIterator<E extends Quote> implements Iterator<E> {
 			next = null;
 		} else {
 			try {
-				if (!qsr.isClosed()) {
-					quote = (E) qsr.read();
-					if (quote == null) {
-						qsr.close();
-					}
+				if (!isClosed()) {
+					quote = read();
 				}
 			} catch (Exception e) {
 				throw new RuntimeException(e);
@@ -169,7 +267,13 @@ public class QuotesIterator<E extends Quote> implements Iterator<E> {
 	 */
 	public void close() {
 		try {
-			qsr.close();
+			if (store != null) {
+				cursor = store.size();
+			} else if (qbr != null) {
+				qbr.close();
+			} else {
+				qsr.close();
+			}
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -196,12 +300,18 @@ public class QuotesIterator<E extends Quote> implements Iterator<E> {
 	/**
 	 * Forward quotes to specific day (only day/month/year are being taken into
 	 * account). Please ensure given date is a working day! In other case
-	 * iterator will be set to point end of the quotes stream.
+	 * iterator will be set to point end of the quotes stream.<br>
+	 * <br>
+	 * 
+	 * When iterator has been created from file, day index is used to jump
+	 * directly to the given day, otherwise stream is read until day is found.
 	 * 
 	 * @param date - date to find (<b>must</b> be working day)
 	 */
 	public void forward(Date date) {
-		if (hasNext()) {
+		if (index != null || store != null) {
+			forwardIndexed(date);
+		} else if (hasNext()) {
 
 			long a = next.getDate().getTime();
 			long b = date.getTime();
@@ -235,6 +345,62 @@ public class QuotesIterator<E extends Quote> implements Iterator<E> {
 		}
 	}
 
+	/**
+	 * Forward quotes to specific day using day index or store binary search.
+	 * 
+	 * @param date - date to find
+	 */
+	private void forwardIndexed(Date date) {
+
+		if (!hasNext()) {
+			throw new NoSuchElementException("There is no next element");
+		}
+
+		int current = day(next.getDate());
+		int searched = day(date);
+
+		if (searched < current) {
+			SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+			throw new IllegalArgumentException(
+				"Current iterator position date " + sdf.format(next.getDate()) + " " +
+				"is after searching date " + sdf.format(date));
+		} else if (searched == current) {
+			// if next element date match searched one
+			return;
+		}
+
+		if (store != null) {
+			Calendar c = Calendar.getInstance();
+			c.clear();
+			c.set(searched / 10000, searched / 100 % 100 - 1, searched % 100);
+			cursor = store.search(c.getTimeInMillis());
+			if (cursor < store.size() && day(new Date(store.getTime(cursor))) != searched) {
+				cursor = store.size();
+			}
+		} else {
+			int offset = index.offset(searched);
+			if (offset == -1) {
+				offset = qbr.limit();
+			}
+			qbr.position(offset);
+		}
+
+		next = null;
+	}
+
+	/**
+	 * @param date - date to convert
+	 * @return Day key (yyyyMMdd as integer) in default time zone
+	 */
+	private static int day(Date date) {
+		Calendar c = Calendar.getInstance();
+		c.setTime(date);
+		int y = c.get(Calendar.YEAR);
+		int m = c.get(Calendar.MONTH) + 1;
+		int d = c.get(Calendar.DAY_OF_MONTH);
+		return y * 10000 + m * 100 + d;
+	}
+
 	public static void main(String[] args) throws IOException, ParseException {
 		Date d1 = QuotesStreamReader.DATE_FORMAT_FULL.parse("20110314123345");
 		Date d2 = QuotesStreamReader.DATE_FORMAT_SHORT.parse("20110314");
@@ -1,8 +1,11 @@
 package com.sarxos.medusa.data;
 
 import java.util.List;
-import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,12 +16,15 @@ import com.sarxos.medusa.provider.HistoryProvider;
 import com.sarxos.medusa.provider.ProviderException;
 import com.sarxos.medusa.provider.Providers;
 import com.sarxos.medusa.sql.DBDAO;
+import com.sarxos.medusa.util.Configuration;
 
 
 /**
  * This class is a runtime storage for quotes for various market symbols. Quotes
- * are stored in weak hash map, so it is always purged whenever GC requires more
- * memory to allocate.
+ * are kept in the {@link QuotesCache} with limited memory budget (see "cache"
+ * property in the "data" configuration section, in megabytes), so least
+ * recently used symbols are purged when budget is exceeded. Concurrent loads
+ * of the same symbol are coalesced - only one of them reads the storage.
  * 
  * @author Bartosz Firyn (SarXos)
  */
@@ -30,9 +36,19 @@ public class QuotesRegistry {
 	private static final Logger LOG = LoggerFactory.getLogger(QuotesRegistry.class.getSimpleName());
 
 	/**
-	 * Weak hash storage for market quotes.
+	 * Default cache budget in megabytes.
 	 */
-	private WeakHashMap<Symbol, List<Quote>> quotes = new WeakHashMap<Symbol, List<Quote>>();
+	private static final int CACHE_BUDGET = Configuration.getInstance().getInt("data", "cache", 64);
+
+	/**
+	 * Quotes cache.
+	 */
+	private QuotesCache quotes = new LRUQuotesCache(CACHE_BUDGET * 1024L * 1024L);
+
+	/**
+	 * Loads in progress.
+	 */
+	private ConcurrentMap<Symbol, FutureTask<List<Quote>>> loading = new ConcurrentHashMap<Symbol, FutureTask<List<Quote>>>();
 
 	/**
 	 * Database DAO instance.
@@ -79,41 +95,127 @@ public class QuotesRegistry {
 	 * @param symbol (e.g. KGH, BRE, etc)
 	 * @return Quotes for given symbol
 	 */
-	public List<Quote> getQuotes(Symbol symbol) {
+	public List<Quote> getQuotes(final Symbol symbol) {
+
+		List<Quote> q = quotes.get(symbol);
+		if (q != null && !q.isEmpty()) {
+			return q;
+		}
+
+		FutureTask<List<Quote>> task = new FutureTask<List<Quote>>(new Callable<List<Quote>>() {
+
+			@Override
+			public List<Quote> call() throws Exception {
+				return load(symbol);
+			}
+		});
+
+		FutureTask<List<Quote>> running = loading.putIfAbsent(symbol, task);
+		if (running == null) {
+			running = task;
+			task.run();
+		}
+
+		try {
+			return running.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted when loading quotes for symbol " + symbol, e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException(cause);
+		} finally {
+			if (running == task) {
+				loading.remove(symbol, task);
+			}
+		}
+	}
+
+	/**
+	 * Load quotes from the storage (reimport them if storage is empty) and
+	 * put them into the cache.
+	 * 
+	 * @param symbol - symbol to load
+	 * @return Loaded quotes
+	 */
+	private List<Quote> load(Symbol symbol) {
+
+		// other loader could finish just before this one has been started
 		List<Quote> q = quotes.get(symbol);
+		if (q != null && !q.isEmpty()) {
+			return q;
+		}
+
+		q = storage.getQuotes(symbol);
 		if (q == null || q.isEmpty()) {
+			reimport(symbol);
 			q = storage.getQuotes(symbol);
 			if (q == null || q.isEmpty()) {
-				reimport(symbol);
-				q = storage.getQuotes(symbol);
-				if (q == null || q.isEmpty()) {
-					throw new RuntimeException("Cannot get quotes for symbol " + symbol);
-				}
+				throw new RuntimeException("Cannot get quotes for symbol " + symbol);
 			}
-			quotes.put(symbol, q);
 		}
+		quotes.put(symbol, q);
+
 		return q;
 	}
 
 	/**
-	 * Reload quotes within registry.
+	 * Reload quotes within registry. Only quotes newer then the last one
+	 * already loaded are read from the storage.
 	 */
 	public void reload() {
-
-		List<Quote> list = null;
-		Set<Symbol> symbols = quotes.keySet();
-
-		for (Symbol s : symbols) {
-			list = storage.getQuotes(s);
-			quotes.put(s, list);
+		for (Symbol s : quotes.symbols()) {
+			reload(s);
 		}
 	}
 
 	/**
-	 * Reload quotes within registry.
+	 * Reload quotes for given symbol. If quotes are already in the registry,
+	 * only the newer ones are read from the storage and appended at the end
+	 * of the existing list, so references held by the callers stay valid.
+	 * 
+	 * @param s - symbol to reload
 	 */
 	public void reload(Symbol s) {
-		quotes.put(s, storage.getQuotes(s));
+		List<Quote> q = quotes.get(s);
+		if (q == null || q.isEmpty()) {
+			quotes.put(s, storage.getQuotes(s));
+		} else {
+			int n = append(s, q);
+			quotes.put(s, q);
+			if (LOG.isDebugEnabled()) {
+				LOG.debug(n + " new quotes loaded for symbol " + s);
+			}
+		}
+	}
+
+	/**
+	 * Append quotes newer then the last one from given list.
+	 * 
+	 * @param s - quotes symbol
+	 * @param q - list of already loaded quotes
+	 * @return Number of appended quotes
+	 */
+	private int append(Symbol s, List<Quote> q) {
+
+		Quote last = q.get(q.size() - 1);
+		List<Quote> tail = storage.getQuotes(s, last.getDate());
+		if (tail == null) {
+			return 0;
+		}
+
+		for (Quote t : tail) {
+			q.add(t);
+			Quote added = q.get(q.size() - 1);
+			added.setPrev(last);
+			last.setNext(added);
+			last = added;
+		}
+
+		return tail.size();
 	}
 
 	/**
@@ -142,6 +244,25 @@ public class QuotesRegistry {
 		}
 	}
 
+	/**
+	 * @return Quotes cache used by this registry
+	 */
+	public QuotesCache getCache() {
+		return quotes;
+	}
+
+	/**
+	 * Set new quotes cache. Quotes from the old cache are not moved.
+	 * 
+	 * @param cache - cache to use
+	 */
+	public void setCache(QuotesCache cache) {
+		if (cache == null) {
+			throw new IllegalArgumentException("Quotes cache cannot be null");
+		}
+		this.quotes = cache;
+	}
+
 	/**
 	 * @return Return currently used history provider or null if not set
 	 */
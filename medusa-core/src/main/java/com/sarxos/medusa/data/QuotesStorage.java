@@ -1,5 +1,6 @@
 package com.sarxos.medusa.data;
 
+import java.util.Date;
 import java.util.List;
 
 import com.sarxos.medusa.market.Quote;
@@ -23,11 +24,21 @@ public interface QuotesStorage {
 	public boolean addQuotes(Symbol symbol, List<Quote> quotes);
 
 	/**
-	 * Read all quotes for given symbol.
+	 * Read all quotes for given symbol. Returned list can be a view of the
+	 * quotes series, which supports appending but not removal of quotes.
 	 * 
 	 * @param symbol - symbol to read
 	 * @return Return list of all quotes for particular symbol
 	 */
 	public List<Quote> getQuotes(Symbol symbol);
 
+	/**
+	 * Read quotes newer then given date for given symbol.
+	 * 
+	 * @param symbol - symbol to read
+	 * @param after - date of the last known quote (null means all quotes)
+	 * @return Return list of quotes after given date, ordered by time
+	 */
+	public List<Quote> getQuotes(Symbol symbol, Date after);
+
 }
\ No newline at end of file
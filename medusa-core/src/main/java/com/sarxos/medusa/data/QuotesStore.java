@@ -0,0 +1,465 @@
+package com.sarxos.medusa.data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
+import com.sarxos.medusa.market.Symbol;
+
+
+/**
+ * Columnar binary quotes store. Each file holds quotes of single symbol as
+ * primitive columns (time, open, high, low, close and volume), one after
+ * another. File is written once and then memory-mapped, so opening it does
+ * not require any parsing. Quotes can be accessed directly by index, as raw
+ * arrays or through the {@link QuotesIterator}. Store should be closed when it
+ * is no longer used, so the mapping can be released.<br>
+ * <br>
+ *
+ * File layout (big endian):
+ *
+ * <pre>
+ * int     magic
+ * int     version
+ * byte[]  symbol name (32 bytes, zero padded)
+ * int     count
+ * int     reserved
+ * long[]  time (epoch millis)
+ * double[] open, high, low, close
+ * long[]  volume
+ * </pre>
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class QuotesStore {
+
+	/**
+	 * Store file suffix.
+	 */
+	public static final String SUFFIX = ".qcs";
+
+	/**
+	 * File header.
+	 */
+	private static final int MAGIC = 0x4D514353;
+
+	/**
+	 * Format version.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Symbol name length.
+	 */
+	private static final int NAME_LENGTH = 32;
+
+	/**
+	 * Header size in bytes.
+	 */
+	private static final int HEADER = 4 + 4 + NAME_LENGTH + 4 + 4;
+
+	/**
+	 * Columns indexes.
+	 */
+	private static final int TIME = 0, OPEN = 1, HIGH = 2, LOW = 3, CLOSE = 4, VOLUME = 5;
+
+	/**
+	 * Mapped file content.
+	 */
+	private ByteBuffer buffer = null;
+
+	/**
+	 * Stored symbol (can be null if name is not known symbol).
+	 */
+	private Symbol symbol = null;
+
+	/**
+	 * Number of quotes.
+	 */
+	private int count = 0;
+
+	/**
+	 * Create store from mapped buffer.
+	 *
+	 * @param buffer - store file content
+	 * @throws IOException if buffer content is not valid store
+	 */
+	private QuotesStore(ByteBuffer buffer) throws IOException {
+
+		if (buffer.limit() < HEADER || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a quotes store");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported quotes store version " + buffer.getInt(4));
+		}
+
+		byte[] name = new byte[NAME_LENGTH];
+		int n = 0;
+		for (n = 0; n < NAME_LENGTH; n++) {
+			name[n] = buffer.get(8 + n);
+			if (name[n] == 0) {
+				break;
+			}
+		}
+
+		this.buffer = buffer;
+		this.symbol = Symbol.valueOfName(new String(name, 0, n, "UTF-8"));
+		this.count = buffer.getInt(8 + NAME_LENGTH);
+
+		if (buffer.limit() < HEADER + count * 48L) {
+			throw new IOException("Quotes store is truncated");
+		}
+	}
+
+	/**
+	 * Return store file for given symbol in given directory.
+	 *
+	 * @param dir - directory
+	 * @param symbol - symbol
+	 * @return Store file
+	 */
+	public static File file(File dir, Symbol symbol) {
+		return new File(dir, symbol.getName() + SUFFIX);
+	}
+
+	/**
+	 * Open and map store file.
+	 *
+	 * @param file - store file
+	 * @return Quotes store
+	 * @throws IOException if file does not exist or is not valid store
+	 */
+	public static QuotesStore open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("File " + file + " is too large to be mapped");
+			}
+			return new QuotesStore(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Write quotes to the store file. Quotes has to be sorted by date.
+	 *
+	 * @param file - store file
+	 * @param symbol - quotes symbol
+	 * @param quotes - quotes to write
+	 * @throws IOException if file cannot be written
+	 */
+	public static void write(File file, Symbol symbol, Collection<? extends Quote> quotes) throws IOException {
+
+		if (symbol == null) {
+			throw new IllegalArgumentException("Symbol cannot be null");
+		}
+
+		int n = quotes.size();
+
+		long[] time = new long[n];
+		double[] open = new double[n];
+		double[] high = new double[n];
+		double[] low = new double[n];
+		double[] close = new double[n];
+		long[] volume = new long[n];
+
+		int i = 0;
+		for (Quote q : quotes) {
+			time[i] = q.getDate().getTime();
+			open[i] = q.getOpen();
+			high[i] = q.getHigh();
+			low[i] = q.getLow();
+			close[i] = q.getClose();
+			volume[i] = q.getVolume();
+			i++;
+		}
+
+		write(file, symbol, time, open, high, low, close, volume);
+	}
+
+	/**
+	 * Write quotes columns to the store file. All arrays have to be of the
+	 * same length. Columns are written to the temporary file which then
+	 * replaces the store file, so readers never see partially written store.
+	 *
+	 * @param file - store file
+	 * @param symbol - quotes symbol
+	 * @param time - quotes times (epoch millis)
+	 * @param open - opening prices
+	 * @param high - highest prices
+	 * @param low - lowest prices
+	 * @param close - closing prices
+	 * @param volume - volumes
+	 * @throws IOException if file cannot be written
+	 */
+	public static void write(File file, Symbol symbol, long[] time, double[] open, double[] high, double[] low, double[] close, long[] volume) throws IOException {
+
+		int n = time.length;
+		if (open.length != n || high.length != n || low.length != n || close.length != n || volume.length != n) {
+			throw new IllegalArgumentException("All columns have to be of the same length");
+		}
+
+		byte[] name = symbol.getName().getBytes("UTF-8");
+		if (name.length > NAME_LENGTH) {
+			throw new IllegalArgumentException("Symbol name " + symbol.getName() + " is too long");
+		}
+
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.exists() && !dir.mkdirs()) {
+			throw new IOException("Cannot create directory " + dir);
+		}
+
+		File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+		boolean written = false;
+
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+		try {
+			dos.writeInt(MAGIC);
+			dos.writeInt(VERSION);
+			dos.write(name);
+			dos.write(new byte[NAME_LENGTH - name.length]);
+			dos.writeInt(n);
+			dos.writeInt(0);
+			for (int i = 0; i < n; i++) {
+				dos.writeLong(time[i]);
+			}
+			for (double[] column : new double[][] { open, high, low, close }) {
+				for (int i = 0; i < n; i++) {
+					dos.writeDouble(column[i]);
+				}
+			}
+			for (int i = 0; i < n; i++) {
+				dos.writeLong(volume[i]);
+			}
+			dos.close();
+			written = true;
+		} finally {
+			if (!written) {
+				dos.close();
+				tmp.delete();
+			}
+		}
+
+		// rename does not replace existing file on some platforms
+
+		if (!tmp.renameTo(file)) {
+			file.delete();
+			if (!tmp.renameTo(file)) {
+				tmp.delete();
+				throw new IOException("Cannot move " + tmp + " to " + file);
+			}
+		}
+	}
+
+	/**
+	 * Drop mapped file content. Mapping is released when the buffer is
+	 * garbage collected, store cannot be read after it has been closed.
+	 */
+	public void close() {
+		buffer = null;
+	}
+
+	/**
+	 * @return Mapped file content
+	 */
+	private ByteBuffer buffer() {
+		ByteBuffer b = buffer;
+		if (b == null) {
+			throw new IllegalStateException("Quotes store has been closed");
+		}
+		return b;
+	}
+
+	/**
+	 * @param column - column index
+	 * @param i - quote index
+	 * @return Absolute offset of the value
+	 */
+	private int offset(int column, int i) {
+		if (i < 0 || i >= count) {
+			throw new IndexOutOfBoundsException("Index " + i + " out of range [0, " + count + ")");
+		}
+		return HEADER + (column * count + i) * 8;
+	}
+
+	/**
+	 * @return Stored symbol
+	 */
+	public Symbol getSymbol() {
+		return symbol;
+	}
+
+	/**
+	 * @return Number of stored quotes
+	 */
+	public int size() {
+		return count;
+	}
+
+	public long getTime(int i) {
+		return buffer().getLong(offset(TIME, i));
+	}
+
+	public double getOpen(int i) {
+		return buffer().getDouble(offset(OPEN, i));
+	}
+
+	public double getHigh(int i) {
+		return buffer().getDouble(offset(HIGH, i));
+	}
+
+	public double getLow(int i) {
+		return buffer().getDouble(offset(LOW, i));
+	}
+
+	public double getClose(int i) {
+		return buffer().getDouble(offset(CLOSE, i));
+	}
+
+	public long getVolume(int i) {
+		return buffer().getLong(offset(VOLUME, i));
+	}
+
+	private long[] longs(int column) {
+		long[] a = new long[count];
+		ByteBuffer b = buffer().duplicate();
+		b.position(HEADER + column * count * 8);
+		b.asLongBuffer().get(a);
+		return a;
+	}
+
+	private double[] doubles(int column) {
+		double[] a = new double[count];
+		ByteBuffer b = buffer().duplicate();
+		b.position(HEADER + column * count * 8);
+		b.asDoubleBuffer().get(a);
+		return a;
+	}
+
+	/**
+	 * @return New array with all quotes times
+	 */
+	public long[] getTimes() {
+		return longs(TIME);
+	}
+
+	/**
+	 * @return New array with all opening prices
+	 */
+	public double[] getOpens() {
+		return doubles(OPEN);
+	}
+
+	/**
+	 * @return New array with all highest prices
+	 */
+	public double[] getHighs() {
+		return doubles(HIGH);
+	}
+
+	/**
+	 * @return New array with all lowest prices
+	 */
+	public double[] getLows() {
+		return doubles(LOW);
+	}
+
+	/**
+	 * @return New array with all closing prices
+	 */
+	public double[] getCloses() {
+		return doubles(CLOSE);
+	}
+
+	/**
+	 * @return New array with all volumes
+	 */
+	public long[] getVolumes() {
+		return longs(VOLUME);
+	}
+
+	/**
+	 * Create quote object for given index.
+	 *
+	 * @param i - quote index
+	 * @return New quote
+	 */
+	public Quote get(int i) {
+		return new Quote(symbol, new Date(getTime(i)), getOpen(i), getHigh(i), getLow(i), getClose(i), getVolume(i));
+	}
+
+	/**
+	 * Find index of the first quote with time equal or after given one.
+	 *
+	 * @param time - time to search
+	 * @return Quote index or {@link #size()} if all quotes are before given
+	 *         time
+	 */
+	public int search(long time) {
+		int lo = 0;
+		int hi = count;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (getTime(mid) < time) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Copy all store columns into the new quotes series.
+	 *
+	 * @return Quotes series
+	 */
+	public QuoteSeries toSeries() {
+		return new QuoteSeries(symbol, getTimes(), getOpens(), getHighs(), getLows(), getCloses(), getVolumes());
+	}
+
+	/**
+	 * Create list of linked quotes (with previous and next set).
+	 *
+	 * @return List of all quotes
+	 */
+	public List<Quote> toList() {
+		List<Quote> quotes = new LinkedList<Quote>();
+		Quote p = null;
+		for (int i = 0; i < count; i++) {
+			Quote q = get(i);
+			if (p != null) {
+				q.setPrev(p);
+				p.setNext(q);
+			}
+			quotes.add(q);
+			p = q;
+		}
+		return quotes;
+	}
+
+	/**
+	 * Iterator reads quotes from this store, so store cannot be closed before
+	 * iteration is finished.
+	 *
+	 * @param <E> - quotes type
+	 * @return Quotes iterator over this store
+	 */
+	public <E extends Quote> QuotesIterator<E> iterator() {
+		return new QuotesIterator<E>(this);
+	}
+}
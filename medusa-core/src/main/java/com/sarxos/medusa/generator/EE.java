@@ -7,6 +7,7 @@ import static com.sarxos.medusa.market.SignalType.WAIT;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -17,6 +18,8 @@ import com.sarxos.medusa.market.Quote;
 import com.sarxos.medusa.market.Signal;
 import com.sarxos.medusa.market.Signal.Value;
 import com.sarxos.medusa.market.SignalParameter;
+import com.sarxos.medusa.market.SignalType;
+import com.sarxos.medusa.math.IndicatorCache;
 import com.sarxos.medusa.math.MA;
 
 
@@ -26,6 +29,11 @@ import com.sarxos.medusa.math.MA;
  */
 public class EE extends AbstractGenerator<Quote> {
 
+	/**
+	 * Shared indicator values cache.
+	 */
+	private final IndicatorCache cache = IndicatorCache.getInstance();
+
 	@SignalParameter
 	private int A = 5;
 
@@ -60,19 +68,58 @@ public class EE extends AbstractGenerator<Quote> {
 
 	@Override
 	public List<Signal> generate(Quote[] data, int R) {
-		throw new RuntimeException("Not implemented");
+
+		if (R >= data.length) {
+			throw new IllegalArgumentException("Range exceeds quotes array length");
+		}
+
+		List<Signal> signals = new LinkedList<Signal>();
+
+		// range with one quote before - required to find crossovers
+
+		Quote[] quotes = new Quote[R + 1];
+
+		System.arraycopy(data, data.length - R - 1, quotes, 0, R + 1);
+
+		SignalType signal = null;
+		Quote q = null;
+
+		double[] fast = MA.ema(quotes, A);
+		double[] slow = MA.ema(quotes, B);
+
+		for (int i = 1; i <= R; i++) {
+
+			q = quotes[i];
+
+			double d1 = fast[i] - slow[i];
+			double d2 = fast[i - 1] - slow[i - 1];
+
+			if (d1 > 0 && d2 <= 0) {
+				if (signal != BUY) {
+					signal = BUY;
+					signals.add(new Signal(q.getDate(), signal, q, d1));
+				}
+			} else if (d1 < 0 && d2 >= 0) {
+				if (signal != SELL) {
+					signal = SELL;
+					signals.add(new Signal(q.getDate(), signal, q, d1));
+				}
+			}
+		}
+
+		return signals;
 	}
 
 	@Override
 	public Signal generate(Quote q) {
 
 		// calculate necessary coefficients
-		double e1 = MA.ema(q, A);
-		double s1 = MA.ema(q, B);
+		double e1 = cache.ema(q, A);
+		double s1 = cache.ema(q, B);
 
 		// required to find optimal position opening moment
-		double e2 = MA.ema(q.prev(), A);
-		double s2 = MA.ema(q.prev(), B);
+		double e2 = cache.ema(q.prev(), A);
+		double s2 = cache.ema(q.prev(), B);
 
 		Signal signal = null;
 
@@ -7,6 +7,7 @@ import static com.sarxos.medusa.market.SignalType.WAIT;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -17,6 +18,8 @@ import com.sarxos.medusa.market.Quote;
 import com.sarxos.medusa.market.Signal;
 import com.sarxos.medusa.market.Signal.Value;
 import com.sarxos.medusa.market.SignalParameter;
+import com.sarxos.medusa.market.SignalType;
+import com.sarxos.medusa.math.IndicatorCache;
 import com.sarxos.medusa.math.MA;
 
 
@@ -28,6 +31,11 @@ import com.sarxos.medusa.math.MA;
  */
 public class HMAC extends AbstractGenerator<Quote> {
 
+	/**
+	 * Shared indicator values cache.
+	 */
+	private final IndicatorCache cache = IndicatorCache.getInstance();
+
 	@SignalParameter
 	private int A = 20;
 
@@ -62,22 +70,68 @@ public class HMAC extends AbstractGenerator<Quote> {
 
 	@Override
 	public List<Signal> generate(Quote[] data, int R) {
-		throw new RuntimeException("Not implemented");
+
+		if (R >= data.length) {
+			throw new IllegalArgumentException("Range exceeds quotes array length");
+		}
+
+		List<Signal> signals = new LinkedList<Signal>();
+
+		// range with one quote before - required to find crossovers
+
+		Quote[] quotes = new Quote[R + 1];
+
+		System.arraycopy(data, data.length - R - 1, quotes, 0, R + 1);
+
+		SignalType signal = null;
+		Quote q = null;
+
+		double[] fast = MA.hma(quotes, A);
+		double[] slow = MA.hma(quotes, B);
+		double[] emad = MA.emad(quotes, C);
+
+		for (int i = 1; i <= R; i++) {
+
+			q = quotes[i];
+
+			double d = fast[i] - slow[i];
+
+			boolean buy = d > 0 && emad[i] > 0;
+			boolean sell = d < 0 || (emad[i] < 0 && emad[i - 1] > 0);
+
+			if (sell && fast[i] - fast[i - 1] > 0) {
+				sell = false;
+			}
+
+			if (buy) {
+				if (signal != BUY) {
+					signal = BUY;
+					signals.add(new Signal(q.getDate(), signal, q, d));
+				}
+			} else if (sell) {
+				if (signal != SELL) {
+					signal = SELL;
+					signals.add(new Signal(q.getDate(), signal, q, d));
+				}
+			}
+		}
+
+		return signals;
 	}
 
 	@Override
 	public Signal generate(Quote q) {
 
 		// calculate necessary coefficients
-		double f1 = MA.hma(q, A); // fast HMA
-		double s1 = MA.hma(q, B); // slow HMA
+		double f1 = cache.hma(q, A); // fast HMA
+		double s1 = cache.hma(q, B); // slow HMA
 
 		// required to find optimal position opening moment
-		double f2 = MA.hma(q.prev(), A); // prev fast HMA
-		double s2 = MA.hma(q.prev(), B); // prev slow HMA
+		double f2 = cache.hma(q.prev(), A); // prev fast HMA
+		double s2 = cache.hma(q.prev(), B); // prev slow HMA
 
-		double dec = MA.emad(q, C);
-		double dep = MA.emad(q.prev(), C);
+		double dec = cache.emad(q, C);
+		double dep = cache.emad(q.prev(), C);
 
 		Signal signal = null;
 
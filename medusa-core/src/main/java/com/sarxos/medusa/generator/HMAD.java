@@ -7,6 +7,7 @@ import static com.sarxos.medusa.market.SignalType.WAIT;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -17,6 +18,8 @@ import com.sarxos.medusa.market.Quote;
 import com.sarxos.medusa.market.Signal;
 import com.sarxos.medusa.market.Signal.Value;
 import com.sarxos.medusa.market.SignalParameter;
+import com.sarxos.medusa.market.SignalType;
+import com.sarxos.medusa.math.IndicatorCache;
 import com.sarxos.medusa.math.MA;
 
 
@@ -28,6 +31,11 @@ import com.sarxos.medusa.math.MA;
  */
 public class HMAD extends AbstractGenerator<Quote> {
 
+	/**
+	 * Shared indicator values cache.
+	 */
+	private final IndicatorCache cache = IndicatorCache.getInstance();
+
 	@SignalParameter
 	private int A = 20;
 
@@ -62,14 +70,52 @@ public class HMAD extends AbstractGenerator<Quote> {
 
 	@Override
 	public List<Signal> generate(Quote[] data, int R) {
-		throw new RuntimeException("Not implemented");
+
+		if (R >= data.length) {
+			throw new IllegalArgumentException("Range exceeds quotes array length");
+		}
+
+		List<Signal> signals = new LinkedList<Signal>();
+
+		// range with one quote before - required to find crossovers
+
+		Quote[] quotes = new Quote[R + 1];
+
+		System.arraycopy(data, data.length - R - 1, quotes, 0, R + 1);
+
+		SignalType signal = null;
+		Quote q = null;
+
+		double[] hmad = MA.hmad(quotes, A);
+
+		for (int i = 1; i <= R; i++) {
+
+			q = quotes[i];
+
+			double hc = hmad[i];
+			double hp = hmad[i - 1];
+
+			if (hc > 0 && hp < 0) {
+				if (signal != BUY) {
+					signal = BUY;
+					signals.add(new Signal(q.getDate(), signal, q, hc));
+				}
+			} else if (hc < 0 && hp > 0) {
+				if (signal != SELL) {
+					signal = SELL;
+					signals.add(new Signal(q.getDate(), signal, q, hc));
+				}
+			}
+		}
+
+		return signals;
 	}
 
 	@Override
 	public Signal generate(Quote q) {
 
-		double hc = MA.hmad(q, A);
-		double hp = MA.hmad(q.prev(), A);
+		double hc = cache.hmad(q, A);
+		double hp = cache.hmad(q.prev(), A);
 
 		Signal signal = null;
 
@@ -13,8 +13,11 @@ import java.util.Map;
 import com.sarxos.medusa.market.AbstractGenerator;
 import com.sarxos.medusa.market.Quote;
 import com.sarxos.medusa.market.Signal;
+import com.sarxos.medusa.market.SignalParameter;
 import com.sarxos.medusa.market.SignalType;
-import com.sarxos.medusa.math.MA;
+import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.math.JRK;
+import com.sarxos.medusa.math.SX;
 
 
 /**
@@ -40,10 +43,43 @@ import com.sarxos.medusa.math.MA;
  */
 public class JMAC extends AbstractGenerator<Quote> {
 
+	/**
+	 * Maximum number of quotes used to warm up new filters.
+	 */
+	private static final int WARMUP = 100;
+
+	/**
+	 * JMA filters of one symbol, kept between ticks.
+	 */
+	private static final class Filters {
+
+		private final JRK fast;
+
+		private final JRK slow;
+
+		/**
+		 * Time of the newest quote added to the filters.
+		 */
+		private long time = Long.MIN_VALUE;
+
+		public Filters(int A, int B) {
+			fast = new JRK(A, 0);
+			slow = new JRK(B, 0);
+		}
+	}
+
+	/**
+	 * Filters for each symbol.
+	 */
+	private final Map<Symbol, Filters> filters = new HashMap<Symbol, Filters>();
+
+	@SignalParameter
 	private int A = 5;
 
+	@SignalParameter
 	private int B = 15;
 
+	@SignalParameter
 	private int C = 30;
 
 	public JMAC() {
@@ -67,19 +103,108 @@ public class JMAC extends AbstractGenerator<Quote> {
 		this.A = A;
 		this.B = B;
 		this.C = C;
+
+		synchronized (filters) {
+			filters.clear();
+		}
+	}
+
+	/**
+	 * Feed symbol filters with given quote. If filters already contain this
+	 * quote (real time tick) the newest price is replaced, if they contain
+	 * previous quote the new price is added, otherwise new filters are warmed
+	 * up with last quotes.
+	 * 
+	 * @param q - quote
+	 * @return Symbol filters
+	 */
+	private Filters filters(Quote q) {
+
+		Symbol symbol = q.getSymbol();
+		long time = q.getDate().getTime();
+		double close = q.getClose();
+
+		Filters f = filters.get(symbol);
+		Quote p = q.prev();
+
+		if (f != null && f.time == time) {
+			f.fast.update(close);
+			f.slow.update(close);
+		} else if (f != null && p != null && f.time == p.getDate().getTime()) {
+			f.fast.add(close);
+			f.slow.add(close);
+		} else {
+
+			int n = 1;
+			while (n < WARMUP && p != null) {
+				p = p.prev();
+				n++;
+			}
+
+			f = new Filters(A, B);
+			for (double c : SX.closes(q, n)) {
+				f.fast.add(c);
+				f.slow.add(c);
+			}
+
+			filters.put(symbol, f);
+		}
+
+		f.time = time;
+
+		return f;
 	}
 
 	@Override
 	public List<Signal> generate(Quote[] data, int R) {
-		throw new RuntimeException("Not implemented");
+
+		if (R > data.length) {
+			throw new IllegalArgumentException("Range exceeds quotes array length");
+		}
+
+		List<Signal> signals = new LinkedList<Signal>();
+
+		// new filters are warmed up the same way as for the single quote
+
+		int first = data.length - R;
+		int start = Math.max(0, first - WARMUP + 1);
+
+		Filters f = new Filters(A, B);
+		SignalType signal = null;
+		Quote q = null;
+
+		for (int i = start; i < data.length; i++) {
+
+			q = data[i];
+
+			double e = f.fast.add(q.getClose());
+			double s = f.slow.add(q.getClose());
+
+			if (i < first) {
+				continue;
+			}
+
+			SignalType type = e - s > 0 ? BUY : SELL;
+			if (signal != type) {
+				signal = type;
+				signals.add(new Signal(q.getDate(), signal, q, e - s));
+			}
+		}
+
+		return signals;
 	}
 
 	@Override
 	public Signal generate(Quote q) {
 
 		// calculate necessary coefficients
-		double e2 = MA.jma(q, A, 0);
-		double s2 = MA.jma(q, B, 0);
+		double e2 = 0;
+		double s2 = 0;
+		synchronized (filters) {
+			Filters f = filters(q);
+			e2 = f.fast.value();
+			s2 = f.slow.value();
+		}
 		//double d2 = MA.emad(q, C);
 
 		// required to find optimal position opening moment
@@ -89,8 +214,6 @@ public class JMAC extends AbstractGenerator<Quote> {
 		// initially just wait
 		Signal signal = new Signal(q, WAIT);
 
-//		System.out.println(e2 + " " + s2);
-		
 		if (e2 - s2 > 0) {
 			signal = new Signal(q, BUY);
 		} else {
@@ -14,6 +14,7 @@ import com.sarxos.medusa.market.AbstractGenerator;
 import com.sarxos.medusa.market.Quote;
 import com.sarxos.medusa.market.Signal;
 import com.sarxos.medusa.market.Signal.Value;
+import com.sarxos.medusa.market.SignalParameter;
 import com.sarxos.medusa.market.SignalType;
 import com.sarxos.medusa.math.MA;
 
@@ -41,10 +42,13 @@ import com.sarxos.medusa.math.MA;
  */
 public class MAVD extends AbstractGenerator<Quote> {
 
+	@SignalParameter
 	private int A = 5;
 
+	@SignalParameter
 	private int B = 15;
 
+	@SignalParameter
 	private int C = 30;
 
 	public MAVD() {
@@ -6,6 +6,7 @@ import static com.sarxos.medusa.market.SignalType.SELL;
 import static com.sarxos.medusa.market.SignalType.WAIT;
 
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -13,6 +14,8 @@ import com.sarxos.medusa.market.AbstractGenerator;
 import com.sarxos.medusa.market.Quote;
 import com.sarxos.medusa.market.Signal;
 import com.sarxos.medusa.market.Signal.Value;
+import com.sarxos.medusa.market.SignalParameter;
+import com.sarxos.medusa.market.SignalType;
 import com.sarxos.medusa.math.ADX;
 import com.sarxos.medusa.math.MA;
 
@@ -40,10 +43,13 @@ import com.sarxos.medusa.math.MA;
  */
 public class MAVD3ADX extends AbstractGenerator<Quote> {
 
+	@SignalParameter
 	private int A = 5;
 
+	@SignalParameter
 	private int B = 15;
 
+	@SignalParameter
 	private int C = 30;
 
 	public MAVD3ADX() {
@@ -71,7 +77,50 @@ public class MAVD3ADX extends AbstractGenerator<Quote> {
 
 	@Override
 	public List<Signal> generate(Quote[] data, int R) {
-		throw new RuntimeException("Not implemented");
+
+		if (R >= data.length) {
+			throw new IllegalArgumentException("Range exceeds quotes array length");
+		}
+
+		List<Signal> signals = new LinkedList<Signal>();
+
+		// EMA and SMA are calculated for the previous quote, the same as in
+		// single quote signal
+
+		Quote[] quotes = new Quote[R + 1];
+
+		System.arraycopy(data, data.length - R - 1, quotes, 0, R + 1);
+
+		SignalType signal = null;
+		Quote q = null;
+
+		double[] ema = MA.ema(quotes, A);
+		double[] sma = MA.sma(quotes, B);
+		double[] emad = MA.emad(quotes, C);
+		double[] adx = ADX.adx(quotes, C);
+
+		for (int i = 1; i <= R; i++) {
+
+			q = quotes[i - 1];
+
+			double delta = ema[i - 1] - sma[i - 1];
+
+			if (delta > 0) {
+				if (emad[i] > 0 && adx[i] > 20) {
+					if (signal != BUY) {
+						signal = BUY;
+						signals.add(new Signal(q.getDate(), signal, q, emad[i]));
+					}
+				}
+			} else if (delta < 0) {
+				if (signal != SELL) {
+					signal = SELL;
+					signals.add(new Signal(q.getDate(), signal, q, emad[i]));
+				}
+			}
+		}
+
+		return signals;
 	}
 
 	@Override
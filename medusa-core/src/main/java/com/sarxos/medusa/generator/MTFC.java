@@ -0,0 +1,245 @@
+package com.sarxos.medusa.generator;
+
+import static com.sarxos.medusa.market.SignalType.BUY;
+import static com.sarxos.medusa.market.SignalType.SELL;
+import static com.sarxos.medusa.market.SignalType.WAIT;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import com.sarxos.medusa.data.BarAggregator;
+import com.sarxos.medusa.data.BarEvent;
+import com.sarxos.medusa.market.AbstractGenerator;
+import com.sarxos.medusa.market.MultiTimeframeGenerator;
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Signal;
+import com.sarxos.medusa.market.SignalParameter;
+import com.sarxos.medusa.market.SignalType;
+import com.sarxos.medusa.market.Timeframe;
+import com.sarxos.medusa.math.EMA;
+
+
+/**
+ * <b>MTFC</b> = <b>M</b>ulti <b>T</b>ime<b>F</b>rame <b>C</b>rossover.
+ *
+ * <p>
+ * Daily trend filter with 5 minutes trigger. All averages are updated
+ * incrementally with completed bars.
+ * </p>
+ *
+ * <p>
+ * T(n) = EMA(daily close, A)<br>
+ * F(n) = EMA(5 min close, B)<br>
+ * S(n) = EMA(5 min close, C)<br>
+ * <br>
+ *
+ * B &lt;=&gt; Q(n) &gt; T(n) && F(n) &gt; S(n)<br>
+ * S &lt;=&gt; Q(n) &lt; T(n) || F(n) &lt; S(n)
+ * </p>
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class MTFC extends AbstractGenerator<Quote> implements MultiTimeframeGenerator<Quote> {
+
+	/**
+	 * Aggregated timeframes.
+	 */
+	private static final Timeframe[] TIMEFRAMES = new Timeframe[] { Timeframe.M5, Timeframe.DAILY };
+
+	/**
+	 * Maximum number of daily quotes used to warm up trend average.
+	 */
+	private static final int WARMUP = 100;
+
+	@SignalParameter
+	private int A = 20;
+
+	@SignalParameter
+	private int B = 5;
+
+	@SignalParameter
+	private int C = 20;
+
+	/**
+	 * Daily trend average.
+	 */
+	private EMA trend = null;
+
+	private EMA fast = null;
+
+	private EMA slow = null;
+
+	/**
+	 * Number of the newest day added to the trend average.
+	 */
+	private long day = Long.MIN_VALUE;
+
+	/**
+	 * Time zone used to number days, the same as in bar aggregator.
+	 */
+	private final TimeZone zone = TimeZone.getDefault();
+
+	public MTFC() {
+		init(A, B, C);
+	}
+
+	public MTFC(int A, int B, int C) {
+		init(A, B, C);
+	}
+
+	public synchronized void init(int A, int B, int C) {
+		if (A < 2) {
+			throw new IllegalArgumentException("Trend EMA period canot be less then 2");
+		}
+		if (B < 2) {
+			throw new IllegalArgumentException("Fast EMA period canot be less then 2");
+		}
+		if (C <= B) {
+			throw new IllegalArgumentException("Slow EMA period has to be greater then fast one");
+		}
+
+		this.A = A;
+		this.B = B;
+		this.C = C;
+
+		trend = new EMA(A);
+		fast = new EMA(B);
+		slow = new EMA(C);
+		day = Long.MIN_VALUE;
+	}
+
+	@Override
+	public Timeframe[] getTimeframes() {
+		return TIMEFRAMES.clone();
+	}
+
+	@Override
+	public synchronized void barClosed(BarEvent be) {
+
+		Quote bar = be.getBar();
+		double close = bar.getClose();
+
+		switch (be.getTimeframe()) {
+			case M5:
+				fast.add(close);
+				slow.add(close);
+				break;
+			case DAILY:
+				long d = Timeframe.DAILY.bar(bar.getDate().getTime(), zone);
+				if (d > day) {
+					trend.add(close);
+					day = d;
+				}
+				break;
+		}
+	}
+
+	/**
+	 * Warm up trend average with daily quotes preceding given tick, so trader
+	 * does not have to wait for A days of aggregated bars.
+	 *
+	 * @param q - tick bound to daily quotes
+	 */
+	private void warmup(Quote q) {
+
+		Quote p = q.prev();
+		if (p == null || trend.isReady()) {
+			return;
+		}
+
+		LinkedList<Quote> days = new LinkedList<Quote>();
+		for (int n = 0; n < WARMUP && p != null; n++) {
+			days.addFirst(p);
+			p = p.prev();
+		}
+
+		for (Quote d : days) {
+			long k = Timeframe.DAILY.bar(d.getDate().getTime(), zone);
+			if (k > day) {
+				trend.add(d.getClose());
+				day = k;
+			}
+		}
+	}
+
+	private SignalType signal(Quote q) {
+		if (!trend.isReady() || !slow.isReady()) {
+			return WAIT;
+		}
+		if (q.getClose() > trend.value() && fast.value() > slow.value()) {
+			return BUY;
+		} else {
+			return SELL;
+		}
+	}
+
+	@Override
+	public synchronized Signal generate(Quote q) {
+		warmup(q);
+		return new Signal(q, signal(q));
+	}
+
+	/**
+	 * Generate signals for intraday quotes. Bars of both timeframes are
+	 * aggregated from the given quotes, so whole array is used to warm up the
+	 * averages. Generator state is reset.
+	 */
+	@Override
+	public synchronized List<Signal> generate(Quote[] data, int R) {
+
+		if (R > data.length) {
+			throw new IllegalArgumentException("Range exceeds quotes array length");
+		}
+
+		init(A, B, C);
+
+		List<Signal> signals = new LinkedList<Signal>();
+		if (data.length == 0) {
+			return signals;
+		}
+
+		BarAggregator aggregator = new BarAggregator(data[0].getSymbol(), zone, TIMEFRAMES);
+		aggregator.addBarListener(this);
+
+		int first = data.length - R;
+		SignalType signal = null;
+
+		for (int i = 0; i < data.length; i++) {
+
+			Quote q = data[i];
+			aggregator.add(q);
+
+			if (i < first) {
+				continue;
+			}
+
+			SignalType type = signal(q);
+			if (type != WAIT && signal != type) {
+				signal = type;
+				signals.add(new Signal(q.getDate(), signal, q, fast.value() - slow.value()));
+			}
+		}
+
+		return signals;
+	}
+
+	@Override
+	public Map<String, String> getParameters() {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("A", Integer.toString(A));
+		params.put("B", Integer.toString(B));
+		params.put("C", Integer.toString(C));
+		return params;
+	}
+
+	@Override
+	public void setParameters(Map<String, String> params) {
+		int A = Integer.parseInt(params.get("A").toString());
+		int B = Integer.parseInt(params.get("B").toString());
+		int C = Integer.parseInt(params.get("C").toString());
+		init(A, B, C);
+	}
+}
@@ -0,0 +1,144 @@
+package com.sarxos.medusa.generator;
+
+import static com.sarxos.medusa.market.SignalType.BUY;
+import static com.sarxos.medusa.market.SignalType.SELL;
+import static com.sarxos.medusa.market.SignalType.WAIT;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sarxos.medusa.market.AbstractMultiSymbolGenerator;
+import com.sarxos.medusa.market.AlignedSeries;
+import com.sarxos.medusa.market.Signal;
+import com.sarxos.medusa.market.SignalParameter;
+import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.math.EMA;
+
+
+/**
+ * <b>RSC</b> = <b>R</b>elative <b>S</b>trength <b>C</b>rossover.
+ *
+ * <p>
+ * Compares traded symbol with the benchmark (by default FW20 with WIG20).
+ * </p>
+ *
+ * <p>
+ * R(n) = Q(n) / W(n)<br>
+ * <br>
+ *
+ * B &lt;=&gt; EMA(R(n), A) &gt; EMA(R(n), B)<br>
+ * S &lt;=&gt; EMA(R(n), A) &lt; EMA(R(n), B)
+ * </p>
+ *
+ * <p>
+ * Averages are calculated incrementally - rows generated one after another
+ * (e.g. each tick of the same day) only add rows not added yet. The newest
+ * row is never added permanently, because it can be temporary row of real
+ * time tick.
+ * </p>
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class RSC extends AbstractMultiSymbolGenerator {
+
+	private Symbol[] symbols = null;
+
+	/**
+	 * Series averages have been calculated for.
+	 */
+	private AlignedSeries series = null;
+
+	/**
+	 * Number of rows added to the averages.
+	 */
+	private int rows = 0;
+
+	private EMA fast = null;
+
+	private EMA slow = null;
+
+	@SignalParameter
+	private int A = 5;
+
+	@SignalParameter
+	private int B = 20;
+
+	public RSC() {
+		this(Symbol.FW20, Symbol.WIG20);
+	}
+
+	public RSC(Symbol traded, Symbol benchmark) {
+		if (traded == null || benchmark == null) {
+			throw new IllegalArgumentException("Symbols cannot be null");
+		}
+		this.symbols = new Symbol[] { traded, benchmark };
+	}
+
+	public RSC(Symbol traded, Symbol benchmark, int A, int B) {
+		this(traded, benchmark);
+		init(A, B);
+	}
+
+	public void init(int A, int B) {
+		if (A < 2) {
+			throw new IllegalArgumentException("Fast EMA period canot be less then 2");
+		}
+		if (B <= A) {
+			throw new IllegalArgumentException("Slow EMA period has to be greater then fast one");
+		}
+		this.A = A;
+		this.B = B;
+		this.series = null;
+	}
+
+	@Override
+	public Symbol[] getSymbols() {
+		return symbols.clone();
+	}
+
+	@Override
+	public synchronized Signal generate(AlignedSeries series, int i) {
+
+		if (i + 1 < B) {
+			return new Signal(series.getQuote(0, i), WAIT);
+		}
+
+		// start again for other series or when going back
+
+		if (series != this.series || i < rows) {
+			this.series = series;
+			this.rows = 0;
+			this.fast = new EMA(A);
+			this.slow = new EMA(B);
+		}
+
+		double[] q = series.closes(0);
+		double[] w = series.closes(1);
+
+		for (; rows < i; rows++) {
+			double r = q[rows] / w[rows];
+			fast.add(r);
+			slow.add(r);
+		}
+
+		double r = q[i] / w[i];
+		double d = fast.snapshot().add(r) - slow.snapshot().add(r);
+
+		return new Signal(series.getQuote(0, i).getDate(), d > 0 ? BUY : SELL, series.getQuote(0, i), d);
+	}
+
+	@Override
+	public Map<String, String> getParameters() {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("A", Integer.toString(A));
+		params.put("B", Integer.toString(B));
+		return params;
+	}
+
+	@Override
+	public void setParameters(Map<String, String> params) {
+		int A = Integer.parseInt(params.get("A").toString());
+		int B = Integer.parseInt(params.get("B").toString());
+		init(A, B);
+	}
+}
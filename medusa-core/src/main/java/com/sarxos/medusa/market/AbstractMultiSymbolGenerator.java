@@ -0,0 +1,272 @@
+package com.sarxos.medusa.market;
+
+import static com.sarxos.medusa.market.SignalType.BUY;
+import static com.sarxos.medusa.market.SignalType.SELL;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sarxos.medusa.data.QuotesRegistry;
+import com.sarxos.medusa.provider.ProviderException;
+import com.sarxos.medusa.provider.RealTimeProvider;
+
+
+/**
+ * Base class for multi symbol generators. It aligns quotes of generator
+ * symbols taken from the quotes registry and keeps aligned series until any
+ * of the registry lists changes, so quotes are aligned once a day instead of
+ * once per tick. Real time tick of the traded symbol is added as the newest
+ * row only for the time of signal generation. Other symbols are read from
+ * the real time provider (if it has been set) or forward-filled.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public abstract class AbstractMultiSymbolGenerator extends AbstractGenerator<Quote> implements MultiSymbolGenerator {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(AbstractMultiSymbolGenerator.class.getSimpleName());
+
+	/**
+	 * Quotes registry to take quotes from.
+	 */
+	private QuotesRegistry registry = null;
+
+	/**
+	 * Real time provider of the other symbols quotes.
+	 */
+	private RealTimeProvider provider = null;
+
+	/**
+	 * Aligned registry quotes.
+	 */
+	private AlignedSeries series = null;
+
+	/**
+	 * Registry lists used to build aligned series.
+	 */
+	private List<List<Quote>> lists = null;
+
+	/**
+	 * Sizes and modifications of the registry lists used to build aligned
+	 * series.
+	 */
+	private int[] stamps = null;
+
+	/**
+	 * @return Registry quotes lists of generator symbols
+	 */
+	private List<List<Quote>> quotes() {
+		Symbol[] symbols = getSymbols();
+		List<List<Quote>> quotes = new ArrayList<List<Quote>>(symbols.length);
+		for (Symbol s : symbols) {
+			List<Quote> list = getQuotesRegistry().getQuotes(s);
+			if (list == null) {
+				throw new RuntimeException("No quotes for symbol " + s);
+			}
+			quotes.add(list);
+		}
+		return quotes;
+	}
+
+	/**
+	 * Return size and modifications counter of each list. Changes of quotes
+	 * inside the list can be detected only for lists of {@link QuoteSeries}
+	 * (see {@link QuoteSeries#getModifications()}), other lists are compared
+	 * only by size.
+	 *
+	 * @param quotes - registry lists
+	 * @return Stamps of the lists
+	 */
+	private static int[] stamps(List<List<Quote>> quotes) {
+		int[] stamps = new int[quotes.size() * 2];
+		for (int k = 0; k < quotes.size(); k++) {
+			List<Quote> list = quotes.get(k);
+			int n = list.size();
+			stamps[2 * k] = n;
+			if (n > 0 && list.get(0) instanceof QuoteView) {
+				stamps[2 * k + 1] = ((QuoteView) list.get(0)).getSeries().getModifications();
+			}
+		}
+		return stamps;
+	}
+
+	/**
+	 * Return aligned registry quotes. Quotes are aligned again only if any of
+	 * the registry lists has been replaced, changed its size or any of its
+	 * quotes has been modified.
+	 *
+	 * @return Aligned series
+	 */
+	public synchronized AlignedSeries getAlignedSeries() {
+
+		List<List<Quote>> quotes = quotes();
+		int[] stamps = stamps(quotes);
+
+		boolean changed = series == null || !Arrays.equals(stamps, this.stamps);
+		for (int k = 0; !changed && k < quotes.size(); k++) {
+			changed = quotes.get(k) != lists.get(k);
+		}
+
+		if (changed) {
+			series = AlignedSeries.align(getSymbols(), quotes);
+			lists = quotes;
+			this.stamps = stamps;
+		}
+
+		return series;
+	}
+
+	/**
+	 * Return real time quote of the not traded symbol for the row of real
+	 * time tick. Quote is taken from the real time provider, only if it is
+	 * newer than the last aligned row.
+	 *
+	 * @param s - aligned series
+	 * @param k - symbol index
+	 * @return Real time quote or null if symbol has to be forward-filled
+	 */
+	private Quote current(AlignedSeries s, int k) {
+
+		Symbol symbol = s.getSymbols()[k];
+		if (provider == null || !provider.canServe(symbol)) {
+			return null;
+		}
+
+		Quote q = null;
+		try {
+			q = provider.getQuote(symbol);
+		} catch (ProviderException e) {
+			LOG.warn("Cannot read " + symbol + " quote, previous close is used. " + e.getMessage());
+			return null;
+		}
+
+		if (q == null || s.search(q.getDate().getTime()) < s.size()) {
+			return null;
+		}
+
+		return q;
+	}
+
+	@Override
+	public synchronized Signal generate(Quote q) {
+
+		AlignedSeries s = getAlignedSeries();
+		long t = q.getDate().getTime();
+
+		int n = s.size();
+		int i = s.find(t);
+
+		if (i != -1) {
+			return generate(s, i);
+		}
+		if (n > 0 && t < s.getTime(n - 1)) {
+			throw new IllegalArgumentException("Quote " + q + " is not in the aligned series");
+		}
+
+		// real time tick - add temporary row
+
+		Quote[] row = new Quote[s.getSymbols().length];
+		row[0] = q;
+		for (int k = 1; k < row.length; k++) {
+			row[k] = current(s, k);
+		}
+
+		try {
+			Signal signal = generate(s, s.add(t, row));
+			signal.setDate(q.getDate());
+			signal.setQuote(q);
+			return signal;
+		} finally {
+			s.truncate(n);
+		}
+	}
+
+	/**
+	 * Generate signals for given quotes of the traded symbol. Quotes of other
+	 * symbols are taken from the registry. Signals are generated only for the
+	 * rows the traded symbol has been quoted in.
+	 */
+	@Override
+	public List<Signal> generate(Quote[] data, int R) {
+
+		if (R > data.length) {
+			throw new IllegalArgumentException("Range exceeds quotes array length");
+		}
+
+		List<Signal> signals = new LinkedList<Signal>();
+		if (R == 0) {
+			return signals;
+		}
+
+		List<List<Quote>> quotes = quotes();
+		quotes.set(0, Arrays.asList(data));
+
+		AlignedSeries s = AlignedSeries.align(getSymbols(), quotes);
+		SignalType signal = null;
+
+		int first = s.search(data[data.length - R].getDate().getTime());
+		for (int i = first; i < s.size(); i++) {
+
+			if (s.isFilled(0, i)) {
+				continue;
+			}
+
+			Signal sig = generate(s, i);
+			SignalType type = sig.getType();
+
+			if ((type == BUY || type == SELL) && type != signal) {
+				signal = type;
+				signals.add(sig);
+			}
+		}
+
+		return signals;
+	}
+
+	/**
+	 * @return Quotes registry, global one by default
+	 */
+	public synchronized QuotesRegistry getQuotesRegistry() {
+		if (registry == null) {
+			registry = QuotesRegistry.getInstance();
+		}
+		return registry;
+	}
+
+	/**
+	 * Set quotes registry to take quotes from, e.g. simulator registry.
+	 *
+	 * @param registry - quotes registry
+	 */
+	public synchronized void setQuotesRegistry(QuotesRegistry registry) {
+		this.registry = registry;
+		this.series = null;
+		this.lists = null;
+		this.stamps = null;
+	}
+
+	/**
+	 * @return Real time provider of the other symbols quotes or null
+	 */
+	public synchronized RealTimeProvider getRealTimeProvider() {
+		return provider;
+	}
+
+	/**
+	 * Set real time provider used to read quotes of the other symbols when
+	 * signal is generated for the real time tick. If it is not set (e.g. in
+	 * simulation) other symbols are forward-filled with their last close.
+	 *
+	 * @param provider - real time provider or null
+	 */
+	public synchronized void setRealTimeProvider(RealTimeProvider provider) {
+		this.provider = provider;
+	}
+}
@@ -0,0 +1,435 @@
+package com.sarxos.medusa.market;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+
+/**
+ * Daily quotes of several symbols aligned to the common time line, so the
+ * values of all symbols in given row come from the same day. Series is built
+ * with a single merge-join pass over the quotes lists (see
+ * {@link #align(Symbol[], List)}). Rows are created for each day with at least
+ * one quote and for each working day (as reported by {@link Calendarium})
+ * between them. Symbol without quote in given row is forward-filled with its
+ * previous close (open, high and low equal to close, volume 0) and the row is
+ * marked as filled for this symbol.<br>
+ * <br>
+ *
+ * Values are stored in primitive arrays, one column per symbol, and are
+ * accessed by symbol index (order of the symbols given when series was
+ * created) and row index, where row 0 is the oldest one.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class AlignedSeries {
+
+	/**
+	 * Default initial capacity.
+	 */
+	private static final int CAPACITY = 256;
+
+	private final Symbol[] symbols;
+
+	private final TimeZone zone;
+
+	/**
+	 * Number of rows.
+	 */
+	private int size = 0;
+
+	private long[] time = null;
+
+	private double[][] open = null;
+
+	private double[][] high = null;
+
+	private double[][] low = null;
+
+	private double[][] close = null;
+
+	private long[][] volume = null;
+
+	private boolean[][] filled = null;
+
+	/**
+	 * Create empty series.
+	 *
+	 * @param zone - time zone used to split days
+	 * @param symbols - aligned symbols
+	 */
+	public AlignedSeries(TimeZone zone, Symbol... symbols) {
+
+		if (zone == null) {
+			throw new IllegalArgumentException("Time zone cannot be null");
+		}
+		if (symbols.length == 0) {
+			throw new IllegalArgumentException("At least one symbol is required");
+		}
+
+		int n = symbols.length;
+
+		this.zone = zone;
+		this.symbols = symbols.clone();
+		this.time = new long[CAPACITY];
+		this.open = new double[n][CAPACITY];
+		this.high = new double[n][CAPACITY];
+		this.low = new double[n][CAPACITY];
+		this.close = new double[n][CAPACITY];
+		this.volume = new long[n][CAPACITY];
+		this.filled = new boolean[n][CAPACITY];
+	}
+
+	/**
+	 * Align quotes using default time zone and calendarium.
+	 *
+	 * @param symbols - symbols to align
+	 * @param quotes - daily quotes of each symbol (sorted by date)
+	 * @return Aligned series
+	 * @see #align(Symbol[], List, Calendarium, TimeZone)
+	 */
+	public static AlignedSeries align(Symbol[] symbols, List<? extends List<? extends Quote>> quotes) {
+		return align(symbols, quotes, Calendarium.getInstance(), TimeZone.getDefault());
+	}
+
+	/**
+	 * Align daily quotes of several symbols with single merge-join pass. Series
+	 * starts from the first day all symbols have been quoted, so each symbol
+	 * has a value to forward-fill, and ends at the newest quote. If symbol has
+	 * more then one quote in the same day the last one is used.
+	 *
+	 * @param symbols - symbols to align
+	 * @param quotes - daily quotes of each symbol (sorted by date)
+	 * @param calendarium - calendarium to find working days
+	 * @param zone - time zone used to split days
+	 * @return Aligned series
+	 */
+	public static AlignedSeries align(Symbol[] symbols, List<? extends List<? extends Quote>> quotes, Calendarium calendarium, TimeZone zone) {
+
+		int n = symbols.length;
+
+		if (quotes.size() != n) {
+			throw new IllegalArgumentException("There has to be one quotes list for each symbol");
+		}
+
+		AlignedSeries series = new AlignedSeries(zone, symbols);
+
+		int[] pos = new int[n];
+		Quote[] last = new Quote[n];
+		Quote[] row = new Quote[n];
+
+		// first day all symbols have been quoted
+
+		long start = Long.MIN_VALUE;
+		for (int k = 0; k < n; k++) {
+			List<? extends Quote> list = quotes.get(k);
+			if (list == null || list.isEmpty()) {
+				return series;
+			}
+			start = Math.max(start, series.day(list.get(0)));
+		}
+
+		for (int k = 0; k < n; k++) {
+			List<? extends Quote> list = quotes.get(k);
+			while (pos[k] < list.size() && series.day(list.get(pos[k])) < start) {
+				last[k] = list.get(pos[k]++);
+			}
+		}
+
+		while (true) {
+
+			// next day with quote of any symbol
+
+			long next = Long.MAX_VALUE;
+			for (int k = 0; k < n; k++) {
+				List<? extends Quote> list = quotes.get(k);
+				if (pos[k] < list.size()) {
+					next = Math.min(next, series.day(list.get(pos[k])));
+				}
+			}
+			if (next == Long.MAX_VALUE) {
+				break;
+			}
+
+			// or next working day if no symbol has been quoted then
+
+			Date date = null;
+			if (series.size > 0) {
+				Date working = calendarium.getNextWorkingDay(new Date(series.time[series.size - 1]));
+				long d = series.day(working.getTime());
+				if (d < next) {
+					next = d;
+					date = working;
+				}
+			}
+
+			for (int k = 0; k < n; k++) {
+				List<? extends Quote> list = quotes.get(k);
+				row[k] = null;
+				while (pos[k] < list.size() && series.day(list.get(pos[k])) == next) {
+					row[k] = last[k] = list.get(pos[k]++);
+				}
+			}
+
+			long t = date == null ? -1 : date.getTime();
+			for (int k = 0; k < n && t == -1; k++) {
+				if (row[k] != null) {
+					t = row[k].getDate().getTime();
+				}
+			}
+
+			series.add(t, row, last);
+		}
+
+		return series;
+	}
+
+	private long day(Quote q) {
+		return day(q.getDate().getTime());
+	}
+
+	private long day(long t) {
+		return Timeframe.DAILY.bar(t, zone);
+	}
+
+	private void ensure(int capacity) {
+		if (capacity <= time.length) {
+			return;
+		}
+		int c = Math.max(capacity, time.length * 2);
+		time = Arrays.copyOf(time, c);
+		for (int k = 0; k < symbols.length; k++) {
+			open[k] = Arrays.copyOf(open[k], c);
+			high[k] = Arrays.copyOf(high[k], c);
+			low[k] = Arrays.copyOf(low[k], c);
+			close[k] = Arrays.copyOf(close[k], c);
+			volume[k] = Arrays.copyOf(volume[k], c);
+			filled[k] = Arrays.copyOf(filled[k], c);
+		}
+	}
+
+	/**
+	 * Add new row, e.g. for the real time tick. Symbols without quote are
+	 * forward-filled with their previous close.
+	 *
+	 * @param t - row time
+	 * @param row - quote of each symbol, null if symbol has not been quoted
+	 * @return Index of the added row
+	 */
+	public int add(long t, Quote... row) {
+		if (size == 0) {
+			for (Quote q : row) {
+				if (q == null) {
+					throw new IllegalArgumentException("All symbols has to be quoted in the first row");
+				}
+			}
+		}
+		return add(t, row, null);
+	}
+
+	/**
+	 * Add new row. Symbols without quote are forward-filled with the previous
+	 * close or with the close of given previous quote for the first row.
+	 */
+	private int add(long t, Quote[] row, Quote[] prev) {
+
+		if (row.length != symbols.length) {
+			throw new IllegalArgumentException("Row length has to be equal to the number of symbols");
+		}
+
+		ensure(size + 1);
+
+		int i = size;
+		time[i] = t;
+
+		for (int k = 0; k < symbols.length; k++) {
+			Quote q = row[k];
+			if (q != null) {
+				open[k][i] = q.getOpen();
+				high[k][i] = q.getHigh();
+				low[k][i] = q.getLow();
+				close[k][i] = q.getClose();
+				volume[k][i] = q.getVolume();
+				filled[k][i] = false;
+			} else {
+				double c = 0;
+				if (i > 0) {
+					c = close[k][i - 1];
+				} else {
+					c = prev[k].getClose();
+				}
+				open[k][i] = high[k][i] = low[k][i] = close[k][i] = c;
+				volume[k][i] = 0;
+				filled[k][i] = true;
+			}
+		}
+
+		return size++;
+	}
+
+	/**
+	 * Remove newest rows, e.g. row added temporarily for the real time tick.
+	 *
+	 * @param size - new number of rows
+	 */
+	public void truncate(int size) {
+		if (size < 0 || size > this.size) {
+			throw new IllegalArgumentException("Cannot truncate series of size " + this.size + " to " + size);
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Find index of the row of the day given time belongs to or of the first
+	 * row after this day.
+	 *
+	 * @param t - time to search (epoch millis)
+	 * @return Row index or {@link #size()} if all rows are before given day
+	 */
+	public int search(long t) {
+		long d = day(t);
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (day(time[mid]) < d) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Find row of the day given time belongs to.
+	 *
+	 * @param t - time to find (epoch millis)
+	 * @return Row index or -1 if there is no row for this day
+	 */
+	public int find(long t) {
+		int i = search(t);
+		return i < size && day(time[i]) == day(t) ? i : -1;
+	}
+
+	/**
+	 * @param symbol - symbol to find
+	 * @return Symbol index or -1 if symbol is not aligned
+	 */
+	public int indexOf(Symbol symbol) {
+		for (int k = 0; k < symbols.length; k++) {
+			if (symbols[k] == symbol) {
+				return k;
+			}
+		}
+		return -1;
+	}
+
+	private void check(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Index " + i + " out of series size " + size);
+		}
+	}
+
+	/**
+	 * @return Number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public Symbol[] getSymbols() {
+		return symbols.clone();
+	}
+
+	public TimeZone getTimeZone() {
+		return zone;
+	}
+
+	public long getTime(int i) {
+		check(i);
+		return time[i];
+	}
+
+	public double getOpen(int k, int i) {
+		check(i);
+		return open[k][i];
+	}
+
+	public double getHigh(int k, int i) {
+		check(i);
+		return high[k][i];
+	}
+
+	public double getLow(int k, int i) {
+		check(i);
+		return low[k][i];
+	}
+
+	public double getClose(int k, int i) {
+		check(i);
+		return close[k][i];
+	}
+
+	public long getVolume(int k, int i) {
+		check(i);
+		return volume[k][i];
+	}
+
+	/**
+	 * Create quote with symbol values from given row.
+	 *
+	 * @param k - symbol index
+	 * @param i - row index
+	 * @return New quote
+	 */
+	public Quote getQuote(int k, int i) {
+		check(i);
+		return new Quote(symbols[k], new Date(time[i]), open[k][i], high[k][i], low[k][i], close[k][i], volume[k][i]);
+	}
+
+	/**
+	 * @param k - symbol index
+	 * @param i - row index
+	 * @return true if symbol value in given row has been forward-filled
+	 */
+	public boolean isFilled(int k, int i) {
+		check(i);
+		return filled[k][i];
+	}
+
+	/**
+	 * Return backing closing prices array of given symbol. Please note that
+	 * array can be longer then series size and that it is replaced when
+	 * series grows.
+	 *
+	 * @param k - symbol index
+	 * @return Closing prices array
+	 */
+	public double[] closes(int k) {
+		return close[k];
+	}
+
+	/**
+	 * Copy symbol column into separate quotes series, e.g. to use it with
+	 * single symbol indicators.
+	 *
+	 * @param k - symbol index
+	 * @return New quotes series
+	 */
+	public QuoteSeries series(int k) {
+		return new QuoteSeries(
+			symbols[k],
+			Arrays.copyOf(time, size),
+			Arrays.copyOf(open[k], size),
+			Arrays.copyOf(high[k], size),
+			Arrays.copyOf(low[k], size),
+			Arrays.copyOf(close[k], size),
+			Arrays.copyOf(volume[k], size));
+	}
+}
@@ -0,0 +1,29 @@
+package com.sarxos.medusa.market;
+
+/**
+ * Signal generator using quotes of several symbols, e.g. spread or relative
+ * strength strategy. Instead of the single symbol quotes chain generator
+ * receives daily quotes of all its symbols aligned to the common time line
+ * (see {@link AlignedSeries}), so it does not have to load and align quotes
+ * lists by itself.
+ *
+ * @author Bartosz Firyn (SarXos)
+ * @see AbstractMultiSymbolGenerator
+ */
+public interface MultiSymbolGenerator extends SignalGenerator<Quote> {
+
+	/**
+	 * @return Symbols used by generator, the first one is the traded symbol
+	 */
+	public Symbol[] getSymbols();
+
+	/**
+	 * Generate signal for given row of aligned series. Only rows up to the
+	 * given one can be used.
+	 *
+	 * @param series - aligned quotes of generator symbols
+	 * @param i - row index
+	 * @return Signal
+	 */
+	public Signal generate(AlignedSeries series, int i);
+}
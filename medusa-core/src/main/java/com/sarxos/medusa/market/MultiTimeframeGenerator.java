@@ -0,0 +1,27 @@
+package com.sarxos.medusa.market;
+
+import com.sarxos.medusa.data.BarEvent;
+import com.sarxos.medusa.data.BarListener;
+
+
+/**
+ * Signal generator working on several timeframes of the same symbol, e.g.
+ * daily trend filter with 5 minutes trigger. Decision maker aggregates ticks
+ * into bars of the required timeframes and passes each completed bar to the
+ * generator (see {@link BarListener#barClosed(BarEvent)}) before the signal
+ * for the tick is generated, so the generator can update its indicators
+ * incrementally instead of recalculating them from the quotes list.<br>
+ * <br>
+ *
+ * Generator instance keeps the state of one symbol, so it cannot be shared
+ * between traders.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public interface MultiTimeframeGenerator<T extends Quote> extends SignalGenerator<T>, BarListener {
+
+	/**
+	 * @return Timeframes generator has to be notified about
+	 */
+	public Timeframe[] getTimeframes();
+}
@@ -274,10 +274,10 @@ public class Quote implements Cloneable {
 		sb.append(getClass().getSimpleName());
 		sb.append("[").append(getDateString()).append("]");
 		sb.append('[');
-		sb.append("O:").append(String.format("%.2f", open).replaceAll(",", "."));
-		sb.append(" H:").append(String.format("%.2f", high).replaceAll(",", "."));
-		sb.append(" L:").append(String.format("%.2f", low).replaceAll(",", "."));
-		sb.append(" C:").append(String.format("%.2f", close).replaceAll(",", "."));
+		sb.append("O:").append(String.format("%.2f", getOpen()).replaceAll(",", "."));
+		sb.append(" H:").append(String.format("%.2f", getHigh()).replaceAll(",", "."));
+		sb.append(" L:").append(String.format("%.2f", getLow()).replaceAll(",", "."));
+		sb.append(" C:").append(String.format("%.2f", getClose()).replaceAll(",", "."));
 
 		if (bidAsk != null) {
 			sb.append(" B|A:").append(bidAsk);
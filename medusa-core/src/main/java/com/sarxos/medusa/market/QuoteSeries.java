@@ -0,0 +1,546 @@
+package com.sarxos.medusa.market;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Quotes series stored as parallel primitive arrays (time, open, high, low,
+ * close and volume). Quotes are accessed by index, where index 0 is the
+ * oldest quote. For code which still operates on {@link Quote} objects series
+ * can hand out {@link QuoteView}s - lightweight quotes reading and writing
+ * values directly from and to the series arrays. Views are not cached, each
+ * {@link #get(int)} call creates new short living view, so series does not
+ * keep any per quote objects.
+ *
+ * <p>
+ * Series methods are synchronized, so quotes can be appended by one thread
+ * (e.g. quotes registry reload) while other threads (traders) read them.
+ * </p>
+ *
+ * @author Bartosz Firyn (SarXos)
+ * @see QuoteView
+ */
+public class QuoteSeries {
+
+	/**
+	 * Default initial capacity.
+	 */
+	private static final int CAPACITY = 256;
+
+	/**
+	 * Series identifiers generator.
+	 */
+	private static final AtomicLong IDS = new AtomicLong();
+
+	/**
+	 * Number of the last modifications which indexes are remembered.
+	 */
+	private static final int MODIFIED = 32;
+
+	/**
+	 * Unique series identifier.
+	 */
+	private final long id = IDS.incrementAndGet();
+
+	/**
+	 * Number of changes of the already added quotes.
+	 */
+	private int modifications = 0;
+
+	/**
+	 * Indexes of the last modified quotes, index changed by modification k is
+	 * stored at k % {@link #MODIFIED}.
+	 */
+	private final int[] modified = new int[MODIFIED];
+
+	/**
+	 * Series symbol (can be null).
+	 */
+	private Symbol symbol = null;
+
+	/**
+	 * Number of quotes in series.
+	 */
+	private int size = 0;
+
+	private long[] time = null;
+
+	private double[] open = null;
+
+	private double[] high = null;
+
+	private double[] low = null;
+
+	private double[] close = null;
+
+	private long[] volume = null;
+
+	/**
+	 * Quote bound before the first series quote (outside the series).
+	 */
+	private Quote head = null;
+
+	/**
+	 * Quote bound after the last series quote (outside the series), e.g. real
+	 * time quote.
+	 */
+	private Quote tail = null;
+
+	/**
+	 * List view of this series.
+	 */
+	private List<Quote> list = null;
+
+	/**
+	 * Create empty series.
+	 *
+	 * @param symbol - series symbol
+	 */
+	public QuoteSeries(Symbol symbol) {
+		this(symbol, CAPACITY);
+	}
+
+	/**
+	 * Create empty series with given initial capacity.
+	 *
+	 * @param symbol - series symbol
+	 * @param capacity - initial capacity
+	 */
+	public QuoteSeries(Symbol symbol, int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Capacity cannot be negative");
+		}
+		this.symbol = symbol;
+		this.time = new long[capacity];
+		this.open = new double[capacity];
+		this.high = new double[capacity];
+		this.low = new double[capacity];
+		this.close = new double[capacity];
+		this.volume = new long[capacity];
+	}
+
+	/**
+	 * Create series from primitive arrays. Arrays are used directly (not
+	 * copied) and has to be of the same length.
+	 *
+	 * @param symbol - series symbol
+	 * @param time - quotes times (epoch millis)
+	 * @param open - opening prices
+	 * @param high - highest prices
+	 * @param low - lowest prices
+	 * @param close - closing prices
+	 * @param volume - volumes
+	 */
+	public QuoteSeries(Symbol symbol, long[] time, double[] open, double[] high, double[] low, double[] close, long[] volume) {
+		int n = time.length;
+		if (open.length != n || high.length != n || low.length != n || close.length != n || volume.length != n) {
+			throw new IllegalArgumentException("All columns have to be of the same length");
+		}
+		this.symbol = symbol;
+		this.time = time;
+		this.open = open;
+		this.high = high;
+		this.low = low;
+		this.close = close;
+		this.volume = volume;
+		this.size = n;
+	}
+
+	/**
+	 * Create series from quotes collection (quotes has to be sorted by date).
+	 *
+	 * @param symbol - series symbol
+	 * @param quotes - quotes to copy
+	 * @return New series
+	 */
+	public static QuoteSeries of(Symbol symbol, Collection<? extends Quote> quotes) {
+		QuoteSeries series = new QuoteSeries(symbol, quotes.size());
+		for (Quote q : quotes) {
+			series.add(q);
+		}
+		return series;
+	}
+
+	/**
+	 * @return Series symbol
+	 */
+	public Symbol getSymbol() {
+		return symbol;
+	}
+
+	/**
+	 * @return Unique series identifier
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Return number of changes of the already added quotes (appending new
+	 * quotes is not counted). Values calculated from the series are still
+	 * valid as long as this number has not been changed.
+	 *
+	 * @return Modifications counter
+	 */
+	public synchronized int getModifications() {
+		return modifications;
+	}
+
+	/**
+	 * Return index of the first quote changed since series had given number
+	 * of modifications. Values calculated from quotes before this index are
+	 * still valid. When quote is updated in place (e.g. the last bar by real
+	 * time quotes) only values of this quote has to be calculated again.
+	 *
+	 * @param since - modifications counter read before
+	 * @return Index of the first modified quote, {@link #size()} if nothing
+	 *         has been changed or 0 if changes are too old to be remembered
+	 */
+	public synchronized int getModifiedFrom(int since) {
+		if (since >= modifications) {
+			return size;
+		}
+		if (since < 0 || modifications - since > MODIFIED) {
+			return 0;
+		}
+		int from = size;
+		for (int k = since; k < modifications; k++) {
+			from = Math.min(from, modified[k % MODIFIED]);
+		}
+		return from;
+	}
+
+	/**
+	 * Count modification of quote at given index.
+	 *
+	 * @param i - modified quote index
+	 */
+	private void modified(int i) {
+		modified[modifications % MODIFIED] = i;
+		modifications++;
+	}
+
+	/**
+	 * @return Number of quotes in series
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if series is empty
+	 */
+	public synchronized boolean isEmpty() {
+		return size == 0;
+	}
+
+	private void ensureCapacity(int n) {
+		if (n > time.length) {
+			int capacity = Math.max(n, time.length * 2 + 1);
+			time = Arrays.copyOf(time, capacity);
+			open = Arrays.copyOf(open, capacity);
+			high = Arrays.copyOf(high, capacity);
+			low = Arrays.copyOf(low, capacity);
+			close = Arrays.copyOf(close, capacity);
+			volume = Arrays.copyOf(volume, capacity);
+		}
+	}
+
+	private void check(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Index " + i + " out of range [0, " + size + ")");
+		}
+	}
+
+	/**
+	 * Append new quote at the end of series.
+	 *
+	 * @return Index of the added quote
+	 */
+	public synchronized int add(long t, double o, double h, double l, double c, long v) {
+		ensureCapacity(size + 1);
+		time[size] = t;
+		open[size] = o;
+		high[size] = h;
+		low[size] = l;
+		close[size] = c;
+		volume[size] = v;
+		tail = null;
+		return size++;
+	}
+
+	/**
+	 * Append copy of given quote at the end of series.
+	 *
+	 * @param q - quote to add
+	 * @return Index of the added quote
+	 */
+	public int add(Quote q) {
+		return add(q.getDate().getTime(), q.getOpen(), q.getHigh(), q.getLow(), q.getClose(), q.getVolume());
+	}
+
+	/**
+	 * Replace quote values at given index.
+	 */
+	public synchronized void set(int i, long t, double o, double h, double l, double c, long v) {
+		check(i);
+		modified(i);
+		time[i] = t;
+		open[i] = o;
+		high[i] = h;
+		low[i] = l;
+		close[i] = c;
+		volume[i] = v;
+	}
+
+	public synchronized long getTime(int i) {
+		check(i);
+		return time[i];
+	}
+
+	public synchronized double getOpen(int i) {
+		check(i);
+		return open[i];
+	}
+
+	public synchronized double getHigh(int i) {
+		check(i);
+		return high[i];
+	}
+
+	public synchronized double getLow(int i) {
+		check(i);
+		return low[i];
+	}
+
+	public synchronized double getClose(int i) {
+		check(i);
+		return close[i];
+	}
+
+	public synchronized long getVolume(int i) {
+		check(i);
+		return volume[i];
+	}
+
+	public synchronized void setTime(int i, long t) {
+		check(i);
+		modified(i);
+		time[i] = t;
+	}
+
+	public synchronized void setOpen(int i, double o) {
+		check(i);
+		modified(i);
+		open[i] = o;
+	}
+
+	public synchronized void setHigh(int i, double h) {
+		check(i);
+		modified(i);
+		high[i] = h;
+	}
+
+	public synchronized void setLow(int i, double l) {
+		check(i);
+		modified(i);
+		low[i] = l;
+	}
+
+	public synchronized void setClose(int i, double c) {
+		check(i);
+		modified(i);
+		close[i] = c;
+	}
+
+	public synchronized void setVolume(int i, long v) {
+		check(i);
+		modified(i);
+		volume[i] = v;
+	}
+
+	/**
+	 * Return backing times array. Please note that array can be longer then
+	 * series size and that it is replaced when series grows, so read
+	 * {@link #size()} first and then the array. Array should not be modified,
+	 * use setters instead.
+	 *
+	 * @return Times array (epoch millis)
+	 */
+	public synchronized long[] times() {
+		return time;
+	}
+
+	/**
+	 * @return Backing opening prices array
+	 * @see #times()
+	 */
+	public synchronized double[] opens() {
+		return open;
+	}
+
+	/**
+	 * @return Backing highest prices array
+	 * @see #times()
+	 */
+	public synchronized double[] highs() {
+		return high;
+	}
+
+	/**
+	 * @return Backing lowest prices array
+	 * @see #times()
+	 */
+	public synchronized double[] lows() {
+		return low;
+	}
+
+	/**
+	 * @return Backing closing prices array
+	 * @see #times()
+	 */
+	public synchronized double[] closes() {
+		return close;
+	}
+
+	/**
+	 * @return Backing volumes array
+	 * @see #times()
+	 */
+	public synchronized long[] volumes() {
+		return volume;
+	}
+
+	/**
+	 * Find index of the first quote with time equal or after given one.
+	 *
+	 * @param t - time to search (epoch millis)
+	 * @return Quote index or {@link #size()} if all quotes are before given
+	 *         time
+	 */
+	public synchronized int search(long t) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (time[mid] < t) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Return new quote view for given index.
+	 *
+	 * @param i - quote index
+	 * @return Quote view
+	 */
+	public synchronized QuoteView get(int i) {
+		check(i);
+		return new QuoteView(this, i);
+	}
+
+	/**
+	 * Return quote previous to the given index - view of the previous series
+	 * quote or quote bound before the first one.
+	 *
+	 * @param i - quote index
+	 * @return Previous quote or null
+	 */
+	synchronized Quote prev(int i) {
+		check(i);
+		return i > 0 ? new QuoteView(this, i - 1) : head;
+	}
+
+	/**
+	 * Return quote next to the given index - view of the next series quote or
+	 * quote bound after the last one.
+	 *
+	 * @param i - quote index
+	 * @return Next quote or null
+	 */
+	synchronized Quote next(int i) {
+		check(i);
+		return i + 1 < size ? new QuoteView(this, i + 1) : tail;
+	}
+
+	/**
+	 * Bind quote before the first series quote. Quotes inside the series are
+	 * linked by index, so binding to other quotes is ignored.
+	 *
+	 * @param i - quote index
+	 * @param q - quote to bind
+	 */
+	synchronized void setPrev(int i, Quote q) {
+		check(i);
+		if (i == 0 && head != q) {
+			head = q;
+			modified(0);
+		}
+	}
+
+	/**
+	 * Bind quote after the last series quote. Quotes inside the series are
+	 * linked by index, so binding to other quotes is ignored.
+	 *
+	 * @param i - quote index
+	 * @param q - quote to bind
+	 */
+	synchronized void setNext(int i, Quote q) {
+		check(i);
+		if (i == size - 1) {
+			tail = q;
+		}
+	}
+
+	/**
+	 * @return Last quote view or null if series is empty
+	 */
+	public synchronized QuoteView last() {
+		return size == 0 ? null : get(size - 1);
+	}
+
+	/**
+	 * Return list view of this series. Adding quote to the list will append
+	 * its copy to the series.
+	 *
+	 * @return List of quote views
+	 */
+	public synchronized List<Quote> asList() {
+		if (list == null) {
+			list = new SeriesList();
+		}
+		return list;
+	}
+
+	/**
+	 * List view of the series.
+	 */
+	private class SeriesList extends AbstractList<Quote> implements RandomAccess {
+
+		@Override
+		public Quote get(int index) {
+			return QuoteSeries.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return QuoteSeries.this.size();
+		}
+
+		@Override
+		public boolean add(Quote q) {
+			QuoteSeries.this.add(q);
+			modCount++;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package com.sarxos.medusa.market;
+
+import java.util.Date;
+
+
+/**
+ * Quote backed by the {@link QuoteSeries} arrays. All getters and setters
+ * operates directly on the series values. Previous and next quotes are taken
+ * from the series, only quotes outside the series (e.g. real time quote bound
+ * to the series tail) are kept in the series as ordinary references. Views are
+ * not cached, so two views of the same quote are different objects.<br>
+ * <br>
+ *
+ * View index is fixed. It is valid because series quotes are only appended,
+ * they are never removed or shifted. When quotes are reloaded into the new
+ * series, views of the old one still read the old series. Access to the index
+ * outside of the series throws {@link IndexOutOfBoundsException}.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class QuoteView extends Quote {
+
+	/**
+	 * Underlying series.
+	 */
+	private final QuoteSeries series;
+
+	/**
+	 * Quote index in series.
+	 */
+	private final int index;
+
+	/**
+	 * Create quote view.
+	 *
+	 * @param series - underlying series
+	 * @param index - quote index
+	 */
+	QuoteView(QuoteSeries series, int index) {
+		this.series = series;
+		this.index = index;
+	}
+
+	/**
+	 * @return Underlying series
+	 */
+	public QuoteSeries getSeries() {
+		return series;
+	}
+
+	/**
+	 * @return Quote index in the underlying series
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	@Override
+	public Symbol getSymbol() {
+		return series.getSymbol();
+	}
+
+	@Override
+	public Date getDate() {
+		return new Date(series.getTime(index));
+	}
+
+	@Override
+	public void setDate(Date date) {
+		if (date == null) {
+			throw new IllegalArgumentException("Date cannot be null");
+		}
+		series.setTime(index, date.getTime());
+	}
+
+	@Override
+	public String getDateString() {
+		return DATE_FORMAT.format(getDate());
+	}
+
+	@Override
+	public void setDateString(String datestring) {
+		super.setDateString(datestring);
+		if (datestring != null) {
+			series.setTime(index, super.getDate().getTime());
+		}
+	}
+
+	@Override
+	public double getOpen() {
+		return series.getOpen(index);
+	}
+
+	@Override
+	public void setOpen(double open) {
+		series.setOpen(index, open);
+	}
+
+	@Override
+	public double getHigh() {
+		return series.getHigh(index);
+	}
+
+	@Override
+	public void setHigh(double high) {
+		series.setHigh(index, high);
+	}
+
+	@Override
+	public double getLow() {
+		return series.getLow(index);
+	}
+
+	@Override
+	public void setLow(double low) {
+		series.setLow(index, low);
+	}
+
+	@Override
+	public double getClose() {
+		return series.getClose(index);
+	}
+
+	@Override
+	public void setClose(double close) {
+		series.setClose(index, close);
+	}
+
+	@Override
+	public long getVolume() {
+		return series.getVolume(index);
+	}
+
+	@Override
+	public void setVolume(long volume) {
+		series.setVolume(index, volume);
+	}
+
+	@Override
+	public Quote next() {
+		return series.next(index);
+	}
+
+	@Override
+	public void setNext(Quote next) {
+		series.setNext(index, next);
+	}
+
+	@Override
+	public Quote prev() {
+		return series.prev(index);
+	}
+
+	@Override
+	public void setPrev(Quote prev) {
+		series.setPrev(index, prev);
+	}
+
+	/**
+	 * Return standalone copy of the quote values. Copy is not backed by the
+	 * series and it is not linked with previous and next quotes, so it can be
+	 * changed without changing the series.
+	 */
+	@Override
+	public Quote clone() {
+		Quote q = new Quote(getSymbol(), getDate(), getOpen(), getHigh(), getLow(), getClose(), getVolume());
+		q.setBidAsk(getBidAsk());
+		return q;
+	}
+}
@@ -0,0 +1,60 @@
+package com.sarxos.medusa.market;
+
+import java.util.TimeZone;
+
+
+/**
+ * Quotes bars timeframe. Bars are aligned to the local time, e.g. 15 minutes
+ * bars start at full quarters and daily bars start at midnight.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public enum Timeframe {
+
+	M1(1),
+
+	M5(5),
+
+	M15(15),
+
+	M30(30),
+
+	M60(60),
+
+	DAILY(60 * 24);
+
+	/**
+	 * Bar length in milliseconds.
+	 */
+	private final long length;
+
+	/**
+	 * Bar length in minutes.
+	 */
+	private final int minutes;
+
+	private Timeframe(int minutes) {
+		this.minutes = minutes;
+		this.length = minutes * 60L * 1000L;
+	}
+
+	/**
+	 * @return Bar length in minutes
+	 */
+	public int getMinutes() {
+		return minutes;
+	}
+
+	/**
+	 * Return number of the bar given time belongs to. Two times are in the
+	 * same bar only if they have the same number. Numbers grow with time, also
+	 * across days and years boundaries.
+	 *
+	 * @param time - time in milliseconds
+	 * @param zone - local time zone
+	 * @return Bar number
+	 */
+	public long bar(long time, TimeZone zone) {
+		return (time + zone.getOffset(time)) / length;
+	}
+}
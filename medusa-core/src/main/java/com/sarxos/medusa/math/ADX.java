@@ -1,6 +1,8 @@
 package com.sarxos.medusa.math;
 
 import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
+import com.sarxos.medusa.market.QuoteView;
 
 
 public class ADX {
@@ -95,87 +97,35 @@ public class ADX {
 	}
 	
 	/**
-	 * @param data
-	 * @param P - MA time period 
-	 * @return
+	 * Average directional index - average of P directional indexes, each one
+	 * calculated from TR, +DM and -DM sums over P quotes.
+	 * 
+	 * @param data - quotes (last element is the newest)
+	 * @param P - MA time period
+	 * @return ADX vector
+	 * @see Kernels#adx(double[], double[], double[], int, int, int, double[], int)
 	 */
 	public static double[] adx(Quote[] data, int P) {
 
-		int L = data.length;
-		int N = L + P;
-		
-		int i = 0;
-		int j = 0;
+		double[] adx = new double[data.length];
 
-		Quote q = data[0];
-		Quote p = null;
-		
-		Quote[] quotes = new Quote[N];
-		for (i = 0 ; i < N; i++) {
-			quotes[i] = new Quote();
-		}
+		// ADX needs 2P - 1 quotes before the first one
+		int B = 2 * P - 1;
 
-		System.arraycopy(data, 0, quotes, P, L);
-		
-		i = P - 1;
-		do {
-			p = q.prev();
-			quotes[i] = p;
-			q = p;
-		} while (i-- > 0);
-		
-		double tr = 0;
-		double dmp = 0;
-		double dmn = 0;
-		double trP = 0;
-		double dmpP = 0;
-		double dmnP = 0;
-		double trPs = 0;
-		double dmpPs = 0;
-		double dmnPs = 0;
-		double dip = 0;
-		double din = 0;
-		double di_diff = 0;
-		double di_sum = 0;
-		
-		double[] dx = new double[N];
-		double[] adx = new double[L];
-		
-		for (i = 0; i < N; i++) {
-			q = quotes[i];
-
-			tr = ATR.tr(q);
-			dmp = ADX.dmp(q);
-			dmn = ADX.dmn(q);
-	
-			trP = M.sum(ATR.tr(q, P));
-			dmpP = M.sum(ADX.dmp(q, P));     // +DM
-			dmnP = M.sum(ADX.dmn(q, P));     // -DM
-			
-			trPs = trP - (trP / P) + tr;
-			dmpPs = dmpP - (dmpP / P) + dmp;
-			dmnPs = dmnP - (dmnP / P) + dmn;
-			
-			dip = 100 * dmpPs / trPs;        // +DI
-			din = 100 * dmnPs / trPs;        // -DI
-			
-			di_diff = Math.abs(dip - din);
-			di_sum = dip + din;
-			
-			dx[i] = 100 * di_diff / di_sum;
-			
-			if (i >= P) {
-				double dx_sum = 0;
-				for (j = 0; j < P; j++) {
-					dx_sum += dx[i - j];
-				}
-				adx[i - P] = dx_sum / P;
+		QuoteView v = SX.run(data, B);
+		if (v != null) {
+			QuoteSeries s = v.getSeries();
+			Kernels.adx(s.highs(), s.lows(), s.closes(), v.getIndex(), data.length, P, adx, 0);
+		} else {
+			for (int i = 0; i < data.length; i++) {
+				double[][] qs = SX.detach(data[i], B + 1);
+				Kernels.adx(qs[1], qs[2], qs[3], B, 1, P, adx, i);
 			}
 		}
-		
+
 		return adx;
 	}
-	
+
 	/**
 	 * TR for 14-days period originally used by J. Welles Wilder.
 	 * 
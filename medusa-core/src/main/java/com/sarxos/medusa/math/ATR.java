@@ -1,6 +1,8 @@
 package com.sarxos.medusa.math;
 
 import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
+import com.sarxos.medusa.market.QuoteView;
 
 
 /**
@@ -49,42 +51,30 @@ public class ATR {
 	 */
 	public static double[] atr(Quote[] data, int P) {
 
-		if (P == 0) {
+		if (P <= 0) {
 			throw new IllegalArgumentException("ATR period must be positive");
 		}
 
-		double tr = 0; // TR
-		double tra = 0; // TRa
-		double trb = 0; // TRb
-		double oatr = 0; // old ATR
+		double[] atr = new double[data.length];
 
-		int i = 0;
-		int j = 0;
+		QuoteView v = SX.run(data, P);
+		if (v != null) {
+			QuoteSeries s = v.getSeries();
+			Kernels.atr(s.highs(), s.lows(), s.closes(), v.getIndex(), data.length, P, atr, 0);
+			return atr;
+		}
 
-		Quote q = null;
-		Quote p = null;
+		if (data.length == 0) {
+			return atr;
+		}
 
-		double[] atr = new double[data.length];
+		double[][] qs = SX.detach(data[0], P + 1);
+		Kernels.atr(qs[1], qs[2], qs[3], P, 1, P, atr, 0);
 
-		q = data[0];
-		do {
-			p = q.prev();
-			tra = Math.max(q.getHigh(), p.getClose());
-			trb = Math.min(q.getLow(), p.getClose());
-			tr += tra - trb;
-			q = p;
-		} while (j++ < P - 1);
-		atr[0] = tr / P;
-
-		for (i = 1; i < data.length; i++) {
-			oatr = atr[i - 1];
-			q = data[i];
-			p = q.prev();
-			tra = Math.max(q.getHigh(), p.getClose());
-			trb = Math.min(q.getLow(), p.getClose());
-			tr = tra - trb;
-			atr[i] = (oatr * ((double) P - 1) + tr) / P;
+		for (int i = 1; i < data.length; i++) {
+			atr[i] = (atr[i - 1] * ((double) P - 1) + tr(data[i])) / P;
 		}
+
 		return atr;
 	}
 
@@ -134,23 +124,16 @@ public class ATR {
 	 */
 	public static double[] tr(Quote[] data) {
 
-		int i = 0;
-		int N = data.length;
-
-		Quote q = null;
-		Quote p = null;
+		double[] tr = new double[data.length];
 
-		double tr_a = 0;
-		double tr_b = 0;
-
-		double[] tr = new double[N];
-
-		for (i = 0; i < N; i++) {
-			q = data[i];
-			p = q.prev();
-			tr_a = Math.max(q.getHigh(), p.getClose());
-			tr_b = Math.min(q.getLow(), p.getClose());
-			tr[i] = tr_a - tr_b;
+		QuoteView v = SX.run(data, 1);
+		if (v != null) {
+			QuoteSeries s = v.getSeries();
+			Kernels.tr(s.highs(), s.lows(), s.closes(), v.getIndex(), data.length, tr, 0);
+		} else {
+			for (int i = 0; i < data.length; i++) {
+				tr[i] = tr(data[i]);
+			}
 		}
 
 		return tr;
@@ -177,6 +160,11 @@ public class ATR {
 
 	public static double[] tr(Quote q, int N) {
 
+		QuoteView v = SX.view(q, N + 1);
+		if (v != null) {
+			return tr(v.getSeries(), v.getIndex(), N);
+		}
+
 		double[] tr = new double[N];
 
 		int i = 0;
@@ -187,4 +175,33 @@ public class ATR {
 
 		return tr;
 	}
+
+	/**
+	 * Return N true ranges for quotes ending at given series index (first
+	 * element is the true range for the quote at index, next ones are for the
+	 * older quotes).
+	 * 
+	 * @param s - quotes series
+	 * @param end - last quote index
+	 * @param N - number of true ranges
+	 * @return True Ranges array
+	 */
+	public static double[] tr(QuoteSeries s, int end, int N) {
+
+		if (end - N < 0 || end >= s.size()) {
+			throw new IllegalArgumentException("Not enough quotes to calculate " + N + " true ranges");
+		}
+
+		double[] high = s.highs();
+		double[] low = s.lows();
+		double[] close = s.closes();
+		double[] tr = new double[N];
+
+		for (int i = 0; i < N; i++) {
+			int k = end - i;
+			tr[i] = Math.max(high[k], close[k - 1]) - Math.min(low[k], close[k - 1]);
+		}
+
+		return tr;
+	}
 }
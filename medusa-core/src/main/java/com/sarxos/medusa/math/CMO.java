@@ -1,6 +1,7 @@
 package com.sarxos.medusa.math;
 
 import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteView;
 
 /**
  * <b>C</b>hange <b>M</b>omentum <b>O</b>scillator
@@ -18,24 +19,9 @@ public class CMO {
 	 * @return Will return double value
 	 */
 	public static double cmo(Quote q, int P) {
-		
-		double[] p = SX.detach(q, P + 1)[3];
-		double d = 0;
-		double[] cmo1 = new double[P];
-		double[] cmo2 = new double[P];
-		
-		for (int i = 1; i < p.length; i++) {
-			d = p[i] - p[i - 1];
-			cmo1[i - 1] = d >= 0 ? d : 0;
-			cmo2[i - 1] = d < 0 ? -d : 0; 
-		}
-		
-		double s1 = M.sum(cmo1);
-		double s2 = M.sum(cmo2);
-		
-		return 100 * (s1 - s2) / (s1 + s2);
+		return cmo(new Quote[] { q }, P)[0];
 	}
-	
+
 	/**
 	 * Calculate <b>C</b>hange <b>M</b>omentum <b>O</b>scillator.
 	 * 
@@ -44,10 +30,18 @@ public class CMO {
 	 * @return Will return array of double values
 	 */	
 	public static double[] cmo(Quote[] data, int P) {
-		double[] cmo = new double[P];
-		for (int i = 0; i < data.length; i++) {
-			cmo[i] = cmo(data[i], P);
+
+		double[] cmo = new double[data.length];
+
+		QuoteView v = SX.run(data, P);
+		if (v != null) {
+			Kernels.cmo(v.getSeries().closes(), v.getIndex(), data.length, P, cmo, 0);
+		} else {
+			for (int i = 0; i < data.length; i++) {
+				Kernels.cmo(SX.closes(data[i], P + 1), P, 1, P, cmo, i);
+			}
 		}
+
 		return cmo;
 	}
 }
@@ -0,0 +1,300 @@
+package com.sarxos.medusa.math;
+
+/**
+ * Streaming <b>D</b>irectional <b>M</b>ovement <b>I</b>ndex with Wilder
+ * smoothing - calculates ADX, +DI, -DI and ATR in constant time per bar.<br>
+ * <br>
+ *
+ * TR, +DM and -DM sums of the first P bars are smoothed later with Wilder's
+ * formula: S(n) = S(n - 1) - S(n - 1) / P + X(n). Directional indexes are +DI
+ * = 100 * +DM(P) / TR(P) and -DI = 100 * -DM(P) / TR(P), DX = 100 * |+DI -
+ * -DI| / (+DI + -DI). First ADX is the average of first P DX values, next
+ * ones are ADX(n) = (ADX(n - 1) * (P - 1) + DX(n)) / P. ATR is TR(P) / P.<br>
+ * <br>
+ *
+ * Directional indexes are available after P + 1 bars, ADX after 2P bars.
+ *
+ * @author Bartosz Firyn (SarXos)
+ * @see ADX
+ */
+public class DMI {
+
+	/**
+	 * Calculation state.
+	 */
+	private static final class State {
+
+		/**
+		 * Number of bars.
+		 */
+		private int count = 0;
+
+		private double high = 0;
+
+		private double low = 0;
+
+		private double close = 0;
+
+		/**
+		 * Smoothed TR, +DM and -DM.
+		 */
+		private double tr = 0;
+
+		private double dmp = 0;
+
+		private double dmn = 0;
+
+		/**
+		 * Sum of the first DX values.
+		 */
+		private double dxs = 0;
+
+		private double adx = Double.NaN;
+
+		private void copy(State s) {
+			count = s.count;
+			high = s.high;
+			low = s.low;
+			close = s.close;
+			tr = s.tr;
+			dmp = s.dmp;
+			dmn = s.dmn;
+			dxs = s.dxs;
+			adx = s.adx;
+		}
+
+		private void add(double h, double l, double c, int P) {
+
+			if (count++ > 0) {
+
+				double tr = (h > close ? h : close) - (l < close ? l : close);
+				double um = h - high;
+				double dm = low - l;
+				double dmp = um > dm && um > 0 ? um : 0;
+				double dmn = dm > um && dm > 0 ? dm : 0;
+
+				// number of TR values including the current one
+				int k = count - 1;
+
+				if (k <= P) {
+					this.tr += tr;
+					this.dmp += dmp;
+					this.dmn += dmn;
+				} else {
+					this.tr += tr - this.tr / P;
+					this.dmp += dmp - this.dmp / P;
+					this.dmn += dmn - this.dmn / P;
+				}
+
+				if (k >= P) {
+					double dx = dx();
+					int d = k - P + 1;
+					if (d < P) {
+						dxs += dx;
+					} else if (d == P) {
+						adx = (dxs + dx) / P;
+					} else {
+						adx = (adx * (P - 1) + dx) / P;
+					}
+				}
+			}
+
+			high = h;
+			low = l;
+			close = c;
+		}
+
+		private double dip() {
+			return 100 * dmp / tr;
+		}
+
+		private double din() {
+			return 100 * dmn / tr;
+		}
+
+		private double dx() {
+			double p = dip();
+			double n = din();
+			return 100 * Math.abs(p - n) / (p + n);
+		}
+	}
+
+	private final int P;
+
+	/**
+	 * Current state.
+	 */
+	private final State state = new State();
+
+	/**
+	 * State before the newest bar.
+	 */
+	private final State prior = new State();
+
+	/**
+	 * @param P - period (originally 14)
+	 */
+	public DMI(int P) {
+		if (P <= 0) {
+			throw new IllegalArgumentException("DMI period must be positive");
+		}
+		this.P = P;
+	}
+
+	/**
+	 * Add new bar.
+	 *
+	 * @param high - highest price
+	 * @param low - lowest price
+	 * @param close - closing price
+	 * @return ADX value or NaN if there is not enough bars yet
+	 */
+	public double add(double high, double low, double close) {
+		prior.copy(state);
+		state.add(high, low, close, P);
+		return state.adx;
+	}
+
+	/**
+	 * Replace the newest bar, e.g. with the values from real time tick.
+	 *
+	 * @param high - highest price
+	 * @param low - lowest price
+	 * @param close - closing price
+	 * @return ADX value or NaN if there is not enough bars yet
+	 */
+	public double update(double high, double low, double close) {
+		if (state.count == 0) {
+			return add(high, low, close);
+		}
+		state.copy(prior);
+		state.add(high, low, close, P);
+		return state.adx;
+	}
+
+	/**
+	 * @return Average directional index or NaN if there is less then 2P bars
+	 */
+	public double adx() {
+		return state.adx;
+	}
+
+	/**
+	 * @return Positive directional index or NaN if there is less then P + 1
+	 *         bars
+	 */
+	public double dip() {
+		return state.count > P ? state.dip() : Double.NaN;
+	}
+
+	/**
+	 * @return Negative directional index or NaN if there is less then P + 1
+	 *         bars
+	 */
+	public double din() {
+		return state.count > P ? state.din() : Double.NaN;
+	}
+
+	/**
+	 * @return Wilder's average true range or NaN if there is less then P + 1
+	 *         bars
+	 */
+	public double atr() {
+		return state.count > P ? state.tr / P : Double.NaN;
+	}
+
+	/**
+	 * @return true if ADX is available
+	 */
+	public boolean isReady() {
+		return state.count >= 2 * P;
+	}
+
+	/**
+	 * @return Period
+	 */
+	public int getPeriod() {
+		return P;
+	}
+
+	/**
+	 * Remove all bars.
+	 */
+	public void reset() {
+		state.copy(new State());
+		prior.copy(state);
+	}
+
+	/**
+	 * @return Independent copy of the current state
+	 */
+	public DMI snapshot() {
+		DMI d = new DMI(P);
+		d.restore(this);
+		return d;
+	}
+
+	/**
+	 * Restore state from the snapshot.
+	 *
+	 * @param snapshot - snapshot of DMI with the same period
+	 */
+	public void restore(DMI snapshot) {
+		if (snapshot.P != P) {
+			throw new IllegalArgumentException("Cannot restore DMI(" + P + ") from DMI(" + snapshot.P + ")");
+		}
+		state.copy(snapshot.state);
+		prior.copy(snapshot.prior);
+	}
+
+	/**
+	 * Calculate Wilder's DMI in one pass. Smoothing starts at index 0 of the
+	 * input arrays, values are written for bars from, from + 1, ..., from + n -
+	 * 1. Output arrays which are not needed can be null.
+	 *
+	 * @param high - highest prices
+	 * @param low - lowest prices
+	 * @param close - closing prices
+	 * @param from - index of the first bar to output
+	 * @param n - number of bars to output
+	 * @param P - period
+	 * @param adx - output ADX values
+	 * @param dip - output +DI values
+	 * @param din - output -DI values
+	 * @param atr - output ATR values
+	 * @param off - output arrays offset
+	 */
+	public static void dmi(double[] high, double[] low, double[] close, int from, int n, int P, double[] adx, double[] dip, double[] din, double[] atr, int off) {
+
+		if (P <= 0) {
+			throw new IllegalArgumentException("DMI period must be positive");
+		}
+		if (from < 0 || n < 0 || from + n > close.length || from + n > high.length || from + n > low.length) {
+			throw new IllegalArgumentException("Bars range out of input arrays");
+		}
+
+		State s = new State();
+
+		for (int k = 0, end = from + n; k < end; k++) {
+
+			s.add(high[k], low[k], close[k], P);
+
+			if (k >= from) {
+				int i = off + k - from;
+				boolean di = s.count > P;
+				if (adx != null) {
+					adx[i] = s.adx;
+				}
+				if (dip != null) {
+					dip[i] = di ? s.dip() : Double.NaN;
+				}
+				if (din != null) {
+					din[i] = di ? s.din() : Double.NaN;
+				}
+				if (atr != null) {
+					atr[i] = di ? s.tr / P : Double.NaN;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.sarxos.medusa.math;
+
+/**
+ * Streaming <b>E</b>xponential <b>M</b>oving <b>A</b>verage with smoothing
+ * factor 2 / (N + 1). Until N values are added, the value is a simple average
+ * of all added values, which is used as the EMA seed.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class EMA implements Indicator {
+
+	private final int N;
+
+	/**
+	 * Smoothing factor.
+	 */
+	private final double a;
+
+	private int count = 0;
+
+	/**
+	 * Sum of values used for seed.
+	 */
+	private double sum = 0;
+
+	/**
+	 * Newest value.
+	 */
+	private double last = 0;
+
+	/**
+	 * EMA before the newest value.
+	 */
+	private double prev = Double.NaN;
+
+	private double ema = Double.NaN;
+
+	/**
+	 * @param N - period
+	 */
+	public EMA(int N) {
+		if (N <= 0) {
+			throw new IllegalArgumentException("EMA interval must be positive");
+		}
+		this.N = N;
+		this.a = 2.0 / (N + 1);
+	}
+
+	@Override
+	public double add(double value) {
+		prev = ema;
+		count++;
+		if (count <= N) {
+			sum += value;
+			ema = sum / count;
+		} else {
+			ema = prev + a * (value - prev);
+		}
+		last = value;
+		return ema;
+	}
+
+	@Override
+	public double update(double value) {
+		if (count == 0) {
+			return add(value);
+		}
+		if (count <= N) {
+			sum += value - last;
+			ema = sum / count;
+		} else {
+			ema = prev + a * (value - prev);
+		}
+		last = value;
+		return ema;
+	}
+
+	@Override
+	public double value() {
+		return ema;
+	}
+
+	@Override
+	public boolean isReady() {
+		return count >= N;
+	}
+
+	@Override
+	public int getPeriod() {
+		return N;
+	}
+
+	@Override
+	public void reset() {
+		count = 0;
+		sum = 0;
+		last = 0;
+		prev = Double.NaN;
+		ema = Double.NaN;
+	}
+
+	@Override
+	public EMA snapshot() {
+		EMA e = new EMA(N);
+		e.restore(this);
+		return e;
+	}
+
+	@Override
+	public void restore(Indicator snapshot) {
+		EMA e = (EMA) snapshot;
+		if (e.N != N) {
+			throw new IllegalArgumentException("Cannot restore EMA(" + N + ") from EMA(" + e.N + ")");
+		}
+		count = e.count;
+		sum = e.sum;
+		last = e.last;
+		prev = e.prev;
+		ema = e.ema;
+	}
+}
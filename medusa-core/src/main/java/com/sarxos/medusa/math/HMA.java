@@ -0,0 +1,95 @@
+package com.sarxos.medusa.math;
+
+/**
+ * Streaming <b>H</b>ull <b>M</b>oving <b>A</b>verage. Composed from three
+ * streaming WMAs - full length L, half length L / 2 and the final one of
+ * length sqrt(L), which smooths 2 * WMA(L / 2) - WMA(L). After L + sqrt(L) - 1
+ * values the result is equal to {@link MA#hma(com.sarxos.medusa.market.Quote, int)}.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class HMA implements Indicator {
+
+	private final int L;
+
+	private final WMA full;
+
+	private final WMA half;
+
+	private final WMA hull;
+
+	private int count = 0;
+
+	/**
+	 * @param L - HMA length
+	 */
+	public HMA(int L) {
+		if (L <= 0) {
+			throw new IllegalArgumentException("HMA length must be positive");
+		}
+		this.L = L;
+		this.full = new WMA(L);
+		this.half = new WMA(Math.max(1, L / 2));
+		this.hull = new WMA(Math.max(1, (int) Math.sqrt(L)));
+	}
+
+	@Override
+	public double add(double value) {
+		count++;
+		full.add(value);
+		half.add(value);
+		return hull.add(2 * half.value() - full.value());
+	}
+
+	@Override
+	public double update(double value) {
+		if (count == 0) {
+			return add(value);
+		}
+		full.update(value);
+		half.update(value);
+		return hull.update(2 * half.value() - full.value());
+	}
+
+	@Override
+	public double value() {
+		return hull.value();
+	}
+
+	@Override
+	public boolean isReady() {
+		return count >= L + hull.getPeriod() - 1;
+	}
+
+	@Override
+	public int getPeriod() {
+		return L;
+	}
+
+	@Override
+	public void reset() {
+		count = 0;
+		full.reset();
+		half.reset();
+		hull.reset();
+	}
+
+	@Override
+	public HMA snapshot() {
+		HMA h = new HMA(L);
+		h.restore(this);
+		return h;
+	}
+
+	@Override
+	public void restore(Indicator snapshot) {
+		HMA h = (HMA) snapshot;
+		if (h.L != L) {
+			throw new IllegalArgumentException("Cannot restore HMA(" + L + ") from HMA(" + h.L + ")");
+		}
+		count = h.count;
+		full.restore(h.full);
+		half.restore(h.half);
+		hull.restore(h.hull);
+	}
+}
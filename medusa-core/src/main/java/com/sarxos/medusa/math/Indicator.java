@@ -0,0 +1,63 @@
+package com.sarxos.medusa.math;
+
+/**
+ * Incremental (streaming) indicator. Instead of recalculating whole window
+ * for every point, indicator keeps its state and updates it in constant time
+ * when new bar is added or when the newest bar is changed by real time tick.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public interface Indicator {
+
+	/**
+	 * Add new bar value.
+	 *
+	 * @param value - new value (e.g. closing price)
+	 * @return Indicator value after adding
+	 */
+	public double add(double value);
+
+	/**
+	 * Replace value of the newest bar, e.g. with the price from real time
+	 * tick. If there is no bar yet, value is added.
+	 *
+	 * @param value - new value of the newest bar
+	 * @return Indicator value after update
+	 */
+	public double update(double value);
+
+	/**
+	 * @return Current indicator value or NaN if no value has been added yet
+	 */
+	public double value();
+
+	/**
+	 * @return true if enough values has been added to fill the whole window
+	 */
+	public boolean isReady();
+
+	/**
+	 * @return Indicator period
+	 */
+	public int getPeriod();
+
+	/**
+	 * Remove all values.
+	 */
+	public void reset();
+
+	/**
+	 * Create independent copy of the current indicator state.
+	 *
+	 * @return Indicator snapshot
+	 */
+	public Indicator snapshot();
+
+	/**
+	 * Restore indicator state from the snapshot.
+	 *
+	 * @param snapshot - snapshot created by {@link #snapshot()} on indicator of
+	 *            the same type and period
+	 */
+	public void restore(Indicator snapshot);
+}
@@ -0,0 +1,394 @@
+package com.sarxos.medusa.math;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
+import com.sarxos.medusa.market.QuoteView;
+import com.sarxos.medusa.util.Configuration;
+
+
+/**
+ * Shared memoization cache for indicator values. Generators usually calculate
+ * indicators for the current and the previous quote, so the previous quote
+ * values have been already calculated one bar (or one tick) before. Values
+ * are keyed by series, indicator, parameter and bar index.<br>
+ * <br>
+ *
+ * Only quotes stored in {@link QuoteSeries} are cached - standalone quotes
+ * (e.g. real time quote bound to the historical data) are always calculated.
+ * When series quote is changed (e.g. the last bar updated by real time quote
+ * or reload) values of this quote and all quotes after it are calculated
+ * again, values of the earlier quotes are kept. Each series has its own
+ * values guarded by its own lock, so traders of different symbols do not
+ * wait for each other. Number of values of one series is limited, least
+ * recently used ones are removed first.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class IndicatorCache {
+
+	/**
+	 * Indicator calculated for single quote.
+	 */
+	public static abstract class Function {
+
+		private final String name;
+
+		public Function(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Calculate indicator value.
+		 *
+		 * @param q - quote
+		 * @param N - indicator parameter (e.g. period)
+		 * @return Indicator value
+		 */
+		public abstract double calculate(Quote q, int N);
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	public static final Function SMA = new Function("SMA") {
+
+		@Override
+		public double calculate(Quote q, int N) {
+			return MA.sma(q, N);
+		}
+	};
+
+	public static final Function EMA = new Function("EMA") {
+
+		@Override
+		public double calculate(Quote q, int N) {
+			return MA.ema(q, N);
+		}
+	};
+
+	public static final Function EMAD = new Function("EMAD") {
+
+		@Override
+		public double calculate(Quote q, int N) {
+			return MA.emad(q, N);
+		}
+	};
+
+	public static final Function HMA = new Function("HMA") {
+
+		@Override
+		public double calculate(Quote q, int N) {
+			return MA.hma(q, N);
+		}
+	};
+
+	/**
+	 * Default maximum number of cached values of one series.
+	 */
+	private static final int CAPACITY = Configuration.getInstance().getInt("data", "indicators", 100000);
+
+	/**
+	 * Cache key.
+	 */
+	private static final class Key {
+
+		private final Function function;
+
+		private final int param;
+
+		private final int index;
+
+		public Key(Function function, int param, int index) {
+			this.function = function;
+			this.param = param;
+			this.index = index;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = function.hashCode();
+			h = h * 31 + param;
+			h = h * 31 + index;
+			return h;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key k = (Key) o;
+			return function == k.function && param == k.param && index == k.index;
+		}
+	}
+
+	/**
+	 * Cached value with generation of its quote.
+	 */
+	private static final class Value {
+
+		private final double value;
+
+		private final int generation;
+
+		public Value(double value, int generation) {
+			this.value = value;
+			this.generation = generation;
+		}
+	}
+
+	/**
+	 * Values of one series, guarded by its own monitor.
+	 */
+	private static final class Values {
+
+		/**
+		 * Series is weakly referenced, so cache does not keep replaced series
+		 * in memory.
+		 */
+		private final WeakReference<QuoteSeries> series;
+
+		/**
+		 * Values in access order.
+		 */
+		private final LinkedHashMap<Key, Value> entries;
+
+		/**
+		 * Generations of quotes, value is valid only if it has been calculated
+		 * in the current generation of its quote.
+		 */
+		private int[] generations = new int[0];
+
+		/**
+		 * Series modifications already applied to generations.
+		 */
+		private int modifications;
+
+		public Values(QuoteSeries series, final int capacity) {
+			this.series = new WeakReference<QuoteSeries>(series);
+			this.modifications = series.getModifications();
+			this.entries = new LinkedHashMap<Key, Value>(1024, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Key, Value> eldest) {
+					return size() > capacity;
+				}
+			};
+		}
+
+		/**
+		 * Invalidate values of quotes modified since the last update. Changed
+		 * quote and all quotes after it start new generation, values of quotes
+		 * before it are still valid.
+		 *
+		 * @param s - series
+		 * @return Series modifications counter
+		 */
+		private int update(QuoteSeries s) {
+			int m = s.getModifications();
+			if (m != modifications) {
+				for (int i = s.getModifiedFrom(modifications); i < generations.length; i++) {
+					generations[i]++;
+				}
+				modifications = m;
+			}
+			return m;
+		}
+
+		private int generation(int i) {
+			if (i >= generations.length) {
+				generations = Arrays.copyOf(generations, Math.max(i + 1, generations.length * 2));
+			}
+			return generations[i];
+		}
+	}
+
+	/**
+	 * Singleton instance.
+	 */
+	private static IndicatorCache instance = null;
+
+	/**
+	 * Values by series identifier.
+	 */
+	private final ConcurrentHashMap<Long, Values> values = new ConcurrentHashMap<Long, Values>();
+
+	private final int capacity;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param capacity - maximum number of cached values of one series
+	 */
+	public IndicatorCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Indicator cache capacity must be positive");
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @return Shared indicator cache
+	 */
+	public static synchronized IndicatorCache getInstance() {
+		if (instance == null) {
+			instance = new IndicatorCache(CAPACITY);
+		}
+		return instance;
+	}
+
+	/**
+	 * Return values of given series, values of series which are no longer
+	 * used are removed when new series is added.
+	 *
+	 * @param s - series
+	 * @return Series values
+	 */
+	private Values values(QuoteSeries s) {
+		Long id = s.getId();
+		Values v = values.get(id);
+		if (v == null) {
+			Values n = new Values(s, capacity);
+			v = values.putIfAbsent(id, n);
+			if (v == null) {
+				v = n;
+				Iterator<Values> i = values.values().iterator();
+				while (i.hasNext()) {
+					if (i.next().series.get() == null) {
+						i.remove();
+					}
+				}
+			}
+		}
+		return v;
+	}
+
+	/**
+	 * Get indicator value for given quote. Value is calculated only if it is
+	 * not cached yet or the quote (or any quote before it) has been changed.
+	 *
+	 * @param q - quote
+	 * @param f - indicator function
+	 * @param N - indicator parameter
+	 * @return Indicator value
+	 */
+	public double get(Quote q, Function f, int N) {
+
+		if (!(q instanceof QuoteView)) {
+			return f.calculate(q, N);
+		}
+
+		QuoteView view = (QuoteView) q;
+		QuoteSeries s = view.getSeries();
+		Values v = values(s);
+		int i = view.getIndex();
+		Key key = new Key(f, N, i);
+		int m = 0;
+
+		synchronized (v) {
+			m = v.update(s);
+			Value e = v.entries.get(key);
+			if (e != null && e.generation == v.generation(i)) {
+				hits.incrementAndGet();
+				return e.value;
+			}
+		}
+
+		misses.incrementAndGet();
+
+		double value = f.calculate(q, N);
+
+		// value is not stored if series has been changed in the meantime
+
+		synchronized (v) {
+			if (v.update(s) == m) {
+				v.entries.put(key, new Value(value, v.generation(i)));
+			}
+		}
+
+		return value;
+	}
+
+	public double sma(Quote q, int N) {
+		return get(q, SMA, N);
+	}
+
+	public double ema(Quote q, int N) {
+		return get(q, EMA, N);
+	}
+
+	public double emad(Quote q, int N) {
+		return get(q, EMAD, N);
+	}
+
+	public double hma(Quote q, int L) {
+		return get(q, HMA, L);
+	}
+
+	/**
+	 * Hull Moving Average derivative calculated from two cached HMA values.
+	 *
+	 * @param q - quote
+	 * @param L - HMA length
+	 * @return HMA derivative
+	 * @see MA#hmad(Quote, int)
+	 */
+	public double hmad(Quote q, int L) {
+		return hma(q, L) - hma(q.prev(), L);
+	}
+
+	/**
+	 * Remove all cached values.
+	 */
+	public void clear() {
+		values.clear();
+	}
+
+	/**
+	 * @return Number of cached values
+	 */
+	public int size() {
+		int size = 0;
+		for (Values v : values.values()) {
+			synchronized (v) {
+				size += v.entries.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return Maximum number of cached values of one series
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return Number of values found in cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return Number of values which had to be calculated
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+}
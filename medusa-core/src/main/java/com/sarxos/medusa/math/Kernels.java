@@ -0,0 +1,455 @@
+package com.sarxos.medusa.math;
+
+/**
+ * Batch indicator kernels working on primitive arrays (e.g. the
+ * {@link com.sarxos.medusa.market.QuoteSeries} columns). Each kernel
+ * calculates n values for windows ending at indices from, from + 1, ...,
+ * from + n - 1 and writes them into the output array starting at given
+ * offset. Kernels do not allocate any memory - windows are moved with running
+ * sums, so the cost of the whole batch does not depend on the period.<br>
+ * <br>
+ *
+ * Input arrays have to contain enough values before the from index, e.g. SMA
+ * with period N requires from &gt;= N - 1.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class Kernels {
+
+	/**
+	 * Check kernel arguments.
+	 *
+	 * @param length - input array length
+	 * @param first - first input index required by the kernel
+	 * @param from - index of the first window end
+	 * @param n - number of windows
+	 * @param out - output array
+	 * @param off - output offset
+	 */
+	private static void check(int length, int first, int from, int n, double[] out, int off) {
+		if (n < 0) {
+			throw new IllegalArgumentException("Number of values cannot be negative");
+		}
+		if (first < 0) {
+			throw new IllegalArgumentException("Not enough values before index " + from);
+		}
+		if (from + n > length) {
+			throw new IllegalArgumentException("Not enough values after index " + from);
+		}
+		if (off < 0 || off + n > out.length) {
+			throw new IllegalArgumentException("Output array is too small");
+		}
+	}
+
+	private static void period(int P) {
+		if (P <= 0) {
+			throw new IllegalArgumentException("Period must be positive");
+		}
+	}
+
+	/**
+	 * Simple moving average.
+	 *
+	 * @param x - input values
+	 * @param from - index of the first window end
+	 * @param n - number of windows
+	 * @param N - period
+	 * @param out - output array
+	 * @param off - output offset
+	 */
+	public static void sma(double[] x, int from, int n, int N, double[] out, int off) {
+
+		period(N);
+		check(x.length, from - N + 1, from, n, out, off);
+
+		if (n == 0) {
+			return;
+		}
+
+		double s = 0;
+		for (int k = from - N + 1; k <= from; k++) {
+			s += x[k];
+		}
+		out[off] = s / N;
+
+		for (int i = 1, k = from + 1; i < n; i++, k++) {
+			s += x[k] - x[k - N];
+			out[off + i] = s / N;
+		}
+	}
+
+	/**
+	 * Weighted moving average - the newest value has weight N, the oldest one
+	 * weight 1.
+	 *
+	 * @param x - input values
+	 * @param from - index of the first window end
+	 * @param n - number of windows
+	 * @param N - period
+	 * @param out - output array
+	 * @param off - output offset
+	 */
+	public static void wma(double[] x, int from, int n, int N, double[] out, int off) {
+
+		period(N);
+		check(x.length, from - N + 1, from, n, out, off);
+
+		if (n == 0) {
+			return;
+		}
+
+		double s = 0;
+		double w = 0;
+		double d = N * (N + 1) / 2.0;
+
+		for (int j = 0, k = from - N + 1; j < N; j++, k++) {
+			s += x[k];
+			w += x[k] * (j + 1);
+		}
+		out[off] = w / d;
+
+		for (int i = 1, k = from + 1; i < n; i++, k++) {
+			w += N * x[k] - s;
+			s += x[k] - x[k - N];
+			out[off + i] = w / d;
+		}
+	}
+
+	/**
+	 * Moving average with arbitrary weights. Weight w[j] is used for value j
+	 * positions before the window end, so w[0] is the weight of the newest
+	 * value. Cost is proportional to the number of weights.
+	 *
+	 * @param x - input values
+	 * @param from - index of the first window end
+	 * @param n - number of windows
+	 * @param w - weights
+	 * @param out - output array
+	 * @param off - output offset
+	 */
+	public static void wavg(double[] x, int from, int n, double[] w, double[] out, int off) {
+
+		int N = w.length;
+
+		period(N);
+		check(x.length, from - N + 1, from, n, out, off);
+
+		double ws = 0;
+		for (int j = 0; j < N; j++) {
+			ws += w[j];
+		}
+
+		for (int i = 0, k = from; i < n; i++, k++) {
+			double s = 0;
+			for (int j = 0; j < N; j++) {
+				s += x[k - j] * w[j];
+			}
+			out[off + i] = s / ws;
+		}
+	}
+
+	/**
+	 * Hull moving average - WMA of length sqrt(L) calculated from 2 * WMA(L /
+	 * 2) - WMA(L). This kernel allocates temporary buffer for n + sqrt(L) - 1
+	 * intermediate values.
+	 *
+	 * @param x - input values
+	 * @param from - index of the first window end
+	 * @param n - number of windows
+	 * @param L - HMA length
+	 * @param out - output array
+	 * @param off - output offset
+	 */
+	public static void hma(double[] x, int from, int n, int L, double[] out, int off) {
+
+		period(L);
+
+		int S = Math.max(1, (int) Math.sqrt(L));
+		int H = Math.max(1, L / 2);
+
+		check(x.length, from - L - S + 2, from, n, out, off);
+
+		if (n == 0) {
+			return;
+		}
+
+		int m = n + S - 1;
+		int first = from - S + 1;
+
+		double[] full = new double[m];
+		double[] half = new double[m];
+
+		wma(x, first, m, L, full, 0);
+		wma(x, first, m, H, half, 0);
+
+		for (int i = 0; i < m; i++) {
+			full[i] = 2 * half[i] - full[i];
+		}
+
+		wma(full, S - 1, n, S, out, off);
+	}
+
+	/**
+	 * True range of the bar at given index.
+	 */
+	private static double tr(double[] high, double[] low, double[] close, int k) {
+		double c = close[k - 1];
+		return (high[k] > c ? high[k] : c) - (low[k] < c ? low[k] : c);
+	}
+
+	/**
+	 * True range.
+	 *
+	 * @param high - highest prices
+	 * @param low - lowest prices
+	 * @param close - closing prices
+	 * @param from - index of the first bar
+	 * @param n - number of bars
+	 * @param out - output array
+	 * @param off - output offset
+	 */
+	public static void tr(double[] high, double[] low, double[] close, int from, int n, double[] out, int off) {
+		check(close.length, from - 1, from, n, out, off);
+		for (int i = 0, k = from; i < n; i++, k++) {
+			out[off + i] = tr(high, low, close, k);
+		}
+	}
+
+	/**
+	 * Average true range. First value is average of P true ranges, next ones
+	 * are calculated recursively: ATR(n) = (ATR(n - 1) * (P - 1) + TR(n)) / P.
+	 *
+	 * @param high - highest prices
+	 * @param low - lowest prices
+	 * @param close - closing prices
+	 * @param from - index of the first window end
+	 * @param n - number of windows
+	 * @param P - period
+	 * @param out - output array
+	 * @param off - output offset
+	 * @see ATR#atr(com.sarxos.medusa.market.Quote[], int)
+	 */
+	public static void atr(double[] high, double[] low, double[] close, int from, int n, int P, double[] out, int off) {
+
+		period(P);
+		check(close.length, from - P, from, n, out, off);
+
+		if (n == 0) {
+			return;
+		}
+
+		double s = 0;
+		for (int k = from - P + 1; k <= from; k++) {
+			s += tr(high, low, close, k);
+		}
+
+		double atr = s / P;
+		out[off] = atr;
+
+		for (int i = 1, k = from + 1; i < n; i++, k++) {
+			atr = (atr * (P - 1) + tr(high, low, close, k)) / P;
+			out[off + i] = atr;
+		}
+	}
+
+	/**
+	 * Positive directional movement of the bar at given index.
+	 */
+	private static double dmp(double[] high, double[] low, int k) {
+		double um = high[k] - high[k - 1];
+		double dm = low[k - 1] - low[k];
+		return um > dm && um > 0 ? um : 0;
+	}
+
+	/**
+	 * Negative directional movement of the bar at given index.
+	 */
+	private static double dmn(double[] high, double[] low, int k) {
+		double um = high[k] - high[k - 1];
+		double dm = low[k - 1] - low[k];
+		return dm > um && dm > 0 ? dm : 0;
+	}
+
+	/**
+	 * Positive directional movement (+DM).
+	 *
+	 * @param high - highest prices
+	 * @param low - lowest prices
+	 * @param from - index of the first bar
+	 * @param n - number of bars
+	 * @param out - output array
+	 * @param off - output offset
+	 */
+	public static void dmp(double[] high, double[] low, int from, int n, double[] out, int off) {
+		check(high.length, from - 1, from, n, out, off);
+		for (int i = 0, k = from; i < n; i++, k++) {
+			out[off + i] = dmp(high, low, k);
+		}
+	}
+
+	/**
+	 * Negative directional movement (-DM).
+	 *
+	 * @param high - highest prices
+	 * @param low - lowest prices
+	 * @param from - index of the first bar
+	 * @param n - number of bars
+	 * @param out - output array
+	 * @param off - output offset
+	 */
+	public static void dmn(double[] high, double[] low, int from, int n, double[] out, int off) {
+		check(high.length, from - 1, from, n, out, off);
+		for (int i = 0, k = from; i < n; i++, k++) {
+			out[off + i] = dmn(high, low, k);
+		}
+	}
+
+	/**
+	 * Directional index for the bar with given TR, +DM and -DM and their sums
+	 * over the last P bars.
+	 */
+	private static double dx(double trP, double dmpP, double dmnP, double tr, double dmp, double dmn, int P) {
+
+		double trPs = trP - trP / P + tr;
+		double dmpPs = dmpP - dmpP / P + dmp;
+		double dmnPs = dmnP - dmnP / P + dmn;
+
+		double dip = 100 * dmpPs / trPs;
+		double din = 100 * dmnPs / trPs;
+
+		return 100 * Math.abs(dip - din) / (dip + din);
+	}
+
+	/**
+	 * Average directional index, calculated the same way as
+	 * {@link ADX#adx(com.sarxos.medusa.market.Quote[], int)} - average of P
+	 * directional indexes, each calculated from the TR, +DM and -DM sums over
+	 * P bars. Both sums windows are moved incrementally, the leading one for
+	 * the newest DX and the lagging one for the DX leaving average window.
+	 *
+	 * @param high - highest prices
+	 * @param low - lowest prices
+	 * @param close - closing prices
+	 * @param from - index of the first window end (at least 2P - 1)
+	 * @param n - number of windows
+	 * @param P - period
+	 * @param out - output array
+	 * @param off - output offset
+	 */
+	public static void adx(double[] high, double[] low, double[] close, int from, int n, int P, double[] out, int off) {
+
+		period(P);
+		check(close.length, from - 2 * P + 1, from, n, out, off);
+
+		if (n == 0) {
+			return;
+		}
+
+		// first bar for which DX is required
+		int s = from - P + 1;
+
+		double trP = 0;
+		double dmpP = 0;
+		double dmnP = 0;
+
+		for (int k = s - P + 1; k <= s; k++) {
+			trP += tr(high, low, close, k);
+			dmpP += dmp(high, low, k);
+			dmnP += dmn(high, low, k);
+		}
+
+		// lagging sums
+		double trL = trP;
+		double dmpL = dmpP;
+		double dmnL = dmnP;
+
+		double dxs = 0;
+		int end = from + n;
+
+		for (int k = s; k < end; k++) {
+
+			double tr = tr(high, low, close, k);
+			double dp = dmp(high, low, k);
+			double dn = dmn(high, low, k);
+
+			if (k > s) {
+				trP += tr - tr(high, low, close, k - P);
+				dmpP += dp - dmp(high, low, k - P);
+				dmnP += dn - dmn(high, low, k - P);
+			}
+
+			dxs += dx(trP, dmpP, dmnP, tr, dp, dn, P);
+
+			int g = k - P;
+			if (g >= s) {
+
+				double trg = tr(high, low, close, g);
+				double dpg = dmp(high, low, g);
+				double dng = dmn(high, low, g);
+
+				if (g > s) {
+					trL += trg - tr(high, low, close, g - P);
+					dmpL += dpg - dmp(high, low, g - P);
+					dmnL += dng - dmn(high, low, g - P);
+				}
+
+				dxs -= dx(trL, dmpL, dmnL, trg, dpg, dng, P);
+			}
+
+			if (k >= from) {
+				out[off + k - from] = dxs / P;
+			}
+		}
+	}
+
+	/**
+	 * Change momentum oscillator.
+	 *
+	 * @param close - closing prices
+	 * @param from - index of the first window end
+	 * @param n - number of windows
+	 * @param P - period
+	 * @param out - output array
+	 * @param off - output offset
+	 * @see CMO#cmo(com.sarxos.medusa.market.Quote, int)
+	 */
+	public static void cmo(double[] close, int from, int n, int P, double[] out, int off) {
+
+		period(P);
+		check(close.length, from - P, from, n, out, off);
+
+		if (n == 0) {
+			return;
+		}
+
+		double up = 0;
+		double dn = 0;
+		double d = 0;
+
+		for (int k = from - P + 1; k <= from; k++) {
+			d = close[k] - close[k - 1];
+			if (d >= 0) {
+				up += d;
+			} else {
+				dn -= d;
+			}
+		}
+		out[off] = 100 * (up - dn) / (up + dn);
+
+		for (int i = 1, k = from + 1; i < n; i++, k++) {
+			d = close[k] - close[k - 1];
+			if (d >= 0) {
+				up += d;
+			} else {
+				dn -= d;
+			}
+			d = close[k - P] - close[k - P - 1];
+			if (d >= 0) {
+				up -= d;
+			} else {
+				dn += d;
+			}
+			out[off + i] = 100 * (up - dn) / (up + dn);
+		}
+	}
+}
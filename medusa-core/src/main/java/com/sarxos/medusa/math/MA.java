@@ -1,14 +1,68 @@
 package com.sarxos.medusa.math;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteView;
 
 
 public class MA {
 
-	private static Map<Integer, Double> ema_pows = new HashMap<Integer, Double>();
+	/**
+	 * EMA weights tables indexed by period. Tables are never modified after
+	 * they are published, so they can be read by many threads without any
+	 * locking. Only creation of the new table is synchronized.
+	 */
+	private static volatile double[][] ema_weights = new double[0][];
+
+	/**
+	 * Return EMA weights for given period, w[j] is the weight of the quote j
+	 * positions before the newest one. Returned array shall not be modified.
+	 * 
+	 * @param N - EMA period
+	 * @return Weights array
+	 */
+	static double[] emaWeights(int N) {
+		double[][] tables = ema_weights;
+		if (N < tables.length && tables[N] != null) {
+			return tables[N];
+		}
+		return createEmaWeights(N);
+	}
+
+	private static synchronized double[] createEmaWeights(int N) {
+
+		double[][] tables = ema_weights;
+		if (N < tables.length && tables[N] != null) {
+			return tables[N];
+		}
+
+		// integer division is kept on purpose - all generators parameters
+		// has been tuned with it, for N > 1 it gives equal weights
+		double a = 2 / (N + 1);
+		double h = 1 - a;
+
+		double[] w = new double[N];
+		for (int j = 0; j < N; j++) {
+			w[j] = Math.pow(h, N - j);
+		}
+
+		// for N = 1 the only weight is 0, but EMA of one quote is its price
+		if (N == 1) {
+			w[0] = 1;
+		}
+
+		if (N < tables.length) {
+			tables = tables.clone();
+		} else {
+			tables = Arrays.copyOf(tables, Math.max(N + 1, tables.length * 2));
+		}
+		tables[N] = w;
+
+		ema_weights = tables;
+
+		return w;
+	}
 
 	public static double sma(Quote data, int N) {
 		Quote[] quotes = new Quote[] { data };
@@ -22,22 +76,14 @@ public class MA {
 		}
 
 		double[] sma = new double[data.length];
-		double sm = 0;
-
-		int i = 0;
-		int j = 0;
-
-		Quote q = null;
-
-		for (i = data.length - 1; i >= 0; i--) {
-			sm = 0;
-			j = 0;
-			q = data[i];
-			do {
-				sm += q.getClose();
-				q = q.prev();
-			} while (j++ < N - 1);
-			sma[i] = sm / N;
+
+		QuoteView v = SX.run(data, N - 1);
+		if (v != null) {
+			Kernels.sma(v.getSeries().closes(), v.getIndex(), data.length, N, sma, 0);
+		} else {
+			for (int i = 0; i < data.length; i++) {
+				Kernels.sma(SX.closes(data[i], N), N - 1, 1, N, sma, i);
+			}
 		}
 
 		return sma;
@@ -55,25 +101,14 @@ public class MA {
 		}
 
 		double[] wma = new double[data.length];
-		double wm = 0;
-
-		int i = 0;
-		int j = 0;
-		int k = 0;
-
-		Quote q = null;
-
-		for (i = data.length - 1; i > 0; i--) {
-			wm = 0;
-			j = 0;
-			k = 0;
-			q = data[i];
-			do {
-				wm += q.getClose() * (N - j);
-				k += N - j;
-				q = q.prev();
-			} while (j++ < N - 1);
-			wma[i] = wm / k;
+
+		QuoteView v = SX.run(data, N - 1);
+		if (v != null) {
+			Kernels.wma(v.getSeries().closes(), v.getIndex(), data.length, N, wma, 0);
+		} else {
+			for (int i = 0; i < data.length; i++) {
+				Kernels.wma(SX.closes(data[i], N), N - 1, 1, N, wma, i);
+			}
 		}
 
 		return wma;
@@ -94,46 +129,15 @@ public class MA {
 		}
 
 		double[] ema = new double[data.length];
-		double em = 0;
-
-		int i = 0;
-		int j = 0;
-		int u = 0;
-
-		double k = 0;
-		double a = 2 / (N + 1);
-		double h = 1 - a;
-		double pow = 0;
-
-		Quote q = null;
-		Integer key = null;
-		Double value = null;
-
-		do {
-			u = N - j;
-			key = Integer.valueOf(u);
-			if (ema_pows.get(key) == null) {
-				value = Double.valueOf(Math.pow(h, u));
-				ema_pows.put(key, value);
+		double[] w = emaWeights(N);
+
+		QuoteView v = SX.run(data, N - 1);
+		if (v != null) {
+			Kernels.wavg(v.getSeries().closes(), v.getIndex(), data.length, w, ema, 0);
+		} else {
+			for (int i = 0; i < data.length; i++) {
+				Kernels.wavg(SX.closes(data[i], N), N - 1, 1, w, ema, i);
 			}
-		} while (j++ < N - 1);
-
-		for (i = data.length - 1; i >= 0; i--) {
-			em = 0;
-			j = 0;
-			k = 0;
-			q = data[i];
-			do {
-				u = N - j;
-				pow = ema_pows.get(u);
-				if (q == null) {
-					System.err.println("q is null " + j);
-				}
-				em += q.getClose() * pow;
-				k += pow;
-				q = q.prev();
-			} while (j++ < N - 1);
-			ema[i] = em / k;
 		}
 
 		return ema;
@@ -232,10 +236,6 @@ public class MA {
 	public static double jma(Quote q, double K, double P) {
 		double[] c = SX.reverse(SX.detach(q, 100)[3]);
 		double[] jma = JRK.jrk(c, K, P);
-		// for (int i = 0; i < jma.length; i++) {
-		// System.out.println(c[i] + " " + jma[i]);
-		// }
-		// System.exit(1);
 		return jma[0];
 	}
 
@@ -285,14 +285,59 @@ public class MA {
 		return hma[1] - hma[0];
 	}
 
+	/**
+	 * <b>H</b>ull <b>M</b>oving <b>A</b>verage for each quote from the array.
+	 * 
+	 * @param data - input quotes array (last element is the newest)
+	 * @param L - HMA length
+	 * @return Will return double array
+	 * @see Kernels#hma(double[], int, int, int, double[], int)
+	 */
 	public static double[] hma(Quote[] data, int L) {
+
+		if (L <= 0) {
+			throw new IllegalArgumentException("HMA length must be positive");
+		}
+
 		double[] hma = new double[data.length];
-		for (int i = 0; i < data.length; i++) {
-			hma[i] = hma(data[i], L);
+
+		int S = Math.max(1, (int) Math.sqrt(L));
+
+		QuoteView v = SX.run(data, L + S - 2);
+		if (v != null) {
+			Kernels.hma(v.getSeries().closes(), v.getIndex(), data.length, L, hma, 0);
+		} else {
+			for (int i = 0; i < data.length; i++) {
+				hma[i] = hma(data[i], L);
+			}
 		}
+
 		return hma;
 	}
 
+	/**
+	 * Hull Moving Average derivative for each quote from the array.
+	 * 
+	 * @param data - input quotes array (last element is the newest)
+	 * @param L - HMA length
+	 * @return Will return double array
+	 */
+	public static double[] hmad(Quote[] data, int L) {
+
+		Quote[] quotes = new Quote[data.length + 1];
+		quotes[0] = data[0].prev();
+		System.arraycopy(data, 0, quotes, 1, data.length);
+
+		double[] hma = hma(quotes, L);
+		double[] hmad = new double[data.length];
+
+		for (int i = 1; i < hma.length; i++) {
+			hmad[i - 1] = hma[i] - hma[i - 1];
+		}
+
+		return hmad;
+	}
+
 	/**
 	 * <b>H</b>ull <b>M</b>oving <b>A</b>verage.
 	 * 
@@ -311,14 +356,9 @@ public class MA {
 		// algorithm to work
 		int arraysize = L + sqrlen;
 
-		double[] prices = new double[arraysize];
+		double[] prices = SX.closes(q, arraysize);
 		double[] wmavalues = new double[sqrlen];
 
-		for (int i = arraysize - 1; i >= 0; i--) {
-			prices[i] = q.getClose();
-			q = q.prev();
-		}
-
 		for (int i = 0; i < sqrlen; i++) {
 			double dfull = wma(prices, arraysize - 1 - i, L); // full WMA
 			double dhalf = wma(prices, arraysize - 1 - i, L / 2); // half lenght
@@ -0,0 +1,107 @@
+package com.sarxos.medusa.math;
+
+/**
+ * Streaming <b>S</b>imple <b>M</b>oving <b>A</b>verage. Keeps running sum of
+ * the last N values in the ring buffer. Sum is recalculated from the buffer
+ * each time buffer wraps, so rounding errors do not accumulate.
+ *
+ * @author Bartosz Firyn (SarXos)
+ * @see MA#sma(com.sarxos.medusa.market.Quote, int)
+ */
+public class SMA implements Indicator {
+
+	private final int N;
+
+	private final double[] buffer;
+
+	/**
+	 * Next write position.
+	 */
+	private int head = 0;
+
+	/**
+	 * Number of values in buffer.
+	 */
+	private int count = 0;
+
+	private double sum = 0;
+
+	/**
+	 * @param N - period
+	 */
+	public SMA(int N) {
+		if (N <= 0) {
+			throw new IllegalArgumentException("SMA interval must be positive");
+		}
+		this.N = N;
+		this.buffer = new double[N];
+	}
+
+	@Override
+	public double add(double value) {
+		if (count == N) {
+			sum -= buffer[head];
+		} else {
+			count++;
+		}
+		buffer[head] = value;
+		sum += value;
+		if (++head == N) {
+			head = 0;
+			sum = M.sum(buffer);
+		}
+		return value();
+	}
+
+	@Override
+	public double update(double value) {
+		if (count == 0) {
+			return add(value);
+		}
+		int i = head == 0 ? N - 1 : head - 1;
+		sum += value - buffer[i];
+		buffer[i] = value;
+		return value();
+	}
+
+	@Override
+	public double value() {
+		return count == 0 ? Double.NaN : sum / count;
+	}
+
+	@Override
+	public boolean isReady() {
+		return count == N;
+	}
+
+	@Override
+	public int getPeriod() {
+		return N;
+	}
+
+	@Override
+	public void reset() {
+		head = 0;
+		count = 0;
+		sum = 0;
+	}
+
+	@Override
+	public SMA snapshot() {
+		SMA s = new SMA(N);
+		s.restore(this);
+		return s;
+	}
+
+	@Override
+	public void restore(Indicator snapshot) {
+		SMA s = (SMA) snapshot;
+		if (s.N != N) {
+			throw new IllegalArgumentException("Cannot restore SMA(" + N + ") from SMA(" + s.N + ")");
+		}
+		System.arraycopy(s.buffer, 0, buffer, 0, N);
+		head = s.head;
+		count = s.count;
+		sum = s.sum;
+	}
+}
@@ -1,6 +1,8 @@
 package com.sarxos.medusa.math;
 
 import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
+import com.sarxos.medusa.market.QuoteView;
 
 
 public class SX {
@@ -55,6 +57,11 @@ public class SX {
 	 */
 	public static double[][] detach(Quote q, int N) {
 
+		QuoteView v = view(q, N);
+		if (v != null) {
+			return detach(v.getSeries(), v.getIndex(), N);
+		}
+
 		double[] open = new double[N];
 		double[] high = new double[N];
 		double[] low = new double[N];
@@ -62,6 +69,19 @@ public class SX {
 
 		for (int i = N - 1; i >= 0; i--) {
 
+			// rest of the quotes can be copied from the series
+
+			v = view(q, i + 1);
+			if (v != null) {
+				QuoteSeries s = v.getSeries();
+				int begin = v.getIndex() - i;
+				System.arraycopy(s.opens(), begin, open, 0, i + 1);
+				System.arraycopy(s.highs(), begin, high, 0, i + 1);
+				System.arraycopy(s.lows(), begin, low, 0, i + 1);
+				System.arraycopy(s.closes(), begin, close, 0, i + 1);
+				break;
+			}
+
 			open[i] = q.getOpen();
 			high[i] = q.getHigh();
 			low[i] = q.getLow();
@@ -73,6 +93,117 @@ public class SX {
 		return new double[][] { open, high, low, close };
 	}
 
+	/**
+	 * Detach N quotes ending at given index from the series into the separated
+	 * double arrays (open, high, low, close).
+	 * 
+	 * @param s - quotes series
+	 * @param end - index of the last quote to detach
+	 * @param N - how many quotes shall be detached
+	 * @return double[][]
+	 * @see #detach(Quote, int)
+	 */
+	public static double[][] detach(QuoteSeries s, int end, int N) {
+
+		int begin = end - N + 1;
+		if (begin < 0 || end >= s.size()) {
+			throw new IllegalArgumentException("Cannot detach " + N + " quotes ending at " + end);
+		}
+
+		double[] open = new double[N];
+		double[] high = new double[N];
+		double[] low = new double[N];
+		double[] close = new double[N];
+
+		System.arraycopy(s.opens(), begin, open, 0, N);
+		System.arraycopy(s.highs(), begin, high, 0, N);
+		System.arraycopy(s.lows(), begin, low, 0, N);
+		System.arraycopy(s.closes(), begin, close, 0, N);
+
+		return new double[][] { open, high, low, close };
+	}
+
+	/**
+	 * Return series view of the quote when N quotes ending at this quote are
+	 * all stored in the series, so they can be accessed by index instead of
+	 * walking previous quotes references.
+	 * 
+	 * @param q - last quote
+	 * @param N - number of quotes
+	 * @return Quote view or null
+	 */
+	static QuoteView view(Quote q, int N) {
+		if (q instanceof QuoteView) {
+			QuoteView v = (QuoteView) q;
+			if (v.getIndex() >= N - 1) {
+				return v;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return series view of the first quote when all quotes from given array
+	 * are consecutive quotes of the same series and there are at least given
+	 * number of quotes before the first one, so indicators can be calculated
+	 * directly on the series columns.
+	 * 
+	 * @param data - quotes array (last element is the newest)
+	 * @param before - number of quotes required before the first one
+	 * @return View of the first quote or null
+	 */
+	static QuoteView run(Quote[] data, int before) {
+
+		if (data.length == 0 || !(data[0] instanceof QuoteView)) {
+			return null;
+		}
+
+		QuoteView first = (QuoteView) data[0];
+		if (first.getIndex() < before) {
+			return null;
+		}
+
+		QuoteSeries series = first.getSeries();
+		int index = first.getIndex();
+
+		for (int i = 1; i < data.length; i++) {
+			if (!(data[i] instanceof QuoteView)) {
+				return null;
+			}
+			QuoteView v = (QuoteView) data[i];
+			if (v.getSeries() != series || v.getIndex() != index + i) {
+				return null;
+			}
+		}
+
+		return first;
+	}
+
+	/**
+	 * Return N closing prices ending at given quote (last element is the
+	 * closing price of given quote). Previous quotes are walked only until
+	 * the quote stored in series is found (e.g. real time quote bound to the
+	 * series tail), prices of the rest of them are copied from the series
+	 * column.
+	 * 
+	 * @param q - last quote
+	 * @param N - number of prices
+	 * @return Closing prices array
+	 */
+	public static double[] closes(Quote q, int N) {
+		double[] close = new double[N];
+		for (int i = N - 1; i >= 0; i--) {
+			QuoteView v = view(q, i + 1);
+			if (v != null) {
+				System.arraycopy(v.getSeries().closes(), v.getIndex() - i, close, 0, i + 1);
+				break;
+			}
+			close[i] = q.getClose();
+			q = q.prev();
+		}
+		return close;
+	}
+
 	/**
 	 * Create list of quotes for given N-days period. Take last quote as the
 	 * input argument.
@@ -0,0 +1,133 @@
+package com.sarxos.medusa.math;
+
+/**
+ * Streaming <b>W</b>eighted <b>M</b>oving <b>A</b>verage. Newest value has
+ * weight N, the oldest one 1. Keeps plain and weighted sums of the last N
+ * values, so when window moves, weighted sum is decreased by plain sum (every
+ * weight drops by one) and new value is added with weight N. Until N values
+ * are added, average is calculated over available values only. Sums are
+ * recalculated from the ring buffer each time it wraps.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class WMA implements Indicator {
+
+	private final int N;
+
+	private final double[] buffer;
+
+	/**
+	 * Next write position (also the oldest value when buffer is full).
+	 */
+	private int head = 0;
+
+	private int count = 0;
+
+	/**
+	 * Plain sum.
+	 */
+	private double sum = 0;
+
+	/**
+	 * Weighted sum.
+	 */
+	private double wsum = 0;
+
+	/**
+	 * @param N - period
+	 */
+	public WMA(int N) {
+		if (N <= 0) {
+			throw new IllegalArgumentException("WMA interval must be positive");
+		}
+		this.N = N;
+		this.buffer = new double[N];
+	}
+
+	@Override
+	public double add(double value) {
+		if (count == N) {
+			wsum -= sum;
+			sum -= buffer[head];
+		} else {
+			count++;
+		}
+		wsum += count * value;
+		sum += value;
+		buffer[head] = value;
+		if (++head == N) {
+			head = 0;
+			resum();
+		}
+		return value();
+	}
+
+	/**
+	 * Recalculate sums from the full buffer (head points to the oldest).
+	 */
+	private void resum() {
+		sum = 0;
+		wsum = 0;
+		for (int i = 0; i < N; i++) {
+			double v = buffer[(head + i) % N];
+			sum += v;
+			wsum += v * (i + 1);
+		}
+	}
+
+	@Override
+	public double update(double value) {
+		if (count == 0) {
+			return add(value);
+		}
+		int i = head == 0 ? N - 1 : head - 1;
+		double d = value - buffer[i];
+		sum += d;
+		wsum += count * d;
+		buffer[i] = value;
+		return value();
+	}
+
+	@Override
+	public double value() {
+		return count == 0 ? Double.NaN : wsum / (count * (count + 1) / 2.0);
+	}
+
+	@Override
+	public boolean isReady() {
+		return count == N;
+	}
+
+	@Override
+	public int getPeriod() {
+		return N;
+	}
+
+	@Override
+	public void reset() {
+		head = 0;
+		count = 0;
+		sum = 0;
+		wsum = 0;
+	}
+
+	@Override
+	public WMA snapshot() {
+		WMA w = new WMA(N);
+		w.restore(this);
+		return w;
+	}
+
+	@Override
+	public void restore(Indicator snapshot) {
+		WMA w = (WMA) snapshot;
+		if (w.N != N) {
+			throw new IllegalArgumentException("Cannot restore WMA(" + N + ") from WMA(" + w.N + ")");
+		}
+		System.arraycopy(w.buffer, 0, buffer, 0, N);
+		head = w.head;
+		count = w.count;
+		sum = w.sum;
+		wsum = w.wsum;
+	}
+}
@@ -0,0 +1,40 @@
+package com.sarxos.medusa.provider;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.sarxos.medusa.data.QuotesStorage;
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Symbol;
+
+
+/**
+ * History provider which is able to serve many symbols at once (e.g. from one
+ * archive containing quotes for all symbols).
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public interface BulkHistoryProvider extends HistoryProvider {
+
+	/**
+	 * Return all end-of-day quotes for given symbols.
+	 *
+	 * @param symbols - symbols to get quotes for (null means all available)
+	 * @return Map with whole historical data for each symbol found
+	 * @throws ProviderException
+	 */
+	public Map<Symbol, List<Quote>> getAllQuotes(Collection<Symbol> symbols) throws ProviderException;
+
+	/**
+	 * Import all end-of-day quotes for given symbols into the quotes storage.
+	 *
+	 * @param symbols - symbols to import (null means all available)
+	 * @param storage - storage to publish quotes to
+	 * @return Number of imported symbols
+	 * @throws ProviderException when quotes cannot be read or there are no
+	 *             quotes for some of the given symbols (quotes of the other
+	 *             symbols are imported anyway)
+	 */
+	public int importAllQuotes(Collection<Symbol> symbols, QuotesStorage storage) throws ProviderException;
+}
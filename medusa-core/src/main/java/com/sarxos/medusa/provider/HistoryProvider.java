@@ -18,7 +18,9 @@ public interface HistoryProvider {
 	public List<Quote> getLastQuotes(Symbol symbol) throws ProviderException;
 
 	/**
-	 * Return all end-of-day quotes for given symbol.
+	 * Return all end-of-day quotes for given symbol. Returned list can be a
+	 * view of the quotes series, which supports appending but not removal of
+	 * quotes, so callers should copy it before removing anything.
 	 * 
 	 * @param symbol - symbol to get quotes for
 	 * @return Whole historical data
@@ -1,25 +1,22 @@
 package com.sarxos.medusa.provider;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.sarxos.medusa.data.BarAggregator;
+import com.sarxos.medusa.data.BarEvent;
+import com.sarxos.medusa.data.BarListener;
 import com.sarxos.medusa.data.QuotesIterator;
+import com.sarxos.medusa.data.QuotesStore;
 import com.sarxos.medusa.market.Quote;
 import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.market.Timeframe;
 import com.sarxos.medusa.util.Configuration;
-import com.sarxos.medusa.util.DateUtils;
 
 
 /**
@@ -51,122 +48,57 @@ public class HistoryProviderSim implements HistoryProvider {
 	public List<Quote> getAllQuotes(Symbol symbol) throws ProviderException {
 
 		String tmpdir = CFG.getProperty("core", "tmpdir");
-		File f = new File(tmpdir + "/history/" + symbol.getName() + ".mst");
+		File f = QuotesStore.file(new File(tmpdir + "/history"), symbol);
 
-		List<Quote> quotes = null;
-
-		if (!f.exists()) {
+		if (f.exists()) {
 			try {
-				FileUtils.touch(f);
+				QuotesStore store = QuotesStore.open(f);
+				try {
+					return store.toSeries().asList();
+				} finally {
+					store.close();
+				}
 			} catch (IOException e) {
-				throw new RuntimeException("Cannot touch file " + f, e);
+				LOG.warn("Cannot read history store " + f.getPath() + ", it will be rebuilt. " + e.getMessage());
 			}
+		}
 
-			quotes = buildMSTFile(symbol, f);
-		} else {
-		
-			QuotesIterator<Quote> qi = null;
-			InputStream is = null;
-			try {
-				is = FileUtils.openInputStream(f);
-			} catch (IOException e) {
-				throw new RuntimeException(e);
-			}
+		List<Quote> quotes = buildHistory(symbol);
 
-			qi = new QuotesIterator<Quote>(is);
-			quotes = new LinkedList<Quote>(qi.collection());
-			qi.close();
+		try {
+			QuotesStore.write(f, symbol, quotes);
+		} catch (IOException e) {
+			throw new ProviderException("Cannot write history store " + f.getPath(), e);
 		}
-		
+
 		return quotes;
 	}
 
-	private List<Quote> buildMSTFile(Symbol symbol, File f) throws ProviderException {
+	private List<Quote> buildHistory(Symbol symbol) throws ProviderException {
 
-		LOG.info("Building history MST file for symbol " + symbol);
+		LOG.info("Building history store for symbol " + symbol);
 
-		List<Quote> toWrite = new LinkedList<Quote>();
+		final List<Quote> toWrite = new LinkedList<Quote>();
 		QuotesIterator<Quote> qi = getIntradayQuotes(symbol);
 
-		Quote q = null;
-		Date date = null;
-
-		double open = 0;
-		double high = Double.MIN_VALUE;
-		double low = Double.MAX_VALUE;
-		double close = 0;
-		long volume = 0;
-
-		Calendar calendar = new GregorianCalendar();
-		calendar.setTime(DateUtils.fromCGL("19800101")); // some old date
+		BarAggregator daily = new BarAggregator(symbol, Timeframe.DAILY);
+		daily.addBarListener(new BarListener() {
 
-		int tmp = -1, day = -1;
-
-		if (qi.hasNext()) {
-			q = qi.next();
-			date = q.getDate();
-			open = q.getOpen();
-			high = q.getHigh();
-			low = q.getLow();
-			volume = q.getVolume();
-			calendar.setTime(q.getDate());
-		}
-
-		while (qi.hasNext()) {
-
-			q = qi.next();
-			day = calendar.get(Calendar.DAY_OF_YEAR);
-			calendar.setTime(q.getDate());
-
-			if (tmp != day) {
-				toWrite.add(new Quote(symbol, date, open, high, low, close, volume));
-				date = q.getDate();
-				open = q.getOpen();
-				high = q.getHigh();
-				close = q.getClose();
-				low = q.getLow();
-				volume = q.getVolume();
-				tmp = day;
-			} else {
-				high = high > q.getHigh() ? high : q.getHigh();
-				low = low < q.getLow() ? low : q.getLow();
-				close = q.getClose();
-				volume += q.getVolume();
-				date = q.getDate();
+			@Override
+			public void barClosed(BarEvent be) {
+				toWrite.add(be.getBar());
 			}
-		}
+		});
 
-		
-		StringBuilder sb = new StringBuilder("<TICKER>,<DTYYYYMMDD>,<OPEN>,<HIGH>,<LOW>,<CLOSE>,<VOL>,<OPENINT>\n");
-		
-		FileOutputStream fos = null;
 		try {
-			 fos = FileUtils.openOutputStream(f);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
-		
-		for (Quote wq : toWrite) {
-			
-			sb.append(wq.getSymbol().getName()).append(',');
-			sb.append(DateUtils.toCGL(wq.getDate())).append(',');
-			sb.append(wq.getOpen()).append(',');
-			sb.append(wq.getHigh()).append(',');
-			sb.append(wq.getLow()).append(',');
-			sb.append(wq.getClose()).append(',');
-			sb.append(wq.getVolume()).append(',');
-			sb.append("1").append('\n'); // open interests (not taken into account)
-			
-			try {
-				IOUtils.write(sb, fos);
-			} catch (IOException e) {
-				throw new RuntimeException(e);
+			while (qi.hasNext()) {
+				daily.add(qi.next());
 			}
-
-			sb.delete(0, sb.length());
+		} finally {
+			qi.close();
 		}
 
-		IOUtils.closeQuietly(fos);
+		daily.flush();
 
 		return toWrite;
 	}
@@ -181,14 +113,11 @@ public class HistoryProviderSim implements HistoryProvider {
 			throw new ProviderException("Missing file " + f.getPath());
 		}
 
-		InputStream is = null;
 		try {
-			is = FileUtils.openInputStream(f);
+			return new QuotesIterator<Quote>(f);
 		} catch (IOException e) {
-			throw new ProviderException("Cannot open stream from file " + f.getPath());
+			throw new ProviderException("Cannot open quotes file " + f.getPath());
 		}
-
-		return new QuotesIterator<Quote>(is);
 	}
 
 	public static void main(String[] args) throws ProviderException {
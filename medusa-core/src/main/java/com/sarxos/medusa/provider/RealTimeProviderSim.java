@@ -2,15 +2,17 @@ package com.sarxos.medusa.provider;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.Calendar;
 import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.NoSuchElementException;
 
+import com.sarxos.medusa.data.BarAggregator;
+import com.sarxos.medusa.data.BarEvent;
+import com.sarxos.medusa.data.BarListener;
 import com.sarxos.medusa.data.FakeQuotesRegistry;
 import com.sarxos.medusa.data.QuotesIterator;
 import com.sarxos.medusa.market.Quote;
 import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.market.Timeframe;
 
 
 /**
@@ -47,34 +49,9 @@ public class RealTimeProviderSim implements RealTimeProvider {
 	private FakeQuotesRegistry registry = null;
 
 	/**
-	 * Opening price.
+	 * Aggregates intraday quotes into daily bars put in registry.
 	 */
-	private double open = 0;
-
-	/**
-	 * Highest price.
-	 */
-	private double high = Double.MIN_VALUE;
-
-	/**
-	 * Lowest price.
-	 */
-	private double low = Double.MAX_VALUE;
-
-	/**
-	 * Quotes volume.
-	 */
-	private long volume = 0;
-
-	/**
-	 * Last read quote.
-	 */
-	private Quote last = null;
-
-	/**
-	 * Calendar used to calculate dates.
-	 */
-	private Calendar calendar = new GregorianCalendar();
+	private BarAggregator daily = null;
 
 	/**
 	 * Real time data provider. Its provides intraday quotes within given time
@@ -85,6 +62,35 @@ public class RealTimeProviderSim implements RealTimeProvider {
 	 * @param to - up to date (after reaching this date null will be returned)
 	 */
 	public RealTimeProviderSim(Symbol symbol, Date from, Date to) {
+		this(symbol, from, to, FakeQuotesRegistry.getInstance());
+	}
+
+	/**
+	 * Real time data provider putting daily bars into given registry, so more
+	 * simulations can be run in the same time without interfering.
+	 * 
+	 * @param symbol - symbol to provide quotes for
+	 * @param from - begin from date
+	 * @param to - up to date (after reaching this date null will be returned)
+	 * @param registry - registry to put daily bars into
+	 */
+	public RealTimeProviderSim(Symbol symbol, Date from, Date to, FakeQuotesRegistry registry) {
+
+		if (registry == null) {
+			throw new IllegalArgumentException("Quotes registry cannot be null");
+		}
+
+		this.registry = registry;
+
+		this.daily = new BarAggregator(symbol, Timeframe.DAILY);
+		this.daily.addBarListener(new BarListener() {
+
+			@Override
+			public void barClosed(BarEvent be) {
+				Quote bar = be.getBar();
+				RealTimeProviderSim.this.registry.addQuote(bar.getSymbol(), bar);
+			}
+		});
 
 		if (from != null) {
 			this.from = from.getTime();
@@ -131,7 +137,6 @@ public class RealTimeProviderSim implements RealTimeProvider {
 			}
 		}
 
-		this.registry = FakeQuotesRegistry.getInstance();
 		this.registry.load(symbol, from);
 	}
 
@@ -166,62 +171,23 @@ public class RealTimeProviderSim implements RealTimeProvider {
 			return null;
 		}
 
-		if (last != null) {
-			q.setOpen(open);
-			q.setHigh(high);
-			q.setLow(low);
-			q.setVolume(volume);
-		}
+		q.setOpen(daily.getOpen(Timeframe.DAILY));
+		q.setHigh(daily.getHigh(Timeframe.DAILY));
+		q.setLow(daily.getLow(Timeframe.DAILY));
+		q.setVolume(daily.getVolume(Timeframe.DAILY));
 
 		return q;
 	}
 
 	/**
-	 * Put given quote in registry.
+	 * Put given quote in registry. Quote is aggregated into daily bar, which is
+	 * added to the registry when first quote from the next day arrives.
 	 * 
 	 * @param s - quote's symbol
 	 * @param q - quote to put in registry
 	 */
 	protected void putInRegistry(Symbol s, Quote q) {
-
-		if (last == null) {
-			last = q;
-			open = q.getOpen();
-			high = q.getHigh();
-			low = q.getLow();
-		}
-
-		int a = getDay(q);
-		int b = getDay(last);
-
-		if (a > b) {
-			Quote qq = new Quote(s, last.getDate(), open, high, low, last.getClose(), volume);
-			registry.addQuote(s, qq);
-			open = q.getOpen();
-			high = q.getHigh();
-			low = q.getLow();
-			volume = 0;
-		}
-
-		double h = q.getHigh();
-		double l = q.getLow();
-
-		high = h > high ? h : high;
-		low = l < low ? l : low;
-		volume += q.getVolume();
-
-		last = q;
-	}
-
-	/**
-	 * Return number of day for quote (day of year).
-	 * 
-	 * @param q
-	 * @return Will return day of year number
-	 */
-	private int getDay(Quote q) {
-		calendar.setTime(q.getDate());
-		return calendar.get(Calendar.DAY_OF_YEAR);
+		daily.add(q);
 	}
 
 	@Override
@@ -0,0 +1,200 @@
+package com.sarxos.medusa.sql;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Bounded JDBC connections pool. Idle connections are kept in the lock-free
+ * queue and number of connections in use is bounded by the semaphore, so
+ * checkout does not take any lock unless pool is exhausted. Connections idle
+ * for a long time are validated before they are handed out.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class ConnectionPool {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(ConnectionPool.class.getSimpleName());
+
+	/**
+	 * Connections idle longer then this will be validated (ms).
+	 */
+	private static final long VALIDATE_AFTER = 30 * 1000;
+
+	/**
+	 * Validation timeout (seconds).
+	 */
+	private static final int VALIDATE_TIMEOUT = 5;
+
+	/**
+	 * Default checkout timeout (ms).
+	 */
+	private static final long TIMEOUT = 30 * 1000;
+
+	private final String url;
+
+	private final String user;
+
+	private final String password;
+
+	/**
+	 * Maximum number of connections.
+	 */
+	private final int size;
+
+	/**
+	 * Permits for connections checkout.
+	 */
+	private final Semaphore permits;
+
+	/**
+	 * Idle connections.
+	 */
+	private final ConcurrentLinkedQueue<PooledConnection> idle = new ConcurrentLinkedQueue<PooledConnection>();
+
+	/**
+	 * Number of open connections.
+	 */
+	private final AtomicInteger open = new AtomicInteger();
+
+	/**
+	 * Checkout timeout (ms).
+	 */
+	private long timeout = TIMEOUT;
+
+	private volatile boolean closed = false;
+
+	/**
+	 * Create connections pool.
+	 *
+	 * @param url - JDBC URL
+	 * @param user - database user
+	 * @param password - database password
+	 * @param size - maximum number of connections
+	 */
+	public ConnectionPool(String url, String user, String password, int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("Pool size must be positive");
+		}
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.size = size;
+		this.permits = new Semaphore(size, true);
+	}
+
+	/**
+	 * Checkout connection from the pool. Each acquired connection has to be
+	 * given back with {@link #release(PooledConnection)}.
+	 *
+	 * @return Pooled connection
+	 * @throws SQLException if connection cannot be created or pool is
+	 *             exhausted for longer then checkout timeout
+	 */
+	public PooledConnection acquire() throws SQLException {
+
+		if (closed) {
+			throw new SQLException("Connection pool is closed");
+		}
+
+		try {
+			if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+				throw new SQLException("Timeout when waiting for connection, pool size is " + size);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted when waiting for connection");
+		}
+
+		boolean ok = false;
+		try {
+
+			PooledConnection pc = null;
+			while ((pc = idle.poll()) != null) {
+				if (pc.validate(VALIDATE_AFTER, VALIDATE_TIMEOUT)) {
+					ok = true;
+					return pc;
+				}
+				LOG.info("Dropping invalid database connection");
+				discard(pc);
+			}
+
+			pc = new PooledConnection(DriverManager.getConnection(url, user, password));
+			open.incrementAndGet();
+			ok = true;
+
+			return pc;
+
+		} finally {
+			if (!ok) {
+				permits.release();
+			}
+		}
+	}
+
+	/**
+	 * Give connection back to the pool. Broken connections are closed.
+	 *
+	 * @param pc - connection to release (can be null)
+	 */
+	public void release(PooledConnection pc) {
+		if (pc == null) {
+			return;
+		}
+		if (closed || pc.isBroken()) {
+			discard(pc);
+		} else {
+			pc.touch();
+			idle.offer(pc);
+		}
+		permits.release();
+	}
+
+	private void discard(PooledConnection pc) {
+		open.decrementAndGet();
+		pc.close();
+	}
+
+	/**
+	 * Close pool and all idle connections. Connections in use are closed when
+	 * released.
+	 */
+	public void close() {
+		closed = true;
+		PooledConnection pc = null;
+		while ((pc = idle.poll()) != null) {
+			discard(pc);
+		}
+	}
+
+	/**
+	 * @return Maximum number of connections
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return Number of open connections (idle and in use)
+	 */
+	public int getOpenCount() {
+		return open.get();
+	}
+
+	/**
+	 * @param timeout - checkout timeout in milliseconds
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+}
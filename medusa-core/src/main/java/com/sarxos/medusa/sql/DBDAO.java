@@ -3,7 +3,6 @@ package com.sarxos.medusa.sql;
 import java.io.File;
 import java.lang.reflect.Constructor;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -12,7 +11,6 @@ import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
 
 import com.sarxos.medusa.data.DataFileFormat;
 import com.sarxos.medusa.data.QuotesReaderException;
@@ -23,6 +21,7 @@ import com.sarxos.medusa.data.persistence.PersistenceProvider;
 import com.sarxos.medusa.market.Paper;
 import com.sarxos.medusa.market.Position;
 import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
 import com.sarxos.medusa.market.SignalGenerator;
 import com.sarxos.medusa.market.Symbol;
 import com.sarxos.medusa.trader.Trader;
@@ -48,11 +47,31 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 		String port = cfg.getProperty("database", "port");
 		String name = cfg.getProperty("database", "name");
 		url = "jdbc:mysql://" + host + ":" + port + "/" + name;
+		if (cfg.getBool("database", "rewrite", true)) {
+			url += "?rewriteBatchedStatements=true";
+		}
 	}
 
-	private Connection con = null;
+	/**
+	 * Number of quotes inserted in one JDBC batch.
+	 */
+	private static final int BATCH_SIZE = cfg.getInt("database", "batch", 500);
+
+	/**
+	 * Maximum number of pooled connections.
+	 */
+	private static final int POOL_SIZE = cfg.getInt("database", "pool", 8);
+
+	/**
+	 * Connections pool - each operation checks out its own connection, so DAO
+	 * can be used from many threads at once.
+	 */
+	private ConnectionPool pool = null;
 
-	private static AtomicReference<DBDAO> instance = new AtomicReference<DBDAO>();
+	/**
+	 * Singleton instance.
+	 */
+	private static DBDAO instance = null;
 
 	private DBDAO() throws DBDAOException {
 
@@ -66,29 +85,51 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 			throw new DBDAOException("Database user's password cannot be null!");
 		}
 
+		pool = new ConnectionPool(url, usr, pwd, POOL_SIZE);
+
+		PooledConnection pc = null;
 		try {
-			con = DriverManager.getConnection(url, usr, pwd);
-			SQLUtils.installProcedures(con);
+			pc = pool.acquire();
+			SQLUtils.installProcedures(pc.getConnection());
 		} catch (Exception e) {
 			throw new DBDAOException(e);
+		} finally {
+			pool.release(pc);
 		}
 	}
 
 	/**
+	 * Return DAO instance. It is created only once, because each instance
+	 * opens its own connections pool.
+	 * 
 	 * @return DBDAO static instance
 	 */
-	public static DBDAO getInstance() {
-		try {
-			if (instance.get() == null) {
-				instance.compareAndSet(null, new DBDAO());
+	public static synchronized DBDAO getInstance() {
+		if (instance == null) {
+			try {
+				instance = new DBDAO();
+			} catch (DBDAOException e) {
+				e.printStackTrace();
 			}
-		} catch (DBDAOException e) {
-			e.printStackTrace();
 		}
-		return instance.get();
+		return instance;
 	}
 
-	protected void ensureSymbolTableExists(Symbol symbol) throws SQLException {
+	/**
+	 * Mark connection as broken if exception has been caused by connection
+	 * failure and give it back to the pool.
+	 * 
+	 * @param pc - pooled connection
+	 * @param e - exception thrown while using connection (can be null)
+	 */
+	private void release(PooledConnection pc, Exception e) {
+		if (pc != null && e instanceof SQLException) {
+			pc.failed((SQLException) e);
+		}
+		pool.release(pc);
+	}
+
+	protected void ensureSymbolTableExists(Connection con, Symbol symbol) throws SQLException {
 		Statement create = con.createStatement();
 		create.execute(
 		"CREATE TABLE IF NOT EXISTS " + symbol + " ( " +
@@ -103,7 +144,7 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 		create.close();
 	}
 
-	protected void ensureWalletTableExists() throws SQLException {
+	protected void ensureWalletTableExists(Connection con) throws SQLException {
 		Statement create = con.createStatement();
 		create.execute(
 			"CREATE TABLE IF NOT EXISTS wallet ( " +
@@ -117,31 +158,92 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 
 	@Override
 	public boolean addQuotes(Symbol symbol, List<Quote> quotes) {
+		return addQuotes(symbol, quotes, false);
+	}
+
+	/**
+	 * Add quotes to the symbol table. Quotes are inserted in batches (see
+	 * "batch" property in the "database" configuration section) within single
+	 * transaction, so either all or none of them are stored. In upsert mode
+	 * quotes already existing in the table (for the same day) are updated
+	 * instead of causing integrity constraint violation.
+	 * 
+	 * @param symbol - quotes symbol
+	 * @param quotes - quotes to add
+	 * @param upsert - update quotes which already exist
+	 * @return true if all quotes has been stored, false otherwise
+	 */
+	public boolean addQuotes(Symbol symbol, List<Quote> quotes, boolean upsert) {
+
+		PooledConnection pc = null;
+		Connection con = null;
+		SQLException error = null;
+		boolean autocommit = true;
+
 		try {
 
-			ensureSymbolTableExists(symbol);
+			pc = pool.acquire();
+			con = pc.getConnection();
+
+			ensureSymbolTableExists(con, symbol);
+
+			String sql = "INSERT INTO " + symbol + " VALUES (?, ?, ?, ?, ?, ?)";
+			if (upsert) {
+				sql += " " +
+				"ON DUPLICATE KEY UPDATE " +
+				"    open = VALUES(open), " +
+				"    high = VALUES(high), " +
+				"    low = VALUES(low), " +
+				"    close = VALUES(close), " +
+				"    volume = VALUES(volume)";
+			}
+
+			autocommit = con.getAutoCommit();
+			con.setAutoCommit(false);
 
-			PreparedStatement insert = con.prepareStatement(
-				"INSERT INTO " + symbol + " " +
-				"VALUES (?, ?, ?, ?, ?, ?)"
-			);
+			PreparedStatement insert = pc.prepare(sql);
 
+			int n = 0;
 			for (Quote quote : quotes) {
 				insert.setDate(1, new java.sql.Date(quote.getDate().getTime()));
 				insert.setDouble(2, quote.getOpen());
 				insert.setDouble(3, quote.getHigh());
 				insert.setDouble(4, quote.getLow());
 				insert.setDouble(5, quote.getClose());
-				insert.setDouble(6, quote.getVolume());
-				insert.execute();
+				insert.setLong(6, quote.getVolume());
+				insert.addBatch();
+				if (++n % BATCH_SIZE == 0) {
+					insert.executeBatch();
+				}
+			}
+			if (n % BATCH_SIZE != 0) {
+				insert.executeBatch();
 			}
 
-			insert.close();
+			con.commit();
 
 			return true;
 
 		} catch (SQLException e) {
 			e.printStackTrace();
+			error = e;
+			if (con != null) {
+				try {
+					con.rollback();
+				} catch (SQLException e1) {
+					e1.printStackTrace();
+				}
+			}
+		} finally {
+			if (con != null) {
+				try {
+					con.setAutoCommit(autocommit);
+				} catch (SQLException e) {
+					e.printStackTrace();
+					error = e;
+				}
+			}
+			release(pc, error);
 		}
 
 		return false;
@@ -149,56 +251,68 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 
 	@Override
 	public List<Quote> getQuotes(Symbol symbol) {
+		return getQuotes(symbol, null);
+	}
 
-		PreparedStatement getQuoets = null;
+	@Override
+	public List<Quote> getQuotes(Symbol symbol, Date after) {
 
-		List<Quote> quotes = new LinkedList<Quote>();
+		PooledConnection pc = null;
+		SQLException error = null;
+
+		QuoteSeries series = new QuoteSeries(symbol);
 
 		try {
 
-			getQuoets = con.prepareStatement("CALL GetQuotes(?)");
-			getQuoets.setString(1, symbol.toString());
+			pc = pool.acquire();
 
-			ResultSet result = getQuoets.executeQuery();
+			PreparedStatement getQuotes = null;
+			if (after == null) {
+				getQuotes = pc.prepare("CALL GetQuotes(?)");
+				getQuotes.setString(1, symbol.toString());
+			} else {
+				getQuotes = pc.prepare("CALL GetQuotesAfter(?, ?)");
+				getQuotes.setString(1, symbol.toString());
+				getQuotes.setDate(2, new java.sql.Date(after.getTime()));
+			}
 
-			Quote q = null, p = null;
+			ResultSet result = getQuotes.executeQuery();
 
 			while (result.next()) {
 
-				p = q;
-
-				Date date = new Date(result.getDate("time").getTime());
+				long time = result.getDate("time").getTime();
 				float open = result.getFloat("open");
 				float high = result.getFloat("high");
 				float low = result.getFloat("low");
 				float close = result.getFloat("close");
 				long volume = result.getLong("volume");
 
-				q = new Quote(date, open, high, low, close, volume);
-
-				if (p != null) {
-					q.setPrev(p);
-					p.setNext(q);
-				}
-
-				quotes.add(q);
-
+				series.add(time, open, high, low, close, volume);
 			}
 
+			result.close();
+
 		} catch (SQLException e) {
 			e.printStackTrace();
+			error = e;
+		} finally {
+			release(pc, error);
 		}
 
-		return quotes;
+		return series.asList();
 	}
 
 	public boolean addPaper(Paper p) {
 
+		PooledConnection pc = null;
 		PreparedStatement add = null;
+		SQLException error = null;
 		try {
-			ensureWalletTableExists();
+			pc = pool.acquire();
 
-			add = con.prepareStatement("CALL AddPaper(?, ?, ?)");
+			ensureWalletTableExists(pc.getConnection());
+
+			add = pc.getConnection().prepareStatement("CALL AddPaper(?, ?, ?)");
 			add.setString(1, p.getSymbol().toString());
 			if (true) {
 				throw new RuntimeException("Not implemented");
@@ -210,6 +324,7 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 			return true;
 		} catch (SQLException e) {
 			e.printStackTrace();
+			error = e;
 		} finally {
 			if (add != null) {
 				try {
@@ -218,6 +333,7 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 					e.printStackTrace();
 				}
 			}
+			release(pc, error);
 		}
 
 		return false;
@@ -225,11 +341,16 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 
 	public boolean updatePaper(Paper p) {
 
+		PooledConnection pc = null;
+		PreparedStatement update = null;
+		SQLException error = null;
 		try {
 
-			ensureWalletTableExists();
+			pc = pool.acquire();
+
+			ensureWalletTableExists(pc.getConnection());
 
-			PreparedStatement update = con.prepareStatement("CALL UpdatePaper(?, ?, ?)");
+			update = pc.getConnection().prepareStatement("CALL UpdatePaper(?, ?, ?)");
 
 			update.setString(1, p.getSymbol().toString());
 			// update.setDouble(2, p.getQuantity());
@@ -244,6 +365,16 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 
 		} catch (SQLException e) {
 			e.printStackTrace();
+			error = e;
+		} finally {
+			if (update != null) {
+				try {
+					update.close();
+				} catch (SQLException e) {
+					e.printStackTrace();
+				}
+			}
+			release(pc, error);
 		}
 
 		return false;
@@ -251,11 +382,15 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 
 	public boolean removePaper(Paper p) {
 
+		PooledConnection pc = null;
 		PreparedStatement update = null;
+		SQLException error = null;
 		try {
-			ensureWalletTableExists();
+			pc = pool.acquire();
 
-			update = con.prepareStatement("CALL RemovePaper(?, ?, ?)");
+			ensureWalletTableExists(pc.getConnection());
+
+			update = pc.getConnection().prepareStatement("CALL RemovePaper(?, ?, ?)");
 			update.setString(1, p.getSymbol().toString());
 			update.execute();
 
@@ -263,6 +398,7 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 
 		} catch (SQLException e) {
 			e.printStackTrace();
+			error = e;
 		} finally {
 			if (update != null) {
 				try {
@@ -271,6 +407,7 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 					e.printStackTrace();
 				}
 			}
+			release(pc, error);
 		}
 
 		return false;
@@ -278,14 +415,18 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 
 	public List<Paper> getPapers() {
 
+		PooledConnection pc = null;
 		Statement select = null;
+		SQLException error = null;
 		List<Paper> papers = new LinkedList<Paper>();
 
 		try {
 
-			ensureWalletTableExists();
+			pc = pool.acquire();
+
+			ensureWalletTableExists(pc.getConnection());
 
-			select = con.createStatement();
+			select = pc.getConnection().createStatement();
 			ResultSet result = select.executeQuery("CALL GetPapers()");
 
 			while (result.next()) {
@@ -301,6 +442,7 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 
 		} catch (SQLException e) {
 			e.printStackTrace();
+			error = e;
 		} finally {
 			if (select != null) {
 				try {
@@ -309,6 +451,7 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 					e.printStackTrace();
 				}
 			}
+			release(pc, error);
 		}
 
 		return papers;
@@ -323,10 +466,13 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 	 */
 	public boolean addTrader(Trader trader) throws DBDAOException {
 
-		PreparedStatement add = null;
+		PooledConnection pc = null;
+		SQLException error = null;
 		try {
 
-			add = con.prepareStatement("CALL SaveTrader(?, ?, ?, ?, ?, ?, ?, ?)");
+			pc = pool.acquire();
+
+			PreparedStatement add = pc.prepare("CALL SaveTrader(?, ?, ?, ?, ?, ?, ?, ?)");
 			add.setString(1, trader.getName());
 			add.setString(2, trader.getSymbol() == null ? null : trader.getSymbol().toString());
 			add.setInt(3, trader.getPosition() == Position.SHORT ? 0 : 1);
@@ -340,15 +486,10 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 			return true;
 
 		} catch (SQLException e) {
+			error = e;
 			throw new DBDAOException(e);
 		} finally {
-			if (add != null) {
-				try {
-					add.close();
-				} catch (SQLException e) {
-					e.printStackTrace();
-				}
-			}
+			release(pc, error);
 		}
 	}
 
@@ -372,14 +513,22 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 	 */
 	public Trader getTrader(String name) throws DBDAOException {
 
-		PreparedStatement get = null;
+		PooledConnection pc = null;
+		Exception error = null;
 		try {
-			get = con.prepareStatement("CALL GetTrader(?)");
+			pc = pool.acquire();
+
+			PreparedStatement get = pc.prepare("CALL GetTrader(?)");
 			get.setString(1, name);
 
 			ResultSet rs = get.executeQuery();
 
-			List<Trader> traders = resultSetToTraders(rs);
+			List<Trader> traders = null;
+			try {
+				traders = resultSetToTraders(rs);
+			} finally {
+				rs.close();
+			}
 			if (traders.size() > 0) {
 				return traders.get(0);
 			} else {
@@ -387,15 +536,10 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 			}
 
 		} catch (Exception e) {
+			error = e;
 			throw new DBDAOException(e);
 		} finally {
-			if (get != null) {
-				try {
-					get.close();
-				} catch (SQLException e) {
-					e.printStackTrace();
-				}
-			}
+			release(pc, error);
 		}
 	}
 
@@ -405,24 +549,25 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 	 */
 	public List<Trader> getTraders() throws DBDAOException {
 
-		PreparedStatement get = null;
+		PooledConnection pc = null;
+		Exception error = null;
 		try {
-			get = con.prepareStatement("CALL GetTraders()");
+			pc = pool.acquire();
 
-			ResultSet rs = get.executeQuery();
+			PreparedStatement get = pc.prepare("CALL GetTraders()");
 
-			return resultSetToTraders(rs);
+			ResultSet rs = get.executeQuery();
+			try {
+				return resultSetToTraders(rs);
+			} finally {
+				rs.close();
+			}
 
 		} catch (Exception e) {
+			error = e;
 			throw new DBDAOException(e);
 		} finally {
-			if (get != null) {
-				try {
-					get.close();
-				} catch (SQLException e) {
-					e.printStackTrace();
-				}
-			}
+			release(pc, error);
 		}
 	}
 
@@ -475,12 +620,7 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 				break;
 		}
 
-		try {
-			ensureSymbolTableExists(symbol);
-			addQuotes(symbol, data);
-		} catch (SQLException e) {
-			e.printStackTrace();
-		}
+		addQuotes(symbol, data);
 
 		return true;
 	}
@@ -505,23 +645,21 @@ public class DBDAO implements PersistenceProvider, QuotesStorage {
 	 */
 	public boolean removeTrader(String name) throws DBDAOException {
 
-		PreparedStatement get = null;
+		PooledConnection pc = null;
+		Exception error = null;
 		try {
-			get = con.prepareStatement("CALL RemoveTrader(?)");
-			get.setString(1, name);
-			get.execute();
+			pc = pool.acquire();
+
+			PreparedStatement remove = pc.prepare("CALL RemoveTrader(?)");
+			remove.setString(1, name);
+			remove.execute();
 
 			return true;
 		} catch (Exception e) {
+			error = e;
 			throw new DBDAOException(e);
 		} finally {
-			if (get != null) {
-				try {
-					get.close();
-				} catch (SQLException e) {
-					e.printStackTrace();
-				}
-			}
+			release(pc, error);
 		}
 	}
 }
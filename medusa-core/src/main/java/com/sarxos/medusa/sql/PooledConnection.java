@@ -0,0 +1,142 @@
+package com.sarxos.medusa.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Connection handed out by the {@link ConnectionPool}. Between checkout and
+ * release it is used by only one thread, therefore prepared statements cache
+ * does not need to be synchronized. Cached statements shall not be closed by
+ * the user - they are closed together with connection.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class PooledConnection {
+
+	/**
+	 * SQL state class for connection exceptions.
+	 */
+	private static final String CONNECTION_EXCEPTION = "08";
+
+	/**
+	 * Underlying JDBC connection.
+	 */
+	private final Connection connection;
+
+	/**
+	 * Prepared statements cache.
+	 */
+	private final Map<String, PreparedStatement> statements = new HashMap<String, PreparedStatement>();
+
+	/**
+	 * Last time connection has been used.
+	 */
+	private long used = System.currentTimeMillis();
+
+	/**
+	 * Is connection broken.
+	 */
+	private boolean broken = false;
+
+	/**
+	 * @param connection - JDBC connection to wrap
+	 */
+	PooledConnection(Connection connection) {
+		if (connection == null) {
+			throw new IllegalArgumentException("Connection cannot be null");
+		}
+		this.connection = connection;
+	}
+
+	/**
+	 * @return Underlying JDBC connection
+	 */
+	public Connection getConnection() {
+		return connection;
+	}
+
+	/**
+	 * Return cached prepared statement for given SQL. Statement is created if
+	 * it is not yet in the cache.
+	 *
+	 * @param sql - SQL to prepare
+	 * @return Prepared statement
+	 * @throws SQLException
+	 */
+	public PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement ps = statements.get(sql);
+		if (ps == null) {
+			ps = connection.prepareStatement(sql);
+			statements.put(sql, ps);
+		}
+		return ps;
+	}
+
+	/**
+	 * Check given exception and mark connection as broken if it is caused by
+	 * the connection failure, so it will not be returned to the pool.
+	 *
+	 * @param e - exception thrown while using this connection
+	 */
+	public void failed(SQLException e) {
+		String state = e.getSQLState();
+		if (state == null || state.startsWith(CONNECTION_EXCEPTION)) {
+			broken = true;
+		}
+	}
+
+	/**
+	 * @return true if connection has been marked as broken
+	 */
+	boolean isBroken() {
+		return broken;
+	}
+
+	/**
+	 * Mark connection as used now.
+	 */
+	void touch() {
+		used = System.currentTimeMillis();
+	}
+
+	/**
+	 * Validate connection if it has been idle longer then given time.
+	 *
+	 * @param idle - idle time after which connection is validated (ms)
+	 * @param timeout - validation timeout (seconds)
+	 * @return true if connection is valid
+	 */
+	boolean validate(long idle, int timeout) {
+		if (System.currentTimeMillis() - used < idle) {
+			return true;
+		}
+		try {
+			return connection.isValid(timeout);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Close all cached statements and the underlying connection.
+	 */
+	void close() {
+		for (PreparedStatement ps : statements.values()) {
+			try {
+				ps.close();
+			} catch (SQLException e) {
+				// ignore, connection is closed anyway
+			}
+		}
+		statements.clear();
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			// ignore, connection can be already broken
+		}
+	}
+}
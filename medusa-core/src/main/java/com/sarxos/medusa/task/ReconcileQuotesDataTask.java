@@ -5,13 +5,14 @@ import static java.lang.String.format;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintStream;
-import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +23,7 @@ import com.sarxos.medusa.data.QuotesRegistry;
 import com.sarxos.medusa.market.Paper;
 import com.sarxos.medusa.market.Quote;
 import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.provider.BulkHistoryProvider;
 import com.sarxos.medusa.provider.HistoryProvider;
 import com.sarxos.medusa.provider.ProviderException;
 import com.sarxos.medusa.provider.Providers;
@@ -105,14 +107,24 @@ public class ReconcileQuotesDataTask extends PlannedTask {
 
 		int i, ad, am, ay, bd, bm, by;
 
-		for (Paper paper : papers) {
+		// symbols without any quotes are downloaded all at once, traders can
+		// share the same symbol, so each one is added only once
 
+		Set<Symbol> empty = new LinkedHashSet<Symbol>();
+		for (Paper paper : papers) {
 			Symbol symbol = paper.getSymbol();
-
-			List<Quote> quotes = qdao.getQuotes(symbol);
-			if (quotes.size() == 0) {
-				download(symbol);
+			if (qdao.getQuotes(symbol).size() == 0) {
+				empty.add(symbol);
 			}
+		}
+
+		if (!empty.isEmpty()) {
+			download(empty);
+		}
+
+		for (Paper paper : papers) {
+
+			Symbol symbol = paper.getSymbol();
 
 			Date[] missing = qa.audit(symbol);
 
@@ -128,7 +140,6 @@ public class ReconcileQuotesDataTask extends PlannedTask {
 
 				boolean required = false;
 
-				Quote q = null;
 				Date d = null;
 
 				try {
@@ -141,11 +152,13 @@ public class ReconcileQuotesDataTask extends PlannedTask {
 					LOG.error(e.getMessage(), e);
 				}
 
-				ListIterator<Quote> qli = add.listIterator();
+				// provider list can be backed by the quotes series, which does
+				// not support removal, so required quotes are copied
+
+				List<Quote> filtered = new ArrayList<Quote>(missing.length);
 
-				while (qli.hasNext()) {
+				for (Quote q : add) {
 
-					q = qli.next();
 					d = q.getDate();
 
 					calendar.setTime(d);
@@ -168,20 +181,15 @@ public class ReconcileQuotesDataTask extends PlannedTask {
 						}
 					}
 
-					if (!required) {
-						qli.remove();
+					if (required) {
+						filtered.add(q);
 					}
 				}
 
-				try {
-					qdao.addQuotes(symbol, add);
-				} catch (Exception e) {
-					LOG.error(e.getMessage(), e);
-					if (e instanceof SQLIntegrityConstraintViolationException) {
-						saveProblematicQuotes(symbol, add);
-					} else {
-						throw new RuntimeException(e);
-					}
+				// overlapping days are updated instead of being rejected
+
+				if (!qdao.addQuotes(symbol, filtered, true)) {
+					saveProblematicQuotes(symbol, filtered);
 				}
 
 				if (LOG.isInfoEnabled()) {
@@ -198,8 +206,12 @@ public class ReconcileQuotesDataTask extends PlannedTask {
 
 				try {
 					QuotesIterator<Quote> qi = provider.getIntradayQuotes(symbol);
-					if (!qi.hasNext()) {
-						LOG.error("Cannot reconcile intraday quotes for symbol " + symbol);
+					try {
+						if (!qi.hasNext()) {
+							LOG.error("Cannot reconcile intraday quotes for symbol " + symbol);
+						}
+					} finally {
+						qi.close();
 					}
 				} catch (ProviderException e) {
 					LOG.error(e.getMessage(), e);
@@ -237,6 +249,50 @@ public class ReconcileQuotesDataTask extends PlannedTask {
 		}
 	}
 
+	/**
+	 * Download quotes for many symbols. If history provider supports bulk
+	 * download, all symbols are imported in one pass.
+	 * 
+	 * @param symbols - symbols to download
+	 */
+	public void download(Collection<Symbol> symbols) {
+
+		HistoryProvider hp = Providers.getHistoryProvider();
+
+		if (!(hp instanceof BulkHistoryProvider) || symbols.size() == 1) {
+			for (Symbol symbol : symbols) {
+				download(symbol);
+			}
+			return;
+		}
+
+		LOG.info("Downloading quotes for symbols " + symbols);
+
+		try {
+			((BulkHistoryProvider) hp).importAllQuotes(symbols, qdao);
+		} catch (ProviderException e) {
+			throw new RuntimeException(e);
+		}
+
+		for (Symbol symbol : symbols) {
+
+			LOG.info("Downloading intraday quotes for symbol " + symbol);
+
+			try {
+				QuotesIterator<Quote> qi = hp.getIntradayQuotes(symbol);
+				try {
+					if (!qi.hasNext()) {
+						LOG.error("Cannot reconcile intraday quotes for symbol " + symbol);
+					}
+				} finally {
+					qi.close();
+				}
+			} catch (ProviderException e) {
+				LOG.error(e.getMessage(), e);
+			}
+		}
+	}
+
 	public void download(Symbol symbol) {
 
 		LOG.info("Downloading quotes for symbol " + symbol);
@@ -253,8 +309,12 @@ public class ReconcileQuotesDataTask extends PlannedTask {
 
 		try {
 			QuotesIterator<Quote> qi = hp.getIntradayQuotes(symbol);
-			if (!qi.hasNext()) {
-				LOG.error("Cannot reconcile intraday quotes for symbol " + symbol);
+			try {
+				if (!qi.hasNext()) {
+					LOG.error("Cannot reconcile intraday quotes for symbol " + symbol);
+				}
+			} finally {
+				qi.close();
 			}
 		} catch (ProviderException e) {
 			LOG.error(e.getMessage(), e);
@@ -12,7 +12,10 @@ import java.util.ListIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.sarxos.medusa.data.BarAggregator;
 import com.sarxos.medusa.data.QuotesRegistry;
+import com.sarxos.medusa.market.AbstractMultiSymbolGenerator;
+import com.sarxos.medusa.market.MultiTimeframeGenerator;
 import com.sarxos.medusa.market.Paper;
 import com.sarxos.medusa.market.Position;
 import com.sarxos.medusa.market.Quote;
@@ -82,6 +85,16 @@ public class DecisionMaker implements PriceListener {
 	 */
 	private NullEventHandler nullHandler = null;
 
+	/**
+	 * Aggregates ticks into bars for multi timeframe generator.
+	 */
+	private BarAggregator aggregator = null;
+
+	/**
+	 * The newest quote passed to the bar aggregator.
+	 */
+	private Quote aggregated = null;
+
 	/**
 	 * You have to set trader and signal generatore implicitly when you are
 	 * using this constructor.
@@ -153,6 +166,15 @@ public class DecisionMaker implements PriceListener {
 
 		Quote quote = pe.getQuote();
 
+		// live quotes contain day open, high, low and volume, so only price
+		// can be aggregated into the intraday bars
+
+		if (generator instanceof MultiTimeframeGenerator<?> && quote != aggregated) {
+			double p = pe.getCurrentPrice();
+			aggregator(quote).add(quote.getDate().getTime(), p, p, p, p, 0);
+			aggregated = quote;
+		}
+
 		bind(quote);
 
 		Signal signal = generator.generate(quote);
@@ -172,6 +194,46 @@ public class DecisionMaker implements PriceListener {
 		}
 	}
 
+	/**
+	 * Aggregate tick (or intraday quote with its own open, high, low and
+	 * volume) into the bars of multi timeframe generator. Price events for
+	 * this quote will not aggregate it again. Simulators use this method to
+	 * pass all the ticks, also the ones for which no price event is created.
+	 * It does nothing if generator is not the multi timeframe one.
+	 * 
+	 * @param q - tick to aggregate
+	 */
+	public void aggregate(Quote q) {
+		if (generator instanceof MultiTimeframeGenerator<?>) {
+			aggregator(q).add(q);
+			aggregated = q;
+		}
+	}
+
+	/**
+	 * Return bar aggregator for multi timeframe generator, create it if
+	 * necessary.
+	 * 
+	 * @param q - quote of the aggregated symbol
+	 * @return Bar aggregator
+	 */
+	private BarAggregator aggregator(Quote q) {
+		if (aggregator == null) {
+			MultiTimeframeGenerator<?> mtg = (MultiTimeframeGenerator<?>) generator;
+			aggregator = new BarAggregator(q.getSymbol(), mtg.getTimeframes());
+			aggregator.addBarListener(mtg);
+		}
+		return aggregator;
+	}
+
+	/**
+	 * @return Bar aggregator used by multi timeframe generator or null if
+	 *         there is no one
+	 */
+	public BarAggregator getBarAggregator() {
+		return aggregator;
+	}
+
 	/**
 	 * This method is used only by simulators.
 	 * 
@@ -295,6 +357,11 @@ public class DecisionMaker implements PriceListener {
 	 */
 	public void setSignalGenerator(SignalGenerator<Quote> generator) {
 		this.generator = generator;
+		this.aggregator = null;
+		this.aggregated = null;
+		if (registry != null && generator instanceof AbstractMultiSymbolGenerator) {
+			((AbstractMultiSymbolGenerator) generator).setQuotesRegistry(registry);
+		}
 	}
 
 	/**
@@ -304,6 +371,25 @@ public class DecisionMaker implements PriceListener {
 		return generator;
 	}
 
+	/**
+	 * @return Current wallet position
+	 */
+	public Position getPosition() {
+		return position;
+	}
+
+	/**
+	 * Set current wallet position, e.g. after the decision has been executed.
+	 * 
+	 * @param position - new position
+	 */
+	public void setPosition(Position position) {
+		if (position == null) {
+			throw new IllegalArgumentException("Position cannot be null");
+		}
+		this.position = position;
+	}
+
 	/**
 	 * @return Quotes registry used to bind single quote with historical data
 	 */
@@ -316,7 +402,8 @@ public class DecisionMaker implements PriceListener {
 
 	/**
 	 * Set new quotes registry used to bind single quote with corresponding
-	 * historical data.
+	 * historical data. Multi symbol generator takes quotes of its symbols
+	 * from this registry too.
 	 * 
 	 * @param registry - new quotes registry to set
 	 */
@@ -325,6 +412,9 @@ public class DecisionMaker implements PriceListener {
 			throw new IllegalArgumentException("Quotes registry cannot be null");
 		}
 		this.registry = registry;
+		if (generator instanceof AbstractMultiSymbolGenerator) {
+			((AbstractMultiSymbolGenerator) generator).setQuotesRegistry(registry);
+		}
 	}
 
 	/**
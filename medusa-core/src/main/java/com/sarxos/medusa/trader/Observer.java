@@ -16,7 +16,10 @@ import com.sarxos.medusa.provider.RealTimeProvider;
 
 
 /**
- * Stock symbol observer. Default price check interval is 30s.
+ * Stock symbol observer. Default price check interval is 20s. Started
+ * observer does not have its own thread - quotes are read by the shared
+ * {@link QuotesPoller}, which reads each symbol once per interval for all
+ * observers of this symbol.
  * 
  * @author Bartosz Firyn (SarXos)
  */
@@ -113,6 +116,11 @@ public class Observer implements Runnable {
 
 	private ReentrantLock lock = new ReentrantLock();
 
+	/**
+	 * Poller reading quotes for started observer.
+	 */
+	private QuotesPoller poller = null;
+
 	/**
 	 * Create observer for symbol.
 	 * 
@@ -171,6 +179,17 @@ public class Observer implements Runnable {
 			throw new IllegalArgumentException("Check interval in seconds must be positive");
 		}
 		this.interval = interval * 1000;
+		resubscribe();
+	}
+
+	/**
+	 * Subscribe running observer again, so poller uses its new provider and
+	 * interval.
+	 */
+	private void resubscribe() {
+		if (state != State.STOPPED && getQuotesPoller().unsubscribe(this)) {
+			getQuotesPoller().subscribe(this);
+		}
 	}
 
 	/**
@@ -183,11 +202,14 @@ public class Observer implements Runnable {
 			throw new IllegalStateException("Cannot stop neither running nor paused observer");
 		}
 		this.state = State.STOPPED;
-		try {
-			getRunner().interrupt();
-			getRunner().join();
-		} catch (InterruptedException e) {
-			LOG.warn(symbol + " observer stop has been interrupted");
+		getQuotesPoller().unsubscribe(this);
+		if (runner != null && runner.isAlive() && runner != Thread.currentThread()) {
+			try {
+				runner.interrupt();
+				runner.join();
+			} catch (InterruptedException e) {
+				LOG.warn(symbol + " observer stop has been interrupted");
+			}
 		}
 		LOG.info(getSymbol() + " observer has been stopped");
 	}
@@ -234,7 +256,9 @@ public class Observer implements Runnable {
 		}
 
 		state = State.RUNNIG;
-		getRunner().start();
+		getQuotesPoller().subscribe(this);
+
+		LOG.info(getSymbol() + " observer has been started");
 	}
 
 	/**
@@ -260,6 +284,32 @@ public class Observer implements Runnable {
 			throw new IllegalArgumentException(msg);
 		}
 		this.provider = provider;
+		resubscribe();
+	}
+
+	/**
+	 * @return Quotes poller, shared one by default
+	 */
+	public QuotesPoller getQuotesPoller() {
+		if (poller == null) {
+			poller = QuotesPoller.getInstance();
+		}
+		return poller;
+	}
+
+	/**
+	 * Set quotes poller to be used after start.
+	 * 
+	 * @param poller - quotes poller
+	 */
+	public void setQuotesPoller(QuotesPoller poller) {
+		if (poller == null) {
+			throw new IllegalArgumentException("Quotes poller cannot be null");
+		}
+		if (state != State.STOPPED) {
+			throw new IllegalStateException("Cannot change poller of started observer");
+		}
+		this.poller = poller;
 	}
 
 	@Override
@@ -293,8 +343,8 @@ public class Observer implements Runnable {
 	}
 
 	/**
-	 * Run once per observer tick. If price is different in comparison previous
-	 * one, notify price listeners.
+	 * Run once per observer tick - read quote from the provider and handle it
+	 * (see {@link #handle(Quote)}).
 	 * 
 	 * @throws ProviderException
 	 */
@@ -322,14 +372,35 @@ public class Observer implements Runnable {
 			}
 		} while (error && attempts++ < 5);
 
-		if (q == null) {
-			notifyListeners(new NullEvent(this, price, price, null));
-		} else {
-			double tmp = q.getClose();
-			if (tmp != price && price != -1) {
-				notifyListeners(new PriceEvent(this, price, tmp, q));
+		handle(q);
+	}
+
+	/**
+	 * Handle quote read from the provider. If price is different in
+	 * comparison previous one, notify price listeners. Null quote is passed
+	 * to the listeners as {@link NullEvent}. Quote is ignored when observer
+	 * is paused (pausing thread holds the lock).
+	 * 
+	 * @param q - quote or null
+	 */
+	void handle(Quote q) {
+
+		if (!lock.tryLock()) {
+			return;
+		}
+
+		try {
+			if (q == null) {
+				notifyListeners(new NullEvent(this, price, price, null));
+			} else {
+				double tmp = q.getClose();
+				if (tmp != price && price != -1) {
+					notifyListeners(new PriceEvent(this, price, tmp, q));
+				}
+				price = tmp;
 			}
-			price = tmp;
+		} finally {
+			lock.unlock();
 		}
 
 		if (LOG.isDebugEnabled()) {
@@ -402,6 +473,9 @@ public class Observer implements Runnable {
 	}
 
 	/**
+	 * Return thread running this observer in its own loop. It is not used by
+	 * {@link #start()}, which subscribes observer to the quotes poller.
+	 * 
 	 * @return Runnable runner.
 	 */
 	public Thread getRunner() {
@@ -0,0 +1,271 @@
+package com.sarxos.medusa.trader;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.provider.LackOfQuoteException;
+import com.sarxos.medusa.provider.RealTimeProvider;
+import com.sarxos.medusa.trader.Observer.State;
+
+
+/**
+ * Central quotes poller shared by all running observers. Observers of the
+ * same symbol, provider and check interval are grouped into one poll, so the
+ * quote is read from the provider once per interval and passed to each of
+ * them, no matter how many traders observe this symbol. Polls are run by the
+ * small pool of scheduler threads, so the number of threads and the provider
+ * traffic scale with the number of symbols, not traders.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class QuotesPoller {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(QuotesPoller.class.getSimpleName());
+
+	/**
+	 * Default number of scheduler threads.
+	 */
+	public static final int THREADS = 4;
+
+	/**
+	 * How many times poll is delayed because of the lack of quotes before null
+	 * event is passed to the observers.
+	 */
+	private static final int ATTEMPTS = 5;
+
+	/**
+	 * Delay after lack of quotes (5 minutes).
+	 */
+	private static final long LACK_DELAY = 1000 * 60 * 5;
+
+	/**
+	 * Poller threads factory.
+	 *
+	 * @author Bartosz Firyn (SarXos)
+	 */
+	private static class PollerThreadsFactory implements ThreadFactory {
+
+		/**
+		 * Thread number.
+		 */
+		private int number = 0;
+
+		@Override
+		public synchronized Thread newThread(Runnable r) {
+			Thread t = new Thread(Observer.getRunnersGroup(), r, "QuotesPoller-" + (number++));
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/**
+	 * Periodic read of one symbol quote.
+	 *
+	 * @author Bartosz Firyn (SarXos)
+	 */
+	private class Poll implements Runnable {
+
+		private final Symbol symbol;
+
+		private final RealTimeProvider provider;
+
+		/**
+		 * Check interval in milliseconds.
+		 */
+		private final long interval;
+
+		/**
+		 * Observers to pass quote to.
+		 */
+		private final List<Observer> observers = new CopyOnWriteArrayList<Observer>();
+
+		private ScheduledFuture<?> future = null;
+
+		/**
+		 * Number of reads without quote.
+		 */
+		private int lacks = 0;
+
+		/**
+		 * Time before which quote will not be read.
+		 */
+		private long delay = 0;
+
+		public Poll(Symbol symbol, RealTimeProvider provider, long interval) {
+			this.symbol = symbol;
+			this.provider = provider;
+			this.interval = interval;
+		}
+
+		@Override
+		public void run() {
+
+			if (System.currentTimeMillis() < delay) {
+				return;
+			}
+
+			Quote q = null;
+			try {
+				q = provider.getQuote(symbol);
+				lacks = 0;
+			} catch (LackOfQuoteException e) {
+				// this situation may occurs when there was no trade in given
+				// instrument within particular day
+				if (lacks++ < ATTEMPTS) {
+					LOG.warn("Due to lack of quotes " + symbol + " will not be polled for 5 minutes. " + e.getMessage());
+					delay = System.currentTimeMillis() + LACK_DELAY;
+					return;
+				}
+				lacks = 0;
+			} catch (Exception e) {
+				LOG.error(e.getMessage(), e);
+				return;
+			}
+
+			// each observer gets its own copy, so quote bound to the series
+			// of one trader is not linked with the series of another one
+
+			for (Observer o : observers) {
+				if (o.getState() == State.RUNNIG) {
+					o.handle(copy(q));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param q - quote to copy or null
+	 * @return Copy of the quote or null
+	 */
+	private static Quote copy(Quote q) {
+		if (q == null) {
+			return null;
+		}
+		try {
+			return q.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Singleton instance.
+	 */
+	private static QuotesPoller instance = null;
+
+	/**
+	 * Scheduler running polls.
+	 */
+	private final ScheduledExecutorService executor;
+
+	/**
+	 * Scheduled polls.
+	 */
+	private final List<Poll> polls = new LinkedList<Poll>();
+
+	/**
+	 * Create poller.
+	 *
+	 * @param threads - number of scheduler threads
+	 */
+	public QuotesPoller(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of poller threads must be positive");
+		}
+		executor = Executors.newScheduledThreadPool(threads, new PollerThreadsFactory());
+	}
+
+	/**
+	 * @return Poller shared by all observers
+	 */
+	public static synchronized QuotesPoller getInstance() {
+		if (instance == null) {
+			instance = new QuotesPoller(THREADS);
+		}
+		return instance;
+	}
+
+	/**
+	 * Add observer to the poll of its symbol, provider and interval. New poll
+	 * reads the first quote right after start, observer added to existing
+	 * poll gets quote with the next read.
+	 *
+	 * @param observer - observer to add
+	 */
+	public synchronized void subscribe(Observer observer) {
+
+		Symbol symbol = observer.getSymbol();
+		RealTimeProvider provider = observer.getProvider();
+		long interval = Math.max(observer.getInterval() * 1000, 1);
+
+		if (provider == null) {
+			throw new IllegalArgumentException("Observer provider cannot be null");
+		}
+
+		for (Poll p : polls) {
+			if (p.observers.contains(observer)) {
+				throw new IllegalStateException(observer + " is already subscribed");
+			}
+		}
+
+		Poll poll = null;
+		for (Poll p : polls) {
+			if (p.symbol == symbol && p.provider == provider && p.interval == interval) {
+				poll = p;
+				break;
+			}
+		}
+
+		if (poll == null) {
+			poll = new Poll(symbol, provider, interval);
+			poll.observers.add(observer);
+			poll.future = executor.scheduleWithFixedDelay(poll, 0, interval, TimeUnit.MILLISECONDS);
+			polls.add(poll);
+			LOG.info("Polling " + symbol + " every " + interval + " ms");
+		} else {
+			poll.observers.add(observer);
+		}
+	}
+
+	/**
+	 * Remove observer from its poll. Poll is cancelled when it has no more
+	 * observers.
+	 *
+	 * @param observer - observer to remove
+	 * @return true if observer has been subscribed
+	 */
+	public synchronized boolean unsubscribe(Observer observer) {
+		for (Poll p : polls) {
+			if (p.observers.remove(observer)) {
+				if (p.observers.isEmpty()) {
+					p.future.cancel(false);
+					polls.remove(p);
+					LOG.info("Polling " + p.symbol + " every " + p.interval + " ms has been stopped");
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return Number of scheduled polls
+	 */
+	public synchronized int getPollsCount() {
+		return polls.size();
+	}
+}
@@ -16,6 +16,7 @@ import com.sarxos.medusa.comm.DefaultMessagesBroker;
 import com.sarxos.medusa.comm.MessagesBroker;
 import com.sarxos.medusa.comm.MessagingException;
 import com.sarxos.medusa.data.QuotesRegistry;
+import com.sarxos.medusa.market.AbstractMultiSymbolGenerator;
 import com.sarxos.medusa.market.Paper;
 import com.sarxos.medusa.market.Position;
 import com.sarxos.medusa.market.Quote;
@@ -202,6 +203,20 @@ public abstract class Trader implements DecisionListener, Runnable, PriceListene
 
 		observer = new Observer(paper.getSymbol(), provider);
 		observer.addPriceListener(this);
+
+		bind(siggen);
+	}
+
+	/**
+	 * Multi symbol generator reads real time quotes of its other symbols from
+	 * the trader's provider.
+	 * 
+	 * @param siggen - signal generator
+	 */
+	private void bind(SignalGenerator<Quote> siggen) {
+		if (siggen instanceof AbstractMultiSymbolGenerator) {
+			((AbstractMultiSymbolGenerator) siggen).setRealTimeProvider(provider);
+		}
 	}
 
 	/**
@@ -259,6 +274,7 @@ public abstract class Trader implements DecisionListener, Runnable, PriceListene
 	public void setSignalGenerator(SignalGenerator<Quote> siggen) {
 		this.siggen = siggen;
 		this.decisionMaker.setSignalGenerator(siggen);
+		bind(siggen);
 	}
 
 	/**
@@ -306,7 +322,7 @@ public abstract class Trader implements DecisionListener, Runnable, PriceListene
 			// put trader into the registry
 			REGISTRY.addTrader(this);
 
-			// start observer (this will create new thread)
+			// start observer (it will be polled by shared quotes poller)
 			getObserver().start();
 			getWorkman().start();
 
@@ -474,5 +490,6 @@ public abstract class Trader implements DecisionListener, Runnable, PriceListene
 	public void setProvider(RealTimeProvider provider) {
 		this.provider = provider;
 		this.observer.setProvider(provider);
+		bind(siggen);
 	}
 }
@@ -0,0 +1,122 @@
+package com.sarxos.medusa.data;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.market.Timeframe;
+
+
+public class BarAggregatorTest {
+
+	private static final TimeZone ZONE = TimeZone.getTimeZone("Europe/Warsaw");
+
+	private static class Bars implements BarListener {
+
+		private final List<BarEvent> events = new ArrayList<BarEvent>();
+
+		@Override
+		public void barClosed(BarEvent be) {
+			events.add(be);
+		}
+
+		public List<Quote> get(Timeframe tf) {
+			List<Quote> bars = new ArrayList<Quote>();
+			for (BarEvent be : events) {
+				if (be.getTimeframe() == tf) {
+					bars.add(be.getBar());
+				}
+			}
+			return bars;
+		}
+	}
+
+	private static long time(int year, int month, int day, int hour, int minute) {
+		Calendar c = new GregorianCalendar(ZONE);
+		c.clear();
+		c.set(year, month - 1, day, hour, minute);
+		return c.getTimeInMillis();
+	}
+
+	@Test
+	public void test_minutes() {
+
+		BarAggregator ba = new BarAggregator(Symbol.QQQ, ZONE, Timeframe.M1, Timeframe.M5, Timeframe.M15);
+		Bars bars = new Bars();
+		ba.addBarListener(bars);
+
+		// 30 one minute quotes from 9:00 to 9:29, close = minute
+		for (int i = 0; i < 30; i++) {
+			ba.add(time(2011, 5, 5, 9, i), i, i + 0.5, i - 0.5, i, 10);
+		}
+
+		Assert.assertEquals(29, bars.get(Timeframe.M1).size());
+		Assert.assertEquals(5, bars.get(Timeframe.M5).size());
+		Assert.assertEquals(1, bars.get(Timeframe.M15).size());
+
+		Quote m5 = bars.get(Timeframe.M5).get(1);
+		Assert.assertEquals(5.0, m5.getOpen());
+		Assert.assertEquals(9.5, m5.getHigh());
+		Assert.assertEquals(4.5, m5.getLow());
+		Assert.assertEquals(9.0, m5.getClose());
+		Assert.assertEquals(50, m5.getVolume());
+		Assert.assertEquals(time(2011, 5, 5, 9, 9), m5.getDate().getTime());
+
+		// bar which is still being built
+		Assert.assertEquals(15.0, ba.getOpen(Timeframe.M15));
+		Assert.assertEquals(29.5, ba.getHigh(Timeframe.M15));
+		Assert.assertEquals(150, ba.getVolume(Timeframe.M15));
+
+		ba.flush();
+
+		Assert.assertEquals(30, bars.get(Timeframe.M1).size());
+		Assert.assertEquals(6, bars.get(Timeframe.M5).size());
+		Assert.assertEquals(2, bars.get(Timeframe.M15).size());
+		Assert.assertFalse(ba.hasBar(Timeframe.M1));
+	}
+
+	@Test
+	public void test_yearBoundary() {
+
+		BarAggregator ba = new BarAggregator(Symbol.QQQ, ZONE, Timeframe.DAILY);
+		Bars bars = new Bars();
+		ba.addBarListener(bars);
+
+		ba.add(time(2010, 12, 30, 10, 0), 1, 1, 1, 1, 1);
+		ba.add(time(2010, 12, 30, 16, 0), 2, 2, 2, 2, 1);
+		ba.add(time(2010, 12, 31, 10, 0), 3, 3, 3, 3, 1);
+		ba.add(time(2011, 1, 3, 10, 0), 4, 4, 4, 4, 1);
+		ba.add(time(2011, 1, 3, 16, 0), 5, 5, 5, 5, 1);
+		ba.add(time(2011, 1, 4, 10, 0), 6, 6, 6, 6, 1);
+		ba.flush();
+
+		List<Quote> daily = bars.get(Timeframe.DAILY);
+		Assert.assertEquals(4, daily.size());
+		Assert.assertEquals(2.0, daily.get(0).getClose());
+		Assert.assertEquals(3.0, daily.get(1).getClose());
+		Assert.assertEquals(4.0, daily.get(2).getOpen());
+		Assert.assertEquals(5.0, daily.get(2).getClose());
+		Assert.assertEquals(2, daily.get(2).getVolume());
+		Assert.assertEquals(6.0, daily.get(3).getClose());
+	}
+
+	@Test
+	public void test_notAggregated() {
+		BarAggregator ba = new BarAggregator(Symbol.QQQ, ZONE, Timeframe.DAILY);
+		try {
+			ba.getOpen(Timeframe.M5);
+			Assert.fail("Exception should be thrown");
+		} catch (IllegalArgumentException e) {
+			// ok
+		}
+		Assert.assertNull(ba.getBar(Timeframe.DAILY));
+	}
+}
@@ -0,0 +1,79 @@
+package com.sarxos.medusa.data;
+
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
+import com.sarxos.medusa.market.Symbol;
+
+
+public class LRUQuotesCacheTest {
+
+	private static List<Quote> quotes(Symbol symbol, int n) {
+		QuoteSeries series = new QuoteSeries(symbol);
+		for (int i = 0; i < n; i++) {
+			series.add(i * 86400000L, 1, 2, 0.5, 1.5, 100);
+		}
+		return series.asList();
+	}
+
+	@Test
+	public void test_hitMiss() {
+		LRUQuotesCache cache = new LRUQuotesCache(1024 * 1024);
+		List<Quote> q = quotes(Symbol.QQQ, 10);
+		Assert.assertNull(cache.get(Symbol.QQQ));
+		cache.put(Symbol.QQQ, q);
+		Assert.assertSame(q, cache.get(Symbol.QQQ));
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+		Assert.assertEquals(0, cache.getEvictions());
+		Assert.assertEquals(LRUQuotesCache.estimate(q), cache.getSize());
+	}
+
+	@Test
+	public void test_evictLeastRecentlyUsed() {
+
+		List<Quote> a = quotes(Symbol.QQQ, 100);
+		List<Quote> b = quotes(Symbol.FW20M11, 100);
+		List<Quote> c = quotes(Symbol.FW20H11, 100);
+
+		LRUQuotesCache cache = new LRUQuotesCache(LRUQuotesCache.estimate(a) * 2);
+		cache.put(Symbol.QQQ, a);
+		cache.put(Symbol.FW20M11, b);
+
+		// touch first one, so second is least recently used
+		cache.get(Symbol.QQQ);
+		cache.put(Symbol.FW20H11, c);
+
+		Assert.assertEquals(1, cache.getEvictions());
+		Assert.assertNull(cache.get(Symbol.FW20M11));
+		Assert.assertSame(a, cache.get(Symbol.QQQ));
+		Assert.assertSame(c, cache.get(Symbol.FW20H11));
+		Assert.assertTrue(cache.getSize() <= cache.getBudget());
+	}
+
+	@Test
+	public void test_overBudget() {
+		List<Quote> a = quotes(Symbol.QQQ, 100);
+		LRUQuotesCache cache = new LRUQuotesCache(10);
+		cache.put(Symbol.QQQ, a);
+		Assert.assertSame(a, cache.get(Symbol.QQQ));
+	}
+
+	@Test
+	public void test_resize() {
+		List<Quote> a = quotes(Symbol.QQQ, 10);
+		LRUQuotesCache cache = new LRUQuotesCache(1024 * 1024);
+		cache.put(Symbol.QQQ, a);
+		long size = cache.getSize();
+		a.add(a.get(0));
+		cache.put(Symbol.QQQ, a);
+		Assert.assertTrue(cache.getSize() > size);
+		cache.remove(Symbol.QQQ);
+		Assert.assertEquals(0, cache.getSize());
+	}
+}
@@ -0,0 +1,108 @@
+package com.sarxos.medusa.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+
+import com.sarxos.medusa.market.Quote;
+
+
+/**
+ * Throughput comparison between {@link QuotesStreamReader} and
+ * {@link QuotesBufferReader}. This is not a test - run it manually from the
+ * main method. Data is one year of synthetic FW20 intraday quotes.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class QuotesBufferReaderBenchmark {
+
+	private static final int DAYS = 250;
+
+	private static final int QUOTES_PER_DAY = 4000;
+
+	private static final int ROUNDS = 5;
+
+	private static byte[] generate() throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		StringBuilder sb = new StringBuilder();
+		int price = 240000;
+		for (int d = 0; d < DAYS; d++) {
+			int month = d / 21 + 1;
+			int day = d % 21 + 1;
+			for (int i = 0; i < QUOTES_PER_DAY; i++) {
+				int s = 9 * 3600 + i * 7;
+				price += (i * 31 + d) % 7 - 3;
+				sb.setLength(0);
+				sb.append("FW20M11,0,2010");
+				sb.append(month < 10 ? "0" : "").append(month);
+				sb.append(day < 10 ? "0" : "").append(day).append(',');
+				pad(sb, s / 3600);
+				pad(sb, s / 60 % 60);
+				pad(sb, s % 60);
+				for (int k = 0; k < 4; k++) {
+					sb.append(',').append(price / 100).append('.');
+					pad(sb, price % 100);
+				}
+				sb.append(',').append(i % 20 + 1).append(',').append(i).append("\r\n");
+				baos.write(sb.toString().getBytes());
+			}
+		}
+		return baos.toByteArray();
+	}
+
+	private static void pad(StringBuilder sb, int v) {
+		if (v < 10) {
+			sb.append('0');
+		}
+		sb.append(v);
+	}
+
+	private static long stream(byte[] bytes) throws IOException, ParseException {
+		QuotesStreamReader qsr = new QuotesStreamReader(new ByteArrayInputStream(bytes));
+		long n = 0;
+		Quote q = null;
+		while ((q = qsr.read()) != null) {
+			n += q.getVolume();
+		}
+		qsr.close();
+		return n;
+	}
+
+	private static long buffer(byte[] bytes) throws IOException, ParseException {
+		QuotesBufferReader qbr = new QuotesBufferReader(ByteBuffer.wrap(bytes));
+		long n = 0;
+		Quote q = null;
+		while ((q = qbr.read()) != null) {
+			n += q.getVolume();
+		}
+		qbr.close();
+		return n;
+	}
+
+	public static void main(String[] args) throws IOException, ParseException {
+
+		byte[] bytes = generate();
+		int count = DAYS * QUOTES_PER_DAY;
+
+		System.out.println("Lines: " + count + ", bytes: " + bytes.length);
+
+		for (int r = 0; r < ROUNDS; r++) {
+
+			long t0 = System.nanoTime();
+			long a = stream(bytes);
+			long t1 = System.nanoTime();
+			long b = buffer(bytes);
+			long t2 = System.nanoTime();
+
+			if (a != b) {
+				throw new IllegalStateException("Readers results differ");
+			}
+
+			System.out.printf(
+				"Round %d: stream %.0f quotes/s, buffer %.0f quotes/s\n", r,
+				count / ((t1 - t0) / 1e9), count / ((t2 - t1) / 1e9));
+		}
+	}
+}
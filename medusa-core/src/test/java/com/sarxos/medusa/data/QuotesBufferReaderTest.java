@@ -0,0 +1,122 @@
+package com.sarxos.medusa.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.market.Quote;
+
+
+/**
+ * Test case for {@link QuotesBufferReader} class. All quotes read are compared
+ * with those read by {@link QuotesStreamReader}.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class QuotesBufferReaderTest {
+
+	private static final String RESOURCE = "com/sarxos/medusa/data/FW20M11.prn";
+
+	private static final String MST = "" +
+		"<TICKER>,<DTYYYYMMDD>,<OPEN>,<HIGH>,<LOW>,<CLOSE>,<VOL>\r\n" +
+		"KGHM,20110325,151.10,152.00,149.30,150.05,1062281\r\n" +
+		"KGHM,20110328,150.5,151.9,148.0,149.65,983723\r\n" +
+		"KGHM,20110329,149.3,155.00,149.3,154.7,1611040\r\n";
+
+	private byte[] load() throws IOException {
+		InputStream is = getClass().getClassLoader().getResourceAsStream(RESOURCE);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int n = 0;
+		try {
+			while ((n = is.read(buffer)) != -1) {
+				baos.write(buffer, 0, n);
+			}
+		} finally {
+			is.close();
+		}
+		return baos.toByteArray();
+	}
+
+	private void assertParity(byte[] bytes, int expected) throws IOException, ParseException {
+
+		QuotesStreamReader qsr = new QuotesStreamReader(new ByteArrayInputStream(bytes));
+		QuotesBufferReader qbr = new QuotesBufferReader(ByteBuffer.wrap(bytes));
+
+		int i = 0;
+		Quote a = null;
+		Quote b = null;
+
+		do {
+			a = qsr.read();
+			b = qbr.read();
+			if (a == null) {
+				Assert.assertNull(b);
+			} else {
+				Assert.assertNotNull(b);
+				Assert.assertEquals(a.getSymbol(), b.getSymbol());
+				Assert.assertEquals(a.getDate(), b.getDate());
+				Assert.assertEquals(a.getDateString(), b.getDateString());
+				Assert.assertEquals(a.getOpen(), b.getOpen());
+				Assert.assertEquals(a.getHigh(), b.getHigh());
+				Assert.assertEquals(a.getLow(), b.getLow());
+				Assert.assertEquals(a.getClose(), b.getClose());
+				Assert.assertEquals(a.getVolume(), b.getVolume());
+				i++;
+			}
+		} while (a != null);
+
+		Assert.assertEquals(expected, i);
+		Assert.assertFalse(qbr.ready());
+	}
+
+	@Test
+	public void test_parityCGL() throws IOException, ParseException {
+		assertParity(load(), 9);
+	}
+
+	@Test
+	public void test_parityMST() throws IOException, ParseException {
+		assertParity(MST.getBytes(), 3);
+	}
+
+	@Test
+	public void test_unmarshall() throws IOException, ParseException {
+		QuotesBufferReader qbr = new QuotesBufferReader(ByteBuffer.wrap(load()));
+		Quote q = qbr.read();
+		Assert.assertEquals(2000.50, q.getOpen());
+		Assert.assertEquals(2005.00, q.getHigh());
+		Assert.assertEquals(1995.00, q.getLow());
+		Assert.assertEquals(2000.00, q.getClose());
+		Assert.assertEquals(2, q.getVolume());
+	}
+
+	@Test
+	public void test_readArray() throws IOException, ParseException {
+		QuotesBufferReader qbr = new QuotesBufferReader(ByteBuffer.wrap(load()));
+		Quote[] quotes = new Quote[10];
+		Assert.assertEquals(9, qbr.read(quotes));
+		Assert.assertNull(quotes[9]);
+		Assert.assertEquals(-1, qbr.read(quotes));
+	}
+
+	@Test
+	public void test_close() throws IOException, ParseException {
+		QuotesBufferReader qbr = new QuotesBufferReader(ByteBuffer.wrap(load()));
+		qbr.close();
+		Assert.assertFalse(qbr.ready());
+		try {
+			qbr.read();
+			Assert.fail("Closed reader should not be read");
+		} catch (IOException e) {
+			Assert.assertTrue(true);
+		}
+	}
+}
@@ -1,7 +1,10 @@
 package com.sarxos.medusa.data;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.ParseException;
 import java.util.Collection;
 import java.util.LinkedList;
@@ -140,4 +143,59 @@ public class QuotesIteratorTest {
 
 		Assert.assertEquals(4, qc.size());
 	}
+
+	private File copy() throws IOException {
+		File f = File.createTempFile("FW20M11", ".prn");
+		f.deleteOnExit();
+		new File(f.getPath() + QuotesIndex.SUFFIX).deleteOnExit();
+		InputStream is = getClass().getClassLoader().getResourceAsStream(RESOURCE);
+		OutputStream os = new FileOutputStream(f);
+		byte[] buffer = new byte[1024];
+		int n = 0;
+		try {
+			while ((n = is.read(buffer)) != -1) {
+				os.write(buffer, 0, n);
+			}
+		} finally {
+			is.close();
+			os.close();
+		}
+		return f;
+	}
+
+	@Test
+	public void test_fileCollection() throws IOException {
+
+		File f = copy();
+		QuotesIterator<Quote> qi = new QuotesIterator<Quote>(f);
+
+		Collection<Quote> qc = qi.collection();
+
+		Assert.assertEquals(9, qc.size());
+		Assert.assertTrue(new File(f.getPath() + QuotesIndex.SUFFIX).exists());
+	}
+
+	@Test
+	public void test_fileForward() throws IOException, ParseException {
+
+		File f = copy();
+
+		// second iterator will use index stored by the first one
+		for (int k = 0; k < 2; k++) {
+
+			QuotesIterator<Quote> qi = new QuotesIterator<Quote>(f);
+
+			qi.forward(QuotesStreamReader.DATE_FORMAT_SHORT.parse("20100621"));
+			qi.forward(QuotesStreamReader.DATE_FORMAT_SHORT.parse("20100622"));
+			Assert.assertEquals(7, qi.collection().size());
+
+			qi = new QuotesIterator<Quote>(f);
+			qi.forward(QuotesStreamReader.DATE_FORMAT_SHORT.parse("20100623"));
+			Assert.assertEquals(4, qi.collection().size());
+
+			qi = new QuotesIterator<Quote>(f);
+			qi.forward(QuotesStreamReader.DATE_FORMAT_SHORT.parse("20100624"));
+			Assert.assertFalse(qi.hasNext());
+		}
+	}
 }
@@ -0,0 +1,136 @@
+package com.sarxos.medusa.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Symbol;
+
+
+/**
+ * Test case for {@link QuotesStore} class.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class QuotesStoreTest {
+
+	private static final String RESOURCE = "com/sarxos/medusa/data/FW20M11.prn";
+
+	private List<Quote> read() {
+		InputStream is = getClass().getClassLoader().getResourceAsStream(RESOURCE);
+		QuotesIterator<Quote> qi = new QuotesIterator<Quote>(is);
+		List<Quote> quotes = new ArrayList<Quote>(qi.collection());
+		qi.close();
+		return quotes;
+	}
+
+	private QuotesStore store(List<Quote> quotes) throws IOException {
+		File f = File.createTempFile("FW20M11", QuotesStore.SUFFIX);
+		f.deleteOnExit();
+		QuotesStore.write(f, Symbol.FW20M11, quotes);
+		return QuotesStore.open(f);
+	}
+
+	@Test
+	public void test_write() throws IOException {
+
+		List<Quote> quotes = read();
+		QuotesStore store = store(quotes);
+
+		Assert.assertEquals(Symbol.FW20M11, store.getSymbol());
+		Assert.assertEquals(quotes.size(), store.size());
+
+		long[] time = store.getTimes();
+		double[] close = store.getCloses();
+		long[] volume = store.getVolumes();
+
+		for (int i = 0; i < quotes.size(); i++) {
+			Quote q = quotes.get(i);
+			Quote s = store.get(i);
+			Assert.assertEquals(q.getDate().getTime(), time[i]);
+			Assert.assertEquals(q.getClose(), close[i]);
+			Assert.assertEquals(q.getVolume(), volume[i]);
+			Assert.assertEquals(q.getDate(), s.getDate());
+			Assert.assertEquals(q.getOpen(), s.getOpen());
+			Assert.assertEquals(q.getHigh(), s.getHigh());
+			Assert.assertEquals(q.getLow(), s.getLow());
+		}
+	}
+
+	@Test
+	public void test_rewrite() throws IOException {
+
+		File dir = File.createTempFile("stores", "");
+		Assert.assertTrue(dir.delete());
+		Assert.assertTrue(dir.mkdir());
+
+		List<Quote> quotes = read();
+		File f = QuotesStore.file(dir, Symbol.FW20M11);
+
+		try {
+			QuotesStore.write(f, Symbol.FW20M11, quotes);
+			QuotesStore.write(f, Symbol.FW20M11, quotes.subList(0, 3));
+
+			// store is replaced and no temporary file is left
+
+			Assert.assertEquals(3, QuotesStore.open(f).size());
+			Assert.assertEquals(1, dir.list().length);
+		} finally {
+			f.delete();
+			dir.delete();
+		}
+	}
+
+	@Test
+	public void test_toList() throws IOException {
+		List<Quote> quotes = store(read()).toList();
+		Assert.assertEquals(9, quotes.size());
+		Assert.assertNull(quotes.get(0).prev());
+		Assert.assertSame(quotes.get(0), quotes.get(1).prev());
+		Assert.assertSame(quotes.get(8), quotes.get(7).next());
+	}
+
+	@Test
+	public void test_iterator() throws IOException, ParseException {
+
+		QuotesStore store = store(read());
+
+		QuotesIterator<Quote> qi = store.iterator();
+		Assert.assertEquals(9, qi.collection().size());
+		Assert.assertFalse(qi.hasNext());
+
+		qi = store.iterator();
+		qi.forward(QuotesStreamReader.DATE_FORMAT_SHORT.parse("20100622"));
+		Assert.assertEquals(7, qi.collection().size());
+
+		qi = store.iterator();
+		qi.forward(QuotesStreamReader.DATE_FORMAT_SHORT.parse("20100623"));
+		Assert.assertEquals(4, qi.collection().size());
+	}
+
+	@Test
+	public void test_close() throws IOException {
+
+		QuotesStore store = store(read());
+		Assert.assertTrue(store.getClose(0) > 0);
+		store.close();
+
+		// size is known, but values cannot be read after closing
+
+		Assert.assertTrue(store.size() > 0);
+		try {
+			store.getClose(0);
+			Assert.fail("Closed store should not be readable");
+		} catch (IllegalStateException e) {
+			// ok
+		}
+	}
+}
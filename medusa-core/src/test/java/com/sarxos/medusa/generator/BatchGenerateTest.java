@@ -0,0 +1,93 @@
+package com.sarxos.medusa.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
+import com.sarxos.medusa.market.Signal;
+import com.sarxos.medusa.market.SignalGenerator;
+import com.sarxos.medusa.market.SignalType;
+import com.sarxos.medusa.market.Symbol;
+
+
+public class BatchGenerateTest {
+
+	private static Quote[] quotes(int n) {
+		Random r = new Random(5);
+		QuoteSeries series = new QuoteSeries(Symbol.QQQ);
+		double c = 100;
+		for (int i = 0; i < n; i++) {
+			double o = c;
+			c += r.nextGaussian();
+			double h = Math.max(o, c) + r.nextDouble();
+			double l = Math.min(o, c) - r.nextDouble();
+			series.add(i * 86400000L, o, h, l, c, 1000);
+		}
+		return series.asList().toArray(new Quote[n]);
+	}
+
+	/**
+	 * Batch signals have to be the same as BUY / SELL changes of the single
+	 * quote signals.
+	 */
+	private static void check(SignalGenerator<Quote> batch, SignalGenerator<Quote> single) {
+
+		Quote[] data = quotes(600);
+		int R = 400;
+
+		List<String> expected = new ArrayList<String>();
+		SignalType last = null;
+		for (int i = data.length - R; i < data.length; i++) {
+			Signal s = single.generate(data[i]);
+			SignalType t = s.getType();
+			if ((t == SignalType.BUY || t == SignalType.SELL) && t != last) {
+				expected.add(t + " " + s.getQuote().getDate().getTime());
+				last = t;
+			}
+		}
+
+		List<String> actual = new ArrayList<String>();
+		for (Signal s : batch.generate(data, R)) {
+			actual.add(s.getType() + " " + s.getQuote().getDate().getTime());
+		}
+
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, actual);
+	}
+
+	@Test
+	public void test_HMAC() {
+		check(new HMAC(), new HMAC());
+	}
+
+	@Test
+	public void test_HMAD() {
+		check(new HMAD(), new HMAD());
+	}
+
+	@Test
+	public void test_EE() {
+		check(new EE(), new EE());
+	}
+
+	@Test
+	public void test_MAVD2() {
+		check(new MAVD2(), new MAVD2());
+	}
+
+	@Test
+	public void test_MAVD3ADX() {
+		check(new MAVD3ADX(), new MAVD3ADX());
+	}
+
+	@Test
+	public void test_JMAC() {
+		check(new JMAC(), new JMAC());
+	}
+}
@@ -0,0 +1,85 @@
+package com.sarxos.medusa.generator;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.data.BarAggregator;
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Signal;
+import com.sarxos.medusa.market.SignalType;
+import com.sarxos.medusa.market.Symbol;
+
+
+public class MTFCTest {
+
+	/**
+	 * @param days - number of days
+	 * @return One minute quotes from 9:00 to 16:59 each day
+	 */
+	private static Quote[] quotes(int days) {
+
+		Random r = new Random(7);
+		List<Quote> quotes = new ArrayList<Quote>();
+		Calendar c = new GregorianCalendar(2011, 0, 3, 9, 0);
+		double p = 2500;
+
+		for (int d = 0; d < days; d++) {
+			double drift = r.nextGaussian() * 0.5;
+			for (int m = 0; m < 480; m++) {
+				double o = p;
+				p += drift + r.nextGaussian() * 2;
+				quotes.add(new Quote(Symbol.FW20, c.getTime(), o, Math.max(o, p) + 1, Math.min(o, p) - 1, p, 10));
+				c.add(Calendar.MINUTE, 1);
+			}
+			c.add(Calendar.MINUTE, 24 * 60 - 480);
+		}
+
+		return quotes.toArray(new Quote[quotes.size()]);
+	}
+
+	@Test
+	public void test_batch() {
+
+		Quote[] data = quotes(40);
+		int R = data.length / 2;
+
+		MTFC single = new MTFC(10, 5, 20);
+		BarAggregator aggregator = new BarAggregator(Symbol.FW20, single.getTimeframes());
+		aggregator.addBarListener(single);
+
+		List<String> expected = new ArrayList<String>();
+		SignalType last = null;
+		for (int i = 0; i < data.length; i++) {
+			aggregator.add(data[i]);
+			SignalType t = single.generate(data[i]).getType();
+			if (i >= data.length - R && t != SignalType.WAIT && t != last) {
+				expected.add(t + " " + data[i].getDate().getTime());
+				last = t;
+			}
+		}
+
+		List<String> actual = new ArrayList<String>();
+		for (Signal s : new MTFC(10, 5, 20).generate(data, R)) {
+			actual.add(s.getType() + " " + s.getQuote().getDate().getTime());
+		}
+
+		Assert.assertTrue(expected.size() > 2);
+		Assert.assertEquals(expected, actual);
+	}
+
+	@Test
+	public void test_wait() {
+
+		// not enough days to fill the trend average
+
+		Quote[] data = quotes(5);
+		Assert.assertTrue(new MTFC(10, 5, 20).generate(data, data.length).isEmpty());
+	}
+}
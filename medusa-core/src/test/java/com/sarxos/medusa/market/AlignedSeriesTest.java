@@ -0,0 +1,224 @@
+package com.sarxos.medusa.market;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.data.FakeQuotesRegistry;
+import com.sarxos.medusa.generator.RSC;
+import com.sarxos.medusa.provider.ProviderException;
+import com.sarxos.medusa.provider.RealTimeProvider;
+
+
+public class AlignedSeriesTest {
+
+	private static Date date(int month, int day) {
+		return new GregorianCalendar(2011, month - 1, day).getTime();
+	}
+
+	private static Quote quote(Symbol s, int month, int day, double close) {
+		return new Quote(s, date(month, day), close, close + 1, close - 1, close, 100);
+	}
+
+	private static List<List<Quote>> lists(List<Quote> a, List<Quote> b) {
+		List<List<Quote>> lists = new ArrayList<List<Quote>>(2);
+		lists.add(a);
+		lists.add(b);
+		return lists;
+	}
+
+	@Test
+	public void test_align() {
+
+		// 2011-01-06 is a free day, 8 and 9 is a weekend
+
+		List<Quote> a = new ArrayList<Quote>();
+		a.add(quote(Symbol.FW20, 1, 3, 10));
+		a.add(quote(Symbol.FW20, 1, 4, 11));
+		a.add(quote(Symbol.FW20, 1, 5, 12));
+		a.add(quote(Symbol.FW20, 1, 10, 13));
+
+		List<Quote> b = new ArrayList<Quote>();
+		b.add(quote(Symbol.WIG20, 1, 3, 20));
+		b.add(quote(Symbol.WIG20, 1, 5, 21));
+		b.add(quote(Symbol.WIG20, 1, 11, 22));
+
+		Symbol[] symbols = new Symbol[] { Symbol.FW20, Symbol.WIG20 };
+		AlignedSeries s = AlignedSeries.align(symbols, lists(a, b));
+
+		// 3, 4, 5, 7, 10 and 11
+
+		Assert.assertEquals(6, s.size());
+		Assert.assertEquals(date(1, 7), new Date(s.getTime(3)));
+
+		Assert.assertEquals(20.0, s.getClose(1, 1));
+		Assert.assertEquals(20.0, s.getHigh(1, 1));
+		Assert.assertEquals(0, s.getVolume(1, 1));
+		Assert.assertTrue(s.isFilled(1, 1));
+		Assert.assertFalse(s.isFilled(0, 1));
+
+		Assert.assertTrue(s.isFilled(0, 3));
+		Assert.assertTrue(s.isFilled(1, 3));
+		Assert.assertEquals(12.0, s.getClose(0, 3));
+
+		Assert.assertEquals(13.0, s.getClose(0, 5));
+		Assert.assertEquals(22.0, s.getClose(1, 5));
+
+		Assert.assertEquals(2, s.find(date(1, 5).getTime() + 3600000));
+		Assert.assertEquals(-1, s.find(date(1, 6).getTime()));
+		Assert.assertEquals(s.indexOf(Symbol.WIG20), 1);
+	}
+
+	@Test
+	public void test_start() {
+
+		List<Quote> a = new ArrayList<Quote>();
+		a.add(quote(Symbol.FW20, 1, 3, 10));
+		a.add(quote(Symbol.FW20, 1, 4, 11));
+		a.add(quote(Symbol.FW20, 1, 5, 12));
+
+		List<Quote> b = new ArrayList<Quote>();
+		b.add(quote(Symbol.WIG20, 1, 4, 20));
+
+		Symbol[] symbols = new Symbol[] { Symbol.FW20, Symbol.WIG20 };
+		AlignedSeries s = AlignedSeries.align(symbols, lists(a, b));
+
+		Assert.assertEquals(2, s.size());
+		Assert.assertEquals(11.0, s.getClose(0, 0));
+		Assert.assertEquals(20.0, s.getClose(1, 1));
+		Assert.assertTrue(s.isFilled(1, 1));
+	}
+
+	/**
+	 * @return Registry with 60 days of FW20 and WIG20 quotes
+	 */
+	private static FakeQuotesRegistry registry(Calendar c) {
+
+		FakeQuotesRegistry registry = new FakeQuotesRegistry();
+
+		for (int i = 0; i < 60; i++) {
+			while (Calendarium.getInstance().isFreeDay(c.getTime())) {
+				c.add(Calendar.DATE, 1);
+			}
+			double w = 2500 + i * 5;
+			double f = w + (i < 30 ? -i : i) * 2;
+			registry.addQuote(Symbol.WIG20, new Quote(Symbol.WIG20, c.getTime(), w, w, w, w, 1));
+			registry.addQuote(Symbol.FW20, new Quote(Symbol.FW20, c.getTime(), f, f, f, f, 1));
+			c.add(Calendar.DATE, 1);
+		}
+
+		return registry;
+	}
+
+	@Test
+	public void test_generator() {
+
+		Calendar c = new GregorianCalendar(2011, 1, 1);
+		FakeQuotesRegistry registry = registry(c);
+
+		RSC rsc = new RSC(Symbol.FW20, Symbol.WIG20, 3, 10);
+		rsc.setQuotesRegistry(registry);
+
+		AlignedSeries s = rsc.getAlignedSeries();
+		Assert.assertEquals(60, s.size());
+		Assert.assertSame(s, rsc.getAlignedSeries());
+
+		// real time tick is added only for the signal generation
+
+		c.set(Calendar.HOUR_OF_DAY, 12);
+		Quote tick = new Quote(Symbol.FW20, c.getTime(), 2000, 2000, 2000, 2000, 1);
+		Signal signal = rsc.generate(tick);
+
+		Assert.assertSame(tick, signal.getQuote());
+		Assert.assertEquals(SignalType.SELL, signal.getType());
+		Assert.assertEquals(60, s.size());
+
+		Quote[] data = registry.getQuotes(Symbol.FW20).toArray(new Quote[60]);
+		List<Signal> signals = rsc.generate(data, 50);
+		Assert.assertEquals(2, signals.size());
+		Assert.assertEquals(SignalType.SELL, signals.get(0).getType());
+		Assert.assertEquals(SignalType.BUY, signals.get(1).getType());
+	}
+
+	@Test
+	public void test_modified() {
+
+		FakeQuotesRegistry registry = registry(new GregorianCalendar(2011, 1, 1));
+
+		RSC rsc = new RSC(Symbol.FW20, Symbol.WIG20, 3, 10);
+		rsc.setQuotesRegistry(registry);
+
+		AlignedSeries s = rsc.getAlignedSeries();
+
+		// quote changed in place has to be aligned again
+
+		registry.getSeries(Symbol.WIG20).setClose(59, 1000);
+		AlignedSeries a = rsc.getAlignedSeries();
+		Assert.assertNotSame(s, a);
+		Assert.assertEquals(1000.0, a.getClose(1, 59));
+		Assert.assertSame(a, rsc.getAlignedSeries());
+	}
+
+	@Test
+	public void test_realTime() {
+
+		Calendar c = new GregorianCalendar(2011, 1, 1);
+		FakeQuotesRegistry registry = registry(c);
+		c.set(Calendar.HOUR_OF_DAY, 12);
+
+		final Quote wig = new Quote(Symbol.WIG20, c.getTime(), 3000, 3000, 3000, 3000, 1);
+
+		RSC rsc = new RSC(Symbol.FW20, Symbol.WIG20, 3, 10);
+		rsc.setQuotesRegistry(registry);
+		rsc.setRealTimeProvider(new RealTimeProvider() {
+
+			@Override
+			public Quote getQuote(Symbol symbol) throws ProviderException {
+				return wig;
+			}
+
+			@Override
+			public boolean canServe(Symbol symbol) {
+				return symbol == Symbol.WIG20;
+			}
+		});
+
+		// benchmark has risen today, so relative strength is lower than with
+		// benchmark forward-filled with its last close
+
+		Quote tick = new Quote(Symbol.FW20, c.getTime(), 3000, 3000, 3000, 3000, 1);
+		Signal current = rsc.generate(tick);
+
+		rsc.setRealTimeProvider(null);
+		Signal filled = rsc.generate(tick);
+
+		Assert.assertTrue(current.getLevel() < filled.getLevel());
+		Assert.assertEquals(60, rsc.getAlignedSeries().size());
+	}
+
+	@Test
+	public void test_incremental() {
+
+		FakeQuotesRegistry registry = registry(new GregorianCalendar(2011, 1, 1));
+
+		RSC rsc = new RSC(Symbol.FW20, Symbol.WIG20, 3, 10);
+		rsc.setQuotesRegistry(registry);
+		AlignedSeries s = rsc.getAlignedSeries();
+
+		// rows generated one after another give the same values as each row
+		// generated by new generator
+
+		for (int i = 0; i < s.size(); i++) {
+			RSC fresh = new RSC(Symbol.FW20, Symbol.WIG20, 3, 10);
+			Assert.assertEquals(fresh.generate(s, i).getLevel(), rsc.generate(s, i).getLevel(), 1e-12);
+		}
+
+		Assert.assertEquals(new RSC(Symbol.FW20, Symbol.WIG20, 3, 10).generate(s, 30).getLevel(), rsc.generate(s, 30).getLevel(), 1e-12);
+	}
+}
@@ -0,0 +1,202 @@
+package com.sarxos.medusa.market;
+
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.math.ATR;
+import com.sarxos.medusa.math.MA;
+import com.sarxos.medusa.math.SX;
+
+
+/**
+ * Test case for {@link QuoteSeries} and {@link QuoteView} classes.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class QuoteSeriesTest {
+
+	private static final long DAY = 1000 * 60 * 60 * 24;
+
+	private static final int N = 30;
+
+	private QuoteSeries series() {
+		QuoteSeries s = new QuoteSeries(Symbol.FW20M11, 4);
+		for (int i = 0; i < N; i++) {
+			double c = 100 + Math.sin(i) * 10;
+			s.add(i * DAY, c - 1, c + 2, c - 2, c, 1000 + i);
+		}
+		return s;
+	}
+
+	/**
+	 * @return The same quotes as ordinary linked quotes
+	 */
+	private Quote[] linked(QuoteSeries s) {
+		Quote[] quotes = new Quote[s.size()];
+		Quote p = null;
+		for (int i = 0; i < s.size(); i++) {
+			Quote q = new Quote(s.getSymbol(), new java.util.Date(s.getTime(i)), s.getOpen(i), s.getHigh(i), s.getLow(i), s.getClose(i), s.getVolume(i));
+			if (p != null) {
+				q.setPrev(p);
+				p.setNext(q);
+			}
+			quotes[i] = p = q;
+		}
+		return quotes;
+	}
+
+	@Test
+	public void test_add() {
+		QuoteSeries s = series();
+		Assert.assertEquals(N, s.size());
+		Assert.assertEquals(100.0, s.getClose(0));
+		Assert.assertEquals(1000 + N - 1, s.getVolume(N - 1));
+		Assert.assertEquals(5, s.search(5 * DAY));
+		Assert.assertEquals(6, s.search(5 * DAY + 1));
+	}
+
+	@Test
+	public void test_views() {
+
+		QuoteSeries s = series();
+		List<Quote> list = s.asList();
+
+		Assert.assertEquals(N, list.size());
+
+		// views are not cached
+
+		Quote q = list.get(10);
+		Assert.assertNotSame(q, s.get(10));
+		Assert.assertEquals(10, ((QuoteView) q).getIndex());
+		Assert.assertEquals(9, ((QuoteView) q.prev()).getIndex());
+		Assert.assertEquals(11, ((QuoteView) q.next()).getIndex());
+		Assert.assertNull(list.get(0).prev());
+		Assert.assertEquals(Symbol.FW20M11, q.getSymbol());
+		Assert.assertEquals(10 * DAY, q.getDate().getTime());
+
+		q.setClose(12.5);
+		Assert.assertEquals(12.5, s.getClose(10));
+
+		// quote bound outside of the series tail
+		Quote rt = new Quote(Symbol.FW20M11, new java.util.Date(N * DAY), 1, 2, 0.5, 1.5, 10);
+		Quote last = list.get(N - 1);
+		rt.setPrev(last);
+		last.setNext(rt);
+		Assert.assertSame(rt, last.next());
+		Assert.assertSame(last, rt.prev());
+
+		Assert.assertSame(rt, list.get(N - 1).next());
+
+		list.add(rt);
+		Assert.assertEquals(N + 1, s.size());
+		Assert.assertEquals(N, ((QuoteView) last.next()).getIndex());
+		Assert.assertNull(last.next().next());
+	}
+
+	@Test
+	public void test_modifiedFrom() {
+
+		QuoteSeries s = series();
+		int m = s.getModifications();
+		Assert.assertEquals(N, s.getModifiedFrom(m));
+
+		s.setClose(N - 1, 10);
+		s.setVolume(N - 3, 10);
+		s.setClose(N - 1, 20);
+		Assert.assertEquals(N - 3, s.getModifiedFrom(m));
+		Assert.assertEquals(N - 1, s.getModifiedFrom(m + 2));
+
+		// appending does not modify series
+
+		s.add(N * DAY, 1, 1, 1, 1, 1);
+		Assert.assertEquals(N + 1, s.getModifiedFrom(m + 3));
+
+		// too old changes are not remembered
+
+		for (int i = 0; i < 100; i++) {
+			s.setClose(N, i);
+		}
+		Assert.assertEquals(0, s.getModifiedFrom(m));
+		Assert.assertEquals(N, s.getModifiedFrom(s.getModifications() - 1));
+	}
+
+	@Test
+	public void test_clone() {
+
+		QuoteSeries s = series();
+		Quote c = s.get(5).clone();
+
+		Assert.assertFalse(c instanceof QuoteView);
+		Assert.assertEquals(s.getClose(5), c.getClose());
+		Assert.assertEquals(s.getTime(5), c.getDate().getTime());
+		Assert.assertNull(c.prev());
+
+		// copy is not backed by the series
+
+		c.setClose(1);
+		Assert.assertTrue(s.getClose(5) != 1);
+	}
+
+	@Test
+	public void test_tail() {
+
+		// real time quote bound to the series tail gives the same values as
+		// the linked quotes
+
+		QuoteSeries s = series();
+		Quote[] quotes = linked(s);
+
+		Quote rt = new Quote(Symbol.FW20M11, new java.util.Date(N * DAY), 100, 110, 90, 105, 10);
+		rt.setPrev(s.last());
+		s.last().setNext(rt);
+
+		Quote lrt = new Quote(Symbol.FW20M11, new java.util.Date(N * DAY), 100, 110, 90, 105, 10);
+		lrt.setPrev(quotes[N - 1]);
+
+		double[] a = SX.closes(lrt, 12);
+		double[] b = SX.closes(rt, 12);
+		for (int i = 0; i < a.length; i++) {
+			Assert.assertEquals(a[i], b[i]);
+		}
+
+		Assert.assertEquals(MA.hma(lrt, 9), MA.hma(rt, 9));
+		Assert.assertEquals(MA.ema(lrt, 10), MA.ema(rt, 10));
+
+		double[][] x = SX.detach(lrt, 12);
+		double[][] y = SX.detach(rt, 12);
+		for (int k = 0; k < x.length; k++) {
+			for (int i = 0; i < x[k].length; i++) {
+				Assert.assertEquals(x[k][i], y[k][i]);
+			}
+		}
+	}
+
+	@Test
+	public void test_indicators() {
+
+		QuoteSeries s = series();
+		Quote[] quotes = linked(s);
+		Quote view = s.get(N - 1);
+		Quote quote = quotes[N - 1];
+
+		Assert.assertEquals(MA.sma(quote, 10), MA.sma(view, 10));
+		Assert.assertEquals(ATR.atr(quote, 5), ATR.atr(view, 5));
+
+		double[] a = ATR.tr(quote, 7);
+		double[] b = ATR.tr(view, 7);
+		for (int i = 0; i < a.length; i++) {
+			Assert.assertEquals(a[i], b[i]);
+		}
+
+		double[][] x = SX.detach(quote, 12);
+		double[][] y = SX.detach(view, 12);
+		for (int k = 0; k < x.length; k++) {
+			for (int i = 0; i < x[k].length; i++) {
+				Assert.assertEquals(x[k][i], y[k][i]);
+			}
+		}
+	}
+}
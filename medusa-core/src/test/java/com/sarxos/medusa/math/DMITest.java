@@ -0,0 +1,152 @@
+package com.sarxos.medusa.math;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+
+public class DMITest {
+
+	private static final double DELTA = 1e-9;
+
+	private static final int N = 200;
+
+	private static final int P = 14;
+
+	private static double[][] bars() {
+		Random r = new Random(5);
+		double[] high = new double[N];
+		double[] low = new double[N];
+		double[] close = new double[N];
+		double c = 100;
+		for (int i = 0; i < N; i++) {
+			double o = c;
+			c += r.nextDouble() * 4 - 2;
+			high[i] = Math.max(o, c) + r.nextDouble();
+			low[i] = Math.min(o, c) - r.nextDouble();
+			close[i] = c;
+		}
+		return new double[][] { high, low, close };
+	}
+
+	/**
+	 * Straightforward Wilder's ADX calculation.
+	 */
+	private static double[] reference(double[] h, double[] l, double[] c) {
+
+		double[] tr = new double[N];
+		double[] dp = new double[N];
+		double[] dn = new double[N];
+
+		for (int k = 1; k < N; k++) {
+			tr[k] = Math.max(h[k], c[k - 1]) - Math.min(l[k], c[k - 1]);
+			double um = h[k] - h[k - 1];
+			double dm = l[k - 1] - l[k];
+			dp[k] = um > dm && um > 0 ? um : 0;
+			dn[k] = dm > um && dm > 0 ? dm : 0;
+		}
+
+		double[] dx = new double[N];
+		double trs = 0, dps = 0, dns = 0;
+		for (int k = 1; k < N; k++) {
+			if (k <= P) {
+				trs += tr[k];
+				dps += dp[k];
+				dns += dn[k];
+			} else {
+				trs = trs - trs / P + tr[k];
+				dps = dps - dps / P + dp[k];
+				dns = dns - dns / P + dn[k];
+			}
+			double pi = 100 * dps / trs;
+			double ni = 100 * dns / trs;
+			dx[k] = 100 * Math.abs(pi - ni) / (pi + ni);
+		}
+
+		double[] adx = new double[N];
+		for (int k = 0; k < N; k++) {
+			adx[k] = Double.NaN;
+		}
+		double s = 0;
+		for (int k = P; k < 2 * P; k++) {
+			s += dx[k];
+		}
+		adx[2 * P - 1] = s / P;
+		for (int k = 2 * P; k < N; k++) {
+			adx[k] = (adx[k - 1] * (P - 1) + dx[k]) / P;
+		}
+
+		return adx;
+	}
+
+	@Test
+	public void test_reference() {
+		double[][] b = bars();
+		double[] ref = reference(b[0], b[1], b[2]);
+		DMI dmi = new DMI(P);
+		for (int k = 0; k < N; k++) {
+			dmi.add(b[0][k], b[1][k], b[2][k]);
+			Assert.assertEquals(k >= 2 * P - 1, dmi.isReady());
+			if (k < 2 * P - 1) {
+				Assert.assertTrue(Double.isNaN(dmi.adx()));
+			} else {
+				Assert.assertEquals(ref[k], dmi.adx(), DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void test_batch() {
+
+		double[][] b = bars();
+
+		double[] adx = new double[50];
+		double[] dip = new double[50];
+		double[] din = new double[50];
+		double[] atr = new double[50];
+
+		DMI.dmi(b[0], b[1], b[2], 100, 50, P, adx, dip, din, atr, 0);
+
+		DMI dmi = new DMI(P);
+		for (int k = 0; k < 150; k++) {
+			dmi.add(b[0][k], b[1][k], b[2][k]);
+			if (k >= 100) {
+				Assert.assertEquals(dmi.adx(), adx[k - 100], 0);
+				Assert.assertEquals(dmi.dip(), dip[k - 100], 0);
+				Assert.assertEquals(dmi.din(), din[k - 100], 0);
+				Assert.assertEquals(dmi.atr(), atr[k - 100], 0);
+			}
+		}
+	}
+
+	@Test
+	public void test_update() {
+		double[][] b = bars();
+		DMI a = new DMI(P);
+		DMI c = new DMI(P);
+		for (int k = 0; k < N; k++) {
+			a.add(b[0][k] + 1, b[1][k] - 1, b[2][k] + 0.5);
+			a.update(b[0][k], b[1][k], b[2][k]);
+			c.add(b[0][k], b[1][k], b[2][k]);
+			Assert.assertEquals(c.adx(), a.adx(), 0);
+		}
+	}
+
+	@Test
+	public void test_snapshot() {
+		double[][] b = bars();
+		DMI a = new DMI(P);
+		for (int k = 0; k < 100; k++) {
+			a.add(b[0][k], b[1][k], b[2][k]);
+		}
+		DMI s = a.snapshot();
+		double adx = a.adx();
+		for (int k = 100; k < N; k++) {
+			a.add(b[0][k], b[1][k], b[2][k]);
+		}
+		a.restore(s);
+		Assert.assertEquals(adx, a.adx(), 0);
+	}
+}
@@ -0,0 +1,124 @@
+package com.sarxos.medusa.math;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
+import com.sarxos.medusa.market.Symbol;
+
+
+/**
+ * EMA throughput comparison between the old boxed powers map (synchronized
+ * here, otherwise it would not be safe) and the per-period weights tables
+ * used by {@link MA#ema(Quote[], int)}. Many threads calculate EMA for the
+ * same periods, like traders do. This is not a test - run it manually from
+ * the main method.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class EMABenchmark {
+
+	private static final int QUOTES = 5000;
+
+	private static final int THREADS = 8;
+
+	private static final int ROUNDS = 5;
+
+	private static final int[] PERIODS = new int[] { 5, 10, 20, 30, 50 };
+
+	private static final Map<Integer, Double> pows = Collections.synchronizedMap(new HashMap<Integer, Double>());
+
+	/**
+	 * Old EMA implementation.
+	 */
+	private static double boxed(Quote q, int N) {
+
+		double a = 2 / (N + 1);
+		double h = 1 - a;
+		double em = 0;
+		double k = 0;
+
+		int j = 0;
+		do {
+			int u = N - j;
+			Integer key = Integer.valueOf(u);
+			if (pows.get(key) == null) {
+				pows.put(key, Double.valueOf(Math.pow(h, u)));
+			}
+		} while (j++ < N - 1);
+
+		j = 0;
+		do {
+			double pow = pows.get(N - j);
+			em += q.getClose() * pow;
+			k += pow;
+			q = q.prev();
+		} while (j++ < N - 1);
+
+		return em / k;
+	}
+
+	private static double run(final List<Quote> quotes, final boolean table) throws Exception {
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		Future<?>[] futures = new Future<?>[THREADS];
+
+		for (int t = 0; t < THREADS; t++) {
+			futures[t] = executor.submit(new Callable<Double>() {
+
+				@Override
+				public Double call() throws Exception {
+					double s = 0;
+					for (int i = 100; i < quotes.size(); i++) {
+						Quote q = quotes.get(i);
+						for (int N : PERIODS) {
+							s += table ? MA.ema(q, N) : boxed(q, N);
+						}
+					}
+					return s;
+				}
+			});
+		}
+
+		double s = 0;
+		for (Future<?> f : futures) {
+			s += (Double) f.get();
+		}
+
+		executor.shutdown();
+
+		return s;
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		Random r = new Random(3);
+		QuoteSeries series = new QuoteSeries(Symbol.QQQ);
+		double c = 100;
+		for (int i = 0; i < QUOTES; i++) {
+			c += r.nextDouble() - 0.5;
+			series.add(i * 86400000L, c, c, c, c, 1);
+		}
+
+		List<Quote> quotes = series.asList();
+
+		for (int i = 0; i < ROUNDS; i++) {
+
+			long t0 = System.nanoTime();
+			double a = run(quotes, false);
+			long t1 = System.nanoTime();
+			double b = run(quotes, true);
+			long t2 = System.nanoTime();
+
+			System.out.println(String.format("boxed map: %6d ms, weights table: %6d ms (%.3f / %.3f)", (t1 - t0) / 1000000, (t2 - t1) / 1000000, a, b));
+		}
+	}
+}
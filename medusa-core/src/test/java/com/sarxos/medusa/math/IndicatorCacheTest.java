@@ -0,0 +1,136 @@
+package com.sarxos.medusa.math;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
+import com.sarxos.medusa.market.Symbol;
+
+
+public class IndicatorCacheTest {
+
+	private static QuoteSeries series(int n) {
+		Random r = new Random(13);
+		QuoteSeries series = new QuoteSeries(Symbol.QQQ);
+		double c = 100;
+		for (int i = 0; i < n; i++) {
+			c += r.nextDouble() - 0.5;
+			series.add(i * 86400000L, c, c + 1, c - 1, c, 1000);
+		}
+		return series;
+	}
+
+	@Test
+	public void test_values() {
+		IndicatorCache cache = new IndicatorCache(1000);
+		List<Quote> quotes = series(200).asList();
+		for (int i = 100; i < 200; i++) {
+			Quote q = quotes.get(i);
+			Assert.assertEquals(MA.hma(q, 20), cache.hma(q, 20), 0);
+			Assert.assertEquals(MA.hma(q.prev(), 20), cache.hma(q.prev(), 20), 0);
+			Assert.assertEquals(MA.hmad(q, 20), cache.hmad(q, 20), 1e-12);
+			Assert.assertEquals(MA.emad(q, 30), cache.emad(q, 30), 0);
+		}
+	}
+
+	@Test
+	public void test_hits() {
+		IndicatorCache cache = new IndicatorCache(1000);
+		List<Quote> quotes = series(200).asList();
+		for (int i = 100; i < 200; i++) {
+			Quote q = quotes.get(i);
+			cache.ema(q, 5);
+			cache.ema(q.prev(), 5);
+		}
+		// previous quote value is always cached, except the first one
+		Assert.assertEquals(99, cache.getHits());
+		Assert.assertEquals(101, cache.getMisses());
+	}
+
+	@Test
+	public void test_replacedBar() {
+		IndicatorCache cache = new IndicatorCache(1000);
+		QuoteSeries s = series(100);
+		Quote q = s.last();
+		double before = cache.sma(q, 10);
+		s.setClose(99, s.getClose(99) + 10);
+		double after = cache.sma(q, 10);
+		Assert.assertEquals(before + 1, after, 1e-9);
+		Assert.assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	public void test_replacedEarlierBar() {
+		IndicatorCache cache = new IndicatorCache(1000);
+		QuoteSeries s = series(100);
+		Quote q = s.last();
+		double before = cache.sma(q, 10);
+		s.setClose(95, s.getClose(95) + 10);
+		double after = cache.sma(q, 10);
+		Assert.assertEquals(before + 1, after, 1e-9);
+		Assert.assertEquals(0, cache.getHits());
+		cache.sma(q, 10);
+		Assert.assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void test_updatedLastBar() {
+		IndicatorCache cache = new IndicatorCache(1000);
+		QuoteSeries s = series(100);
+		cache.ema(s.get(98), 10);
+		double before = cache.ema(s.get(99), 10);
+		s.setClose(99, s.getClose(99) + 10);
+
+		// only the last bar value is calculated again
+
+		Assert.assertEquals(MA.ema(s.get(98), 10), cache.ema(s.get(98), 10), 0);
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertTrue(cache.ema(s.get(99), 10) > before);
+		Assert.assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void test_appended() {
+		IndicatorCache cache = new IndicatorCache(1000);
+		QuoteSeries s = series(100);
+		cache.sma(s.last(), 10);
+		s.add(100 * 86400000L, 100, 101, 99, 100, 1000);
+		cache.sma(s.get(99), 10);
+		Assert.assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void test_otherSeries() {
+		IndicatorCache cache = new IndicatorCache(1000);
+		cache.sma(series(100).last(), 10);
+		cache.sma(series(100).last(), 10);
+		Assert.assertEquals(0, cache.getHits());
+		Assert.assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void test_standalone() {
+		IndicatorCache cache = new IndicatorCache(1000);
+		QuoteSeries s = series(100);
+		Quote q = new Quote(Symbol.QQQ, new Date(), 100, 101, 99, 100, 1000);
+		q.setPrev(s.last());
+		Assert.assertEquals(MA.ema(q, 5), cache.ema(q, 5), 0);
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void test_capacity() {
+		IndicatorCache cache = new IndicatorCache(10);
+		List<Quote> quotes = series(100).asList();
+		for (int i = 50; i < 100; i++) {
+			cache.sma(quotes.get(i), 5);
+		}
+		Assert.assertEquals(10, cache.size());
+	}
+}
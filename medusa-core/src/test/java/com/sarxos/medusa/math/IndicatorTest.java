@@ -0,0 +1,126 @@
+package com.sarxos.medusa.math;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.market.QuoteSeries;
+import com.sarxos.medusa.market.Symbol;
+
+
+public class IndicatorTest {
+
+	private static final double DELTA = 1e-9;
+
+	private static QuoteSeries series(int n) {
+		Random r = new Random(7);
+		QuoteSeries series = new QuoteSeries(Symbol.QQQ);
+		double c = 100;
+		for (int i = 0; i < n; i++) {
+			c += r.nextDouble() - 0.5;
+			series.add(i * 86400000L, c, c + 1, c - 1, c, 1000);
+		}
+		return series;
+	}
+
+	private static double wma(double[] v, int end, int N) {
+		double wm = 0;
+		double k = 0;
+		for (int j = 0; j < N; j++) {
+			wm += v[end - j] * (N - j);
+			k += N - j;
+		}
+		return wm / k;
+	}
+
+	@Test
+	public void test_sma() {
+		QuoteSeries s = series(300);
+		SMA sma = new SMA(14);
+		for (int i = 0; i < s.size(); i++) {
+			sma.add(s.getClose(i));
+			if (i >= 13) {
+				Assert.assertTrue(sma.isReady());
+				Assert.assertEquals(MA.sma(s.get(i), 14), sma.value(), DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void test_wma() {
+		QuoteSeries s = series(300);
+		double[] close = s.closes();
+		WMA wma = new WMA(10);
+		for (int i = 0; i < s.size(); i++) {
+			wma.add(close[i]);
+			if (i >= 9) {
+				Assert.assertEquals(wma(close, i, 10), wma.value(), DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void test_ema() {
+		EMA ema = new EMA(3);
+		ema.add(1);
+		ema.add(2);
+		Assert.assertFalse(ema.isReady());
+		Assert.assertEquals(2.0, ema.add(3), DELTA);
+		Assert.assertTrue(ema.isReady());
+		Assert.assertEquals(2.0 + 0.5 * (6 - 2.0), ema.add(6), DELTA);
+	}
+
+	@Test
+	public void test_hma() {
+		QuoteSeries s = series(300);
+		HMA hma = new HMA(20);
+		for (int i = 0; i < s.size(); i++) {
+			hma.add(s.getClose(i));
+			Assert.assertEquals(i >= 20 + 4 - 2, hma.isReady());
+			// MA.hma reads one quote more then it really needs
+			if (i >= 20 + 4 - 1) {
+				Assert.assertEquals(MA.hma(s.get(i), 20), hma.value(), DELTA);
+			}
+		}
+		Assert.assertTrue(hma.isReady());
+	}
+
+	@Test
+	public void test_update() {
+		Indicator[] a = new Indicator[] { new SMA(5), new EMA(5), new WMA(5), new HMA(9) };
+		Indicator[] b = new Indicator[] { new SMA(5), new EMA(5), new WMA(5), new HMA(9) };
+		QuoteSeries s = series(50);
+		for (int k = 0; k < a.length; k++) {
+			for (int i = 0; i < s.size(); i++) {
+				a[k].add(s.getClose(i));
+				a[k].update(s.getClose(i) + 3);
+				a[k].update(s.getClose(i) + 1);
+				b[k].add(s.getClose(i) + 1);
+				Assert.assertEquals(b[k].value(), a[k].value(), DELTA);
+				a[k].update(s.getClose(i));
+				b[k].update(s.getClose(i));
+			}
+		}
+	}
+
+	@Test
+	public void test_snapshot() {
+		Indicator[] a = new Indicator[] { new SMA(5), new EMA(5), new WMA(5), new HMA(9) };
+		QuoteSeries s = series(50);
+		for (int k = 0; k < a.length; k++) {
+			for (int i = 0; i < 30; i++) {
+				a[k].add(s.getClose(i));
+			}
+			Indicator snap = a[k].snapshot();
+			double v = a[k].value();
+			for (int i = 30; i < 50; i++) {
+				a[k].add(s.getClose(i));
+			}
+			Assert.assertEquals(v, snap.value(), DELTA);
+			a[k].restore(snap);
+			Assert.assertEquals(v, a[k].value(), DELTA);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.sarxos.medusa.math;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+
+public class JRKTest {
+
+	private static final int N = 300;
+
+	private static double[] prices() {
+		Random r = new Random(7);
+		double[] x = new double[N];
+		double c = 100;
+		for (int i = 0; i < N; i++) {
+			c += r.nextDouble() - 0.5;
+			x[i] = c;
+		}
+		return x;
+	}
+
+	@Test
+	public void test_ready() {
+		double[] x = prices();
+		JRK j = new JRK(5, 0);
+		Assert.assertTrue(Double.isNaN(j.value()));
+		for (int i = 0; i < 40; i++) {
+			j.add(x[i]);
+			Assert.assertEquals(i >= 30, j.isReady());
+			if (i < 30) {
+				Assert.assertEquals(0.0, j.value(), 0);
+			}
+		}
+	}
+
+	@Test
+	public void test_window() {
+
+		double[] x = prices();
+
+		// newest 60 prices of the window are smoothed by fresh filter
+		double[] w = new double[100];
+		for (int i = 0; i < 100; i++) {
+			w[i] = x[N - 1 - i];
+		}
+
+		JRK j = new JRK(15, 0);
+		for (int i = 0; i < N; i++) {
+			j.add(x[i]);
+		}
+
+		// long running filter is very close to the window calculation
+		Assert.assertEquals(JRK.jrk(w, 15, 0)[0], j.value(), 0.1);
+	}
+
+	@Test
+	public void test_update() {
+		double[] x = prices();
+		JRK a = new JRK(5, 0);
+		JRK c = new JRK(5, 0);
+		for (int i = 0; i < N; i++) {
+			a.add(x[i] + 1);
+			a.update(x[i] - 1);
+			a.update(x[i]);
+			c.add(x[i]);
+			Assert.assertEquals(c.value(), a.value(), 0);
+		}
+	}
+
+	@Test
+	public void test_snapshot() {
+		double[] x = prices();
+		JRK a = new JRK(15, 0);
+		for (int i = 0; i < 100; i++) {
+			a.add(x[i]);
+		}
+		JRK s = a.snapshot();
+		double v = a.value();
+		for (int i = 100; i < N; i++) {
+			a.add(x[i]);
+		}
+		a.restore(s);
+		Assert.assertEquals(v, a.value(), 0);
+		a.add(x[100]);
+		s.add(x[100]);
+		Assert.assertEquals(s.value(), a.value(), 0);
+	}
+}
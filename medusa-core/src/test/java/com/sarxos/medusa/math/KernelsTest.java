@@ -0,0 +1,200 @@
+package com.sarxos.medusa.math;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
+import com.sarxos.medusa.market.Symbol;
+
+
+public class KernelsTest {
+
+	private static final double DELTA = 1e-8;
+
+	private static QuoteSeries series(int n) {
+		Random r = new Random(11);
+		QuoteSeries series = new QuoteSeries(Symbol.QQQ);
+		double c = 100;
+		for (int i = 0; i < n; i++) {
+			double o = c;
+			c += r.nextDouble() * 4 - 2;
+			double h = Math.max(o, c) + r.nextDouble();
+			double l = Math.min(o, c) - r.nextDouble();
+			series.add(i * 86400000L, o, h, l, c, 1000);
+		}
+		return series;
+	}
+
+	/**
+	 * Linked quotes (not series views) with the same values.
+	 */
+	private static Quote[] linked(QuoteSeries s) {
+		Quote[] quotes = new Quote[s.size()];
+		for (int i = 0; i < s.size(); i++) {
+			Quote q = new Quote(s.getSymbol(), new Date(s.getTime(i)), s.getOpen(i), s.getHigh(i), s.getLow(i), s.getClose(i), s.getVolume(i));
+			if (i > 0) {
+				q.setPrev(quotes[i - 1]);
+				quotes[i - 1].setNext(q);
+			}
+			quotes[i] = q;
+		}
+		return quotes;
+	}
+
+	private static Quote[] range(List<Quote> quotes, int from, int n) {
+		return quotes.subList(from, from + n).toArray(new Quote[n]);
+	}
+
+	private static void assertArrayEquals(double[] a, double[] b) {
+		Assert.assertEquals(a.length, b.length);
+		for (int i = 0; i < a.length; i++) {
+			Assert.assertEquals("at " + i, a[i], b[i], DELTA);
+		}
+	}
+
+	@Test
+	public void test_sma() {
+		QuoteSeries s = series(200);
+		double[] c = s.closes();
+		double[] out = new double[100];
+		Kernels.sma(c, 50, 100, 20, out, 0);
+		for (int i = 0; i < 100; i++) {
+			double sum = 0;
+			for (int j = 0; j < 20; j++) {
+				sum += c[50 + i - j];
+			}
+			Assert.assertEquals(sum / 20, out[i], DELTA);
+		}
+		assertArrayEquals(out, MA.sma(range(s.asList(), 50, 100), 20));
+		assertArrayEquals(out, MA.sma(range(Arrays.asList(linked(s)), 50, 100), 20));
+	}
+
+	@Test
+	public void test_wma() {
+		QuoteSeries s = series(200);
+		double[] c = s.closes();
+		double[] out = new double[100];
+		Kernels.wma(c, 50, 100, 10, out, 0);
+		for (int i = 0; i < 100; i++) {
+			double sum = 0;
+			for (int j = 0; j < 10; j++) {
+				sum += c[50 + i - j] * (10 - j);
+			}
+			Assert.assertEquals(sum / 55, out[i], DELTA);
+		}
+		assertArrayEquals(out, MA.wma(range(s.asList(), 50, 100), 10));
+	}
+
+	@Test
+	public void test_hma() {
+		QuoteSeries s = series(200);
+		List<Quote> view = s.asList();
+		double[] out = MA.hma(range(view, 50, 100), 20);
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals(MA.hma(view.get(50 + i), 20), out[i], DELTA);
+		}
+		assertArrayEquals(out, MA.hma(range(Arrays.asList(linked(s)), 50, 100), 20));
+		double[] hmad = MA.hmad(range(view, 50, 100), 20);
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals(MA.hmad(view.get(50 + i), 20), hmad[i], DELTA);
+		}
+	}
+
+	@Test
+	public void test_atr() {
+		QuoteSeries s = series(200);
+		Quote[] l = linked(s);
+		double[] view = ATR.atr(range(s.asList(), 50, 100), 14);
+		double[] link = ATR.atr(range(Arrays.asList(l), 50, 100), 14);
+		assertArrayEquals(view, link);
+		Assert.assertEquals(M.sum(ATR.tr(l[50], 14)) / 14, view[0], DELTA);
+	}
+
+	/**
+	 * Original ADX algorithm.
+	 */
+	private static double adx(Quote q, int P) {
+		double sum = 0;
+		for (int j = 0; j < P; j++) {
+			double tr = ATR.tr(q);
+			double trP = M.sum(ATR.tr(q, P));
+			double dmpP = M.sum(ADX.dmp(q, P));
+			double dmnP = M.sum(ADX.dmn(q, P));
+			double dip = 100 * (dmpP - dmpP / P + ADX.dmp(q)) / (trP - trP / P + tr);
+			double din = 100 * (dmnP - dmnP / P + ADX.dmn(q)) / (trP - trP / P + tr);
+			sum += 100 * Math.abs(dip - din) / (dip + din);
+			q = q.prev();
+		}
+		return sum / P;
+	}
+
+	@Test
+	public void test_adx() {
+		QuoteSeries s = series(300);
+		Quote[] l = linked(s);
+		double[] view = ADX.adx(range(s.asList(), 100, 150), 14);
+		double[] link = ADX.adx(range(Arrays.asList(l), 100, 150), 14);
+		assertArrayEquals(view, link);
+		for (int i = 0; i < 150; i++) {
+			Assert.assertEquals(adx(l[100 + i], 14), view[i], DELTA);
+		}
+	}
+
+	@Test
+	public void test_cmo() {
+		QuoteSeries s = series(200);
+		double[] c = s.closes();
+		double[] view = CMO.cmo(range(s.asList(), 50, 100), 9);
+		double[] link = CMO.cmo(range(Arrays.asList(linked(s)), 50, 100), 9);
+		assertArrayEquals(view, link);
+		for (int i = 0; i < 100; i++) {
+			double up = 0;
+			double dn = 0;
+			for (int j = 0; j < 9; j++) {
+				double d = c[50 + i - j] - c[49 + i - j];
+				if (d >= 0) {
+					up += d;
+				} else {
+					dn -= d;
+				}
+			}
+			Assert.assertEquals(100 * (up - dn) / (up + dn), view[i], DELTA);
+		}
+	}
+
+	@Test
+	public void test_emaPeriods() {
+		QuoteSeries s = series(100);
+		Quote q = s.get(99);
+		double e5 = MA.ema(q, 5);
+		// weights of other periods must not be shared with period 5
+		MA.ema(q, 1);
+		MA.ema(q, 3);
+		Assert.assertEquals(e5, MA.ema(q, 5), 0);
+		Assert.assertEquals(q.getClose(), MA.ema(q, 1), DELTA);
+	}
+
+	@Test
+	public void test_bounds() {
+		double[] x = new double[10];
+		try {
+			Kernels.sma(x, 3, 1, 5, new double[1], 0);
+			Assert.fail("Not enough values should be detected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			Kernels.sma(x, 5, 2, 5, new double[1], 0);
+			Assert.fail("Too small output should be detected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
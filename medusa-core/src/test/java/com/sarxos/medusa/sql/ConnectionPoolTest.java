@@ -0,0 +1,138 @@
+package com.sarxos.medusa.sql;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import junit.framework.Assert;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+
+public class ConnectionPoolTest {
+
+	private static final String URL = "jdbc:medusa-test:pool";
+
+	/**
+	 * Driver creating mocked connections.
+	 */
+	private static class MockDriver implements Driver {
+
+		public Connection connect(String url, Properties info) throws SQLException {
+			if (!acceptsURL(url)) {
+				return null;
+			}
+			Connection c = EasyMock.createNiceMock(Connection.class);
+			EasyMock.expect(c.isValid(EasyMock.anyInt())).andReturn(true).anyTimes();
+			EasyMock.expect(c.prepareStatement(EasyMock.<String> anyObject())).andAnswer(new IAnswer<PreparedStatement>() {
+
+				public PreparedStatement answer() throws Throwable {
+					return EasyMock.createNiceMock(PreparedStatement.class);
+				}
+			}).anyTimes();
+			EasyMock.replay(c);
+			return c;
+		}
+
+		public boolean acceptsURL(String url) {
+			return url.startsWith(URL);
+		}
+
+		public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+			return new DriverPropertyInfo[0];
+		}
+
+		public int getMajorVersion() {
+			return 1;
+		}
+
+		public int getMinorVersion() {
+			return 0;
+		}
+
+		public boolean jdbcCompliant() {
+			return false;
+		}
+
+		public Logger getParentLogger() {
+			return Logger.getLogger(MockDriver.class.getName());
+		}
+	}
+
+	static {
+		try {
+			DriverManager.registerDriver(new MockDriver());
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Test
+	public void test_reuse() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(URL, "u", "p", 2);
+		PooledConnection a = pool.acquire();
+		pool.release(a);
+		PooledConnection b = pool.acquire();
+		pool.release(b);
+		Assert.assertSame(a, b);
+		Assert.assertEquals(1, pool.getOpenCount());
+	}
+
+	@Test
+	public void test_bounded() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(URL, "u", "p", 1);
+		pool.setTimeout(50);
+		PooledConnection a = pool.acquire();
+		try {
+			pool.acquire();
+			Assert.fail("Pool should be exhausted");
+		} catch (SQLException e) {
+			// expected
+		}
+		pool.release(a);
+		pool.release(pool.acquire());
+		Assert.assertEquals(1, pool.getOpenCount());
+	}
+
+	@Test
+	public void test_broken() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(URL, "u", "p", 1);
+		PooledConnection a = pool.acquire();
+		a.failed(new SQLException("Communications link failure", "08S01"));
+		pool.release(a);
+		PooledConnection b = pool.acquire();
+		pool.release(b);
+		Assert.assertNotSame(a, b);
+		Assert.assertEquals(1, pool.getOpenCount());
+	}
+
+	@Test
+	public void test_notBroken() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(URL, "u", "p", 1);
+		PooledConnection a = pool.acquire();
+		a.failed(new SQLException("Duplicate entry", "23000"));
+		pool.release(a);
+		PooledConnection b = pool.acquire();
+		pool.release(b);
+		Assert.assertSame(a, b);
+	}
+
+	@Test
+	public void test_statementCache() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(URL, "u", "p", 1);
+		PooledConnection a = pool.acquire();
+		PreparedStatement s1 = a.prepare("CALL GetQuotes(?)");
+		PreparedStatement s2 = a.prepare("CALL GetQuotes(?)");
+		PreparedStatement s3 = a.prepare("CALL GetTraders()");
+		pool.release(a);
+		Assert.assertSame(s1, s2);
+		Assert.assertNotSame(s1, s3);
+	}
+}
@@ -11,6 +11,7 @@ import org.easymock.EasyMock;
 import org.junit.Test;
 
 import com.sarxos.medusa.data.QuotesRegistry;
+import com.sarxos.medusa.generator.RSC;
 import com.sarxos.medusa.market.Paper;
 import com.sarxos.medusa.market.Quote;
 import com.sarxos.medusa.market.Signal;
@@ -84,6 +85,19 @@ public class DecisionMakerTest extends TestCase {
 		}
 	}
 
+	@Test
+	public void test_multiSymbolRegistry() {
+		Trader t = EasyMock.createMock(Trader.class);
+		QuotesRegistry qr = EasyMock.createMock(QuotesRegistry.class);
+		RSC rsc = new RSC();
+		DecisionMaker dm = new DecisionMaker(t, rsc);
+		dm.setQuotesRegistry(qr);
+		Assert.assertSame(qr, rsc.getQuotesRegistry());
+		rsc = new RSC();
+		dm.setSignalGenerator(rsc);
+		Assert.assertSame(qr, rsc.getQuotesRegistry());
+	}
+
 	private static class TestNullEventHandler implements NullEventHandler {
 
 		public NullEvent ne = null;
@@ -1,6 +1,8 @@
 package com.sarxos.medusa.trader;
 
 import java.util.Date;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.Assert;
 
@@ -32,6 +34,35 @@ public class ObserverTest {
 		}
 	}
 
+	/**
+	 * Provider which gives quote only when read has been allowed by the test
+	 * and which counts started reads, so test knows when the previous quote
+	 * has been handled.
+	 */
+	private static class GatedProvider extends TestProvider {
+
+		final Semaphore gate = new Semaphore(0);
+
+		final Semaphore reads = new Semaphore(0);
+
+		@Override
+		public Quote getQuote(Symbol symbol) throws ProviderException {
+			reads.release();
+			try {
+				if (!gate.tryAcquire(5, TimeUnit.SECONDS)) {
+					throw new ProviderException("Read of " + symbol + " has not been allowed");
+				}
+			} catch (InterruptedException e) {
+				throw new ProviderException(e);
+			}
+			return super.getQuote(symbol);
+		}
+
+		void await() throws InterruptedException {
+			Assert.assertTrue(reads.tryAcquire(5, TimeUnit.SECONDS));
+		}
+	}
+
 	private static class TestPriceListener2 implements PriceListener {
 
 		@Override
@@ -87,15 +118,19 @@ public class ObserverTest {
 
 	@Test
 	public void test_states() throws InterruptedException {
-		Observer o = new Observer(Symbol.QQQ, new TestProvider());
+		GatedProvider p = new GatedProvider();
+		Observer o = new Observer(Symbol.QQQ, p);
 		o.setInterval(1); // 1 second
 		o.start();
+		p.await(); // first read started
 		o.pause();
 		Assert.assertEquals(-1.0, o.getPrice());
-		Thread.sleep(2000);
+		p.gate.release();
+		p.await(); // second read started, so the first quote has been handled
 		Assert.assertEquals(-1.0, o.getPrice());
 		o.resume();
-		Thread.sleep(2000);
+		p.gate.release();
+		p.await();
 		Assert.assertTrue(o.getPrice() > 0);
 		o.stop();
 	}
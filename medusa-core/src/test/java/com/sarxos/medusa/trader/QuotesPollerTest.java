@@ -0,0 +1,185 @@
+package com.sarxos.medusa.trader;
+
+import java.util.Date;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.provider.ProviderException;
+import com.sarxos.medusa.provider.RealTimeProvider;
+
+
+public class QuotesPollerTest {
+
+	/**
+	 * Timeout of waiting for the poller thread, in seconds.
+	 */
+	private static final long TIMEOUT = 5;
+
+	/**
+	 * Provider giving quote only when read has been allowed by the test (see
+	 * {@link #allow()}), so test controls when each read happens.
+	 */
+	private static class GatedProvider implements RealTimeProvider {
+
+		final AtomicInteger reads = new AtomicInteger();
+
+		final Semaphore gate = new Semaphore(0);
+
+		void allow() {
+			gate.release();
+		}
+
+		@Override
+		public Quote getQuote(Symbol symbol) throws ProviderException {
+			try {
+				if (!gate.tryAcquire(TIMEOUT, TimeUnit.SECONDS)) {
+					throw new ProviderException("Read of " + symbol + " has not been allowed");
+				}
+			} catch (InterruptedException e) {
+				throw new ProviderException(e);
+			}
+			double p = 100 * reads.incrementAndGet();
+			return new Quote(symbol, new Date(), p, p, p, p, 1000);
+		}
+
+		@Override
+		public boolean canServe(Symbol symbol) {
+			return true;
+		}
+	}
+
+	/**
+	 * Observer counting handled quotes.
+	 */
+	private static class CountingObserver extends Observer {
+
+		final Semaphore handled = new Semaphore(0);
+
+		volatile Quote last = null;
+
+		public CountingObserver(Symbol symbol, RealTimeProvider provider) {
+			super(symbol, provider);
+		}
+
+		@Override
+		void handle(Quote q) {
+			super.handle(q);
+			last = q;
+			handled.release();
+		}
+
+		void await() throws InterruptedException {
+			Assert.assertTrue(handled.tryAcquire(TIMEOUT, TimeUnit.SECONDS));
+		}
+	}
+
+	private static CountingObserver observer(Symbol symbol, RealTimeProvider provider, QuotesPoller poller) {
+		CountingObserver o = new CountingObserver(symbol, provider);
+		o.setQuotesPoller(poller);
+		o.setInterval(1);
+		return o;
+	}
+
+	@Test
+	public void test_first() throws InterruptedException {
+
+		QuotesPoller poller = new QuotesPoller(1);
+		GatedProvider provider = new GatedProvider();
+
+		CountingObserver a = observer(Symbol.QQQ, provider, poller);
+		a.start();
+
+		// new poll reads the first quote right after start
+
+		provider.allow();
+		a.await();
+
+		Assert.assertEquals(100.0, a.getPrice());
+		Assert.assertEquals(1, provider.reads.get());
+
+		a.stop();
+		Assert.assertEquals(0, poller.getPollsCount());
+	}
+
+	@Test
+	public void test_shared() throws InterruptedException {
+
+		QuotesPoller poller = new QuotesPoller(1);
+		GatedProvider qqq = new GatedProvider();
+		GatedProvider bre = new GatedProvider();
+
+		CountingObserver a = observer(Symbol.QQQ, qqq, poller);
+		CountingObserver b = observer(Symbol.QQQ, qqq, poller);
+		CountingObserver c = observer(Symbol.BRE, bre, poller);
+
+		a.start();
+		c.start();
+
+		qqq.allow();
+		bre.allow();
+		a.await();
+		c.await();
+
+		Assert.assertEquals(100.0, a.getPrice());
+		Assert.assertEquals(100.0, c.getPrice());
+
+		// observer of already polled symbol does not cause new read
+
+		b.start();
+		Assert.assertEquals(2, poller.getPollsCount());
+		Assert.assertEquals(1, qqq.reads.get());
+
+		// next read is passed to both observers, each gets its own copy
+
+		qqq.allow();
+		a.await();
+		b.await();
+
+		Assert.assertEquals(200.0, b.getPrice());
+		Assert.assertEquals(200.0, a.getPrice());
+		Assert.assertEquals(2, qqq.reads.get());
+		Assert.assertNotSame(a.last, b.last);
+		Assert.assertEquals(a.last.getClose(), b.last.getClose());
+
+		a.stop();
+		Assert.assertEquals(2, poller.getPollsCount());
+		b.stop();
+		Assert.assertEquals(1, poller.getPollsCount());
+		c.stop();
+		Assert.assertEquals(0, poller.getPollsCount());
+	}
+
+	@Test
+	public void test_paused() throws InterruptedException {
+
+		QuotesPoller poller = new QuotesPoller(1);
+		GatedProvider provider = new GatedProvider();
+
+		CountingObserver a = observer(Symbol.QQQ, provider, poller);
+		CountingObserver b = observer(Symbol.QQQ, provider, poller);
+
+		// b is paused before the first read is allowed, and it is before a on
+		// the poll list, so when a gets quote b has already been skipped
+
+		b.start();
+		b.pause();
+		a.start();
+
+		provider.allow();
+		a.await();
+
+		Assert.assertEquals(100.0, a.getPrice());
+		Assert.assertEquals(-1.0, b.getPrice());
+		Assert.assertEquals(0, b.handled.availablePermits());
+
+		a.stop();
+		b.stop();
+	}
+}
@@ -1,5 +1,6 @@
 package com.sarxos.medusa.plugin.bossa;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
@@ -8,15 +9,30 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -24,19 +40,23 @@ import org.apache.http.HttpException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.sarxos.medusa.data.QuotesBufferReader;
 import com.sarxos.medusa.data.QuotesIterator;
 import com.sarxos.medusa.data.QuotesRegistry;
+import com.sarxos.medusa.data.QuotesStorage;
+import com.sarxos.medusa.data.QuotesStore;
 import com.sarxos.medusa.http.MedusaHttpClient;
 import com.sarxos.medusa.market.Paper;
 import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
 import com.sarxos.medusa.market.Symbol;
-import com.sarxos.medusa.provider.HistoryProvider;
+import com.sarxos.medusa.provider.BulkHistoryProvider;
 import com.sarxos.medusa.provider.ProviderException;
 import com.sarxos.medusa.util.Configuration;
 import com.sarxos.medusa.util.DateUtils;
 
 
-public class BossaProvider implements HistoryProvider {
+public class BossaProvider implements BulkHistoryProvider {
 
 	/**
 	 * Used date format
@@ -63,6 +83,37 @@ public class BossaProvider implements HistoryProvider {
 	 */
 	private static final Logger LOG = LoggerFactory.getLogger(BossaProvider.class.getSimpleName());
 
+	/**
+	 * Approximate length of one MST line (in bytes), used to estimate number
+	 * of quotes in MST entry.
+	 */
+	private static final int MST_LINE_LENGTH = 48;
+
+	/**
+	 * Number of MST parser threads.
+	 */
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Maximum number of MST entries read into memory but not parsed yet.
+	 */
+	private static final int IN_FLIGHT = THREADS * 2;
+
+	/**
+	 * MST parsers executor shared by all providers.
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+
+		private int number = 0;
+
+		@Override
+		public synchronized Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "MSTParser-" + (number++));
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
 	@Override
 	public List<Quote> getLastQuotes(Symbol symbol) throws ProviderException {
 
@@ -226,8 +277,14 @@ public class BossaProvider implements HistoryProvider {
 		}
 	}
 
-	@Override
-	public List<Quote> getAllQuotes(Symbol symbol) throws ProviderException {
+	/**
+	 * Return MSTCGL ZIP file with all quotes. File is downloaded if it does not
+	 * exist or it is not from today.
+	 * 
+	 * @return MSTCGL ZIP file
+	 * @throws ProviderException
+	 */
+	private File getMSTCGL() throws ProviderException {
 
 		boolean download = true;
 
@@ -245,132 +302,214 @@ public class BossaProvider implements HistoryProvider {
 			downloadMSTCGL(f);
 		}
 
-		File file = null;
+		int attempts = 0;
+		do {
+			try {
+				new ZipFile(f).close();
+				break;
+			} catch (ZipException ze) {
+				LOG.error("Cannot open ZIP file " + f.getName());
+				downloadMSTCGL(f);
+			} catch (IOException e) {
+				throw new ProviderException(e);
+			}
+		} while (attempts++ < 5);
 
-		ZipEntry entry = null;
-		String name = null;
+		return f;
+	}
 
-		FileOutputStream fos = null;
-		InputStream is = null;
+	@Override
+	public List<Quote> getAllQuotes(Symbol symbol) throws ProviderException {
 
-		try {
+		File f = getMSTCGL();
 
-			File sessall = new File(dir + "/mstcgl");
-			if (!sessall.exists()) {
-				if (!sessall.mkdirs()) {
-					throw new ProviderException("Cannot create directory " + f.getName());
+		// binary store is valid as long as it is newer then downloaded ZIP
+
+		File store = QuotesStore.file(new File(CFG.getProperty("core", "tmpdir") + "/mstcgl"), symbol);
+		if (store.exists() && store.lastModified() >= f.lastModified()) {
+			try {
+				QuotesStore qs = QuotesStore.open(store);
+				try {
+					return qs.toSeries().asList();
+				} finally {
+					qs.close();
 				}
+			} catch (IOException e) {
+				LOG.warn("Cannot read quotes store " + store + ", " + e.getMessage());
 			}
+		}
 
-			ZipFile zip = null;
+		List<Quote> quotes = getAllQuotes(Collections.singleton(symbol)).get(symbol);
+		if (quotes == null) {
+			throw new ProviderException("There is no " + symbol + " quotes in " + f.getName());
+		}
 
-			int attempts = 0;
-			do {
-				try {
-					zip = new ZipFile(f);
-					break;
-				} catch (ZipException ze) {
-					LOG.error("Cannot open ZIP file " + f.getName());
-					downloadMSTCGL(f);
-				}
-			} while (attempts++ < 5);
+		return quotes;
+	}
 
-			Enumeration<? extends ZipEntry> entries = zip.entries();
-			while (entries.hasMoreElements()) {
+	/**
+	 * Read MSTCGL ZIP only once and parse all entries for given symbols in
+	 * parallel. Entries are parsed directly from memory - they are not
+	 * extracted to disk, but only {@link #IN_FLIGHT} of them are read ahead
+	 * of the parsers. Parsed quotes are also stored in the binary quotes
+	 * stores. Returned lists are views of the parsed quotes series, so they
+	 * do not support removal. Symbols not found in the ZIP are logged and
+	 * omitted in the result.
+	 */
+	@Override
+	public Map<Symbol, List<Quote>> getAllQuotes(Collection<Symbol> symbols) throws ProviderException {
+
+		File f = getMSTCGL();
+		File dir = new File(CFG.getProperty("core", "tmpdir") + "/mstcgl");
+
+		Semaphore slots = new Semaphore(IN_FLIGHT);
+		Map<Symbol, Future<QuoteSeries>> futures = new LinkedHashMap<Symbol, Future<QuoteSeries>>();
+		Map<Symbol, List<Quote>> quotes = new LinkedHashMap<Symbol, List<Quote>>();
+
+		ZipInputStream zis = null;
+		ZipEntry entry = null;
+		String name = null;
+
+		try {
+
+			zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(f)));
+
+			while ((entry = zis.getNextEntry()) != null) {
 
-				entry = entries.nextElement();
 				name = entry.getName();
+				if (!name.endsWith(".mst")) {
+					continue;
+				}
 
-				if (!name.matches(symbol.getName() + "\\.mst")) {
+				Symbol symbol = Symbol.valueOfName(name.substring(0, name.length() - 4));
+				if (symbol == null || (symbols != null && !symbols.contains(symbol))) {
 					continue;
 				}
 
-				is = zip.getInputStream(entry);
+				slots.acquire();
 
-				File mstf = new File("data/tmp/mstcgl/" + name);
-				FileUtils.touch(mstf);
+				byte[] bytes = null;
+				try {
+					bytes = IOUtils.toByteArray(zis);
+				} catch (IOException e) {
+					slots.release();
+					throw e;
+				}
 
-				fos = FileUtils.openOutputStream(mstf);
-				IOUtils.copy(is, fos);
-				IOUtils.closeQuietly(fos);
-				IOUtils.closeQuietly(is);
+				futures.put(symbol, EXECUTOR.submit(new MSTParser(symbol, bytes, dir, slots)));
+			}
 
-				file = mstf;
-				break;
+			for (Entry<Symbol, Future<QuoteSeries>> e : futures.entrySet()) {
+				quotes.put(e.getKey(), e.getValue().get().asList());
 			}
+
+		} catch (ExecutionException e) {
+			throw new ProviderException(e.getCause());
 		} catch (Exception e) {
 			throw new ProviderException(e);
+		} finally {
+			IOUtils.closeQuietly(zis);
+			for (Future<QuoteSeries> future : futures.values()) {
+				future.cancel(true);
+			}
 		}
 
-		FileInputStream fis = null;
-		InputStreamReader isr = null;
-		BufferedReader br = null;
-		String line = null;
-		String[] parts = null;
+		if (symbols != null) {
+			for (Symbol symbol : symbols) {
+				if (!quotes.containsKey(symbol)) {
+					LOG.error("There is no " + symbol + " quotes in " + f.getName());
+				}
+			}
+		}
 
-		Date date = null;
-		double open = 0;
-		double high = 0;
-		double low = 0;
-		double close = 0;
-		long volume = 0;
+		return quotes;
+	}
 
-		List<Quote> quotes = new LinkedList<Quote>();
-		Quote q = null, t = null;
+	@Override
+	public int importAllQuotes(Collection<Symbol> symbols, QuotesStorage storage) throws ProviderException {
 
-		try {
+		Map<Symbol, List<Quote>> all = getAllQuotes(symbols);
+
+		int n = 0;
+		for (Entry<Symbol, List<Quote>> e : all.entrySet()) {
+			if (storage.addQuotes(e.getKey(), e.getValue())) {
+				n++;
+			} else {
+				LOG.error("Cannot import quotes for symbol " + e.getKey());
+			}
+		}
+
+		// quotes of the found symbols are imported anyway
 
-			fis = new FileInputStream(file);
-			isr = new InputStreamReader(fis);
-			br = new BufferedReader(isr);
+		if (symbols != null) {
+			Collection<Symbol> missing = new LinkedHashSet<Symbol>(symbols);
+			missing.removeAll(all.keySet());
+			if (!missing.isEmpty()) {
+				throw new ProviderException("There is no " + missing + " quotes");
+			}
+		}
 
-			while (br.ready()) {
+		return n;
+	}
 
-				line = br.readLine();
-				parts = line.split(",");
+	/**
+	 * Parse MST entry bytes into quotes series and store it in the binary
+	 * quotes store. Read-ahead slot is released when entry has been processed.
+	 */
+	private static class MSTParser implements Callable<QuoteSeries> {
 
-				// <TICKER>,<DTYYYYMMDD>,<OPEN>,<HIGH>,<LOW>,<CLOSE>,<VOL>
-				// KGHM,20101220,156.70,158.20,155.00,157.90,394584
+		private Symbol symbol = null;
 
-				// headers line
-				if (parts[0].startsWith("<TICKER>")) {
-					continue;
-				}
+		private byte[] bytes = null;
 
-				if (parts.length < 7) {
-					throw new ProviderException(
-							"Something is wrong with data - should be 7 elements, " +
-							"found " + parts.length + " instead!");
-				}
-				if (!parts[0].equals(symbol.getName())) {
-					throw new ProviderException(
-							"Something is wrong with read method - tried to read " + symbol + " " +
-							"but read " + parts[0] + " instead!");
-				}
+		private File dir = null;
 
-				date = DATE_FORMAT.parse(parts[1]);
-				open = Double.valueOf(parts[2]);
-				high = Double.valueOf(parts[3]);
-				low = Double.valueOf(parts[4]);
-				close = Double.valueOf(parts[5]);
-				volume = Long.valueOf(parts[6]);
-
-				t = new Quote(date, open, high, low, close, volume);
-				if (q != null) {
-					t.setPrev(q);
-					q.setNext(t);
-				}
+		private Semaphore slots = null;
 
-				q = t;
+		public MSTParser(Symbol symbol, byte[] bytes, File dir, Semaphore slots) {
+			this.symbol = symbol;
+			this.bytes = bytes;
+			this.dir = dir;
+			this.slots = slots;
+		}
 
-				quotes.add(t);
+		@Override
+		public QuoteSeries call() throws Exception {
+			try {
+				return parse();
+			} finally {
+				bytes = null;
+				slots.release();
 			}
-
-		} catch (Throwable e) {
-			throw new ProviderException(e);
 		}
 
-		return quotes;
+		private QuoteSeries parse() throws Exception {
+
+			QuotesBufferReader reader = new QuotesBufferReader(ByteBuffer.wrap(bytes));
+			QuoteSeries series = new QuoteSeries(symbol, bytes.length / MST_LINE_LENGTH);
+
+			// <TICKER>,<DTYYYYMMDD>,<OPEN>,<HIGH>,<LOW>,<CLOSE>,<VOL>
+			// KGHM,20101220,156.70,158.20,155.00,157.90,394584
+
+			Quote q = null;
+			while ((q = reader.read()) != null) {
+				if (q.getSymbol() != symbol) {
+					throw new ProviderException(
+						"Something is wrong with read method - tried to read " + symbol + " " +
+						"but read " + q.getSymbol() + " instead!");
+				}
+				series.add(q);
+			}
+
+			File store = QuotesStore.file(dir, symbol);
+			try {
+				QuotesStore.write(store, symbol, series.asList());
+			} catch (IOException e) {
+				LOG.warn("Cannot write quotes store " + store + ", " + e.getMessage());
+			}
+
+			return series;
+		}
 	}
 
 	private void downloadZIP(File zipf, Paper paper) throws ProviderException {
@@ -511,12 +650,16 @@ public class BossaProvider implements HistoryProvider {
 	public static void main(String[] args) throws ProviderException, ParseException {
 		BossaProvider b = new BossaProvider();
 		QuotesIterator<Quote> qi = b.getIntradayQuotes(Symbol.FW20H11);
-		qi.forward(new SimpleDateFormat("yyyy-MM-dd HH").parse("2011-05-12 12"));
-		qi.forward(new SimpleDateFormat("yyyy-MM-dd").parse("2011-05-12"));
-		while (qi.hasNext()) {
-			System.out.println(qi.next());
-			break;
+		try {
+			qi.forward(new SimpleDateFormat("yyyy-MM-dd HH").parse("2011-05-12 12"));
+			qi.forward(new SimpleDateFormat("yyyy-MM-dd").parse("2011-05-12"));
+			while (qi.hasNext()) {
+				LOG.info(qi.next().toString());
+				break;
+			}
+			LOG.info(qi.next().toString());
+		} finally {
+			qi.close();
 		}
-		System.out.println(qi.next());
 	}
 }
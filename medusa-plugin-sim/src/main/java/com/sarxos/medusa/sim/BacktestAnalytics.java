@@ -0,0 +1,354 @@
+package com.sarxos.medusa.sim;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+
+import au.com.bytecode.opencsv.CSVWriter;
+
+
+/**
+ * Backtest performance analytics. Calculates drawdown, Sharpe and Sortino
+ * ratios, hit rate and exposure from the trades and the equity curve of the
+ * {@link BacktestResult}, so figures are always the same as the ones of the
+ * engine which made the trades. Equity curve has one point per day, ratios are
+ * calculated from daily profits. Profits are in price points.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class BacktestAnalytics {
+
+	/**
+	 * Trading days in year, used to annualize Sharpe and Sortino ratios.
+	 */
+	private static final int YEAR = 252;
+
+	/**
+	 * Summary CSV columns.
+	 */
+	private static final String[] HEADER = new String[] {
+		"label", "trades", "wins", "hitrate", "profit", "profitfactor",
+		"maxdrawdown", "sharpe", "sortino", "exposure", "days"
+	};
+
+	private final List<Trade> trades;
+
+	private final long[] equityTime;
+
+	private final double[] equityValue;
+
+	private final double drawdown;
+
+	private int wins = 0;
+
+	private double profit = 0;
+
+	private double gains = 0;
+
+	private double losses = 0;
+
+	private double exposure = 0;
+
+	private double sharpe = 0;
+
+	private double sortino = 0;
+
+	/**
+	 * @param result - backtest result
+	 */
+	public BacktestAnalytics(BacktestResult result) {
+
+		if (result == null) {
+			throw new IllegalArgumentException("Backtest result cannot be null");
+		}
+
+		EquityCurve equity = result.getEquity();
+
+		this.trades = result.getTrades();
+		this.equityTime = equity.getTimes();
+		this.equityValue = equity.getValues();
+		this.drawdown = equity.getMaxDrawdown();
+
+		long exposed = 0;
+		for (Trade t : trades) {
+			double p = t.getProfit();
+			if (p > 0) {
+				wins++;
+				gains += p;
+			} else {
+				losses -= p;
+			}
+			profit += p;
+			exposed += t.getExitDate().getTime() - t.getEntryDate().getTime();
+		}
+
+		long first = equity.getFirst();
+		long last = equity.getLast();
+		if (last > first) {
+			exposure = (double) exposed / (last - first);
+		}
+
+		ratios();
+	}
+
+	/**
+	 * Calculate Sharpe and Sortino ratios of daily profits.
+	 */
+	private void ratios() {
+
+		int n = equityValue.length;
+		if (n < 2) {
+			return;
+		}
+
+		double sum = 0;
+		double squares = 0;
+		double downside = 0;
+		double previous = 0;
+
+		for (int i = 0; i < n; i++) {
+			double p = equityValue[i] - previous;
+			previous = equityValue[i];
+			sum += p;
+			squares += p * p;
+			if (p < 0) {
+				downside += p * p;
+			}
+		}
+
+		double mean = sum / n;
+		double var = (squares - n * mean * mean) / (n - 1);
+		double dev = Math.sqrt(downside / n);
+
+		sharpe = var <= 0 ? 0 : mean / Math.sqrt(var) * Math.sqrt(YEAR);
+		sortino = dev == 0 ? 0 : mean / dev * Math.sqrt(YEAR);
+	}
+
+	/**
+	 * @return The last equity curve value
+	 */
+	public double getEquity() {
+		return equityValue.length == 0 ? 0 : equityValue[equityValue.length - 1];
+	}
+
+	/**
+	 * @return Profit of all closed trades
+	 */
+	public double getProfit() {
+		return profit;
+	}
+
+	/**
+	 * @return Number of closed trades
+	 */
+	public int getTrades() {
+		return trades.size();
+	}
+
+	/**
+	 * @return Number of trades closed with profit
+	 */
+	public int getWins() {
+		return wins;
+	}
+
+	/**
+	 * @return Ratio of winning trades to all trades
+	 */
+	public double getHitRate() {
+		return trades.isEmpty() ? 0 : (double) wins / trades.size();
+	}
+
+	/**
+	 * @return Gross profit divided by gross loss
+	 */
+	public double getProfitFactor() {
+		return losses == 0 ? (gains > 0 ? Double.POSITIVE_INFINITY : 0) : gains / losses;
+	}
+
+	/**
+	 * @return Maximum peak to valley equity decline
+	 */
+	public double getMaxDrawdown() {
+		return drawdown;
+	}
+
+	/**
+	 * @return Number of days with equity marks
+	 */
+	public int getDays() {
+		return equityValue.length;
+	}
+
+	/**
+	 * @return Annualized Sharpe ratio of daily profits (zero risk free rate)
+	 */
+	public double getSharpe() {
+		return sharpe;
+	}
+
+	/**
+	 * @return Annualized Sortino ratio of daily profits (zero target)
+	 */
+	public double getSortino() {
+		return sortino;
+	}
+
+	/**
+	 * @return Part of the marked time when position was opened
+	 */
+	public double getExposure() {
+		return exposure;
+	}
+
+	/**
+	 * @return Closed trades
+	 */
+	public List<Trade> getTradesList() {
+		return trades;
+	}
+
+	/**
+	 * @return Equity curve times, one (the last) mark per day
+	 */
+	public long[] getEquityTimes() {
+		return equityTime.clone();
+	}
+
+	/**
+	 * @return Equity curve values, one (the last) mark per day
+	 */
+	public double[] getEquityValues() {
+		return equityValue.clone();
+	}
+
+	/**
+	 * @return Summary CSV header
+	 */
+	public static String[] header() {
+		return HEADER.clone();
+	}
+
+	/**
+	 * @param label - row label, e.g. generator parameters
+	 * @return Summary CSV row, in the same order as {@link #header()}
+	 */
+	public String[] summary(String label) {
+		return new String[] {
+			label,
+			Integer.toString(trades.size()),
+			Integer.toString(wins),
+			format(getHitRate()),
+			format(profit),
+			format(getProfitFactor()),
+			format(drawdown),
+			format(getSharpe()),
+			format(getSortino()),
+			format(getExposure()),
+			Integer.toString(equityValue.length)
+		};
+	}
+
+	/**
+	 * Write closed trades as CSV.
+	 *
+	 * @param w - writer
+	 * @throws IOException when writing fails
+	 */
+	public void writeTrades(Writer w) throws IOException {
+		CSVWriter csv = new CSVWriter(w);
+		csv.writeNext(new String[] { "position", "entrytime", "entryprice", "exittime", "exitprice", "profit" });
+		for (Trade t : trades) {
+			csv.writeNext(new String[] {
+				t.getPosition().toString(),
+				Long.toString(t.getEntryDate().getTime()),
+				format(t.getEntryPrice()),
+				Long.toString(t.getExitDate().getTime()),
+				format(t.getExitPrice()),
+				format(t.getProfit())
+			});
+		}
+		csv.flush();
+	}
+
+	/**
+	 * Write daily equity curve as CSV.
+	 *
+	 * @param w - writer
+	 * @throws IOException when writing fails
+	 */
+	public void writeEquity(Writer w) throws IOException {
+		CSVWriter csv = new CSVWriter(w);
+		csv.writeNext(new String[] { "time", "equity" });
+		for (int i = 0; i < equityValue.length; i++) {
+			csv.writeNext(new String[] { Long.toString(equityTime[i]), format(equityValue[i]) });
+		}
+		csv.flush();
+	}
+
+	/**
+	 * @param label - report label, e.g. generator parameters
+	 * @return JSON report with summary, closed trades and equity curve
+	 */
+	public String toJSON(String label) {
+
+		StringBuilder sb = new StringBuilder("{");
+
+		String[] s = summary(label);
+		sb.append("\"label\":").append(quote(label));
+		for (int i = 1; i < HEADER.length; i++) {
+			sb.append(",\"").append(HEADER[i]).append("\":").append(s[i]);
+		}
+
+		sb.append(",\"closed\":[");
+		for (int i = 0; i < trades.size(); i++) {
+			Trade t = trades.get(i);
+			sb.append(i == 0 ? "{" : ",{");
+			sb.append("\"position\":\"").append(t.getPosition()).append('"');
+			sb.append(",\"entrytime\":").append(t.getEntryDate().getTime());
+			sb.append(",\"entryprice\":").append(format(t.getEntryPrice()));
+			sb.append(",\"exittime\":").append(t.getExitDate().getTime());
+			sb.append(",\"exitprice\":").append(format(t.getExitPrice()));
+			sb.append(",\"profit\":").append(format(t.getProfit()));
+			sb.append('}');
+		}
+
+		sb.append("],\"equity\":[");
+		for (int i = 0; i < equityValue.length; i++) {
+			sb.append(i == 0 ? "[" : ",[");
+			sb.append(equityTime[i]).append(',').append(format(equityValue[i]));
+			sb.append(']');
+		}
+
+		return sb.append("]}").toString();
+	}
+
+	/**
+	 * JSON does not allow infinity and NaN, so they are written as null.
+	 */
+	private static String format(double v) {
+		if (Double.isNaN(v) || Double.isInfinite(v)) {
+			return "null";
+		}
+		return String.format(Locale.US, "%.6f", v);
+	}
+
+	private static String quote(String s) {
+		if (s == null) {
+			return "null";
+		}
+		StringBuilder sb = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < ' ') {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
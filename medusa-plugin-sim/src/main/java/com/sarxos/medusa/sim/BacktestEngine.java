@@ -0,0 +1,439 @@
+package com.sarxos.medusa.sim;
+
+import static com.sarxos.medusa.market.Position.LONG;
+import static com.sarxos.medusa.market.Position.SHORT;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sarxos.medusa.data.BarAggregator;
+import com.sarxos.medusa.data.BarEvent;
+import com.sarxos.medusa.data.BarListener;
+import com.sarxos.medusa.data.FakeQuotesRegistry;
+import com.sarxos.medusa.data.QuotesIterator;
+import com.sarxos.medusa.market.Position;
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.SignalGenerator;
+import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.market.Timeframe;
+import com.sarxos.medusa.trader.DecisionEvent;
+import com.sarxos.medusa.trader.DecisionListener;
+import com.sarxos.medusa.trader.DecisionMaker;
+import com.sarxos.medusa.trader.FuturesTrader;
+import com.sarxos.medusa.trader.Observer;
+import com.sarxos.medusa.trader.PriceEvent;
+import com.sarxos.medusa.trader.PriceListener;
+
+
+/**
+ * Single threaded backtest engine. Intraday quotes are read from the iterator
+ * and passed directly to the {@link DecisionMaker} - there is no observer
+ * thread, no trader queue and no sleeping, so the backtest runs as fast as
+ * signal generator allows and always gives the same result for the same
+ * input.<br>
+ * <br>
+ *
+ * Intraday quotes are aggregated into daily bars with {@link BarAggregator},
+ * the same way {@link com.sarxos.medusa.provider.RealTimeProviderSim} does it,
+ * and the bars are added to the copy of the engine's quotes registry, so each
+ * run starts from the same history. Price events are created
+ * only when price has changed, like the {@link Observer} does. Decisions are
+ * filled immediately at the decision quote close price (moved by slippage),
+ * BUY opens long position (closing the short one), SELL closes the long
+ * position and opens short one if shorts are enabled. Equity is marked on
+ * every quote after warm-up, open position is valued as if it was closed at
+ * the quote price, with slippage and commissions of both fills.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class BacktestEngine implements DecisionListener {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(BacktestEngine.class.getSimpleName());
+
+	private final Symbol symbol;
+
+	private final SignalGenerator<Quote> generator;
+
+	/**
+	 * Registry with daily bars history, by default empty one. It is not
+	 * changed by the run.
+	 */
+	private FakeQuotesRegistry registry = new FakeQuotesRegistry();
+
+	private long from = Long.MIN_VALUE;
+
+	private long to = Long.MAX_VALUE;
+
+	/**
+	 * Minimum number of daily bars in registry before price events are passed
+	 * to the decision maker.
+	 */
+	private int warmup = 100;
+
+	private boolean shorts = true;
+
+	/**
+	 * Commission per fill in price points.
+	 */
+	private double commission = 0;
+
+	/**
+	 * Slippage per fill in price points.
+	 */
+	private double slippage = 0;
+
+	/**
+	 * Additional listeners notified about decisions made during the run.
+	 */
+	private final List<DecisionListener> decisionListeners = new ArrayList<DecisionListener>();
+
+	/**
+	 * Additional listeners notified about price events passed to the decision
+	 * maker.
+	 */
+	private final List<PriceListener> priceListeners = new ArrayList<PriceListener>();
+
+	// run state
+
+	private DecisionMaker maker = null;
+
+	/**
+	 * Copy of the history registry with daily bars added during the run.
+	 */
+	private FakeQuotesRegistry bars = null;
+
+	private List<Trade> trades = null;
+
+	private Position position = null;
+
+	private Date entryDate = null;
+
+	private double entryPrice = 0;
+
+	private int count = 0;
+
+	/**
+	 * Profit of closed trades.
+	 */
+	private double realized = 0;
+
+	private EquityCurve equity = null;
+
+	/**
+	 * Aggregates intraday quotes into daily bars.
+	 */
+	private BarAggregator daily = null;
+
+	/**
+	 * @param symbol - symbol to backtest
+	 * @param generator - signal generator (it should not be shared with other
+	 *            engines running at the same time)
+	 */
+	public BacktestEngine(Symbol symbol, SignalGenerator<Quote> generator) {
+		if (symbol == null) {
+			throw new IllegalArgumentException("Symbol cannot be null");
+		}
+		if (generator == null) {
+			throw new IllegalArgumentException("Signal generator cannot be null");
+		}
+		this.symbol = symbol;
+		this.generator = generator;
+	}
+
+	/**
+	 * Run backtest. Quotes before the 'from' date are only aggregated into the
+	 * registry, quotes after the 'to' date are not read. Each run works on the
+	 * fresh copy of the registry, so running the same quotes again gives the
+	 * same result.
+	 *
+	 * @param quotes - intraday quotes, ordered by time
+	 * @return Backtest result
+	 */
+	public synchronized BacktestResult run(Iterator<? extends Quote> quotes) {
+
+		FuturesTrader trader = new FuturesTrader(symbol + "[backtest]", generator, symbol);
+		Observer observer = trader.getObserver();
+
+		bars = registry.copy();
+
+		maker = new DecisionMaker(trader, generator, bars);
+		maker.removeDecisionListener(trader);
+		maker.addDecisionListener(this);
+		for (DecisionListener l : decisionListeners) {
+			maker.addDecisionListener(l);
+		}
+
+		trades = new ArrayList<Trade>();
+		position = null;
+		count = 0;
+		realized = 0;
+		equity = new EquityCurve();
+
+		daily = new BarAggregator(symbol, Timeframe.DAILY);
+		daily.addBarListener(new BarListener() {
+
+			@Override
+			public void barClosed(BarEvent be) {
+				bars.addQuote(symbol, be.getBar());
+				count++;
+			}
+		});
+
+		int ticks = 0;
+		double price = -1;
+		Quote q = null;
+		Quote tick = null;
+
+		try {
+			while (quotes.hasNext()) {
+
+				q = quotes.next();
+
+				long t = q.getDate().getTime();
+				if (t > to) {
+					break;
+				}
+
+				ticks++;
+
+				daily.add(q);
+
+				// intraday bars for multi timeframe generator, also warm-up
+				maker.aggregate(q);
+
+				if (t < from) {
+					continue;
+				}
+
+				// daily values are set on the copy, caller's quotes are not
+				// changed by the run
+
+				tick = copy(q);
+				tick.setOpen(daily.getOpen(Timeframe.DAILY));
+				tick.setHigh(daily.getHigh(Timeframe.DAILY));
+				tick.setLow(daily.getLow(Timeframe.DAILY));
+				tick.setVolume(daily.getVolume(Timeframe.DAILY));
+
+				boolean ready = ready();
+
+				double tmp = tick.getClose();
+				if (tmp != price && price != -1 && ready) {
+					PriceEvent pe = new PriceEvent(observer, price, tmp, tick);
+					maker.priceChange(pe);
+					for (PriceListener l : priceListeners) {
+						l.priceChange(pe);
+					}
+				}
+				price = tmp;
+
+				if (ready) {
+					equity.mark(t, realized + unrealized(tmp));
+				}
+			}
+		} finally {
+			if (quotes instanceof QuotesIterator<?>) {
+				((QuotesIterator<?>) quotes).close();
+			}
+		}
+
+		// position still opened is closed at the last price
+		if (position != null && tick != null) {
+			close(tick.getDate(), fill(tick.getClose(), position == SHORT));
+			equity.mark(tick.getDate().getTime(), realized);
+		}
+
+		BacktestResult result = new BacktestResult(symbol, generator.getClass().getSimpleName(), generator.getParameters(), trades, ticks, count, equity);
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("Backtest finished " + result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param q - quote to copy
+	 * @return Copy of the quote
+	 */
+	private static Quote copy(Quote q) {
+		try {
+			return q.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return true if registry contains enough daily bars
+	 */
+	private boolean ready() {
+		List<Quote> daily = bars.getQuotes(symbol);
+		return daily != null && daily.size() >= warmup;
+	}
+
+	/**
+	 * @param price - quote price
+	 * @param buy - is it buy order
+	 * @return Fill price with slippage
+	 */
+	private double fill(double price, boolean buy) {
+		return buy ? price + slippage : price - slippage;
+	}
+
+	private void close(Date date, double price) {
+		Trade t = new Trade(position, entryDate, entryPrice, date, price, 2 * commission);
+		trades.add(t);
+		realized += t.getProfit();
+		position = null;
+	}
+
+	/**
+	 * @param price - current price
+	 * @return Profit of the open position if it was closed at given price,
+	 *         after slippage and commissions
+	 */
+	private double unrealized(double price) {
+		if (position == null) {
+			return 0;
+		}
+		double d = fill(price, position == SHORT) - entryPrice;
+		return (position == LONG ? d : -d) - 2 * commission;
+	}
+
+	private void open(Position p, Date date, double price) {
+		position = p;
+		entryDate = date;
+		entryPrice = price;
+	}
+
+	@Override
+	public void decisionChange(DecisionEvent de) {
+
+		Quote q = de.getQuote();
+		Date date = q.getDate();
+
+		switch (de.getSignalType()) {
+			case BUY:
+				double buy = fill(q.getClose(), true);
+				if (position == SHORT) {
+					close(date, buy);
+				}
+				open(LONG, date, buy);
+				maker.setPosition(LONG);
+				break;
+			case SELL:
+				double sell = fill(q.getClose(), false);
+				if (position == LONG) {
+					close(date, sell);
+				}
+				if (shorts) {
+					open(SHORT, date, sell);
+				}
+				maker.setPosition(SHORT);
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Add listener notified about decisions made during the run, after the
+	 * engine fills them.
+	 *
+	 * @param listener - decision listener
+	 */
+	public void addDecisionListener(DecisionListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Decision listener cannot be null");
+		}
+		decisionListeners.add(listener);
+	}
+
+	/**
+	 * Add listener notified about price events passed to the decision maker.
+	 *
+	 * @param listener - price listener
+	 */
+	public void addPriceListener(PriceListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Price listener cannot be null");
+		}
+		priceListeners.add(listener);
+	}
+
+	public Symbol getSymbol() {
+		return symbol;
+	}
+
+	public SignalGenerator<Quote> getSignalGenerator() {
+		return generator;
+	}
+
+	public FakeQuotesRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Set registry with preloaded daily bars history. Registry is copied on
+	 * each run and daily bars aggregated from the quotes are added to the copy.
+	 *
+	 * @param registry - quotes registry
+	 */
+	public void setRegistry(FakeQuotesRegistry registry) {
+		if (registry == null) {
+			throw new IllegalArgumentException("Quotes registry cannot be null");
+		}
+		this.registry = registry;
+	}
+
+	public void setFrom(Date from) {
+		this.from = from == null ? Long.MIN_VALUE : from.getTime();
+	}
+
+	public void setTo(Date to) {
+		this.to = to == null ? Long.MAX_VALUE : to.getTime();
+	}
+
+	public int getWarmup() {
+		return warmup;
+	}
+
+	public void setWarmup(int warmup) {
+		if (warmup < 0) {
+			throw new IllegalArgumentException("Warmup cannot be negative");
+		}
+		this.warmup = warmup;
+	}
+
+	public boolean isShorts() {
+		return shorts;
+	}
+
+	public void setShorts(boolean shorts) {
+		this.shorts = shorts;
+	}
+
+	public double getCommission() {
+		return commission;
+	}
+
+	public void setCommission(double commission) {
+		this.commission = commission;
+	}
+
+	public double getSlippage() {
+		return slippage;
+	}
+
+	public void setSlippage(double slippage) {
+		this.slippage = slippage;
+	}
+}
@@ -0,0 +1,155 @@
+package com.sarxos.medusa.sim;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.sarxos.medusa.market.Symbol;
+
+
+/**
+ * Result of single backtest. Result depends only on the input quotes and
+ * generator parameters, so two runs with the same input are equal.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class BacktestResult {
+
+	private final Symbol symbol;
+
+	private final String generator;
+
+	private final Map<String, String> parameters;
+
+	private final List<Trade> trades;
+
+	private final int ticks;
+
+	private final int bars;
+
+	private final EquityCurve equity;
+
+	public BacktestResult(Symbol symbol, String generator, Map<String, String> parameters, List<Trade> trades, int ticks, int bars) {
+		this(symbol, generator, parameters, trades, ticks, bars, new EquityCurve());
+	}
+
+	public BacktestResult(Symbol symbol, String generator, Map<String, String> parameters, List<Trade> trades, int ticks, int bars, EquityCurve equity) {
+		this.symbol = symbol;
+		this.generator = generator;
+		this.parameters = parameters;
+		this.trades = Collections.unmodifiableList(trades);
+		this.ticks = ticks;
+		this.bars = bars;
+		this.equity = equity;
+	}
+
+	public Symbol getSymbol() {
+		return symbol;
+	}
+
+	/**
+	 * @return Generator class simple name
+	 */
+	public String getGenerator() {
+		return generator;
+	}
+
+	/**
+	 * @return Generator parameters
+	 */
+	public Map<String, String> getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * @return Closed trades in order of closing
+	 */
+	public List<Trade> getTrades() {
+		return trades;
+	}
+
+	/**
+	 * @return Number of processed intraday quotes
+	 */
+	public int getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * @return Number of daily bars added to the registry
+	 */
+	public int getBars() {
+		return bars;
+	}
+
+	/**
+	 * @return Equity curve marked by the engine
+	 */
+	public EquityCurve getEquity() {
+		return equity;
+	}
+
+	/**
+	 * @return Total profit in price points, after costs
+	 */
+	public double getProfit() {
+		double profit = 0;
+		for (Trade t : trades) {
+			profit += t.getProfit();
+		}
+		return profit;
+	}
+
+	/**
+	 * @return Number of trades closed with profit
+	 */
+	public int getWins() {
+		int wins = 0;
+		for (Trade t : trades) {
+			if (t.getProfit() > 0) {
+				wins++;
+			}
+		}
+		return wins;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof BacktestResult)) {
+			return false;
+		}
+		BacktestResult r = (BacktestResult) obj;
+		if (r.ticks != ticks || r.bars != bars || r.trades.size() != trades.size()) {
+			return false;
+		}
+		if (!r.symbol.equals(symbol) || !r.generator.equals(generator) || !r.parameters.equals(parameters)) {
+			return false;
+		}
+		for (int i = 0; i < trades.size(); i++) {
+			Trade a = trades.get(i);
+			Trade b = r.trades.get(i);
+			if (a.getPosition() != b.getPosition() || !a.getEntryDate().equals(b.getEntryDate()) || !a.getExitDate().equals(b.getExitDate())) {
+				return false;
+			}
+			if (a.getEntryPrice() != b.getEntryPrice() || a.getExitPrice() != b.getExitPrice() || a.getCosts() != b.getCosts()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = symbol.hashCode();
+		h = h * 31 + generator.hashCode();
+		h = h * 31 + parameters.hashCode();
+		h = h * 31 + trades.size();
+		h = h * 31 + ticks;
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %s %s ticks %d bars %d trades %d wins %d profit %.2f", symbol, generator, parameters, ticks, bars, trades.size(), getWins(), getProfit());
+	}
+}
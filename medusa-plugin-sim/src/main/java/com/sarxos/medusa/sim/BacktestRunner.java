@@ -0,0 +1,384 @@
+package com.sarxos.medusa.sim;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sarxos.medusa.data.FakeQuotesRegistry;
+import com.sarxos.medusa.data.QuotesIterator;
+import com.sarxos.medusa.generator.MAVD;
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.SignalGenerator;
+import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.provider.HistoryProvider;
+import com.sarxos.medusa.provider.HistoryProviderSim;
+import com.sarxos.medusa.provider.ProviderException;
+import com.sarxos.medusa.provider.Providers;
+import com.sarxos.medusa.util.DateUtils;
+
+
+/**
+ * Runs many backtests (symbol x generator) concurrently on the bounded
+ * threads pool. Every backtest has its own {@link BacktestEngine}, quotes
+ * registry and generator instance, so simulations do not interfere with each
+ * other.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class BacktestRunner {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(BacktestRunner.class.getSimpleName());
+
+	/**
+	 * Source of intraday quotes for the backtest.
+	 *
+	 * @author Bartosz Firyn (SarXos)
+	 */
+	public static interface QuotesSource {
+
+		/**
+		 * Open new intraday quotes iterator. Each call has to return new
+		 * iterator with new quote objects.
+		 *
+		 * @param symbol - symbol to get quotes for
+		 * @param from - date to start from (can be null)
+		 * @return Quotes iterator
+		 * @throws Exception when quotes cannot be read
+		 */
+		public Iterator<Quote> open(Symbol symbol, Date from) throws Exception;
+	}
+
+	/**
+	 * Default quotes source - intraday quotes from PRN file in the temporary
+	 * directory or from the default history provider.
+	 */
+	public static final QuotesSource INTRADAY = new QuotesSource() {
+
+		@Override
+		public Iterator<Quote> open(Symbol symbol, Date from) throws Exception {
+			return intraday(symbol, from);
+		}
+	};
+
+	/**
+	 * Single backtest definition.
+	 */
+	private static class Job {
+
+		private final Symbol symbol;
+
+		private final Class<? extends SignalGenerator<Quote>> type;
+
+		private final Map<String, String> parameters;
+
+		public Job(Symbol symbol, Class<? extends SignalGenerator<Quote>> type, Map<String, String> parameters) {
+			this.symbol = symbol;
+			this.type = type;
+			this.parameters = parameters;
+		}
+
+		@Override
+		public String toString() {
+			return symbol + " " + type.getSimpleName() + " " + parameters;
+		}
+	}
+
+	private final List<Job> jobs = new ArrayList<Job>();
+
+	private QuotesSource source = INTRADAY;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	private Date from = null;
+
+	private Date to = null;
+
+	/**
+	 * Provider of daily quotes loaded into registries before 'from' date.
+	 */
+	private HistoryProvider history = new HistoryProviderSim();
+
+	private int warmup = 100;
+
+	private boolean shorts = true;
+
+	private double commission = 0;
+
+	private double slippage = 0;
+
+	/**
+	 * Open intraday quotes iterator for given symbol, from PRN file if it is
+	 * available or from the default history provider otherwise.
+	 *
+	 * @param symbol - symbol
+	 * @param from - date to forward iterator to (can be null)
+	 * @return Intraday quotes iterator
+	 */
+	public static QuotesIterator<Quote> intraday(Symbol symbol, Date from) {
+
+		QuotesIterator<Quote> qi = null;
+		try {
+			qi = new QuotesIterator<Quote>(symbol);
+		} catch (FileNotFoundException e) {
+			try {
+				qi = Providers.getHistoryProvider().getIntradayQuotes(symbol);
+			} catch (ProviderException e1) {
+				throw new RuntimeException(e1);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		if (from != null) {
+			qi.forward(from);
+		}
+
+		return qi;
+	}
+
+	/**
+	 * Add backtest.
+	 *
+	 * @param symbol - symbol to backtest
+	 * @param type - generator class, it has to have public no-argument
+	 *            constructor
+	 * @param parameters - generator parameters or null for default ones
+	 */
+	public void add(Symbol symbol, Class<? extends SignalGenerator<Quote>> type, Map<String, String> parameters) {
+		if (symbol == null) {
+			throw new IllegalArgumentException("Symbol cannot be null");
+		}
+		if (type == null) {
+			throw new IllegalArgumentException("Generator class cannot be null");
+		}
+		jobs.add(new Job(symbol, type, parameters));
+	}
+
+	/**
+	 * Add backtests of the same generator for many symbols.
+	 *
+	 * @param symbols - symbols to backtest
+	 * @param type - generator class
+	 * @param parameters - generator parameters or null for default ones
+	 */
+	public void add(Symbol[] symbols, Class<? extends SignalGenerator<Quote>> type, Map<String, String> parameters) {
+		for (Symbol symbol : symbols) {
+			add(symbol, type, parameters);
+		}
+	}
+
+	/**
+	 * @return Number of backtests to run
+	 */
+	public int size() {
+		return jobs.size();
+	}
+
+	/**
+	 * Run single backtest.
+	 *
+	 * @param job - backtest definition
+	 * @param daily - daily quotes history to load into registry (can be null)
+	 * @return Backtest result
+	 * @throws Exception when backtest fails
+	 */
+	protected BacktestResult run(Job job, List<Quote> daily) throws Exception {
+
+		SignalGenerator<Quote> generator = job.type.newInstance();
+		if (job.parameters != null) {
+			generator.setParameters(job.parameters);
+		}
+
+		FakeQuotesRegistry registry = new FakeQuotesRegistry();
+		registry.setHistoryProvider(new HistoryProviderSim());
+		if (daily != null) {
+			registry.load(job.symbol, from, daily);
+		}
+
+		BacktestEngine engine = new BacktestEngine(job.symbol, generator);
+		engine.setRegistry(registry);
+		engine.setFrom(from);
+		engine.setTo(to);
+		engine.setWarmup(warmup);
+		engine.setShorts(shorts);
+		engine.setCommission(commission);
+		engine.setSlippage(slippage);
+
+		Iterator<Quote> quotes = source.open(job.symbol, from);
+		try {
+			return engine.run(quotes);
+		} finally {
+			if (quotes instanceof QuotesIterator<?>) {
+				((QuotesIterator<?>) quotes).close();
+			}
+		}
+	}
+
+	/**
+	 * Run all backtests. Failed backtests are logged and skipped.
+	 *
+	 * @return Results in the order in which backtests have been added
+	 * @throws InterruptedException when interrupted while waiting for results
+	 */
+	public List<BacktestResult> run() throws InterruptedException {
+
+		// history is read once per symbol, before workers are started, and
+		// then only copied into jobs registries
+
+		Map<Symbol, List<Quote>> histories = new HashMap<Symbol, List<Quote>>();
+		if (history != null && from != null) {
+			for (Job job : jobs) {
+				if (!histories.containsKey(job.symbol)) {
+					try {
+						histories.put(job.symbol, history.getAllQuotes(job.symbol));
+					} catch (ProviderException e) {
+						LOG.error("Cannot read history for symbol " + job.symbol, e);
+						histories.put(job.symbol, null);
+					}
+				}
+			}
+		}
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("Running " + jobs.size() + " backtests in " + threads + " threads");
+		}
+
+		List<Future<BacktestResult>> futures = new LinkedList<Future<BacktestResult>>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		try {
+			for (final Job job : jobs) {
+				final List<Quote> daily = histories.get(job.symbol);
+				futures.add(executor.submit(new Callable<BacktestResult>() {
+
+					@Override
+					public BacktestResult call() throws Exception {
+						return run(job, daily);
+					}
+				}));
+			}
+
+			List<BacktestResult> results = new ArrayList<BacktestResult>(jobs.size());
+			Iterator<Job> ji = jobs.iterator();
+
+			for (Future<BacktestResult> f : futures) {
+				Job job = ji.next();
+				try {
+					results.add(f.get());
+				} catch (ExecutionException e) {
+					LOG.error("Backtest " + job + " failed", e.getCause());
+				}
+			}
+
+			return Collections.unmodifiableList(results);
+
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Print results table with the total profit.
+	 *
+	 * @param results - backtests results
+	 * @param ps - print stream
+	 */
+	public static void print(List<BacktestResult> results, PrintStream ps) {
+		double profit = 0;
+		int trades = 0;
+		int wins = 0;
+		for (BacktestResult r : results) {
+			ps.println(r);
+			profit += r.getProfit();
+			trades += r.getTrades().size();
+			wins += r.getWins();
+		}
+		ps.println(String.format("TOTAL backtests %d trades %d wins %d profit %.2f", results.size(), trades, wins, profit));
+	}
+
+	public QuotesSource getSource() {
+		return source;
+	}
+
+	public void setSource(QuotesSource source) {
+		if (source == null) {
+			throw new IllegalArgumentException("Quotes source cannot be null");
+		}
+		this.source = source;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Number of threads has to be positive");
+		}
+		this.threads = threads;
+	}
+
+	public void setFrom(Date from) {
+		this.from = from;
+	}
+
+	public void setTo(Date to) {
+		this.to = to;
+	}
+
+	/**
+	 * @param history - provider of daily quotes loaded into registries before
+	 *            the 'from' date, null to start with empty registries
+	 */
+	public void setHistory(HistoryProvider history) {
+		this.history = history;
+	}
+
+	public void setWarmup(int warmup) {
+		this.warmup = warmup;
+	}
+
+	public void setShorts(boolean shorts) {
+		this.shorts = shorts;
+	}
+
+	public void setCommission(double commission) {
+		this.commission = commission;
+	}
+
+	public void setSlippage(double slippage) {
+		this.slippage = slippage;
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+
+		Symbol[] basket = new Symbol[] { Symbol.KGH, Symbol.BRE, Symbol.BZW, Symbol.CPS, Symbol.KER };
+
+		BacktestRunner runner = new BacktestRunner();
+		runner.setFrom(DateUtils.fromCGL("20110101"));
+		runner.setTo(DateUtils.fromCGL("20110520"));
+		runner.setShorts(false);
+		runner.add(basket, MAVD.class, null);
+
+		print(runner.run(), System.out);
+	}
+}
@@ -0,0 +1,113 @@
+package com.sarxos.medusa.sim;
+
+import java.util.Arrays;
+import java.util.TimeZone;
+
+
+/**
+ * Equity curve of single backtest. Every mark updates maximum drawdown, but
+ * only the last mark of each day is stored, so curve of million-tick intraday
+ * run still has one point per day.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class EquityCurve {
+
+	/**
+	 * Milliseconds in day.
+	 */
+	private static final long DAY = 1000 * 60 * 60 * 24;
+
+	private final TimeZone zone = TimeZone.getDefault();
+
+	private int points = 0;
+
+	private long[] times = new long[64];
+
+	private double[] values = new double[64];
+
+	private long day = Long.MIN_VALUE;
+
+	private long first = Long.MIN_VALUE;
+
+	private double peak = 0;
+
+	private double drawdown = 0;
+
+	/**
+	 * Mark equity.
+	 *
+	 * @param time - mark time, not earlier than the previous one
+	 * @param equity - realized profit plus open position profit after costs
+	 */
+	public void mark(long time, double equity) {
+
+		if (first == Long.MIN_VALUE) {
+			first = time;
+		}
+
+		if (equity > peak) {
+			peak = equity;
+		} else if (peak - equity > drawdown) {
+			drawdown = peak - equity;
+		}
+
+		long d = (time + zone.getOffset(time)) / DAY;
+
+		if (d != day) {
+			if (points == times.length) {
+				times = Arrays.copyOf(times, points * 2);
+				values = Arrays.copyOf(values, points * 2);
+			}
+			points++;
+			day = d;
+		}
+
+		times[points - 1] = time;
+		values[points - 1] = equity;
+	}
+
+	/**
+	 * @return Number of days with equity marks
+	 */
+	public int size() {
+		return points;
+	}
+
+	/**
+	 * @return Time of the first mark, or {@link Long#MIN_VALUE} if there are no
+	 *         marks
+	 */
+	public long getFirst() {
+		return first;
+	}
+
+	/**
+	 * @return Time of the last mark, or {@link Long#MIN_VALUE} if there are no
+	 *         marks
+	 */
+	public long getLast() {
+		return points == 0 ? Long.MIN_VALUE : times[points - 1];
+	}
+
+	/**
+	 * @return Maximum peak to valley equity decline, over all marks
+	 */
+	public double getMaxDrawdown() {
+		return drawdown;
+	}
+
+	/**
+	 * @return Curve times, one (the last) mark per day
+	 */
+	public long[] getTimes() {
+		return Arrays.copyOf(times, points);
+	}
+
+	/**
+	 * @return Curve values, one (the last) mark per day
+	 */
+	public double[] getValues() {
+		return Arrays.copyOf(values, points);
+	}
+}
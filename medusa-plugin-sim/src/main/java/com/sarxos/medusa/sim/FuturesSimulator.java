@@ -2,28 +2,29 @@ package com.sarxos.medusa.sim;
 
 import java.util.Date;
 
-import com.sarxos.medusa.comm.FakeMessagesBroker;
-import com.sarxos.medusa.comm.MessagingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.sarxos.medusa.data.FakeQuotesRegistry;
-import com.sarxos.medusa.data.QuotesRegistry;
+import com.sarxos.medusa.data.QuotesIterator;
 import com.sarxos.medusa.generator.MAVD;
 import com.sarxos.medusa.market.Quote;
 import com.sarxos.medusa.market.SignalGenerator;
 import com.sarxos.medusa.market.Symbol;
 import com.sarxos.medusa.provider.HistoryProviderSim;
-import com.sarxos.medusa.provider.RealTimeProvider;
-import com.sarxos.medusa.provider.RealTimeProviderSim;
-import com.sarxos.medusa.trader.FuturesTrader;
-import com.sarxos.medusa.trader.StoppingHandler;
 import com.sarxos.medusa.util.DateUtils;
 
 
 public class FuturesSimulator {
 
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(FuturesSimulator.class.getSimpleName());
+
 	private Symbol symbol = null;
 	private Date from = null;
 	private Date to = null;
-	private String name = null;
 	private SignalGenerator<Quote> siggen = null;
 
 	public FuturesSimulator(Symbol symbol, Date from, Date to, SignalGenerator<Quote> siggen) {
@@ -31,41 +32,43 @@ public class FuturesSimulator {
 		this.from = from;
 		this.to = to;
 		this.siggen = siggen;
-		this.name = symbol + "[simulation]";
 	}
 
-	public void start() {
+	/**
+	 * Run simulation in the current thread.
+	 * 
+	 * @return Simulation result
+	 */
+	public BacktestResult start() {
 
-		RealTimeProvider provider = new RealTimeProviderSim(symbol, from, to);
+		QuotesIterator<Quote> qi = BacktestRunner.intraday(symbol, from);
 
-		QuotesRegistry qr = new FakeQuotesRegistry();
+		FakeQuotesRegistry qr = new FakeQuotesRegistry();
 		qr.setHistoryProvider(new HistoryProviderSim());
+		if (from != null) {
+			qr.load(symbol, from);
+		}
 
-		FuturesTrader trader = new FuturesTrader(name, siggen, symbol);
-
-		trader.setProvider(provider);
-		trader.setQuotesRegistry(qr);
-		trader.getObserver().setInterval(0);
-		trader.setMessagesBroker(new FakeMessagesBroker());
-		trader.getDecisionMaker().setNullHandler(new StoppingHandler(trader.getObserver()));
-
-		trader.trade();
+		BacktestEngine engine = new BacktestEngine(symbol, siggen);
+		engine.setRegistry(qr);
+		engine.setFrom(from);
+		engine.setTo(to);
 
-		try {
-			Thread.sleep(200000);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
+		return engine.run(qi);
 	}
 
-	public static void main(String[] args) throws InterruptedException, MessagingException {
+	public static void main(String[] args) {
 		Symbol symbol = Symbol.FW20M11;
 		SignalGenerator<Quote> siggen = new MAVD(5, 10, 20);
 		Date from = DateUtils.fromCGL("20110505");
 		Date upto = DateUtils.fromCGL("20110520");
 
 		FuturesSimulator sim = new FuturesSimulator(symbol, from, upto, siggen);
-		sim.start();
+		BacktestResult result = sim.start();
 
+		for (Trade t : result.getTrades()) {
+			LOG.info(t.toString());
+		}
+		LOG.info(result.toString());
 	}
 }
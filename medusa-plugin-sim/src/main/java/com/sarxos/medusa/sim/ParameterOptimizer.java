@@ -0,0 +1,455 @@
+package com.sarxos.medusa.sim;
+
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sarxos.medusa.generator.MAVD;
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Signal;
+import com.sarxos.medusa.market.SignalGenerator;
+import com.sarxos.medusa.market.SignalParameter;
+import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.provider.HistoryProviderSim;
+
+
+/**
+ * Parameters optimizer for signal generators. Parameters are taken from
+ * generator fields annotated with {@link SignalParameter}. Each combination
+ * from the parameters grid is evaluated with
+ * {@link SignalGenerator#generate(Quote[], int)} over the same quotes history
+ * and combinations are ranked by profit. Combinations are evaluated in
+ * parallel on all available processors.<br>
+ * <br>
+ *
+ * Profit is calculated in price points - position is opened on BUY signal and
+ * closed on SELL signal (or reversed to short one if shorts are enabled) at
+ * the close price of the signal quote. Position still open at the end of the
+ * range is closed at the last quote close price.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class ParameterOptimizer {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(ParameterOptimizer.class.getSimpleName());
+
+	/**
+	 * Evaluation result of single parameters combination.
+	 */
+	public static class Result implements Comparable<Result> {
+
+		private final Map<String, String> parameters;
+
+		private double profit = 0;
+
+		private int trades = 0;
+
+		private int wins = 0;
+
+		private int signals = 0;
+
+		public Result(Map<String, String> parameters) {
+			this.parameters = parameters;
+		}
+
+		/**
+		 * @return Generator parameters
+		 */
+		public Map<String, String> getParameters() {
+			return parameters;
+		}
+
+		/**
+		 * @return Profit in price points
+		 */
+		public double getProfit() {
+			return profit;
+		}
+
+		/**
+		 * @return Number of closed positions
+		 */
+		public int getTrades() {
+			return trades;
+		}
+
+		/**
+		 * @return Number of positions closed with profit
+		 */
+		public int getWins() {
+			return wins;
+		}
+
+		/**
+		 * @return Number of generated signals
+		 */
+		public int getSignals() {
+			return signals;
+		}
+
+		private void close(double profit) {
+			this.profit += profit;
+			this.trades++;
+			if (profit > 0) {
+				this.wins++;
+			}
+		}
+
+		@Override
+		public int compareTo(Result r) {
+			return Double.compare(r.profit, profit);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s profit %.2f trades %d wins %d", parameters, profit, trades, wins);
+		}
+	}
+
+	/**
+	 * Generator class.
+	 */
+	private final Class<? extends SignalGenerator<Quote>> type;
+
+	/**
+	 * Quotes history shared by all evaluations.
+	 */
+	private final Quote[] data;
+
+	/**
+	 * Number of newest quotes to generate signals for.
+	 */
+	private final int range;
+
+	/**
+	 * Parameters names.
+	 */
+	private final List<String> names;
+
+	/**
+	 * Values to check for each parameter.
+	 */
+	private final Map<String, int[]> grid = new HashMap<String, int[]>();
+
+	/**
+	 * Number of threads.
+	 */
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Shall SELL signal open short position?
+	 */
+	private boolean shorts = false;
+
+	/**
+	 * Create optimizer.
+	 *
+	 * @param type - generator class, it has to have public no-argument
+	 *            constructor
+	 * @param data - quotes history (the last element is the newest one)
+	 * @param range - number of newest quotes to generate signals for
+	 */
+	public ParameterOptimizer(Class<? extends SignalGenerator<Quote>> type, Quote[] data, int range) {
+
+		if (type == null) {
+			throw new IllegalArgumentException("Generator class cannot be null");
+		}
+		if (range <= 0 || range >= data.length) {
+			throw new IllegalArgumentException("Range has to be positive and less then number of quotes");
+		}
+
+		this.type = type;
+		this.data = data.clone();
+		this.range = range;
+		this.names = parameters(type);
+
+		if (names.isEmpty()) {
+			throw new IllegalArgumentException("Generator " + type.getSimpleName() + " has no signal parameters");
+		}
+
+		Map<String, String> defaults = create().getParameters();
+		for (String name : names) {
+			grid.put(name, new int[] { Integer.parseInt(defaults.get(name)) });
+		}
+	}
+
+	/**
+	 * Find names of the generator fields annotated with
+	 * {@link SignalParameter}.
+	 *
+	 * @param type - generator class
+	 * @return Parameters names
+	 */
+	public static List<String> parameters(Class<?> type) {
+		List<String> names = new ArrayList<String>();
+		for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+			for (Field f : c.getDeclaredFields()) {
+				if (f.isAnnotationPresent(SignalParameter.class)) {
+					names.add(f.getName());
+				}
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Check parameter values from given range.
+	 *
+	 * @param name - parameter name
+	 * @param from - first value
+	 * @param to - last value (inclusive)
+	 * @param step - step
+	 */
+	public void setRange(String name, int from, int to, int step) {
+		if (step <= 0) {
+			throw new IllegalArgumentException("Step has to be positive");
+		}
+		if (to < from) {
+			throw new IllegalArgumentException("Range end cannot be less then its beginning");
+		}
+		int[] values = new int[(to - from) / step + 1];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = from + i * step;
+		}
+		setValues(name, values);
+	}
+
+	/**
+	 * Check given parameter values.
+	 *
+	 * @param name - parameter name
+	 * @param values - values to check
+	 */
+	public void setValues(String name, int... values) {
+		if (!names.contains(name)) {
+			throw new IllegalArgumentException("Generator " + type.getSimpleName() + " has no signal parameter " + name);
+		}
+		if (values.length == 0) {
+			throw new IllegalArgumentException("At least one value is required for parameter " + name);
+		}
+		grid.put(name, values.clone());
+	}
+
+	/**
+	 * @return Number of parameters combinations
+	 */
+	public int getCombinations() {
+		int n = 1;
+		for (String name : names) {
+			n *= grid.get(name).length;
+		}
+		return n;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Number of threads has to be positive");
+		}
+		this.threads = threads;
+	}
+
+	public boolean isShorts() {
+		return shorts;
+	}
+
+	public void setShorts(boolean shorts) {
+		this.shorts = shorts;
+	}
+
+	private SignalGenerator<Quote> create() {
+		try {
+			return type.newInstance();
+		} catch (Exception e) {
+			throw new RuntimeException("Cannot create generator " + type.getName(), e);
+		}
+	}
+
+	/**
+	 * @return All parameters combinations
+	 */
+	private List<Map<String, String>> combinations() {
+
+		List<Map<String, String>> combinations = new ArrayList<Map<String, String>>(getCombinations());
+		int[] idx = new int[names.size()];
+
+		while (true) {
+
+			Map<String, String> params = new LinkedHashMap<String, String>();
+			for (int i = 0; i < idx.length; i++) {
+				String name = names.get(i);
+				params.put(name, Integer.toString(grid.get(name)[idx[i]]));
+			}
+			combinations.add(params);
+
+			int i = idx.length - 1;
+			while (i >= 0 && ++idx[i] == grid.get(names.get(i)).length) {
+				idx[i--] = 0;
+			}
+			if (i < 0) {
+				return combinations;
+			}
+		}
+	}
+
+	/**
+	 * Evaluate single parameters combination.
+	 *
+	 * @param params - generator parameters
+	 * @return Evaluation result or null if parameters are not valid
+	 */
+	protected Result evaluate(Map<String, String> params) {
+
+		SignalGenerator<Quote> generator = create();
+		try {
+			generator.setParameters(params);
+		} catch (IllegalArgumentException e) {
+			LOG.debug("Skipping parameters " + params + ": " + e.getMessage());
+			return null;
+		}
+
+		Result result = new Result(params);
+		List<Signal> signals = generator.generate(data, range);
+
+		int position = 0;
+		double entry = 0;
+
+		for (Signal s : signals) {
+
+			double price = s.getQuote().getClose();
+			result.signals++;
+
+			switch (s.getType()) {
+				case BUY:
+					if (position < 0) {
+						result.close(entry - price);
+					}
+					if (position <= 0) {
+						position = 1;
+						entry = price;
+					}
+					break;
+				case SELL:
+					if (position > 0) {
+						result.close(price - entry);
+						position = 0;
+					}
+					if (shorts && position == 0) {
+						position = -1;
+						entry = price;
+					}
+					break;
+				default:
+					break;
+			}
+		}
+
+		if (position != 0) {
+			double price = data[data.length - 1].getClose();
+			result.close(position * (price - entry));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Evaluate all parameters combinations.
+	 *
+	 * @return Results sorted by profit, the best one is the first
+	 * @throws InterruptedException when interrupted while waiting for results
+	 */
+	public List<Result> optimize() throws InterruptedException {
+
+		List<Map<String, String>> combinations = combinations();
+		List<Future<Result>> futures = new LinkedList<Future<Result>>();
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("Evaluating " + combinations.size() + " parameters combinations of " + type.getSimpleName() + " in " + threads + " threads");
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (final Map<String, String> params : combinations) {
+				futures.add(executor.submit(new Callable<Result>() {
+
+					@Override
+					public Result call() throws Exception {
+						return evaluate(params);
+					}
+				}));
+			}
+
+			List<Result> results = new ArrayList<Result>(futures.size());
+			for (Future<Result> f : futures) {
+				Result r = f.get();
+				if (r != null) {
+					results.add(r);
+				}
+			}
+
+			Collections.sort(results);
+
+			return results;
+
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Parameters evaluation failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Print ranked results table.
+	 *
+	 * @param results - sorted results
+	 * @param ps - print stream
+	 */
+	public static void print(List<Result> results, PrintStream ps) {
+		int i = 0;
+		for (Result r : results) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(String.format("%4d", ++i));
+			for (Entry<String, String> e : r.getParameters().entrySet()) {
+				sb.append(String.format(" %s=%-4s", e.getKey(), e.getValue()));
+			}
+			sb.append(String.format(" %10.2f %5d %5d", r.getProfit(), r.getTrades(), r.getWins()));
+			ps.println(sb);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		Symbol symbol = Symbol.FW20M11;
+		List<Quote> quotes = new HistoryProviderSim().getAllQuotes(symbol);
+		Quote[] data = quotes.toArray(new Quote[quotes.size()]);
+
+		ParameterOptimizer po = new ParameterOptimizer(MAVD.class, data, data.length - 100);
+		po.setRange("A", 3, 15, 1);
+		po.setRange("B", 10, 40, 2);
+		po.setRange("C", 10, 50, 5);
+		po.setShorts(true);
+
+		print(po.optimize(), System.out);
+	}
+}
@@ -0,0 +1,80 @@
+package com.sarxos.medusa.sim;
+
+import java.util.Date;
+
+import com.sarxos.medusa.market.Position;
+
+
+/**
+ * Simulated round trip - position opened and closed by the backtest engine.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class Trade {
+
+	private final Position position;
+
+	private final Date entryDate;
+
+	private final double entryPrice;
+
+	private final Date exitDate;
+
+	private final double exitPrice;
+
+	private final double costs;
+
+	/**
+	 * @param position - long or short
+	 * @param entryDate - position opening time
+	 * @param entryPrice - position opening price
+	 * @param exitDate - position closing time
+	 * @param exitPrice - position closing price
+	 * @param costs - commissions paid for both fills
+	 */
+	public Trade(Position position, Date entryDate, double entryPrice, Date exitDate, double exitPrice, double costs) {
+		this.position = position;
+		this.entryDate = entryDate;
+		this.entryPrice = entryPrice;
+		this.exitDate = exitDate;
+		this.exitPrice = exitPrice;
+		this.costs = costs;
+	}
+
+	public Position getPosition() {
+		return position;
+	}
+
+	public Date getEntryDate() {
+		return entryDate;
+	}
+
+	public double getEntryPrice() {
+		return entryPrice;
+	}
+
+	public Date getExitDate() {
+		return exitDate;
+	}
+
+	public double getExitPrice() {
+		return exitPrice;
+	}
+
+	public double getCosts() {
+		return costs;
+	}
+
+	/**
+	 * @return Profit in price points, after costs
+	 */
+	public double getProfit() {
+		double d = exitPrice - entryPrice;
+		return (position == Position.LONG ? d : -d) - costs;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %tF %<tT %.2f -> %tF %<tT %.2f = %.2f", position, entryDate, entryPrice, exitDate, exitPrice, getProfit());
+	}
+}
@@ -0,0 +1,517 @@
+package com.sarxos.medusa.sim;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sarxos.medusa.generator.MAVD;
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.SignalGenerator;
+import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.provider.HistoryProviderSim;
+import com.sarxos.medusa.sim.ParameterOptimizer.Result;
+import com.sarxos.medusa.sql.DBDAO;
+import com.sarxos.medusa.sql.DBDAOException;
+import com.sarxos.medusa.sql.Marshaller;
+import com.sarxos.medusa.trader.Trader;
+
+
+/**
+ * Walk-forward evaluation of the signal generator parameters. Quotes history
+ * is split into windows - parameters are optimized on the in-sample part of
+ * each window with {@link ParameterOptimizer} and the best ones are evaluated
+ * on the following out-of-sample part. In-sample windows can be rolling (fixed
+ * length) or anchored (always starting at the beginning of the history).
+ * Windows are processed in parallel.<br>
+ * <br>
+ *
+ * Sum of the out-of-sample profits shows how the generator would perform if
+ * it was re-optimized periodically, and parameters spread between windows
+ * shows how stable they are. Parameters fitted in the last window can be
+ * applied to the trader and saved in the DB together with it.
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class WalkForward {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(WalkForward.class.getSimpleName());
+
+	/**
+	 * Single walk-forward window.
+	 */
+	public static class Window {
+
+		private final int index;
+
+		private final Quote inFrom;
+
+		private final Quote inTo;
+
+		private final Quote outFrom;
+
+		private final Quote outTo;
+
+		private Result inSample = null;
+
+		private Result outSample = null;
+
+		private String marshalled = null;
+
+		private Window(int index, Quote inFrom, Quote inTo, Quote outFrom, Quote outTo) {
+			this.index = index;
+			this.inFrom = inFrom;
+			this.inTo = inTo;
+			this.outFrom = outFrom;
+			this.outTo = outTo;
+		}
+
+		/**
+		 * @return Window number, starting from 0
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * @return First in-sample quote
+		 */
+		public Quote getInFrom() {
+			return inFrom;
+		}
+
+		/**
+		 * @return Last in-sample quote
+		 */
+		public Quote getInTo() {
+			return inTo;
+		}
+
+		/**
+		 * @return First out-of-sample quote
+		 */
+		public Quote getOutFrom() {
+			return outFrom;
+		}
+
+		/**
+		 * @return Last out-of-sample quote
+		 */
+		public Quote getOutTo() {
+			return outTo;
+		}
+
+		/**
+		 * @return Best in-sample result
+		 */
+		public Result getInSample() {
+			return inSample;
+		}
+
+		/**
+		 * @return Out-of-sample result of the best in-sample parameters
+		 */
+		public Result getOutSample() {
+			return outSample;
+		}
+
+		/**
+		 * @return Fitted parameters
+		 */
+		public Map<String, String> getParameters() {
+			return inSample.getParameters();
+		}
+
+		/**
+		 * @return Fitted parameters in the form stored together with trader
+		 * @see Marshaller#marshalGenParams(SignalGenerator)
+		 */
+		public String getMarshalled() {
+			return marshalled;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+				"%3d IS %tF - %tF %10.2f OOS %tF - %tF %10.2f %s",
+				index, inFrom.getDate(), inTo.getDate(), inSample.getProfit(),
+				outFrom.getDate(), outTo.getDate(), outSample.getProfit(), marshalled);
+		}
+	}
+
+	private final Class<? extends SignalGenerator<Quote>> type;
+
+	private final Quote[] data;
+
+	/**
+	 * In-sample window length.
+	 */
+	private final int in;
+
+	/**
+	 * Out-of-sample window length.
+	 */
+	private final int out;
+
+	/**
+	 * Number of quotes before each window required by generator indicators.
+	 */
+	private int lookback = 100;
+
+	/**
+	 * Shall in-sample windows start at the beginning of the history?
+	 */
+	private boolean anchored = false;
+
+	private boolean shorts = false;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Parameters values to check.
+	 */
+	private final Map<String, int[]> grid = new HashMap<String, int[]>();
+
+	/**
+	 * @param type - generator class, it has to have public no-argument
+	 *            constructor
+	 * @param data - quotes history (the last element is the newest one)
+	 * @param in - in-sample window length
+	 * @param out - out-of-sample window length, windows are moved by this
+	 *            number of quotes
+	 */
+	public WalkForward(Class<? extends SignalGenerator<Quote>> type, Quote[] data, int in, int out) {
+		if (type == null) {
+			throw new IllegalArgumentException("Generator class cannot be null");
+		}
+		if (in <= 0 || out <= 0) {
+			throw new IllegalArgumentException("Windows lengths have to be positive");
+		}
+		this.type = type;
+		this.data = data.clone();
+		this.in = in;
+		this.out = out;
+	}
+
+	/**
+	 * Check parameter values from given range.
+	 *
+	 * @param name - parameter name
+	 * @param from - first value
+	 * @param to - last value (inclusive)
+	 * @param step - step
+	 * @see ParameterOptimizer#setRange(String, int, int, int)
+	 */
+	public void setRange(String name, int from, int to, int step) {
+		if (step <= 0) {
+			throw new IllegalArgumentException("Step has to be positive");
+		}
+		if (to < from) {
+			throw new IllegalArgumentException("Range end cannot be less then its beginning");
+		}
+		int[] values = new int[(to - from) / step + 1];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = from + i * step;
+		}
+		setValues(name, values);
+	}
+
+	/**
+	 * Check given parameter values.
+	 *
+	 * @param name - parameter name
+	 * @param values - values to check
+	 */
+	public void setValues(String name, int... values) {
+		if (!ParameterOptimizer.parameters(type).contains(name)) {
+			throw new IllegalArgumentException("Generator " + type.getSimpleName() + " has no signal parameter " + name);
+		}
+		if (values.length == 0) {
+			throw new IllegalArgumentException("At least one value is required for parameter " + name);
+		}
+		grid.put(name, values.clone());
+	}
+
+	public int getLookback() {
+		return lookback;
+	}
+
+	/**
+	 * @param lookback - number of quotes before each window required by
+	 *            generator indicators
+	 */
+	public void setLookback(int lookback) {
+		if (lookback <= 0) {
+			throw new IllegalArgumentException("Lookback has to be positive");
+		}
+		this.lookback = lookback;
+	}
+
+	public boolean isAnchored() {
+		return anchored;
+	}
+
+	/**
+	 * @param anchored - true if all in-sample windows shall start at the
+	 *            beginning of the history (in-sample length is then the
+	 *            length of the first window)
+	 */
+	public void setAnchored(boolean anchored) {
+		this.anchored = anchored;
+	}
+
+	public boolean isShorts() {
+		return shorts;
+	}
+
+	public void setShorts(boolean shorts) {
+		this.shorts = shorts;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Number of threads has to be positive");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * @return Number of windows which fits in the history
+	 */
+	public int getWindows() {
+		int n = data.length - lookback - in;
+		return n < out ? 0 : n / out;
+	}
+
+	/**
+	 * @param from - first index
+	 * @param to - last index (exclusive)
+	 * @return Optimizer for the range preceded by lookback quotes
+	 */
+	private ParameterOptimizer optimizer(int from, int to) {
+
+		Quote[] quotes = new Quote[to - from + lookback];
+		System.arraycopy(data, from - lookback, quotes, 0, quotes.length);
+
+		ParameterOptimizer po = new ParameterOptimizer(type, quotes, to - from);
+		po.setShorts(shorts);
+		po.setThreads(1);
+
+		return po;
+	}
+
+	/**
+	 * Optimize and evaluate single window.
+	 *
+	 * @param index - window number
+	 * @return Window or null if there is no valid parameters combination
+	 * @throws InterruptedException when interrupted
+	 */
+	protected Window evaluate(int index) throws InterruptedException {
+
+		int e = lookback + in + index * out; // in-sample end, exclusive
+		int s = anchored ? lookback : e - in;
+
+		Window w = new Window(index, data[s], data[e - 1], data[e], data[e + out - 1]);
+
+		ParameterOptimizer po = optimizer(s, e);
+		for (Entry<String, int[]> g : grid.entrySet()) {
+			po.setValues(g.getKey(), g.getValue());
+		}
+
+		List<Result> results = po.optimize();
+		if (results.isEmpty()) {
+			return null;
+		}
+
+		w.inSample = results.get(0);
+		w.outSample = optimizer(e, e + out).evaluate(w.inSample.getParameters());
+
+		SignalGenerator<Quote> generator = null;
+		try {
+			generator = type.newInstance();
+		} catch (Exception ex) {
+			throw new RuntimeException("Cannot create generator " + type.getName(), ex);
+		}
+		generator.setParameters(w.inSample.getParameters());
+
+		w.marshalled = Marshaller.marshalGenParams(generator);
+
+		return w;
+	}
+
+	/**
+	 * Evaluate all windows.
+	 *
+	 * @return Windows in chronological order
+	 * @throws InterruptedException when interrupted while waiting for results
+	 */
+	public List<Window> run() throws InterruptedException {
+
+		int n = getWindows();
+		if (n == 0) {
+			throw new IllegalArgumentException("History is too short for a single window");
+		}
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("Evaluating " + n + " walk-forward windows of " + type.getSimpleName() + " in " + threads + " threads");
+		}
+
+		List<Future<Window>> futures = new LinkedList<Future<Window>>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		try {
+			for (int i = 0; i < n; i++) {
+				final int index = i;
+				futures.add(executor.submit(new Callable<Window>() {
+
+					@Override
+					public Window call() throws Exception {
+						return evaluate(index);
+					}
+				}));
+			}
+
+			List<Window> windows = new ArrayList<Window>(n);
+			for (Future<Window> f : futures) {
+				Window w = f.get();
+				if (w != null) {
+					windows.add(w);
+				}
+			}
+
+			return Collections.unmodifiableList(windows);
+
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Walk-forward window evaluation failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Set parameters fitted in the given window to the trader's signal
+	 * generator.
+	 *
+	 * @param w - evaluated window
+	 * @param trader - trader using generator of the walk-forward type
+	 * @throws IllegalArgumentException if trader uses generator of other type
+	 */
+	public void apply(Window w, Trader trader) {
+		SignalGenerator<Quote> generator = trader.getSignalGenerator();
+		if (!type.isInstance(generator)) {
+			throw new IllegalArgumentException(
+				"Trader " + trader.getName() + " generator is not " + type.getSimpleName());
+		}
+		generator.setParameters(new HashMap<String, String>(w.getParameters()));
+	}
+
+	/**
+	 * Apply parameters fitted in the last window to the trader and save
+	 * trader, so it uses them after the next restart too.
+	 *
+	 * @param windows - evaluated windows in chronological order
+	 * @param trader - trader using generator of the walk-forward type
+	 * @param dao - DAO to save trader with
+	 * @throws DBDAOException when trader cannot be saved
+	 */
+	public void save(List<Window> windows, Trader trader, DBDAO dao) throws DBDAOException {
+		if (windows.isEmpty()) {
+			throw new IllegalArgumentException("There are no windows to take parameters from");
+		}
+		Window w = windows.get(windows.size() - 1);
+		apply(w, trader);
+		dao.updateTrader(trader);
+		if (LOG.isInfoEnabled()) {
+			LOG.info("Trader " + trader.getName() + " saved with parameters " + w.getMarshalled());
+		}
+	}
+
+	/**
+	 * Calculate mean and standard deviation of each fitted parameter.
+	 *
+	 * @param windows - evaluated windows
+	 * @return Map with parameter name as key and [mean, stddev] as value
+	 */
+	public static Map<String, double[]> stability(List<Window> windows) {
+
+		Map<String, double[]> stats = new HashMap<String, double[]>();
+		if (windows.isEmpty()) {
+			return stats;
+		}
+
+		for (String name : windows.get(0).getParameters().keySet()) {
+			double sum = 0;
+			double sq = 0;
+			for (Window w : windows) {
+				double v = Double.parseDouble(w.getParameters().get(name));
+				sum += v;
+				sq += v * v;
+			}
+			int n = windows.size();
+			double mean = sum / n;
+			double var = sq / n - mean * mean;
+			stats.put(name, new double[] { mean, Math.sqrt(var > 0 ? var : 0) });
+		}
+
+		return stats;
+	}
+
+	/**
+	 * Print windows table, total profits and parameters stability.
+	 *
+	 * @param windows - evaluated windows
+	 * @param ps - print stream
+	 */
+	public static void print(List<Window> windows, PrintStream ps) {
+
+		double is = 0;
+		double oos = 0;
+
+		for (Window w : windows) {
+			ps.println(w);
+			is += w.getInSample().getProfit();
+			oos += w.getOutSample().getProfit();
+		}
+
+		ps.println(String.format("TOTAL IS %.2f OOS %.2f", is, oos));
+
+		for (Entry<String, double[]> e : stability(windows).entrySet()) {
+			double[] v = e.getValue();
+			ps.println(String.format("%s mean %.2f stddev %.2f", e.getKey(), v[0], v[1]));
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		Symbol symbol = Symbol.KGH;
+		List<Quote> quotes = new HistoryProviderSim().getAllQuotes(symbol);
+		Quote[] data = quotes.toArray(new Quote[quotes.size()]);
+
+		WalkForward wf = new WalkForward(MAVD.class, data, 250, 60);
+		wf.setRange("A", 3, 15, 2);
+		wf.setRange("B", 10, 40, 5);
+		wf.setRange("C", 10, 50, 10);
+
+		print(wf.run(), System.out);
+	}
+}
@@ -0,0 +1,187 @@
+package com.sarxos.medusa.sim;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.data.FakeQuotesRegistry;
+import com.sarxos.medusa.market.Position;
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Symbol;
+
+
+public class BacktestAnalyticsTest {
+
+	/**
+	 * @param day - day of January 2011
+	 * @return Noon of given day
+	 */
+	private static long noon(int day) {
+		return new GregorianCalendar(2011, 0, day, 12, 0).getTimeInMillis();
+	}
+
+	/**
+	 * Long 100 -> 105 with equity marks 0, 10, -5, 5, 5 in five days.
+	 */
+	private static BacktestAnalytics analytics() {
+
+		List<Trade> trades = new ArrayList<Trade>();
+		trades.add(new Trade(Position.LONG, new Date(noon(3)), 100, new Date(noon(6)), 105, 0));
+
+		EquityCurve equity = new EquityCurve();
+		equity.mark(noon(3), 0);
+		equity.mark(noon(4), 10);
+		equity.mark(noon(5), -5);
+		equity.mark(noon(6), 5);
+		equity.mark(noon(7), 5);
+
+		BacktestResult r = new BacktestResult(Symbol.QQQ, "LevelGenerator", new HashMap<String, String>(), trades, 0, 0, equity);
+		return new BacktestAnalytics(r);
+	}
+
+	@Test
+	public void test_equity() {
+
+		BacktestAnalytics a = analytics();
+
+		Assert.assertEquals(1, a.getTrades());
+		Assert.assertEquals(1, a.getWins());
+		Assert.assertEquals(1.0, a.getHitRate());
+		Assert.assertEquals(5.0, a.getProfit());
+		Assert.assertEquals(5.0, a.getEquity());
+		Assert.assertEquals(15.0, a.getMaxDrawdown());
+		Assert.assertEquals(Double.POSITIVE_INFINITY, a.getProfitFactor());
+		Assert.assertEquals(5, a.getDays());
+
+		double[] equity = a.getEquityValues();
+		Assert.assertEquals(5, equity.length);
+		Assert.assertEquals(0.0, equity[0]);
+		Assert.assertEquals(10.0, equity[1]);
+		Assert.assertEquals(-5.0, equity[2]);
+		Assert.assertEquals(5.0, equity[3]);
+		Assert.assertEquals(5.0, equity[4]);
+		Assert.assertEquals(noon(7), a.getEquityTimes()[4]);
+	}
+
+	@Test
+	public void test_ratios() {
+
+		BacktestAnalytics a = analytics();
+
+		// daily profits 0, 10, -15, 10, 0 - mean 1, variance 105, downside
+		// deviation sqrt(225 / 5)
+
+		Assert.assertEquals(Math.sqrt(252.0 / 105), a.getSharpe(), 1e-9);
+		Assert.assertEquals(Math.sqrt(252.0 / 45), a.getSortino(), 1e-9);
+
+		// long for 3 of 4 days
+
+		Assert.assertEquals(0.75, a.getExposure(), 1e-9);
+	}
+
+	@Test
+	public void test_empty() {
+
+		BacktestAnalytics a = new BacktestAnalytics(new BacktestResult(Symbol.QQQ, "LevelGenerator", new HashMap<String, String>(), new ArrayList<Trade>(), 0, 0));
+
+		// ratios need at least two days
+
+		Assert.assertEquals(0, a.getTrades());
+		Assert.assertEquals(0.0, a.getEquity());
+		Assert.assertEquals(0.0, a.getProfitFactor());
+		Assert.assertEquals(0.0, a.getSharpe());
+		Assert.assertEquals(0.0, a.getSortino());
+		Assert.assertEquals(0.0, a.getExposure());
+	}
+
+	@Test
+	public void test_json() {
+
+		String json = analytics().toJSON("a\"b");
+
+		Assert.assertTrue(json.startsWith("{\"label\":\"a\\\"b\",\"trades\":1,\"wins\":1,\"hitrate\":1.000000,\"profit\":5.000000,"));
+
+		// infinity is not allowed in JSON
+
+		Assert.assertTrue(json.contains("\"profitfactor\":null,\"maxdrawdown\":15.000000,"));
+		Assert.assertTrue(json.contains("\"closed\":[{\"position\":\"LONG\",\"entrytime\":" + noon(3) + ",\"entryprice\":100.000000,"));
+		Assert.assertTrue(json.endsWith("[" + noon(7) + ",5.000000]]}"));
+	}
+
+	@Test
+	public void test_csv() throws IOException {
+
+		BacktestAnalytics a = analytics();
+
+		String[] summary = a.summary("x");
+		Assert.assertEquals(BacktestAnalytics.header().length, summary.length);
+		Assert.assertEquals("x", summary[0]);
+		Assert.assertEquals("null", summary[5]);
+
+		StringWriter trades = new StringWriter();
+		a.writeTrades(trades);
+
+		String[] lines = trades.toString().split("\n");
+		Assert.assertEquals(2, lines.length);
+		Assert.assertEquals("\"LONG\",\"" + noon(3) + "\",\"100.000000\",\"" + noon(6) + "\",\"105.000000\",\"5.000000\"", lines[1]);
+
+		StringWriter equity = new StringWriter();
+		a.writeEquity(equity);
+
+		lines = equity.toString().split("\n");
+		Assert.assertEquals(6, lines.length);
+		Assert.assertEquals("\"" + noon(5) + "\",\"-5.000000\"", lines[3]);
+	}
+
+	@Test
+	public void test_engine() {
+
+		// analytics of the engine result, run is stopped right after the BUY
+		// filled at 100 + 0.5
+
+		Symbol symbol = Symbol.FW20M11;
+		double[] closes = new double[] { 95, 100, 110, 125 };
+
+		List<Quote> ticks = new ArrayList<Quote>();
+		for (int k = 0; k < closes.length; k++) {
+			double c = closes[k];
+			ticks.add(new Quote(symbol, new Date(noon(3) + k * 600000L), c, c, c, c, 10));
+		}
+
+		FakeQuotesRegistry registry = new FakeQuotesRegistry();
+		registry.addQuote(symbol, new Quote(symbol, new GregorianCalendar(2010, 11, 31).getTime(), 90, 90, 90, 90, 100));
+
+		BacktestEngine engine = new BacktestEngine(symbol, new LevelGenerator());
+		engine.setRegistry(registry);
+		engine.setWarmup(1);
+		engine.setCommission(1);
+		engine.setSlippage(0.5);
+		engine.setTo(new Date(noon(3) + 2 * 600000L));
+
+		BacktestResult r = engine.run(ticks.iterator());
+		BacktestAnalytics a = new BacktestAnalytics(r);
+
+		Assert.assertEquals(r.getTrades(), a.getTradesList());
+		Assert.assertEquals(1, a.getTrades());
+
+		// 109.5 - 100.5 - 2 x 1
+
+		Assert.assertEquals(r.getProfit(), a.getProfit(), 1e-9);
+		Assert.assertEquals(7.0, a.getProfit(), 1e-9);
+		Assert.assertEquals(7.0, a.getEquity(), 1e-9);
+		Assert.assertEquals(1, a.getDays());
+
+		// open position right after BUY is worth 99.5 - 100.5 - 2 x 1
+
+		Assert.assertEquals(3.0, a.getMaxDrawdown(), 1e-9);
+		Assert.assertEquals(0.5, a.getExposure(), 1e-9);
+	}
+}
@@ -0,0 +1,172 @@
+package com.sarxos.medusa.sim;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.data.FakeQuotesRegistry;
+import com.sarxos.medusa.market.Position;
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Symbol;
+
+
+public class BacktestEngineTest {
+
+	private static final Symbol SYMBOL = Symbol.FW20M11;
+
+	/**
+	 * Intraday closes, signals of {@link LevelGenerator} with default
+	 * parameters are: none (first tick), BUY, BUY, SELL, BUY, SELL, BUY.
+	 */
+	private static final double[] CLOSES = new double[] { 95, 100, 110, 125, 115, 95, 105 };
+
+	private static Date time(int k) {
+		return new Date(new GregorianCalendar(2011, 0, 3, 9, 0).getTimeInMillis() + k * 600000L);
+	}
+
+	private static List<Quote> ticks() {
+		List<Quote> ticks = new ArrayList<Quote>();
+		for (int k = 0; k < CLOSES.length; k++) {
+			double c = CLOSES[k];
+			ticks.add(new Quote(SYMBOL, time(k), c, c, c, c, 10));
+		}
+		return ticks;
+	}
+
+	private static BacktestEngine engine() {
+		FakeQuotesRegistry registry = new FakeQuotesRegistry();
+		registry.addQuote(SYMBOL, new Quote(SYMBOL, new GregorianCalendar(2010, 11, 31).getTime(), 90, 90, 90, 90, 100));
+		BacktestEngine engine = new BacktestEngine(SYMBOL, new LevelGenerator());
+		engine.setRegistry(registry);
+		engine.setWarmup(1);
+		return engine;
+	}
+
+	private static void check(Trade t, Position p, double entry, double exit) {
+		Assert.assertEquals(p, t.getPosition());
+		Assert.assertEquals(entry, t.getEntryPrice());
+		Assert.assertEquals(exit, t.getExitPrice());
+	}
+
+	@Test
+	public void test_fills() {
+
+		BacktestEngine engine = engine();
+		engine.setCommission(1);
+		engine.setSlippage(0.5);
+
+		BacktestResult r = engine.run(ticks().iterator());
+		List<Trade> trades = r.getTrades();
+
+		Assert.assertEquals(CLOSES.length, r.getTicks());
+		Assert.assertEquals(5, trades.size());
+
+		// every SELL reverses long to short and every BUY short to long, the
+		// last long is closed at the last price
+
+		check(trades.get(0), Position.LONG, 100.5, 124.5);
+		check(trades.get(1), Position.SHORT, 124.5, 115.5);
+		check(trades.get(2), Position.LONG, 115.5, 94.5);
+		check(trades.get(3), Position.SHORT, 94.5, 105.5);
+		check(trades.get(4), Position.LONG, 105.5, 104.5);
+
+		Assert.assertEquals(time(1), trades.get(0).getEntryDate());
+		Assert.assertEquals(time(3), trades.get(0).getExitDate());
+		Assert.assertEquals(time(6), trades.get(4).getExitDate());
+
+		Assert.assertEquals(2.0, trades.get(0).getCosts());
+		Assert.assertEquals(22.0, trades.get(0).getProfit());
+		Assert.assertEquals(-10.0, r.getProfit(), 1e-9);
+		Assert.assertEquals(2, r.getWins());
+	}
+
+	@Test
+	public void test_longs() {
+
+		BacktestEngine engine = engine();
+		engine.setShorts(false);
+
+		BacktestResult r = engine.run(ticks().iterator());
+		List<Trade> trades = r.getTrades();
+
+		Assert.assertEquals(3, trades.size());
+		check(trades.get(0), Position.LONG, 100, 125);
+		check(trades.get(1), Position.LONG, 115, 95);
+		check(trades.get(2), Position.LONG, 105, 105);
+		Assert.assertEquals(5.0, r.getProfit());
+	}
+
+	@Test
+	public void test_to() {
+
+		BacktestEngine engine = engine();
+		engine.setTo(time(4));
+
+		BacktestResult r = engine.run(ticks().iterator());
+		List<Trade> trades = r.getTrades();
+
+		// quotes after 'to' are not read, position is closed at the last one
+
+		Assert.assertEquals(5, r.getTicks());
+		Assert.assertEquals(3, trades.size());
+		check(trades.get(2), Position.LONG, 115, 115);
+		Assert.assertEquals(time(4), trades.get(2).getExitDate());
+	}
+
+	@Test
+	public void test_warmup() {
+
+		BacktestEngine engine = engine();
+		engine.setWarmup(2);
+
+		BacktestResult r = engine.run(ticks().iterator());
+
+		Assert.assertEquals(CLOSES.length, r.getTicks());
+		Assert.assertTrue(r.getTrades().isEmpty());
+	}
+
+	@Test
+	public void test_input() {
+
+		// quotes passed to the engine are not changed by the daily values
+
+		List<Quote> ticks = ticks();
+		engine().run(ticks.iterator());
+
+		for (int k = 0; k < CLOSES.length; k++) {
+			Quote q = ticks.get(k);
+			Assert.assertEquals(CLOSES[k], q.getOpen());
+			Assert.assertEquals(CLOSES[k], q.getHigh());
+			Assert.assertEquals(CLOSES[k], q.getLow());
+			Assert.assertEquals(10, q.getVolume());
+		}
+	}
+
+	@Test
+	public void test_repeat() {
+
+		// tick of the next day closes daily bar
+
+		List<Quote> ticks = ticks();
+		ticks.add(new Quote(SYMBOL, new GregorianCalendar(2011, 0, 4, 9, 0).getTime(), 105, 105, 105, 105, 10));
+
+		BacktestEngine engine = engine();
+		BacktestResult a = engine.run(ticks.iterator());
+
+		ticks = ticks();
+		ticks.add(new Quote(SYMBOL, new GregorianCalendar(2011, 0, 4, 9, 0).getTime(), 105, 105, 105, 105, 10));
+
+		BacktestResult b = engine.run(ticks.iterator());
+
+		// each run starts from the same registry
+
+		Assert.assertEquals(1, a.getBars());
+		Assert.assertEquals(a, b);
+		Assert.assertEquals(1, engine.getRegistry().getQuotes(SYMBOL).size());
+	}
+}
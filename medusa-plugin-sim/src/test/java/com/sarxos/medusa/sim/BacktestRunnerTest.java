@@ -0,0 +1,120 @@
+package com.sarxos.medusa.sim;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.sim.BacktestRunner.QuotesSource;
+
+
+public class BacktestRunnerTest {
+
+	/**
+	 * Intraday closes of the second day, the first day is used for warm-up.
+	 */
+	private static final double[] CLOSES = new double[] { 95, 100, 110, 125, 115, 95, 105 };
+
+	/**
+	 * Quotes source with two days of ticks, it fails for BRE.
+	 */
+	private static final QuotesSource SOURCE = new QuotesSource() {
+
+		@Override
+		public Iterator<Quote> open(Symbol symbol, Date from) throws Exception {
+
+			if (symbol == Symbol.BRE) {
+				throw new Exception("No quotes for " + symbol);
+			}
+
+			List<Quote> ticks = new ArrayList<Quote>();
+			long first = new GregorianCalendar(2011, 0, 3, 9, 0).getTimeInMillis();
+			long second = new GregorianCalendar(2011, 0, 4, 9, 0).getTimeInMillis();
+
+			for (int k = 0; k < CLOSES.length; k++) {
+				ticks.add(new Quote(symbol, new Date(first + k * 600000L), 95, 95, 95, 95, 10));
+			}
+			for (int k = 0; k < CLOSES.length; k++) {
+				double c = CLOSES[k];
+				ticks.add(new Quote(symbol, new Date(second + k * 600000L), c, c, c, c, 10));
+			}
+
+			return ticks.iterator();
+		}
+	};
+
+	private static BacktestRunner runner() {
+		BacktestRunner runner = new BacktestRunner();
+		runner.setSource(SOURCE);
+		runner.setHistory(null);
+		runner.setWarmup(1);
+		runner.setThreads(2);
+		return runner;
+	}
+
+	@Test
+	public void test_run() throws InterruptedException {
+
+		Map<String, String> wide = new HashMap<String, String>();
+		wide.put("A", "90");
+		wide.put("B", "200");
+
+		BacktestRunner runner = runner();
+		runner.add(Symbol.QQQ, LevelGenerator.class, null);
+		runner.add(Symbol.BRE, LevelGenerator.class, null);
+		runner.add(Symbol.KGH, LevelGenerator.class, wide);
+
+		Assert.assertEquals(3, runner.size());
+
+		// failed backtest is skipped, others are in the order of adding
+
+		List<BacktestResult> results = runner.run();
+		Assert.assertEquals(2, results.size());
+
+		BacktestResult qqq = results.get(0);
+		Assert.assertEquals(Symbol.QQQ, qqq.getSymbol());
+		Assert.assertEquals("LevelGenerator", qqq.getGenerator());
+		Assert.assertEquals(2 * CLOSES.length, qqq.getTicks());
+		Assert.assertEquals(1, qqq.getBars());
+		Assert.assertEquals(5, qqq.getTrades().size());
+		Assert.assertEquals(5.0, qqq.getProfit());
+
+		// long opened at 100 is held until the last quote
+
+		BacktestResult kgh = results.get(1);
+		Assert.assertEquals(Symbol.KGH, kgh.getSymbol());
+		Assert.assertEquals("90", kgh.getParameters().get("A"));
+		Assert.assertEquals(1, kgh.getTrades().size());
+		Assert.assertEquals(5.0, kgh.getProfit());
+	}
+
+	@Test
+	public void test_isolation() throws InterruptedException {
+
+		// the same symbol and generator run concurrently has to give the same
+		// results
+
+		BacktestRunner runner = runner();
+		runner.add(new Symbol[] { Symbol.QQQ, Symbol.QQQ, Symbol.QQQ, Symbol.QQQ }, LevelGenerator.class, null);
+
+		List<BacktestResult> results = runner.run();
+		Assert.assertEquals(4, results.size());
+		for (BacktestResult r : results) {
+			Assert.assertEquals(results.get(0), r);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_add() {
+		runner().add((Symbol) null, LevelGenerator.class, null);
+	}
+}
@@ -0,0 +1,88 @@
+package com.sarxos.medusa.sim;
+
+import static com.sarxos.medusa.market.SignalType.BUY;
+import static com.sarxos.medusa.market.SignalType.SELL;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.sarxos.medusa.market.AbstractGenerator;
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.Signal;
+import com.sarxos.medusa.market.SignalParameter;
+import com.sarxos.medusa.market.SignalType;
+
+
+/**
+ * Test generator with signals easy to calculate by hand.<br>
+ * <br>
+ *
+ * B &lt;=&gt; A &lt;= Q(n) &lt; B<br>
+ * S &lt;=&gt; Q(n) &lt; A or Q(n) &gt;= B
+ *
+ * @author Bartosz Firyn (SarXos)
+ */
+public class LevelGenerator extends AbstractGenerator<Quote> {
+
+	@SignalParameter
+	private int A = 100;
+
+	@SignalParameter
+	private int B = 120;
+
+	public LevelGenerator() {
+	}
+
+	public LevelGenerator(int A, int B) {
+		init(A, B);
+	}
+
+	public void init(int A, int B) {
+		if (B <= A) {
+			throw new IllegalArgumentException("Upper level has to be greater then lower one");
+		}
+		this.A = A;
+		this.B = B;
+	}
+
+	private SignalType type(Quote q) {
+		double c = q.getClose();
+		return c >= A && c < B ? BUY : SELL;
+	}
+
+	@Override
+	public Signal generate(Quote q) {
+		return new Signal(q, type(q));
+	}
+
+	@Override
+	public List<Signal> generate(Quote[] data, int R) {
+		List<Signal> signals = new LinkedList<Signal>();
+		SignalType last = null;
+		for (int i = data.length - R; i < data.length; i++) {
+			SignalType type = type(data[i]);
+			if (type != last) {
+				signals.add(new Signal(data[i], type));
+				last = type;
+			}
+		}
+		return signals;
+	}
+
+	@Override
+	public Map<String, String> getParameters() {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("A", Integer.toString(A));
+		params.put("B", Integer.toString(B));
+		return params;
+	}
+
+	@Override
+	public void setParameters(Map<String, String> params) {
+		int A = Integer.parseInt(params.get("A").toString());
+		int B = Integer.parseInt(params.get("B").toString());
+		init(A, B);
+	}
+}
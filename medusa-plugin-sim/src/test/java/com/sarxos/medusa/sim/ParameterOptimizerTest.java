@@ -0,0 +1,148 @@
+package com.sarxos.medusa.sim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
+import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.sim.ParameterOptimizer.Result;
+
+
+public class ParameterOptimizerTest {
+
+	private static final double[] CLOSES = new double[] { 100, 100, 110, 120, 130, 140, 150, 140, 145 };
+
+	private static Quote[] quotes() {
+		QuoteSeries series = new QuoteSeries(Symbol.QQQ);
+		for (int i = 0; i < CLOSES.length; i++) {
+			double c = CLOSES[i];
+			series.add(i * 86400000L, c, c, c, c, 1000);
+		}
+		return series.asList().toArray(new Quote[CLOSES.length]);
+	}
+
+	private static String params(Result r) {
+		Map<String, String> p = r.getParameters();
+		return p.get("A") + "/" + p.get("B");
+	}
+
+	@Test
+	public void test_parameters() {
+		List<String> names = ParameterOptimizer.parameters(LevelGenerator.class);
+		Collections.sort(names);
+		Assert.assertEquals("[A, B]", names.toString());
+	}
+
+	@Test
+	public void test_combinations() throws InterruptedException {
+
+		final List<String> evaluated = Collections.synchronizedList(new ArrayList<String>());
+
+		ParameterOptimizer po = new ParameterOptimizer(LevelGenerator.class, quotes(), 8) {
+
+			@Override
+			protected Result evaluate(Map<String, String> params) {
+				evaluated.add(params.get("A") + "/" + params.get("B"));
+				return super.evaluate(params);
+			}
+		};
+
+		po.setRange("A", 100, 119, 10);
+		po.setValues("B", 100, 130, 150);
+		po.setThreads(2);
+
+		Assert.assertEquals(6, po.getCombinations());
+
+		List<Result> results = po.optimize();
+
+		// each combination is evaluated once, invalid ones (B <= A) are
+		// skipped
+
+		Set<String> expected = new HashSet<String>();
+		for (String a : new String[] { "100", "110" }) {
+			for (String b : new String[] { "100", "130", "150" }) {
+				expected.add(a + "/" + b);
+			}
+		}
+
+		Assert.assertEquals(6, evaluated.size());
+		Assert.assertEquals(expected, new HashSet<String>(evaluated));
+		Assert.assertEquals(4, results.size());
+	}
+
+	@Test
+	public void test_ranking() throws InterruptedException {
+
+		ParameterOptimizer po = new ParameterOptimizer(LevelGenerator.class, quotes(), 8);
+		po.setValues("A", 100, 110);
+		po.setValues("B", 130, 150);
+
+		List<Result> results = po.optimize();
+		Assert.assertEquals(4, results.size());
+
+		Assert.assertEquals("100/150", params(results.get(0)));
+		Assert.assertEquals("110/150", params(results.get(1)));
+		Assert.assertEquals("100/130", params(results.get(2)));
+		Assert.assertEquals("110/130", params(results.get(3)));
+
+		// long 100 -> 150 and long 140 -> 145 closed at the last quote
+
+		Result best = results.get(0);
+		Assert.assertEquals(55.0, best.getProfit());
+		Assert.assertEquals(2, best.getTrades());
+		Assert.assertEquals(2, best.getWins());
+		Assert.assertEquals(3, best.getSignals());
+
+		Assert.assertEquals(45.0, results.get(1).getProfit());
+		Assert.assertEquals(30.0, results.get(2).getProfit());
+		Assert.assertEquals(20.0, results.get(3).getProfit());
+	}
+
+	@Test
+	public void test_shorts() throws InterruptedException {
+
+		ParameterOptimizer po = new ParameterOptimizer(LevelGenerator.class, quotes(), 8);
+		po.setValues("A", 110);
+		po.setValues("B", 130);
+		po.setShorts(true);
+
+		// short 100 -> 110, long 110 -> 130, short 130 -> 145
+
+		Result r = po.optimize().get(0);
+		Assert.assertEquals(-5.0, r.getProfit());
+		Assert.assertEquals(3, r.getTrades());
+		Assert.assertEquals(1, r.getWins());
+	}
+
+	@Test
+	public void test_open() throws InterruptedException {
+
+		ParameterOptimizer po = new ParameterOptimizer(LevelGenerator.class, quotes(), 8);
+		po.setValues("B", 200);
+
+		// long 100 is never closed by signal
+
+		Result r = po.optimize().get(0);
+		Assert.assertEquals(45.0, r.getProfit());
+		Assert.assertEquals(1, r.getTrades());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_range() {
+		new ParameterOptimizer(LevelGenerator.class, quotes(), CLOSES.length);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_unknown() {
+		new ParameterOptimizer(LevelGenerator.class, quotes(), 8).setValues("X", 1);
+	}
+}
@@ -0,0 +1,150 @@
+package com.sarxos.medusa.sim;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sarxos.medusa.generator.MAVD;
+import com.sarxos.medusa.market.Quote;
+import com.sarxos.medusa.market.QuoteSeries;
+import com.sarxos.medusa.market.Symbol;
+import com.sarxos.medusa.sim.WalkForward.Window;
+import com.sarxos.medusa.trader.FuturesTrader;
+import com.sarxos.medusa.trader.Trader;
+
+
+public class WalkForwardTest {
+
+	private static final long DAY = 86400000L;
+
+	/**
+	 * Quote i has close 100 + i, so {@link LevelGenerator} with A = 100 and B
+	 * = 200 buys at the first quote of each range.
+	 */
+	private static Quote[] quotes(int n) {
+		QuoteSeries series = new QuoteSeries(Symbol.QQQ);
+		for (int i = 0; i < n; i++) {
+			double c = 100 + i;
+			series.add(i * DAY, c, c, c, c, 1000);
+		}
+		return series.asList().toArray(new Quote[n]);
+	}
+
+	private static int index(Quote q) {
+		return (int) (q.getDate().getTime() / DAY);
+	}
+
+	private static WalkForward walk(int n) {
+		WalkForward wf = new WalkForward(LevelGenerator.class, quotes(n), 4, 3);
+		wf.setLookback(2);
+		wf.setValues("A", 100);
+		wf.setValues("B", 200);
+		wf.setThreads(2);
+		return wf;
+	}
+
+	@Test
+	public void test_windows() {
+
+		// lookback 2 + in-sample 4 + 3 x out-of-sample 3
+
+		Assert.assertEquals(3, walk(15).getWindows());
+		Assert.assertEquals(3, walk(17).getWindows());
+		Assert.assertEquals(4, walk(18).getWindows());
+		Assert.assertEquals(0, walk(8).getWindows());
+	}
+
+	@Test
+	public void test_rolling() throws InterruptedException {
+
+		List<Window> windows = walk(15).run();
+		Assert.assertEquals(3, windows.size());
+
+		for (int i = 0; i < windows.size(); i++) {
+
+			Window w = windows.get(i);
+
+			Assert.assertEquals(i, w.getIndex());
+			Assert.assertEquals(2 + 3 * i, index(w.getInFrom()));
+			Assert.assertEquals(5 + 3 * i, index(w.getInTo()));
+			Assert.assertEquals(6 + 3 * i, index(w.getOutFrom()));
+			Assert.assertEquals(8 + 3 * i, index(w.getOutTo()));
+
+			// long from the first to the last quote of each part
+
+			Assert.assertEquals(3.0, w.getInSample().getProfit());
+			Assert.assertEquals(2.0, w.getOutSample().getProfit());
+			Assert.assertEquals("100", w.getParameters().get("A"));
+			Assert.assertNotNull(w.getMarshalled());
+		}
+	}
+
+	@Test
+	public void test_anchored() throws InterruptedException {
+
+		WalkForward wf = walk(15);
+		wf.setAnchored(true);
+
+		List<Window> windows = wf.run();
+		Assert.assertEquals(3, windows.size());
+
+		for (int i = 0; i < windows.size(); i++) {
+
+			Window w = windows.get(i);
+
+			// in-sample always starts after lookback and grows with windows
+
+			Assert.assertEquals(2, index(w.getInFrom()));
+			Assert.assertEquals(5 + 3 * i, index(w.getInTo()));
+			Assert.assertEquals(6 + 3 * i, index(w.getOutFrom()));
+			Assert.assertEquals(8 + 3 * i, index(w.getOutTo()));
+
+			Assert.assertEquals(3.0 + 3 * i, w.getInSample().getProfit());
+			Assert.assertEquals(2.0, w.getOutSample().getProfit());
+		}
+	}
+
+	@Test
+	public void test_stability() throws InterruptedException {
+		Map<String, double[]> stats = WalkForward.stability(walk(15).run());
+		Assert.assertEquals(100.0, stats.get("A")[0]);
+		Assert.assertEquals(0.0, stats.get("A")[1]);
+		Assert.assertEquals(200.0, stats.get("B")[0]);
+	}
+
+	@Test
+	public void test_apply() throws InterruptedException {
+
+		WalkForward wf = walk(15);
+		List<Window> windows = wf.run();
+
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("A", "90");
+		params.put("B", "110");
+
+		LevelGenerator generator = new LevelGenerator();
+		generator.setParameters(params);
+
+		Trader trader = new FuturesTrader("wf", generator, Symbol.QQQ);
+		wf.apply(windows.get(windows.size() - 1), trader);
+
+		Assert.assertEquals("100", trader.getSignalGenerator().getParameters().get("A"));
+		Assert.assertEquals("200", trader.getSignalGenerator().getParameters().get("B"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_applyType() throws InterruptedException {
+		WalkForward wf = walk(15);
+		Trader trader = new FuturesTrader("wf", new MAVD(), Symbol.QQQ);
+		wf.apply(wf.run().get(0), trader);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_short() throws InterruptedException {
+		walk(8).run();
+	}
+}